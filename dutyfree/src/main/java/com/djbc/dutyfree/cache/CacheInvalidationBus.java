@@ -0,0 +1,50 @@
+package com.djbc.dutyfree.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Announces cache evictions to the other nodes over Redis pub/sub, so they drop their L1 copy.
+ * <p>
+ * A message is {@code node \t cache [\t key]}; without a key the whole cache is cleared.
+ * Nodes ignore their own messages.
+ */
+@Slf4j
+public class CacheInvalidationBus {
+
+    public static final String CHANNEL = "cache:invalidation";
+
+    private static final char SEPARATOR = '\t';
+
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId;
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, String nodeId) {
+        this.redisTemplate = redisTemplate;
+        this.nodeId = nodeId;
+    }
+
+    public record Invalidation(String cacheName, String key) {
+    }
+
+    void publish(String cacheName, Object key) {
+        String message = nodeId + SEPARATOR + cacheName + (key != null ? SEPARATOR + String.valueOf(key) : "");
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            // Other nodes fall back on their L1 TTL
+            log.warn("Could not announce eviction of {} in cache {}: {}", key, cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * Decode a message, or {@code null} when it was sent by this node or is malformed.
+     */
+    Invalidation decode(String message) {
+        String[] parts = message.split(String.valueOf(SEPARATOR), 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return null;
+        }
+        return new Invalidation(parts[1], parts.length == 3 ? parts[2] : null);
+    }
+}
@@ -0,0 +1,142 @@
+package com.djbc.dutyfree.cache;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cache read from an in-process Caffeine cache (L1) first, then from the shared Redis cache (L2)
+ * when one is configured. Values found in L2 are copied into L1.
+ * <p>
+ * Evictions and clears are applied to both levels and announced to the other nodes, which drop
+ * their L1 copy. Puts are not announced: they come from loads of the current state, and every
+ * write path that changes that state already evicts.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationBus invalidationBus;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+
+    TwoLevelCache(String name,
+                  com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                  Cache remote,
+                  CacheInvalidationBus invalidationBus,
+                  Counter remoteHits,
+                  Counter remoteMisses) {
+        super(true);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+        this.remoteHits = remoteHits;
+        this.remoteMisses = remoteMisses;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        value = lookupRemote(key);
+        if (value != null) {
+            local.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return (T) fromStoreValue(local.get(key, k -> {
+            Object value = lookupRemote(k);
+            if (value != null) {
+                return value;
+            }
+            T loaded;
+            try {
+                loaded = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(k, valueLoader, e);
+            }
+            putRemote(k, loaded);
+            return toStoreValue(loaded);
+        }));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, toStoreValue(value));
+        putRemote(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.invalidate(key);
+        if (remote != null) {
+            remote.evict(key);
+        }
+        if (invalidationBus != null) {
+            invalidationBus.publish(name, key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        if (remote != null) {
+            remote.clear();
+        }
+        if (invalidationBus != null) {
+            invalidationBus.publish(name, null);
+        }
+    }
+
+    /**
+     * Drop L1 entries after an eviction made on another node. Keys travel as their string form,
+     * so every local key with the same string form goes.
+     */
+    void evictLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.asMap().keySet().removeIf(k -> key.equals(String.valueOf(k)));
+        }
+    }
+
+    private Object lookupRemote(Object key) {
+        if (remote == null) {
+            return null;
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        return toStoreValue(wrapper.get());
+    }
+
+    // Redis is configured without null values
+    private void putRemote(Object key, Object value) {
+        if (remote != null && value != null) {
+            remote.put(key, value);
+        }
+    }
+}
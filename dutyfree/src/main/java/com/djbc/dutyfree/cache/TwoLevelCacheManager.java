@@ -0,0 +1,89 @@
+package com.djbc.dutyfree.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link CacheManager} of {@link TwoLevelCache}s. Each cache gets its own Caffeine spec (size, TTL),
+ * or the default one; caches are created on first use like with the other Spring cache managers.
+ * <p>
+ * L1 statistics are published as the standard {@code cache.*} meters, L2 lookups as
+ * {@code cache.l2.gets}.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, CaffeineSpec> specs;
+    private final CaffeineSpec defaultSpec;
+    private final CacheManager remote;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+
+    public TwoLevelCacheManager(Map<String, String> specs,
+                                String defaultSpec,
+                                CacheManager remote,
+                                CacheInvalidationBus invalidationBus,
+                                MeterRegistry meterRegistry) {
+        this.specs = new ConcurrentHashMap<>();
+        specs.forEach((name, spec) -> this.specs.put(name, CaffeineSpec.parse(spec)));
+        this.defaultSpec = CaffeineSpec.parse(defaultSpec);
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.specs.keySet().forEach(this::getCache);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * Apply an eviction announced by another node to the local level only.
+     */
+    public void onRemoteInvalidation(String message) {
+        if (invalidationBus == null) {
+            return;
+        }
+        CacheInvalidationBus.Invalidation invalidation = invalidationBus.decode(message);
+        if (invalidation == null) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(invalidation.cacheName());
+        if (cache != null) {
+            cache.evictLocal(invalidation.key());
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local =
+                Caffeine.from(specs.getOrDefault(name, defaultSpec)).recordStats().build();
+        Cache remoteCache = remote != null ? remote.getCache(name) : null;
+
+        Counter remoteHits = Counter.builder("cache.l2.gets").tag("cache", name).tag("result", "hit")
+                .description("Lookups served by the shared cache after an L1 miss").register(meterRegistry);
+        Counter remoteMisses = Counter.builder("cache.l2.gets").tag("cache", name).tag("result", "miss")
+                .description("Lookups missing both cache levels").register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name);
+
+        log.debug("Cache {} created (L2: {})", name, remoteCache != null);
+        return new TwoLevelCache(name, local, remoteCache, invalidationBus, remoteHits, remoteMisses);
+    }
+}
@@ -1,11 +1,14 @@
 package com.djbc.dutyfree.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 @EnableAsync
@@ -21,4 +24,26 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    @Bean(name = "receiptPdfExecutor")
+    public ThreadPoolTaskExecutor receiptPdfExecutor(
+            @Value("${app.receipts.pdf.workers:2}") int workers,
+            @Value("${app.receipts.pdf.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("receipt-pdf-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Device I/O with the payment terminals. One virtual thread per transaction: waiting on a
+     * terminal holds neither a platform thread nor a database connection.
+     */
+    @Bean(name = "terminalIoExecutor", destroyMethod = "close")
+    public ExecutorService terminalIoExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("terminal-io-", 0).factory());
+    }
+}
@@ -0,0 +1,73 @@
+package com.djbc.dutyfree.config;
+
+import com.djbc.dutyfree.cache.CacheInvalidationBus;
+import com.djbc.dutyfree.cache.TwoLevelCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Application cache: Caffeine in each node (L1), backed by the Redis caches of {@link RedisConfig}
+ * (L2) when Redis is enabled. Without Redis the L1 level alone still serves the hot lookups.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheConfig {
+
+    @Bean
+    @Primary
+    public TwoLevelCacheManager cacheManager(Environment environment,
+                                             @Value("${app.cache.local.default-spec:maximumSize=1000,expireAfterWrite=10m}") String defaultSpec,
+                                             @Value("${spring.redis.enabled:false}") boolean redisEnabled,
+                                             ObjectProvider<RedisCacheManager> redisCacheManager,
+                                             ObjectProvider<StringRedisTemplate> stringRedisTemplate,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             NodeIdentity nodeIdentity) {
+        Map<String, String> specs = Binder.get(environment)
+                .bind("app.cache.local.specs", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+
+        CacheInvalidationBus invalidationBus = null;
+        StringRedisTemplate redisTemplate = stringRedisTemplate.getIfAvailable();
+        if (redisEnabled && redisTemplate != null) {
+            invalidationBus = new CacheInvalidationBus(redisTemplate, nodeIdentity.getId());
+        }
+
+        return new TwoLevelCacheManager(specs, defaultSpec,
+                redisEnabled ? redisCacheManager.getIfAvailable() : null,
+                invalidationBus,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    /**
+     * Subscribes to the evictions made on the other nodes.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.redis.enabled", havingValue = "true", matchIfMissing = false)
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheManager.onRemoteInvalidation(
+                        new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CacheInvalidationBus.CHANNEL));
+        return container;
+    }
+}
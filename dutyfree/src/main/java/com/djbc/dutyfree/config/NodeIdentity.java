@@ -0,0 +1,33 @@
+package com.djbc.dutyfree.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+
+/**
+ * Name of this instance among the nodes sharing Redis: the cache invalidation bus and the
+ * WebSocket event bus use it to skip their own messages, the offline sale queue as its consumer
+ * name. Host name and process id unless app.node-id is set.
+ */
+@Component
+public class NodeIdentity {
+
+    private final String id;
+
+    public NodeIdentity(@Value("${app.node-id:}") String id) {
+        this.id = id.isBlank() ? defaultId() : id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    private static String defaultId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + ProcessHandle.current().pid();
+        } catch (Exception e) {
+            return "node-" + ProcessHandle.current().pid();
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -44,8 +43,11 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Shared (L2) level of the application cache manager, see {@link CacheConfig}.
+     */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofHours(1))
                 .serializeKeysWith(
@@ -61,7 +63,6 @@ public class RedisConfig {
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
                 .withCacheConfiguration("products", config.entryTtl(Duration.ofMinutes(30)))
-                .withCacheConfiguration("exchangeRates", config.entryTtl(Duration.ofHours(24)))
                 .withCacheConfiguration("promotions", config.entryTtl(Duration.ofMinutes(15)))
                 .withCacheConfiguration("categories", config.entryTtl(Duration.ofHours(2)))
                 .build();
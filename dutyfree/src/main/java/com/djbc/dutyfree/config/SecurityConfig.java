@@ -58,10 +58,9 @@ public class SecurityConfig {
                         // Public endpoints
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/test/**", "/api/dev/**").permitAll()
-                        .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                         .requestMatchers("/ws/**").permitAll()
-                        .requestMatchers("/actuator/health", "actuator/info").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                         
                         // Public read endpoints (for offline preload)
                         .requestMatchers("GET", "/api/products/**").permitAll()
@@ -70,6 +69,7 @@ public class SecurityConfig {
 
                         // Admin endpoints
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                         // Reports endpoints
                         .requestMatchers("/api/reports/**").hasAnyRole("ADMIN", "SUPERVISEUR")
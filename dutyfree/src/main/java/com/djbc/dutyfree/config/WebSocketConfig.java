@@ -1,9 +1,17 @@
 package com.djbc.dutyfree.config;
 
+import com.djbc.dutyfree.security.JwtHandshakeInterceptor;
 import com.djbc.dutyfree.websocket.NotificationWebSocketHandler;
+import com.djbc.dutyfree.websocket.RedisWebSocketEventBus;
 import com.djbc.dutyfree.websocket.SaleWebSocketHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
@@ -15,13 +23,32 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final SaleWebSocketHandler saleWebSocketHandler;
     private final NotificationWebSocketHandler notificationWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+
+    @Value("${app.websocket.allowed-origins:*}")
+    private String[] allowedOrigins;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(saleWebSocketHandler, "/ws/sales")
-                .setAllowedOrigins("*");
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOriginPatterns(allowedOrigins);
 
         registry.addHandler(notificationWebSocketHandler, "/ws/notifications")
-                .setAllowedOrigins("*");
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOriginPatterns(allowedOrigins);
+    }
+
+    /**
+     * Receives the WebSocket events published on the other nodes.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.redis.enabled", havingValue = "true", matchIfMissing = false)
+    public RedisMessageListenerContainer webSocketEventListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                         RedisWebSocketEventBus eventBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(eventBus, new ChannelTopic(RedisWebSocketEventBus.CHANNEL));
+        return container;
     }
-}
\ No newline at end of file
+}
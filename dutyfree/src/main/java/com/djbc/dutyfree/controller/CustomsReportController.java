@@ -1,13 +1,12 @@
 package com.djbc.dutyfree.controller;
 
 import com.djbc.dutyfree.domain.dto.response.ApiResponse;
-import com.djbc.dutyfree.service.CustomsReportService;
+import com.djbc.dutyfree.service.CustomsReportArtefactStore;
+import com.djbc.dutyfree.service.CustomsReportArtefactStore.Artefact;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -15,9 +14,12 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
@@ -31,21 +33,20 @@ import java.util.Map;
 @Tag(name = "Customs Reports", description = "Customs compliance reports for duty free operations")
 public class CustomsReportController {
 
-    private final CustomsReportService customsReportService;
+    private final CustomsReportArtefactStore artefactStore;
 
     @GetMapping("/sommier-apurement")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Generate sommier apurement report",
             description = "Generate customs clearance tracking report for a specified period")
-    public ResponseEntity<Resource> generateSommierApurement(
+    public ResponseEntity<StreamingResponseBody> generateSommierApurement(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
 
         log.info("Generating sommier apurement report from {} to {}", startDate, endDate);
 
         try {
-            String pdfPath = customsReportService.generateSommierApurementReport(startDate, endDate);
-            return servePdfFile(pdfPath);
+            return servePdfFile(artefactStore.sommierApurement(startDate, endDate));
 
         } catch (Exception e) {
             log.error("Error generating sommier apurement report: {}", e.getMessage(), e);
@@ -57,7 +58,7 @@ public class CustomsReportController {
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Generate monthly customs registry",
             description = "Generate monthly aggregated customs report")
-    public ResponseEntity<Resource> generateMonthlyRegistry(
+    public ResponseEntity<StreamingResponseBody> generateMonthlyRegistry(
             @RequestParam int year,
             @RequestParam int month) {
 
@@ -65,8 +66,7 @@ public class CustomsReportController {
 
         try {
             YearMonth yearMonth = YearMonth.of(year, month);
-            String pdfPath = customsReportService.generateMonthlyCustomsRegistry(yearMonth);
-            return servePdfFile(pdfPath);
+            return servePdfFile(artefactStore.monthlyRegistry(yearMonth));
 
         } catch (Exception e) {
             log.error("Error generating monthly customs registry: {}", e.getMessage(), e);
@@ -78,14 +78,13 @@ public class CustomsReportController {
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'CASHIER')")
     @Operation(summary = "Generate daily sales summary",
             description = "Generate daily sales summary for customs")
-    public ResponseEntity<Resource> generateDailySummary(
+    public ResponseEntity<StreamingResponseBody> generateDailySummary(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
 
         log.info("Generating daily summary for {}", date);
 
         try {
-            String pdfPath = customsReportService.generateDailySalesSummary(date);
-            return servePdfFile(pdfPath);
+            return servePdfFile(artefactStore.dailySummary(date));
 
         } catch (Exception e) {
             log.error("Error generating daily summary: {}", e.getMessage(), e);
@@ -97,13 +96,12 @@ public class CustomsReportController {
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Generate current month registry",
             description = "Generate customs registry for the current month")
-    public ResponseEntity<Resource> generateCurrentMonthRegistry() {
+    public ResponseEntity<StreamingResponseBody> generateCurrentMonthRegistry() {
         YearMonth currentMonth = YearMonth.now();
         log.info("Generating current month registry for {}", currentMonth);
 
         try {
-            String pdfPath = customsReportService.generateMonthlyCustomsRegistry(currentMonth);
-            return servePdfFile(pdfPath);
+            return servePdfFile(artefactStore.monthlyRegistry(currentMonth));
 
         } catch (Exception e) {
             log.error("Error generating current month registry: {}", e.getMessage(), e);
@@ -115,13 +113,12 @@ public class CustomsReportController {
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'CASHIER')")
     @Operation(summary = "Generate today's summary",
             description = "Generate daily sales summary for today")
-    public ResponseEntity<Resource> generateTodaySummary() {
+    public ResponseEntity<StreamingResponseBody> generateTodaySummary() {
         LocalDate today = LocalDate.now();
         log.info("Generating today's summary for {}", today);
 
         try {
-            String pdfPath = customsReportService.generateDailySalesSummary(today);
-            return servePdfFile(pdfPath);
+            return servePdfFile(artefactStore.dailySummary(today));
 
         } catch (Exception e) {
             log.error("Error generating today's summary: {}", e.getMessage(), e);
@@ -143,33 +140,39 @@ public class CustomsReportController {
     }
 
     /**
-     * Helper method to serve PDF files
+     * Helper method to serve PDF files. The file is opened before the response is returned, so
+     * the artefact purge cannot remove it from under the request, then copied to the response
+     * stream in chunks; the document is never held in memory as a whole.
      */
-    private ResponseEntity<Resource> servePdfFile(String pdfPath) {
+    private ResponseEntity<StreamingResponseBody> servePdfFile(Artefact artefact) {
         try {
-            File pdfFile = new File(pdfPath);
-
-            if (!pdfFile.exists()) {
-                log.error("PDF file not found at path: {}", pdfPath);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-            }
-
-            InputStreamResource resource = new InputStreamResource(new FileInputStream(pdfFile));
+            FileChannel channel = FileChannel.open(artefact.path(), StandardOpenOption.READ);
+            long size = channel.size();
+
+            StreamingResponseBody body = out -> {
+                try (channel) {
+                    WritableByteChannel target = Channels.newChannel(out);
+                    long position = 0;
+                    while (position < size) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                }
+            };
 
             HttpHeaders headers = new HttpHeaders();
             headers.add(HttpHeaders.CONTENT_DISPOSITION,
-                    "attachment; filename=" + pdfFile.getName());
+                    "attachment; filename=" + artefact.fileName());
             headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentLength(pdfFile.length());
+            headers.setContentLength(size);
 
-            log.info("PDF served successfully: {}", pdfFile.getName());
+            log.info("PDF served successfully: {}", artefact.path().getFileName());
 
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(resource);
+                    .body(body);
 
         } catch (Exception e) {
-            log.error("Error serving PDF file {}: {}", pdfPath, e.getMessage(), e);
+            log.error("Error serving PDF file {}: {}", artefact.path(), e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
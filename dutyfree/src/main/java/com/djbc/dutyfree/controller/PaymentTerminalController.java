@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/payment-terminals")
@@ -122,15 +123,15 @@ public class PaymentTerminalController {
     }
 
     /**
-     * Process payment through terminal
+     * Process payment through terminal. The request thread is released while the terminal works.
      */
     @PostMapping("/process-payment")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'CASHIER')")
-    public ResponseEntity<TerminalTransactionResponse> processPayment(
+    public CompletableFuture<ResponseEntity<TerminalTransactionResponse>> processPayment(
             @Valid @RequestBody TerminalPaymentRequest request) {
         log.info("POST /api/payment-terminals/process-payment - Processing payment");
-        TerminalTransactionResponse response = paymentTerminalService.processPayment(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return paymentTerminalService.processPayment(request)
+                .thenApply(response -> ResponseEntity.status(HttpStatus.CREATED).body(response));
     }
 
     /**
@@ -2,19 +2,23 @@ package com.djbc.dutyfree.controller;
 
 import com.djbc.dutyfree.domain.dto.request.ProductRequest;
 import com.djbc.dutyfree.domain.dto.response.ApiResponse;
+import com.djbc.dutyfree.domain.dto.response.ProductImportResponse;
 import com.djbc.dutyfree.domain.dto.response.ProductResponse;
+import com.djbc.dutyfree.domain.dto.response.ProductScanResponse;
+import com.djbc.dutyfree.domain.dto.response.ProductSearchResponse;
 import com.djbc.dutyfree.service.ProductService;
+import com.djbc.dutyfree.service.productimport.ProductImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -26,6 +30,7 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductImportService productImportService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'STOCK_MANAGER')")
@@ -36,6 +41,15 @@ public class ProductController {
                 .body(ApiResponse.success("Product created successfully", product));
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'STOCK_MANAGER')")
+    @Operation(summary = "Import products", description = "Create or update products from an XLSX or CSV file " +
+            "with a header row; existing SKUs are updated. Returns the rows that were rejected")
+    public ResponseEntity<ApiResponse<ProductImportResponse>> importProducts(@RequestParam("file") MultipartFile file) {
+        ProductImportResponse report = productImportService.importProducts(file);
+        return ResponseEntity.ok(ApiResponse.success("Product import completed", report));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'STOCK_MANAGER')")
     @Operation(summary = "Update product", description = "Update existing product")
@@ -67,6 +81,13 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(product));
     }
 
+    @GetMapping("/scan/{code}")
+    @Operation(summary = "Scan product", description = "Resolve a scanned barcode or SKU from the in-memory index")
+    public ResponseEntity<ApiResponse<ProductScanResponse>> scanProduct(@PathVariable String code) {
+        ProductScanResponse product = productService.scanProduct(code);
+        return ResponseEntity.ok(ApiResponse.success(product));
+    }
+
     @GetMapping
     @Operation(summary = "Get all products", description = "Get all active products")
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getAllProducts() {
@@ -75,11 +96,14 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search products", description = "Search products by name, SKU or barcode")
-    public ResponseEntity<ApiResponse<Page<ProductResponse>>> searchProducts(
+    @Operation(summary = "Search products",
+            description = "Search products by name, SKU or barcode prefix, best matches first. " +
+                    "Pass the returned nextCursor to get the following page")
+    public ResponseEntity<ApiResponse<ProductSearchResponse>> searchProducts(
             @RequestParam String query,
-            Pageable pageable) {
-        Page<ProductResponse> products = productService.searchProducts(query, pageable);
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        ProductSearchResponse products = productService.searchProducts(query, cursor, size);
         return ResponseEntity.ok(ApiResponse.success(products));
     }
 
@@ -56,6 +56,12 @@ public class ReceiptController {
         try {
             Receipt receipt = receiptService.getReceiptById(id);
 
+            // PDFs are rendered after the sale commits: render on demand if it is not there yet
+            if (receipt.getPdfPath() == null || receipt.getPdfPath().isEmpty()
+                    || !new File(receipt.getPdfPath()).exists()) {
+                receipt = receiptService.renderPdf(id);
+            }
+
             if (receipt.getPdfPath() == null || receipt.getPdfPath().isEmpty()) {
                 log.warn("PDF not available for receipt ID: {}", id);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -2,6 +2,8 @@ package com.djbc.dutyfree.controller;
 
 import com.djbc.dutyfree.domain.dto.response.ApiResponse;
 import com.djbc.dutyfree.domain.dto.response.ReportResponse;
+import com.djbc.dutyfree.domain.dto.response.SalesDashboardResponse;
+import com.djbc.dutyfree.service.LiveSalesDashboard;
 import com.djbc.dutyfree.service.ReportService;
 import com.djbc.dutyfree.service.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +14,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -27,6 +30,7 @@ public class ReportController {
 
     private final ReportService reportService;
     private final ExportService exportService;
+    private final LiveSalesDashboard liveSalesDashboard;
 
     @GetMapping("/sales")
     @Operation(summary = "Generate sales report", description = "Generate comprehensive sales report")
@@ -75,6 +79,13 @@ public class ReportController {
         return ResponseEntity.ok(ApiResponse.success(report));
     }
 
+    @GetMapping("/sales/live")
+    @Operation(summary = "Live sales dashboard", description = "Today's running sales totals, kept in memory. " +
+            "Subscribe to SALES_DASHBOARD deltas on /ws/sales with SUBSCRIBE_DASHBOARD")
+    public ResponseEntity<ApiResponse<SalesDashboardResponse>> getLiveSalesDashboard() {
+        return ResponseEntity.ok(ApiResponse.success(liveSalesDashboard.snapshot()));
+    }
+
     @GetMapping("/cashier/{cashierId}")
     @Operation(summary = "Generate cashier report", description = "Generate performance report for a cashier")
     public ResponseEntity<ApiResponse<Map<String, Object>>> generateCashierReport(
@@ -106,12 +117,15 @@ public class ReportController {
     }
 
     @GetMapping("/export")
-    @Operation(summary = "Export report", description = "Export report in PDF or Excel format")
-    public ResponseEntity<byte[]> exportReport(
+    @Operation(summary = "Export report", description = "Export the sales summary as PDF, or every sale item " +
+            "and payment of the period as XLSX (one sheet each) or CSV (dataset=lines or payments). " +
+            "Transaction exports are streamed as they are read.")
+    public ResponseEntity<StreamingResponseBody> exportReport(
             @RequestParam(required = false) String period,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @RequestParam String format) {
+            @RequestParam String format,
+            @RequestParam(defaultValue = "lines") String dataset) {
         
         LocalDate start, end;
         
@@ -138,24 +152,36 @@ public class ReportController {
             start = end = LocalDate.now();
         }
         
-        byte[] data;
+        exportService.checkPeriod(start, end);
+        LocalDate from = start, to = end;
+        StreamingResponseBody body;
         String filename;
         String contentType;
         
         if ("pdf".equals(format)) {
-            data = exportService.exportToPdf(start, end);
+            byte[] data = exportService.exportToPdf(start, end);
+            body = out -> out.write(data);
             filename = "rapport-ventes-" + start + ".pdf";
             contentType = "application/pdf";
+        } else if ("csv".equals(format)) {
+            if ("payments".equals(dataset)) {
+                body = out -> exportService.writePaymentsCsv(from, to, out);
+                filename = "paiements-" + start + "_" + end + ".csv";
+            } else {
+                body = out -> exportService.writeLinesCsv(from, to, out);
+                filename = "ventes-" + start + "_" + end + ".csv";
+            }
+            contentType = "text/csv; charset=UTF-8";
         } else {
-            data = exportService.exportToExcel(start, end);
-            filename = "rapport-ventes-" + start + ".csv";
-            contentType = "text/csv";
+            body = out -> exportService.writeTransactionsXlsx(from, to, out);
+            filename = "ventes-" + start + "_" + end + ".xlsx";
+            contentType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
         }
         
         return ResponseEntity.ok()
                 .header("Content-Disposition", "attachment; filename=" + filename)
                 .header("Content-Type", contentType)
-                .body(data);
+                .body(body);
     }
 
     @GetMapping("/capture-rate")
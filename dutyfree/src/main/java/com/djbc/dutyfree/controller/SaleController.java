@@ -1,8 +1,11 @@
 package com.djbc.dutyfree.controller;
 
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
 import com.djbc.dutyfree.domain.dto.request.SaleRequest;
 import com.djbc.dutyfree.domain.dto.response.ApiResponse;
 import com.djbc.dutyfree.domain.dto.response.SaleResponse;
+import com.djbc.dutyfree.service.OfflineSaleReplayService;
+import com.djbc.dutyfree.service.OfflineSaleReplayService.SaleReplayResult;
 import com.djbc.dutyfree.service.SaleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -30,6 +33,7 @@ import java.util.List;
 public class SaleController {
 
     private final SaleService saleService;
+    private final OfflineSaleReplayService offlineSaleReplayService;
 
     @PostMapping
     @Operation(summary = "Create sale", description = "Create a new sale transaction")
@@ -45,6 +49,17 @@ public class SaleController {
         }
     }
 
+    @PostMapping("/offline")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISEUR', 'CAISSIER')")
+    @Operation(summary = "Replay offline sales",
+            description = "Record sales made while the register was offline; already recorded ones are reported as duplicates")
+    public ResponseEntity<ApiResponse<List<SaleReplayResult>>> replayOfflineSales(
+            @Valid @RequestBody List<@Valid OfflineSaleRequest> sales) {
+        offlineSaleReplayService.checkIntake(sales);
+        List<SaleReplayResult> results = offlineSaleReplayService.replay(sales);
+        return ResponseEntity.ok(ApiResponse.success("Offline sales replayed", results));
+    }
+
     @PostMapping("/{saleId}/complete")
     @Operation(summary = "Complete sale", description = "Mark sale as completed")
     public ResponseEntity<ApiResponse<SaleResponse>> completeSale(@PathVariable Long saleId) {
@@ -3,6 +3,7 @@ package com.djbc.dutyfree.controller;
 import com.djbc.dutyfree.domain.dto.response.ApiResponse;
 import com.djbc.dutyfree.domain.dto.response.StockMovementResponse;
 import com.djbc.dutyfree.domain.entity.Stock;
+import com.djbc.dutyfree.service.StockAlertEngine;
 import com.djbc.dutyfree.service.StockService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -26,6 +27,7 @@ import java.util.List;
 public class StockController {
 
     private final StockService stockService;
+    private final StockAlertEngine stockAlertEngine;
 
     @PostMapping
     @Operation(summary = "Add stock", description = "Add stock for a product")
@@ -112,6 +114,12 @@ public class StockController {
         return ResponseEntity.ok(ApiResponse.success(lowStocks));
     }
 
+    @GetMapping("/alerts")
+    @Operation(summary = "Get stock alerts", description = "Current low stock, reorder, expiry and sommier alerts, kept in memory")
+    public ResponseEntity<ApiResponse<List<StockAlertEngine.StockAlert>>> getStockAlerts() {
+        return ResponseEntity.ok(ApiResponse.success(stockAlertEngine.getActiveAlerts()));
+    }
+
     @PostMapping("/movements")
     @Operation(summary = "Record stock movement", description = "Manually record a stock movement (entry, exit, adjustment)")
     public ResponseEntity<ApiResponse<Void>> recordStockMovement(
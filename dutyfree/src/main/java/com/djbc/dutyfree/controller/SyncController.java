@@ -1,16 +1,21 @@
 package com.djbc.dutyfree.controller;
 
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
 import com.djbc.dutyfree.domain.dto.response.ApiResponse;
+import com.djbc.dutyfree.service.OfflineSaleReplayService.SaleReplayResult;
 import com.djbc.dutyfree.service.SyncService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/sync")
 @ConditionalOnProperty(name = "spring.redis.enabled", havingValue = "true", matchIfMissing = false)
@@ -24,9 +29,17 @@ public class SyncController {
     @PostMapping("/offline-sales")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISEUR')")
     @Operation(summary = "Synchronize offline sales", description = "Sync sales made while offline")
-    public ResponseEntity<ApiResponse<Void>> synchronizeOfflineSales() {
-        syncService.synchronizeOfflineSales();
-        return ResponseEntity.ok(ApiResponse.success("Synchronization completed", null));
+    public ResponseEntity<ApiResponse<List<SaleReplayResult>>> synchronizeOfflineSales() {
+        List<SaleReplayResult> results = syncService.synchronizeOfflineSales();
+        return ResponseEntity.ok(ApiResponse.success("Synchronization completed", results));
+    }
+
+    @PostMapping("/offline-sales/queue")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISEUR', 'CAISSIER')")
+    @Operation(summary = "Queue offline sales", description = "Queue sales made while offline for the next synchronization")
+    public ResponseEntity<ApiResponse<Integer>> queueOfflineSales(@Valid @RequestBody List<@Valid OfflineSaleRequest> sales) {
+        syncService.storeOfflineSales(sales);
+        return ResponseEntity.ok(ApiResponse.success("Offline sales queued", sales.size()));
     }
 
     @GetMapping("/pending-count")
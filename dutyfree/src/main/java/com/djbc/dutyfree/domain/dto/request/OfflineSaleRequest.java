@@ -0,0 +1,35 @@
+package com.djbc.dutyfree.domain.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sale recorded by a register while it was offline, replayed when it reconnects.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfflineSaleRequest {
+
+    // Generated by the register once per sale; replaying the same reference never creates a second sale
+    @NotBlank(message = "Client reference is required")
+    @Size(max = 64)
+    private String clientReference;
+
+    private LocalDateTime saleDate;
+
+    private Long cashierId;
+
+    @NotNull(message = "Sale is required")
+    @Valid
+    private SaleRequest sale;
+}
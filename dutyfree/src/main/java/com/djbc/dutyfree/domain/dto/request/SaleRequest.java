@@ -54,5 +54,8 @@ public class SaleRequest {
 
         private BigDecimal discount;
         private Long promotionId;
+
+        // Net unit price shown by the register, sent with sales recorded offline
+        private BigDecimal unitPrice;
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.djbc.dutyfree.domain.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResponse {
+    private Integer totalRows;
+    private Integer created;
+    private Integer updated;
+    private Integer failed;
+    private List<RowError> errors;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private Integer row;
+        private String sku;
+        private String message;
+    }
+}
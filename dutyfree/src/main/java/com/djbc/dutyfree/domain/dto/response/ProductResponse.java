@@ -28,6 +28,7 @@ public class ProductResponse {
     private BigDecimal priceXOF; // <-- au lieu de sellingPriceXOF
     private BigDecimal priceEUR;
     private BigDecimal priceUSD;
+    private BigDecimal effectivePriceXOF; // after scheduled prices and promotions, for one unit
     private BigDecimal taxRate;
     private String imageUrl;
     private Boolean active;
@@ -0,0 +1,33 @@
+package com.djbc.dutyfree.domain.dto.response;
+
+import java.math.BigDecimal;
+
+/**
+ * What a register needs after a barcode scan. Immutable, so index entries are shared by all scans.
+ */
+public record ProductScanResponse(
+        Long id,
+        String sku,
+        String barcode,
+        String nameFr,
+        String nameEn,
+        Long categoryId,
+        String categoryName,
+        BigDecimal priceXOF,
+        BigDecimal priceEUR,
+        BigDecimal priceUSD,
+        BigDecimal effectivePriceXOF,
+        BigDecimal taxRate,
+        String imageUrl,
+        Boolean trackStock,
+        String unit,
+        Integer currentStock) {
+
+    /**
+     * Copy with the values that change without a product update: current price and stock
+     */
+    public ProductScanResponse withLiveValues(BigDecimal effectivePriceXOF, Integer currentStock) {
+        return new ProductScanResponse(id, sku, barcode, nameFr, nameEn, categoryId, categoryName,
+                priceXOF, priceEUR, priceUSD, effectivePriceXOF, taxRate, imageUrl, trackStock, unit, currentStock);
+    }
+}
@@ -0,0 +1,28 @@
+package com.djbc.dutyfree.domain.dto.response;
+
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Running sales totals of the day. A delta carries the overall totals and only the registers and
+ * tenders that changed since the previous one, with their new values rather than increments.
+ *
+ * @param sequence increases with every pushed delta; deltas at or below the sequence of a full
+ *                 snapshot are already included in it
+ * @param delta    {@code false} for a full snapshot, which replaces everything the client holds
+ */
+public record SalesDashboardResponse(
+        LocalDate day,
+        long sequence,
+        boolean delta,
+        Totals overall,
+        long cancelledSales,
+        Map<Long, Totals> byCashRegister,
+        Map<PaymentMethod, Totals> byPaymentMethod) {
+
+    public record Totals(BigDecimal revenue, long tickets, BigDecimal averageTicket) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.djbc.dutyfree.domain.entity;
+
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Completed-sale totals per day, cash register, cashier and tender.
+ * Incremented when a sale completes and rebuilt nightly from the sales table.
+ */
+@Entity
+@Table(name = "daily_sales_summary", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_sales_summary_key",
+                columnNames = {"sale_day", "cash_register_id", "cashier_id", "payment_method"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+
+    @Column(name = "cash_register_id", nullable = false)
+    private Long cashRegisterId;
+
+    @Column(name = "cashier_id", nullable = false)
+    private Long cashierId;
+
+    // Moyen de paiement unique de la vente, MIXED si plusieurs
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false, length = 20)
+    private PaymentMethod paymentMethod;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.djbc.dutyfree.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counter row backing the sale / receipt numbering.
+ * Nodes claim blocks of numbers by advancing lastValue, then hand them out from memory.
+ */
+@Entity
+@Table(name = "document_sequences")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSequence {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(name = "last_value", nullable = false)
+    private Long lastValue;
+}
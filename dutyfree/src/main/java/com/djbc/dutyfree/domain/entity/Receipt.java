@@ -30,6 +30,15 @@ public class Receipt extends BaseEntity {
     @Column(length = 500)
     private String pdfPath;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "pdf_status", nullable = false, length = 20)
+    @Builder.Default
+    private PdfStatus pdfStatus = PdfStatus.PENDING;
+
+    @Column(name = "pdf_attempts", nullable = false)
+    @Builder.Default
+    private Integer pdfAttempts = 0;
+
     @Column(nullable = false)
     private Boolean printed = false;
 
@@ -46,4 +55,11 @@ public class Receipt extends BaseEntity {
 
     @Column(length = 500)
     private String footerMessage;
-}
\ No newline at end of file
+
+    public enum PdfStatus {
+        PENDING,        // En attente de génération (hors transaction de vente)
+        RENDERING,      // Réservé par une instance, génération en cours
+        GENERATED,      // PDF disponible sur disque
+        FAILED          // Abandonné après le nombre maximal de tentatives
+    }
+}
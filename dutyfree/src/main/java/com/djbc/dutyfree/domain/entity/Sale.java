@@ -28,6 +28,10 @@ public class Sale extends BaseEntity {
     @Column(nullable = false)
     private LocalDateTime saleDate;
 
+    // Idempotency key generated by the register for sales recorded offline
+    @Column(unique = true, length = 64)
+    private String clientReference;
+
     @JsonIgnore  // ← AJOUTEZ
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cashier_id", nullable = false)
@@ -159,6 +159,14 @@ public class ScheduledPrice extends BaseEntity {
      * Calculate the effective price based on this rule
      */
     public BigDecimal calculatePrice(BigDecimal basePrice) {
+        return calculatePrice(priceType, amount, percentage, basePrice);
+    }
+
+    /**
+     * Effective price of a FIXED / DISCOUNT / MARKUP rule, shared with the compiled price table
+     */
+    public static BigDecimal calculatePrice(String priceType, BigDecimal amount, BigDecimal percentage,
+                                            BigDecimal basePrice) {
         if (basePrice == null) return BigDecimal.ZERO;
 
         switch (priceType) {
@@ -42,4 +42,9 @@ public class Stock extends BaseEntity {
     private LocalDate expiryDate;
 
     private LocalDate receivedDate;
+
+    @Version
+    @Builder.Default
+    @Column(nullable = false)
+    private Long version = 0L;
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.djbc.dutyfree.exception;
+
+public class InsufficientStockException extends BadRequestException {
+
+    private final Long productId;
+
+    public InsufficientStockException(String message, Long productId) {
+        super(message);
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
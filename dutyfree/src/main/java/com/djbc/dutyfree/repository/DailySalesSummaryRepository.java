@@ -0,0 +1,67 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.entity.DailySalesSummary;
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesSummaryRepository extends JpaRepository<DailySalesSummary, Long>,
+        DailySalesSummaryRepositoryCustom {
+
+    @Query("SELECT SUM(d.revenue) AS revenue, SUM(d.transactionCount) AS transactions FROM DailySalesSummary d " +
+            "WHERE d.saleDay BETWEEN :startDay AND :endDay")
+    Totals getTotalsBetween(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    @Query("SELECT d.saleDay AS saleDay, SUM(d.revenue) AS revenue, SUM(d.transactionCount) AS transactions " +
+            "FROM DailySalesSummary d WHERE d.saleDay BETWEEN :startDay AND :endDay " +
+            "GROUP BY d.saleDay ORDER BY d.saleDay")
+    List<DayTotals> getTotalsByDayBetween(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    @Query("SELECT d.cashRegisterId AS cashRegisterId, SUM(d.revenue) AS revenue, " +
+            "SUM(d.transactionCount) AS transactions FROM DailySalesSummary d " +
+            "WHERE d.saleDay BETWEEN :startDay AND :endDay GROUP BY d.cashRegisterId")
+    List<CashRegisterTotals> getTotalsByCashRegisterBetween(@Param("startDay") LocalDate startDay,
+                                                            @Param("endDay") LocalDate endDay);
+
+    @Query("SELECT d.cashRegisterId AS cashRegisterId, d.paymentMethod AS paymentMethod, SUM(d.revenue) AS revenue, " +
+            "SUM(d.transactionCount) AS transactions FROM DailySalesSummary d WHERE d.saleDay = :day " +
+            "GROUP BY d.cashRegisterId, d.paymentMethod")
+    List<CashRegisterTenderTotals> getTotalsByCashRegisterAndTender(@Param("day") LocalDate day);
+
+    @Query("SELECT SUM(d.revenue) AS revenue, SUM(d.transactionCount) AS transactions FROM DailySalesSummary d " +
+            "WHERE d.cashierId = :cashierId AND d.saleDay BETWEEN :startDay AND :endDay")
+    Totals getCashierTotalsBetween(@Param("cashierId") Long cashierId,
+                                   @Param("startDay") LocalDate startDay,
+                                   @Param("endDay") LocalDate endDay);
+
+    @Query("SELECT SUM(d.revenue) AS revenue, SUM(d.transactionCount) AS transactions FROM DailySalesSummary d " +
+            "WHERE d.cashRegisterId = :cashRegisterId AND d.saleDay BETWEEN :startDay AND :endDay")
+    Totals getCashRegisterTotalsBetween(@Param("cashRegisterId") Long cashRegisterId,
+                                        @Param("startDay") LocalDate startDay,
+                                        @Param("endDay") LocalDate endDay);
+
+    interface Totals {
+        BigDecimal getRevenue();
+
+        Long getTransactions();
+    }
+
+    interface DayTotals extends Totals {
+        LocalDate getSaleDay();
+    }
+
+    interface CashRegisterTotals extends Totals {
+        Long getCashRegisterId();
+    }
+
+    interface CashRegisterTenderTotals extends CashRegisterTotals {
+        PaymentMethod getPaymentMethod();
+    }
+}
@@ -0,0 +1,27 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Write side of the daily sales rollup, done with plain SQL so concurrent registers
+ * increment the same row atomically.
+ */
+public interface DailySalesSummaryRepositoryCustom {
+
+    /**
+     * Add to the totals of one rollup row, creating it if needed.
+     */
+    void increment(LocalDate saleDay, Long cashRegisterId, Long cashierId, PaymentMethod paymentMethod,
+                   long transactions, BigDecimal revenue);
+
+    /**
+     * Replace the rows of the given days (inclusive) with totals recomputed from completed sales.
+     * Runs in the caller's transaction, which is required.
+     *
+     * @return the number of rollup rows written
+     */
+    int rebuild(LocalDate fromDay, LocalDate toDay);
+}
@@ -0,0 +1,100 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class DailySalesSummaryRepositoryCustomImpl implements DailySalesSummaryRepositoryCustom {
+
+    // PostgreSQL: ON CONFLICT stays atomic when two transactions create the same row
+    private static final String UPSERT_POSTGRES_SQL =
+            "INSERT INTO daily_sales_summary (sale_day, cash_register_id, cashier_id, payment_method, " +
+            "transaction_count, revenue, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (sale_day, cash_register_id, cashier_id, payment_method) DO UPDATE SET " +
+            "transaction_count = daily_sales_summary.transaction_count + EXCLUDED.transaction_count, " +
+            "revenue = daily_sales_summary.revenue + EXCLUDED.revenue, updated_at = EXCLUDED.updated_at";
+
+    // Other databases (H2 in dev and tests): standard MERGE
+    private static final String UPSERT_MERGE_SQL =
+            "MERGE INTO daily_sales_summary t " +
+            "USING (SELECT CAST(? AS DATE) AS sale_day, CAST(? AS BIGINT) AS cash_register_id, " +
+            "CAST(? AS BIGINT) AS cashier_id, CAST(? AS VARCHAR(20)) AS payment_method, " +
+            "CAST(? AS BIGINT) AS transaction_count, CAST(? AS DECIMAL(19, 2)) AS revenue, " +
+            "CAST(? AS TIMESTAMP) AS updated_at) v " +
+            "ON t.sale_day = v.sale_day AND t.cash_register_id = v.cash_register_id " +
+            "AND t.cashier_id = v.cashier_id AND t.payment_method = v.payment_method " +
+            "WHEN MATCHED THEN UPDATE SET transaction_count = t.transaction_count + v.transaction_count, " +
+            "revenue = t.revenue + v.revenue, updated_at = v.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (sale_day, cash_register_id, cashier_id, payment_method, " +
+            "transaction_count, revenue, updated_at) VALUES (v.sale_day, v.cash_register_id, v.cashier_id, " +
+            "v.payment_method, v.transaction_count, v.revenue, v.updated_at)";
+
+    // Conflicts with the row lock of INSERT / UPDATE but not with reads: increments wait for the rebuild
+    private static final String LOCK_POSTGRES_SQL =
+            "LOCK TABLE daily_sales_summary IN SHARE ROW EXCLUSIVE MODE";
+
+    private static final String DELETE_DAYS_SQL =
+            "DELETE FROM daily_sales_summary WHERE sale_day BETWEEN ? AND ?";
+
+    // A sale paid with a single method is filed under it, any other mix under MIXED
+    private static final String REBUILD_DAYS_SQL =
+            "INSERT INTO daily_sales_summary (sale_day, cash_register_id, cashier_id, payment_method, " +
+            "transaction_count, revenue, updated_at) " +
+            "SELECT CAST(s.sale_date AS DATE), s.cash_register_id, s.cashier_id, COALESCE(m.method, 'MIXED'), " +
+            "COUNT(*), SUM(s.total_amount), ? " +
+            "FROM sales s LEFT JOIN (" +
+            "    SELECT sale_id, CASE WHEN COUNT(DISTINCT payment_method) = 1 THEN MIN(payment_method) " +
+            "    ELSE 'MIXED' END AS method FROM payments WHERE deleted = false GROUP BY sale_id" +
+            ") m ON m.sale_id = s.id " +
+            "WHERE s.status = 'COMPLETED' AND s.deleted = false AND s.sale_date >= ? AND s.sale_date < ? " +
+            "GROUP BY CAST(s.sale_date AS DATE), s.cash_register_id, s.cashier_id, COALESCE(m.method, 'MIXED')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    @Override
+    public void increment(LocalDate saleDay, Long cashRegisterId, Long cashierId, PaymentMethod paymentMethod,
+                          long transactions, BigDecimal revenue) {
+        jdbcTemplate.update(isPostgres() ? UPSERT_POSTGRES_SQL : UPSERT_MERGE_SQL, Date.valueOf(saleDay), cashRegisterId, cashierId, paymentMethod.name(),
+                transactions, revenue, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * On PostgreSQL the table is locked against writes until the rebuild commits. A sale whose
+     * increment came first is committed before the totals are recomputed and counted by them; a
+     * sale whose increment comes after waits, then adds to the rebuilt row. Either way it is
+     * counted once. Must run in a transaction: in autocommit a failure after the DELETE would leave
+     * the days empty, and PostgreSQL refuses LOCK TABLE outright.
+     */
+    @Override
+    public int rebuild(LocalDate fromDay, LocalDate toDay) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("The daily sales rollup can only be rebuilt in a transaction");
+        }
+        if (isPostgres()) {
+            jdbcTemplate.execute(LOCK_POSTGRES_SQL);
+        }
+        jdbcTemplate.update(DELETE_DAYS_SQL, Date.valueOf(fromDay), Date.valueOf(toDay));
+        return jdbcTemplate.update(REBUILD_DAYS_SQL, Timestamp.valueOf(LocalDateTime.now()),
+                Timestamp.valueOf(fromDay.atStartOfDay()), Timestamp.valueOf(toDay.plusDays(1).atStartOfDay()));
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,23 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.entity.DocumentSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentSequenceRepository extends JpaRepository<DocumentSequence, String> {
+
+    @Modifying
+    @Query("UPDATE DocumentSequence d SET d.lastValue = d.lastValue + :blockSize WHERE d.name = :name")
+    int advance(@Param("name") String name, @Param("blockSize") long blockSize);
+
+    @Modifying
+    @Query(value = "INSERT INTO document_sequences (name, last_value) VALUES (:name, :lastValue)", nativeQuery = true)
+    void insert(@Param("name") String name, @Param("lastValue") long lastValue);
+
+    @Query("SELECT d.lastValue FROM DocumentSequence d WHERE d.name = :name")
+    Long findLastValue(@Param("name") String name);
+}
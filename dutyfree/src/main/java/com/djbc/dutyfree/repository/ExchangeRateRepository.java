@@ -22,6 +22,14 @@ public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long
     Optional<ExchangeRate> findActiveByCurrencyAndDate(@Param("currency") Currency currency,
                                                        @Param("date") LocalDate date);
 
+    /**
+     * Active rates still in force on the given day or later, latest effective date first
+     */
+    @Query("SELECT er FROM ExchangeRate er WHERE er.active = true AND er.deleted = false " +
+            "AND (er.expiryDate IS NULL OR er.expiryDate >= :date) " +
+            "ORDER BY er.effectiveDate DESC, er.id DESC")
+    List<ExchangeRate> findActiveNotExpired(@Param("date") LocalDate date);
+
     List<ExchangeRate> findByCurrency(Currency currency);
 
     List<ExchangeRate> findByActiveTrue();
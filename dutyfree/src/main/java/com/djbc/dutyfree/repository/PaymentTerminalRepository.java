@@ -2,10 +2,12 @@ package com.djbc.dutyfree.repository;
 
 import com.djbc.dutyfree.domain.entity.PaymentTerminal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,4 +41,18 @@ public interface PaymentTerminalRepository extends JpaRepository<PaymentTerminal
            "AND (:cashRegisterId IS NULL OR pt.cashRegister.id = :cashRegisterId) " +
            "ORDER BY pt.lastHeartbeat DESC")
     List<PaymentTerminal> findAvailableTerminals(@Param("cashRegisterId") Long cashRegisterId);
+
+    /**
+     * Take an online terminal for a transaction. Returns 0 when another transaction got it first
+     * or the terminal is not online.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE PaymentTerminal pt SET pt.status = 'BUSY', pt.updatedAt = :now " +
+           "WHERE pt.id = :id AND pt.status = 'ONLINE' AND pt.active = true AND pt.deleted = false")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE PaymentTerminal pt SET pt.status = 'ONLINE', pt.lastHeartbeat = :now, pt.updatedAt = :now " +
+           "WHERE pt.id = :id AND pt.status = 'BUSY'")
+    int release(@Param("id") Long id, @Param("now") LocalDateTime now);
 }
@@ -24,6 +24,10 @@ public interface ProductBundleRepository extends JpaRepository<ProductBundle, Lo
            "AND (pb.validUntil IS NULL OR pb.validUntil >= :now)")
     List<ProductBundle> findActiveBundles(@Param("now") LocalDateTime now);
 
+    @Query("SELECT pb FROM ProductBundle pb WHERE pb.active = true " +
+           "AND (pb.validUntil IS NULL OR pb.validUntil >= :now)")
+    List<ProductBundle> findActiveNotExpired(@Param("now") LocalDateTime now);
+
     @Query("SELECT pb FROM ProductBundle pb WHERE pb.category.id = :categoryId AND pb.active = true")
     List<ProductBundle> findByCategoryId(@Param("categoryId") Long categoryId);
 
@@ -1,18 +1,17 @@
 package com.djbc.dutyfree.repository;
 
 import com.djbc.dutyfree.domain.entity.Product;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
     Optional<Product> findBySku(String sku);
 
@@ -33,6 +32,13 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.deleted = false AND p.active = true")
     List<Product> findAllActiveProducts();
 
+    @Query("SELECT p FROM Product p JOIN FETCH p.category WHERE p.deleted = false AND p.active = true")
+    List<Product> findAllActiveWithCategory();
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category " +
+            "WHERE p.deleted = false AND p.active = true AND (p.barcode = :code OR p.sku = :code)")
+    List<Product> findActiveByBarcodeOrSku(@Param("code") String code);
+
     @Query("SELECT p FROM Product p " +
             "LEFT JOIN p.stocks s " +
             "WHERE p.deleted = false " +
@@ -47,12 +53,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             "HAVING COALESCE(SUM(s.availableQuantity), 0) <= p.reorderLevel")
     List<Product> findProductsNeedingReorder();
 
-    @Query("SELECT p FROM Product p WHERE p.deleted = false AND " +
-            "(LOWER(p.nameFr) LIKE LOWER(CONCAT('%', :search, '%')) " +
-            "OR LOWER(p.nameEn) LIKE LOWER(CONCAT('%', :search, '%')) " +
-            "OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :search, '%')) " +
-            "OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Product> searchProducts(@Param("search") String search, Pageable pageable);
+    /**
+     * Identity of every product, deleted ones included since they still hold their SKU and barcode.
+     */
+    @Query("SELECT p.id AS id, p.sku AS sku, p.barcode AS barcode, p.deleted AS deleted FROM Product p")
+    List<ProductKeys> findAllKeys();
+
+    @Query("SELECT p.id AS id, p.nameFr AS name, p.minStockLevel AS minStockLevel, p.reorderLevel AS reorderLevel " +
+            "FROM Product p WHERE p.deleted = false AND p.trackStock = true")
+    List<StockThresholds> findStockThresholds();
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.category LEFT JOIN FETCH p.supplier WHERE p.id IN :ids")
+    List<Product> findAllWithCategoryAndSupplierByIdIn(@Param("ids") Collection<Long> ids);
 
     @Query("SELECT p FROM Product p " +
             "LEFT JOIN p.stocks s " +
@@ -62,4 +74,24 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query("SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.deleted = false")
     Long countActiveProducts();
-}
\ No newline at end of file
+
+    interface ProductKeys {
+        Long getId();
+
+        String getSku();
+
+        String getBarcode();
+
+        Boolean getDeleted();
+    }
+
+    interface StockThresholds {
+        Long getId();
+
+        String getName();
+
+        Integer getMinStockLevel();
+
+        Integer getReorderLevel();
+    }
+}
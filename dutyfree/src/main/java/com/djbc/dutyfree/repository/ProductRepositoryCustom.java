@@ -0,0 +1,78 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.entity.Product;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ranked product search for the catalogue and the registers.
+ * <p>
+ * Matches exact and prefix SKU / barcode codes and names containing or resembling the term.
+ * On PostgreSQL every branch is served by an index: the pg_trgm GIN indexes on the names and
+ * the text_pattern_ops indexes on the codes (V3, V22). Results are paged by keyset on
+ * (score DESC, id) so deep pages cost the same as the first one.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Next page of matches after the given position. Pass {@link #FIRST_PAGE_SCORE} and 0 for the
+     * first page.
+     */
+    List<ProductSearchHit> searchRanked(String term, double afterScore, long afterId, int limit);
+
+    /**
+     * Execution plan of {@link #searchRanked} for a first page, one line per plan row.
+     */
+    List<String> explainSearch(String term, int limit);
+
+    /**
+     * Insert new products as one JDBC batch. Category and supplier are read by id only.
+     */
+    void batchInsert(List<Product> products);
+
+    /**
+     * Overwrite the given catalogue columns of existing products, by id, as one JDBC batch. The
+     * other columns are left as they are, and deleted products are not touched.
+     */
+    void batchUpdate(List<Product> products, Set<CatalogueColumn> columns);
+
+    double FIRST_PAGE_SCORE = Double.MAX_VALUE;
+
+    /**
+     * Catalogue columns of a product besides its SKU, in table order.
+     */
+    enum CatalogueColumn {
+        NAME_FR("name_fr"),
+        NAME_EN("name_en"),
+        DESCRIPTION_FR("description_fr"),
+        DESCRIPTION_EN("description_en"),
+        BARCODE("barcode"),
+        CATEGORY("category_id"),
+        SUPPLIER("supplier_id"),
+        PURCHASE_PRICE("purchase_price"),
+        SELLING_PRICE_XOF("selling_price_xof"),
+        SELLING_PRICE_EUR("selling_price_eur"),
+        SELLING_PRICE_USD("selling_price_usd"),
+        TAX_RATE("tax_rate"),
+        IMAGE_URL("image_url"),
+        ACTIVE("active"),
+        TRACK_STOCK("track_stock"),
+        MIN_STOCK_LEVEL("min_stock_level"),
+        REORDER_LEVEL("reorder_level"),
+        UNIT("unit");
+
+        private final String column;
+
+        CatalogueColumn(String column) {
+            this.column = column;
+        }
+
+        public String column() {
+            return column;
+        }
+    }
+
+    record ProductSearchHit(Long id, double score) {
+    }
+}
@@ -0,0 +1,199 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.entity.Product;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    // Exact code 2, code prefix 1.5, otherwise the best trigram similarity of the two names (0..1)
+    private static final String SEARCH_POSTGRES_SQL =
+            "SELECT id, score FROM (" +
+            "    SELECT p.id, CAST(CASE " +
+            "        WHEN p.barcode = :code OR upper(p.sku) = :upperCode THEN 2 " +
+            "        WHEN p.barcode LIKE :prefix OR upper(p.sku) LIKE :upperPrefix THEN 1.5 " +
+            "        ELSE GREATEST(similarity(p.name_fr, :term), similarity(p.name_en, :term)) " +
+            "    END AS DOUBLE PRECISION) AS score " +
+            "    FROM products p " +
+            "    WHERE p.deleted = false AND (" +
+            "        p.name_fr ILIKE :contains OR p.name_en ILIKE :contains " +
+            "        OR p.name_fr % :term OR p.name_en % :term " +
+            "        OR upper(p.sku) LIKE :upperPrefix OR p.barcode LIKE :prefix)" +
+            ") ranked " +
+            "WHERE score < :afterScore OR (score = :afterScore AND id > :afterId) " +
+            "ORDER BY score DESC, id " +
+            "LIMIT :limit";
+
+    // Other databases (H2 in dev and tests): no trigram similarity, names only match by substring
+    private static final String SEARCH_LIKE_SQL =
+            "SELECT id, score FROM (" +
+            "    SELECT p.id, CAST(CASE " +
+            "        WHEN p.barcode = :code OR UPPER(p.sku) = :upperCode THEN 2 " +
+            "        WHEN p.barcode LIKE :prefix OR UPPER(p.sku) LIKE :upperPrefix THEN 1.5 " +
+            "        ELSE 1 " +
+            "    END AS DOUBLE PRECISION) AS score " +
+            "    FROM products p " +
+            "    WHERE p.deleted = false AND (" +
+            "        LOWER(p.name_fr) LIKE LOWER(:contains) OR LOWER(p.name_en) LIKE LOWER(:contains) " +
+            "        OR UPPER(p.sku) LIKE :upperPrefix OR p.barcode LIKE :prefix)" +
+            ") ranked " +
+            "WHERE score < :afterScore OR (score = :afterScore AND id > :afterId) " +
+            "ORDER BY score DESC, id " +
+            "LIMIT :limit";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (sku, name_fr, name_en, description_fr, description_en, barcode, category_id, " +
+            "supplier_id, purchase_price, selling_price_xof, selling_price_eur, selling_price_usd, tax_rate, " +
+            "image_url, active, track_stock, min_stock_level, reorder_level, unit, product_code, " +
+            "created_at, updated_at, created_by, updated_by, deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorProvider;
+
+    private volatile Boolean postgres;
+
+    @Override
+    public List<ProductSearchHit> searchRanked(String term, double afterScore, long afterId, int limit) {
+        return jdbcTemplate.query(isPostgres() ? SEARCH_POSTGRES_SQL : SEARCH_LIKE_SQL,
+                parameters(term, afterScore, afterId, limit),
+                (rs, rowNum) -> new ProductSearchHit(rs.getLong("id"), rs.getDouble("score")));
+    }
+
+    @Override
+    public List<String> explainSearch(String term, int limit) {
+        String sql = isPostgres() ? "EXPLAIN " + SEARCH_POSTGRES_SQL : "EXPLAIN " + SEARCH_LIKE_SQL;
+        return jdbcTemplate.query(sql, parameters(term, FIRST_PAGE_SCORE, 0, limit),
+                (rs, rowNum) -> rs.getString(1));
+    }
+
+    @Override
+    public void batchInsert(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("SYSTEM");
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_SQL, products, products.size(), (ps, product) -> {
+            setCatalogueFields(ps, product);
+            ps.setString(20, product.getSku());
+            ps.setTimestamp(21, now);
+            ps.setTimestamp(22, now);
+            ps.setString(23, auditor);
+            ps.setString(24, auditor);
+        });
+    }
+
+    @Override
+    public void batchUpdate(List<Product> products, Set<CatalogueColumn> columns) {
+        if (products.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("SYSTEM");
+        List<CatalogueColumn> updated = List.copyOf(columns);
+        String sql = "UPDATE products SET " +
+                updated.stream().map(column -> column.column() + " = ?, ").collect(Collectors.joining()) +
+                "updated_at = ?, updated_by = ? WHERE id = ? AND deleted = false";
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(sql, products, products.size(), (ps, product) -> {
+            int index = 1;
+            for (CatalogueColumn column : updated) {
+                setCatalogueField(ps, index++, column, product);
+            }
+            ps.setTimestamp(index++, now);
+            ps.setString(index++, auditor);
+            ps.setLong(index, product.getId());
+        });
+    }
+
+    // Parameters 1 to 19 of INSERT_SQL: the SKU, then every catalogue column in declaration order
+    private static void setCatalogueFields(PreparedStatement ps, Product product) throws SQLException {
+        ps.setString(1, product.getSku());
+        int index = 2;
+        for (CatalogueColumn column : CatalogueColumn.values()) {
+            setCatalogueField(ps, index++, column, product);
+        }
+    }
+
+    private static void setCatalogueField(PreparedStatement ps, int index, CatalogueColumn column, Product product)
+            throws SQLException {
+        switch (column) {
+            case NAME_FR -> ps.setString(index, product.getNameFr());
+            case NAME_EN -> ps.setString(index, product.getNameEn());
+            case DESCRIPTION_FR -> ps.setString(index, product.getDescriptionFr());
+            case DESCRIPTION_EN -> ps.setString(index, product.getDescriptionEn());
+            case BARCODE -> ps.setString(index, product.getBarcode());
+            case CATEGORY -> setId(ps, index, product.getCategory() != null ? product.getCategory().getId() : null);
+            case SUPPLIER -> setId(ps, index, product.getSupplier() != null ? product.getSupplier().getId() : null);
+            case PURCHASE_PRICE -> ps.setBigDecimal(index, product.getPurchasePrice());
+            case SELLING_PRICE_XOF -> ps.setBigDecimal(index, product.getSellingPriceXOF());
+            case SELLING_PRICE_EUR -> ps.setBigDecimal(index, product.getSellingPriceEUR());
+            case SELLING_PRICE_USD -> ps.setBigDecimal(index, product.getSellingPriceUSD());
+            case TAX_RATE -> ps.setBigDecimal(index,
+                    product.getTaxRate() != null ? product.getTaxRate() : BigDecimal.ZERO);
+            case IMAGE_URL -> ps.setString(index, product.getImageUrl());
+            case ACTIVE -> ps.setBoolean(index, product.getActive() == null || product.getActive());
+            case TRACK_STOCK -> ps.setBoolean(index, product.getTrackStock() == null || product.getTrackStock());
+            case MIN_STOCK_LEVEL -> ps.setInt(index,
+                    product.getMinStockLevel() != null ? product.getMinStockLevel() : 0);
+            case REORDER_LEVEL -> ps.setInt(index, product.getReorderLevel() != null ? product.getReorderLevel() : 0);
+            case UNIT -> ps.setString(index, product.getUnit() != null ? product.getUnit() : "PIECE");
+        }
+    }
+
+    private static void setId(PreparedStatement ps, int index, Long id) throws SQLException {
+        if (id != null) {
+            ps.setLong(index, id);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static MapSqlParameterSource parameters(String term, double afterScore, long afterId, int limit) {
+        String trimmed = term.trim();
+        String escaped = escapeLike(trimmed);
+        return new MapSqlParameterSource()
+                .addValue("term", trimmed)
+                .addValue("code", trimmed)
+                .addValue("upperCode", trimmed.toUpperCase(Locale.ROOT))
+                .addValue("prefix", escaped + "%")
+                .addValue("upperPrefix", escaped.toUpperCase(Locale.ROOT) + "%")
+                .addValue("contains", "%" + escaped + "%")
+                .addValue("afterScore", afterScore)
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+    }
+
+    // Backslash is the default LIKE escape character of both PostgreSQL and H2
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+}
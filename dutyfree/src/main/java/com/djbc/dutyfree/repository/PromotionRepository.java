@@ -2,11 +2,13 @@ package com.djbc.dutyfree.repository;
 
 import com.djbc.dutyfree.domain.entity.Promotion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +35,39 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
     List<Promotion> findActivePromotionsForProduct(@Param("productId") Long productId,
                                                    @Param("now") LocalDateTime now);
 
+    @Query("SELECT p FROM Promotion p WHERE p.active = true AND p.endDate >= :now AND p.deleted = false")
+    List<Promotion> findActiveNotEnded(@Param("now") LocalDateTime now);
+
+    /**
+     * (promotion id, product id) pairs of the given promotions
+     */
+    @Query("SELECT p.id, prod.id FROM Promotion p JOIN p.applicableProducts prod WHERE p.id IN :ids")
+    List<Object[]> findApplicableProductIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * (promotion id, category id) pairs of the given promotions
+     */
+    @Query("SELECT p.id, cat.id FROM Promotion p JOIN p.applicableCategories cat WHERE p.id IN :ids")
+    List<Object[]> findApplicableCategoryIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Count uses of a promotion unless that would exceed its usage limit; returns the rows updated
+     */
+    @Modifying
+    @Query("UPDATE Promotion p SET p.usageCount = p.usageCount + :uses " +
+            "WHERE p.id = :id AND p.active = true " +
+            "AND (p.usageLimit IS NULL OR p.usageCount + :uses <= p.usageLimit)")
+    int incrementUsageCount(@Param("id") Long id, @Param("uses") int uses);
+
+    /**
+     * Deactivate a promotion whose usage limit is reached; returns 1 for the caller that did it
+     */
+    @Modifying
+    @Query("UPDATE Promotion p SET p.active = false " +
+            "WHERE p.id = :id AND p.active = true " +
+            "AND p.usageLimit IS NOT NULL AND p.usageCount >= p.usageLimit")
+    int deactivateAtUsageLimit(@Param("id") Long id);
+
     @Query("SELECT p FROM Promotion p LEFT JOIN FETCH p.applicableProducts WHERE p.id = :id")
     Optional<Promotion> findByIdWithProducts(@Param("id") Long id);
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.djbc.dutyfree.repository;
 
 import com.djbc.dutyfree.domain.entity.Receipt;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,11 +21,37 @@ public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
 
     Boolean existsByReceiptNumber(String receiptNumber);
 
+    // Numbers are zero-padded to a fixed width within a day prefix, so the text order is the numeric one
+    @Query(value = "SELECT MAX(receipt_number) FROM receipts WHERE receipt_number LIKE CONCAT(:prefix, '%')",
+            nativeQuery = true)
+    String findMaxReceiptNumberStartingWith(@Param("prefix") String prefix);
+
     @Query("SELECT r FROM Receipt r WHERE r.printedDate BETWEEN :startDate AND :endDate " +
             "AND r.deleted = false")
     List<Receipt> findByPrintedDateBetween(@Param("startDate") LocalDateTime startDate,
                                            @Param("endDate") LocalDateTime endDate);
 
+    // Pending receipts, and receipts whose rendering node stopped before finishing
+    @Query("SELECT r.id FROM Receipt r WHERE r.deleted = false AND (" +
+            "(r.pdfStatus = 'PENDING' AND r.updatedAt < :before) " +
+            "OR (r.pdfStatus = 'RENDERING' AND r.updatedAt < :staleBefore)) ORDER BY r.id")
+    List<Long> findPendingPdfIds(@Param("before") LocalDateTime before,
+                                 @Param("staleBefore") LocalDateTime staleBefore,
+                                 Pageable pageable);
+
+    /**
+     * Reserve a receipt for rendering on this node. Returns 0 when another node holds it or the
+     * PDF is no longer pending.
+     */
+    @Modifying
+    @Query("UPDATE Receipt r SET r.pdfStatus = :rendering, r.updatedAt = :now WHERE r.id = :id " +
+            "AND (r.pdfStatus = :pending OR (r.pdfStatus = :rendering AND r.updatedAt < :staleBefore))")
+    int claimPdfRendering(@Param("id") Long id,
+                          @Param("pending") Receipt.PdfStatus pending,
+                          @Param("rendering") Receipt.PdfStatus rendering,
+                          @Param("now") LocalDateTime now,
+                          @Param("staleBefore") LocalDateTime staleBefore);
+
     @Query("SELECT r FROM Receipt r WHERE r.printed = false AND r.deleted = false")
     List<Receipt> findUnprintedReceipts();
 
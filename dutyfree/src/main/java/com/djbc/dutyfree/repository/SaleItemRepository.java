@@ -1,16 +1,18 @@
 package com.djbc.dutyfree.repository;
 
 import com.djbc.dutyfree.domain.entity.SaleItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
+public interface SaleItemRepository extends JpaRepository<SaleItem, Long>, SaleItemRepositoryCustom {
 
     // ✅ CORRIGÉ : Utilisation de JPQL
     @Query("SELECT si FROM SaleItem si WHERE si.sale.id = :saleId")
@@ -20,6 +22,9 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
     @Query("SELECT si FROM SaleItem si WHERE si.product.id = :productId")
     List<SaleItem> findByProductId(@Param("productId") Long productId);
 
+    @Query("SELECT si FROM SaleItem si WHERE si.sale.id = :saleId ORDER BY si.id")
+    List<SaleItem> findBySaleIdOrderById(@Param("saleId") Long saleId);
+
     @Query("SELECT si FROM SaleItem si WHERE si.sale.id = :saleId AND si.deleted = false")
     List<SaleItem> findActiveBySaleId(@Param("saleId") Long saleId);
 
@@ -38,4 +43,55 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
     Integer getTotalQuantitySoldBetween(@Param("productId") Long productId,
                                         @Param("startDate") LocalDateTime startDate,
                                         @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+
+    // Report projections: aggregated in the database, one small row per group
+
+    @Query("SELECT c.name AS categoryName, SUM(si.totalPrice) AS revenue FROM SaleItem si " +
+            "JOIN si.sale s JOIN si.product p JOIN p.category c " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.deleted = false AND si.deleted = false AND c.name IS NOT NULL " +
+            "GROUP BY c.name")
+    List<CategoryRevenue> getRevenueByCategoryBetween(@Param("startDate") LocalDateTime startDate,
+                                                      @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT p.nameFr AS productName, SUM(si.quantity) AS quantitySold, SUM(si.totalPrice) AS revenue " +
+            "FROM SaleItem si JOIN si.sale s JOIN si.product p " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.status = 'COMPLETED' AND s.deleted = false AND si.deleted = false AND p.nameFr IS NOT NULL " +
+            "GROUP BY p.nameFr ORDER BY SUM(si.totalPrice) DESC")
+    List<ProductSales> findTopProductsBetween(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate,
+                                              Pageable pageable);
+
+    @Query("SELECT COUNT(si) FROM SaleItem si JOIN si.sale s " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.status = 'COMPLETED' AND s.deleted = false AND si.deleted = false")
+    Long countCompletedItemsBetween(@Param("startDate") LocalDateTime startDate,
+                                    @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT c.name AS categoryName, SUM(si.quantity) AS quantity, SUM(si.totalPrice) AS revenue " +
+            "FROM SaleItem si JOIN si.sale s JOIN si.product p JOIN p.category c " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.status = 'COMPLETED' AND s.deleted = false AND si.deleted = false " +
+            "GROUP BY c.name")
+    List<CategorySales> getCompletedSalesByCategoryBetween(@Param("startDate") LocalDateTime startDate,
+                                                           @Param("endDate") LocalDateTime endDate);
+
+    interface CategoryRevenue {
+        String getCategoryName();
+
+        BigDecimal getRevenue();
+    }
+
+    interface ProductSales {
+        String getProductName();
+
+        Long getQuantitySold();
+
+        BigDecimal getRevenue();
+    }
+
+    interface CategorySales extends CategoryRevenue {
+        Long getQuantity();
+    }
+}
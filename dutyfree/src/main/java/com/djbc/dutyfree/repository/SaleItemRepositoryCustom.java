@@ -0,0 +1,14 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.entity.SaleItem;
+
+import java.util.List;
+
+public interface SaleItemRepositoryCustom {
+
+    /**
+     * Insert all items of a sale as a single JDBC batch.
+     * SaleItem uses IDENTITY keys, which prevents Hibernate from batching the inserts itself.
+     */
+    void batchInsert(List<SaleItem> items);
+}
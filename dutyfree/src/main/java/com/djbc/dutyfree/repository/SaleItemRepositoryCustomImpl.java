@@ -0,0 +1,54 @@
+package com.djbc.dutyfree.repository;
+
+import com.djbc.dutyfree.domain.entity.SaleItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class SaleItemRepositoryCustomImpl implements SaleItemRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO sale_items (sale_id, product_id, quantity, unit_price, discount, tax_rate, " +
+            "tax_amount, total_price, promotion_id, created_at, updated_at, created_by, updated_by, deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorProvider;
+
+    @Override
+    public void batchInsert(List<SaleItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = auditorProvider.getCurrentAuditor().orElse("SYSTEM");
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, items, items.size(), (ps, item) -> {
+            ps.setLong(1, item.getSale().getId());
+            ps.setLong(2, item.getProduct().getId());
+            ps.setInt(3, item.getQuantity());
+            ps.setBigDecimal(4, item.getUnitPrice());
+            ps.setBigDecimal(5, item.getDiscount());
+            ps.setBigDecimal(6, item.getTaxRate());
+            ps.setBigDecimal(7, item.getTaxAmount());
+            ps.setBigDecimal(8, item.getTotalPrice());
+            if (item.getAppliedPromotion() != null) {
+                ps.setLong(9, item.getAppliedPromotion().getId());
+            } else {
+                ps.setNull(9, Types.BIGINT);
+            }
+            ps.setTimestamp(10, now);
+            ps.setTimestamp(11, now);
+            ps.setString(12, auditor);
+            ps.setString(13, auditor);
+            ps.setBoolean(14, false);
+        });
+    }
+}
@@ -2,25 +2,40 @@ package com.djbc.dutyfree.repository;
 
 import com.djbc.dutyfree.domain.entity.Sale;
 import com.djbc.dutyfree.domain.enums.SaleStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface SaleRepository extends JpaRepository<Sale, Long> {
+public interface SaleRepository extends JpaRepository<Sale, Long>, SaleRepositoryCustom {
 
     Optional<Sale> findBySaleNumber(String saleNumber);
 
     Boolean existsBySaleNumber(String saleNumber);
 
+    // Numbers are zero-padded to a fixed width within a day prefix, so the text order is the numeric one
+    @Query(value = "SELECT MAX(sale_number) FROM sales WHERE sale_number LIKE CONCAT(:prefix, '%')",
+            nativeQuery = true)
+    String findMaxSaleNumberStartingWith(@Param("prefix") String prefix);
+
+    @Query("SELECT s.clientReference AS clientReference, s.saleNumber AS saleNumber FROM Sale s " +
+           "WHERE s.clientReference IN :clientReferences")
+    List<ClientReference> findClientReferences(@Param("clientReferences") Collection<String> clientReferences);
+
     List<Sale> findByStatus(SaleStatus status);
 
     // ✅ CORRIGÉ : Utilisation de JPQL
@@ -41,7 +56,8 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
                                      @Param("endDate") LocalDateTime endDate,
                                      Pageable pageable);
 
-    @Query("SELECT s FROM Sale s LEFT JOIN FETCH s.items LEFT JOIN FETCH s.payments WHERE s.id = :id")
+    // Items and their products in one query; payments stay lazy (two bags cannot be fetched together)
+    @Query("SELECT DISTINCT s FROM Sale s LEFT JOIN FETCH s.items i LEFT JOIN FETCH i.product WHERE s.id = :id")
     Optional<Sale> findByIdWithDetails(@Param("id") Long id);
 
     // Analytics queries
@@ -55,11 +71,24 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
     Long countSalesBetween(@Param("startDate") LocalDateTime startDate,
                            @Param("endDate") LocalDateTime endDate);
 
+    @Query("SELECT COUNT(s) FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.status = 'CANCELLED' AND s.deleted = false")
+    Long countCancelledBetween(@Param("startDate") LocalDateTime startDate,
+                               @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT s.id FROM Sale s WHERE s.id IN :ids AND s.status = :status")
+    List<Long> findIdsWithStatus(@Param("ids") Collection<Long> ids, @Param("status") SaleStatus status);
+
     @Query("SELECT AVG(s.totalAmount) FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate " +
             "AND s.status = 'COMPLETED' AND s.deleted = false")
     BigDecimal getAverageTicketBetween(@Param("startDate") LocalDateTime startDate,
                                        @Param("endDate") LocalDateTime endDate);
 
+    @Query("SELECT MIN(s.totalAmount) AS minTicket, MAX(s.totalAmount) AS maxTicket FROM Sale s " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate AND s.deleted = false")
+    TicketRange getTicketRangeBetween(@Param("startDate") LocalDateTime startDate,
+                                      @Param("endDate") LocalDateTime endDate);
+
     @Query("SELECT s FROM Sale s WHERE s.cashier.id = :cashierId " +
             "AND s.saleDate BETWEEN :startDate AND :endDate " +
             "AND s.deleted = false ORDER BY s.saleDate DESC")
@@ -79,4 +108,90 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
     List<Sale> findBySaleDateBetweenAndStatus(@Param("startDate") LocalDateTime startDate,
                                               @Param("endDate") LocalDateTime endDate,
                                               @Param("status") SaleStatus status);
-}
\ No newline at end of file
+
+    // Customs reports: completed sales read as flat rows through a forward-only cursor
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s.saleDate AS saleDate, s.saleNumber AS saleNumber, s.passengerName AS passengerName, " +
+            "s.destination AS destination, c.fullName AS cashierName, SIZE(s.items) AS itemCount, " +
+            "s.totalAmount AS totalAmount FROM Sale s JOIN s.cashier c " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.status = 'COMPLETED' AND s.deleted = false ORDER BY s.saleDate DESC")
+    Stream<CompletedSaleRow> streamCompletedSalesBetween(@Param("startDate") LocalDateTime startDate,
+                                                         @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT COUNT(s) AS sales, SUM(s.totalAmount) AS totalAmount, SUM(s.taxAmount) AS taxAmount " +
+            "FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.status = 'COMPLETED' AND s.deleted = false")
+    CompletedTotals getCompletedTotalsBetween(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT CAST(s.saleDate AS LocalDate) AS saleDay, COUNT(s) AS sales, SUM(s.totalAmount) AS totalAmount, " +
+            "SUM(s.taxAmount) AS taxAmount FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate " +
+            "AND s.status = 'COMPLETED' AND s.deleted = false GROUP BY CAST(s.saleDate AS LocalDate)")
+    List<CompletedDayTotals> getCompletedTotalsByDayBetween(@Param("startDate") LocalDateTime startDate,
+                                                            @Param("endDate") LocalDateTime endDate);
+
+    // Cashier names are printed in the customs reports, so renames are part of their fingerprint
+    @Query("SELECT DISTINCT CONCAT(CAST(u.id AS String), '=', u.fullName) FROM Sale s JOIN s.cashier u " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate")
+    List<String> findCashierIdNamesBetween(@Param("startDate") LocalDateTime startDate,
+                                           @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT COUNT(s) AS rowCount, MAX(s.updatedAt) AS lastUpdate FROM Sale s " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate")
+    ChangeMarker getChangeMarkerBetween(@Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Row count and latest modification of a set of rows: changes whenever a row is added, removed or updated.
+     */
+    interface ChangeMarker {
+        Long getRowCount();
+
+        LocalDateTime getLastUpdate();
+    }
+
+    interface CompletedSaleRow {
+        LocalDateTime getSaleDate();
+
+        String getSaleNumber();
+
+        String getPassengerName();
+
+        String getDestination();
+
+        String getCashierName();
+
+        Integer getItemCount();
+
+        BigDecimal getTotalAmount();
+    }
+
+    interface CompletedTotals {
+        Long getSales();
+
+        BigDecimal getTotalAmount();
+
+        BigDecimal getTaxAmount();
+    }
+
+    interface CompletedDayTotals extends CompletedTotals {
+        LocalDate getSaleDay();
+    }
+
+    interface TicketRange {
+        BigDecimal getMinTicket();
+
+        BigDecimal getMaxTicket();
+    }
+
+    interface ClientReference {
+        String getClientReference();
+
+        String getSaleNumber();
+    }
+}
@@ -0,0 +1,44 @@
+package com.djbc.dutyfree.repository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Forward-only reads of the sales journal for the transaction-level exports.
+ * <p>
+ * Rows are read through a JDBC cursor with the given fetch size and handed over one by one, so an
+ * export of a year of sales holds at most one fetch in memory. On PostgreSQL the cursor only
+ * streams inside a transaction: callers must run in one (read-only is enough).
+ */
+public interface SaleRepositoryCustom {
+
+    /**
+     * Every item of the sales dated in [start, end), in sale date order, whatever the sale status.
+     */
+    void forEachExportLine(LocalDateTime start, LocalDateTime end, int fetchSize, ExportRowHandler<ExportLine> handler)
+            throws IOException;
+
+    /**
+     * Every payment of the sales dated in [start, end), in sale date order, whatever the sale status.
+     */
+    void forEachExportPayment(LocalDateTime start, LocalDateTime end, int fetchSize,
+                              ExportRowHandler<ExportPayment> handler) throws IOException;
+
+    @FunctionalInterface
+    interface ExportRowHandler<T> {
+        void accept(T row) throws IOException;
+    }
+
+    record ExportLine(String saleNumber, LocalDateTime saleDate, String status, String registerNumber,
+                      String cashier, String passengerName, String flightNumber, String destination,
+                      String sku, String productName, int quantity, BigDecimal unitPrice, BigDecimal discount,
+                      BigDecimal taxRate, BigDecimal taxAmount, BigDecimal totalPrice) {
+    }
+
+    record ExportPayment(String saleNumber, LocalDateTime saleDate, String status, String registerNumber,
+                         LocalDateTime paymentDate, String paymentMethod, String currency,
+                         BigDecimal amountInCurrency, BigDecimal exchangeRate, BigDecimal amountInXof,
+                         String transactionReference) {
+    }
+}
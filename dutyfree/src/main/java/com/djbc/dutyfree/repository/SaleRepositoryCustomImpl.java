@@ -0,0 +1,112 @@
+package com.djbc.dutyfree.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class SaleRepositoryCustomImpl implements SaleRepositoryCustom {
+
+    private static final String EXPORT_LINES_SQL =
+            "SELECT s.sale_number, s.sale_date, s.status, r.register_number, u.username, s.passenger_name, " +
+            "s.flight_number, s.destination, p.sku, p.name_fr, i.quantity, i.unit_price, i.discount, i.tax_rate, " +
+            "i.tax_amount, i.total_price " +
+            "FROM sales s " +
+            "JOIN sale_items i ON i.sale_id = s.id AND i.deleted = false " +
+            "JOIN products p ON p.id = i.product_id " +
+            "JOIN cash_registers r ON r.id = s.cash_register_id " +
+            "JOIN users u ON u.id = s.cashier_id " +
+            "WHERE s.sale_date >= ? AND s.sale_date < ? AND s.deleted = false " +
+            "ORDER BY s.sale_date, s.id, i.id";
+
+    // Card and mobile money numbers are left out of the exports
+    private static final String EXPORT_PAYMENTS_SQL =
+            "SELECT s.sale_number, s.sale_date, s.status, r.register_number, pm.payment_date, pm.payment_method, " +
+            "pm.currency, pm.amount_in_currency, pm.exchange_rate, pm.amount_in_xof, pm.transaction_reference " +
+            "FROM sales s " +
+            "JOIN payments pm ON pm.sale_id = s.id AND pm.deleted = false " +
+            "JOIN cash_registers r ON r.id = s.cash_register_id " +
+            "WHERE s.sale_date >= ? AND s.sale_date < ? AND s.deleted = false " +
+            "ORDER BY s.sale_date, s.id, pm.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void forEachExportLine(LocalDateTime start, LocalDateTime end, int fetchSize,
+                                  ExportRowHandler<ExportLine> handler) throws IOException {
+        stream(EXPORT_LINES_SQL, start, end, fetchSize, rs -> handler.accept(new ExportLine(
+                rs.getString("sale_number"),
+                toLocalDateTime(rs.getTimestamp("sale_date")),
+                rs.getString("status"),
+                rs.getString("register_number"),
+                rs.getString("username"),
+                rs.getString("passenger_name"),
+                rs.getString("flight_number"),
+                rs.getString("destination"),
+                rs.getString("sku"),
+                rs.getString("name_fr"),
+                rs.getInt("quantity"),
+                rs.getBigDecimal("unit_price"),
+                rs.getBigDecimal("discount"),
+                rs.getBigDecimal("tax_rate"),
+                rs.getBigDecimal("tax_amount"),
+                rs.getBigDecimal("total_price"))));
+    }
+
+    @Override
+    public void forEachExportPayment(LocalDateTime start, LocalDateTime end, int fetchSize,
+                                     ExportRowHandler<ExportPayment> handler) throws IOException {
+        stream(EXPORT_PAYMENTS_SQL, start, end, fetchSize, rs -> handler.accept(new ExportPayment(
+                rs.getString("sale_number"),
+                toLocalDateTime(rs.getTimestamp("sale_date")),
+                rs.getString("status"),
+                rs.getString("register_number"),
+                toLocalDateTime(rs.getTimestamp("payment_date")),
+                rs.getString("payment_method"),
+                rs.getString("currency"),
+                rs.getBigDecimal("amount_in_currency"),
+                rs.getBigDecimal("exchange_rate"),
+                rs.getBigDecimal("amount_in_xof"),
+                rs.getString("transaction_reference"))));
+    }
+
+    private void stream(String sql, LocalDateTime start, LocalDateTime end, int fetchSize, RowWriter writer)
+            throws IOException {
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.valueOf(start));
+                ps.setTimestamp(2, Timestamp.valueOf(end));
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // The client went away or the disk is full: stop reading and report the write error
+            throw e.getCause();
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+}
@@ -43,6 +43,13 @@ public interface ScheduledPriceRepository extends JpaRepository<ScheduledPrice,
     @Query("SELECT sp FROM ScheduledPrice sp WHERE sp.active = true AND sp.deleted = false")
     List<ScheduledPrice> findAllActive();
 
+    /**
+     * Active scheduled prices not yet expired on the given day, compiled into the price table
+     */
+    @Query("SELECT sp FROM ScheduledPrice sp WHERE sp.active = true AND sp.deleted = false " +
+           "AND (sp.validUntil IS NULL OR sp.validUntil >= :today)")
+    List<ScheduledPrice> findActiveNotExpired(@Param("today") LocalDate today);
+
     /**
      * Find scheduled prices by period type
      */
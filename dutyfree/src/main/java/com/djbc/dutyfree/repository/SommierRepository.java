@@ -3,11 +3,13 @@ package com.djbc.dutyfree.repository;
 import com.djbc.dutyfree.domain.entity.Sommier;
 import com.djbc.dutyfree.domain.enums.SommierStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -23,7 +25,23 @@ public interface SommierRepository extends JpaRepository<Sommier, Long> {
 
     List<Sommier> findByStatusAndCurrentValueGreaterThan(SommierStatus status, BigDecimal value);
 
+    @Query("SELECT COUNT(s) AS rowCount, MAX(s.updatedAt) AS lastUpdate FROM Sommier s " +
+            "WHERE s.openingDate BETWEEN CAST(:startDate AS LocalDate) AND CAST(:endDate AS LocalDate)")
+    SaleRepository.ChangeMarker getChangeMarkerBetween(@Param("startDate") LocalDateTime startDate,
+                                                       @Param("endDate") LocalDateTime endDate);
+
     @Query("SELECT s FROM Sommier s WHERE s.openingDate BETWEEN CAST(:startDate AS LocalDate) AND CAST(:endDate AS LocalDate) ORDER BY s.openingDate DESC")
     List<Sommier> findByDeclarationDateBetween(@Param("startDate") LocalDateTime startDate,
                                                @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT s FROM Sommier s WHERE s.status = 'ACTIVE' AND s.alertDate <= :day AND s.deleted = false")
+    List<Sommier> findActiveWithAlertDue(@Param("day") LocalDate day);
+
+    /**
+     * Mark the alert of a sommier as sent. Returns 0 when another node already did, so only one
+     * notifies.
+     */
+    @Modifying
+    @Query("UPDATE Sommier s SET s.alertSent = true WHERE s.id = :id AND (s.alertSent = false OR s.alertSent IS NULL)")
+    int claimAlert(@Param("id") Long id);
 }
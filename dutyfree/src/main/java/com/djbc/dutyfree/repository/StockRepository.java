@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface StockRepository extends JpaRepository<Stock, Long> {
+public interface StockRepository extends JpaRepository<Stock, Long>, StockRepositoryCustom {
 
     List<Stock> findByProductId(Long productId);
 
@@ -46,4 +46,16 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     @Query("SELECT s FROM Stock s WHERE s.availableQuantity <= :threshold AND s.deleted = false")
     List<Stock> findLowStock(@Param("threshold") int threshold);
 
-}
\ No newline at end of file
+
+    @Query("SELECT s.id AS stockId, p.nameFr AS productName, s.expiryDate AS expiryDate FROM Stock s JOIN s.product p " +
+            "WHERE s.expiryDate IS NOT NULL AND s.expiryDate <= :date AND s.quantity > 0 AND s.deleted = false")
+    List<ExpiringLot> findLotsExpiringBy(@Param("date") LocalDate date);
+
+    interface ExpiringLot {
+        Long getStockId();
+
+        String getProductName();
+
+        LocalDate getExpiryDate();
+    }
+}
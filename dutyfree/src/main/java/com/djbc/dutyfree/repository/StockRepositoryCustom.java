@@ -0,0 +1,69 @@
+package com.djbc.dutyfree.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Row-level stock operations that bypass the persistence context.
+ * Quantities are changed with conditional UPDATE statements so concurrent registers cannot oversell.
+ */
+public interface StockRepositoryCustom {
+
+    /**
+     * Snapshot of the active lots of the given products, FEFO ordered (earliest expiry first,
+     * lots without expiry last) within each product.
+     */
+    List<StockLot> findActiveLotsFefo(Collection<Long> productIds);
+
+    /**
+     * Apply the updates as one JDBC batch. Each statement only matches if the lot still holds
+     * enough quantity for the operation; the returned array has 0 for every update that did not apply.
+     */
+    int[] applyLotUpdates(LotOperation operation, List<LotUpdate> updates);
+
+    /**
+     * Stream the total available quantity of every product holding active stock, one row per product.
+     */
+    void forEachAvailableTotal(AvailableTotalHandler handler);
+
+    @FunctionalInterface
+    interface AvailableTotalHandler {
+        void accept(long productId, int availableQuantity);
+    }
+
+    record StockLot(Long id, Long productId, int quantity, int reservedQuantity, int availableQuantity) {
+    }
+
+    record LotUpdate(Long stockId, Long productId, int quantity) {
+    }
+
+    enum LotOperation {
+        /** available → reserved */
+        RESERVE("UPDATE stocks SET reserved_quantity = reserved_quantity + ?, " +
+                "available_quantity = available_quantity - ?, version = version + 1 " +
+                "WHERE id = ? AND available_quantity >= ? AND deleted = false"),
+        /** reserved → available */
+        RELEASE("UPDATE stocks SET reserved_quantity = reserved_quantity - ?, " +
+                "available_quantity = available_quantity + ?, version = version + 1 " +
+                "WHERE id = ? AND reserved_quantity >= ? AND deleted = false"),
+        /** reserved → out of stock (sold) */
+        REDUCE("UPDATE stocks SET reserved_quantity = reserved_quantity - ?, " +
+                "quantity = quantity - ?, version = version + 1 " +
+                "WHERE id = ? AND reserved_quantity >= ? AND deleted = false");
+
+        private final String sql;
+
+        LotOperation(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /** Quantity of the lot this operation can consume */
+        public int capacity(StockLot lot) {
+            return this == RESERVE ? lot.availableQuantity() : lot.reservedQuantity();
+        }
+    }
+}
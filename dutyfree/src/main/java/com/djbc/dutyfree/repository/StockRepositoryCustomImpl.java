@@ -0,0 +1,58 @@
+package com.djbc.dutyfree.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class StockRepositoryCustomImpl implements StockRepositoryCustom {
+
+    private static final String FIND_LOTS_SQL =
+            "SELECT id, product_id, quantity, reserved_quantity, available_quantity FROM stocks " +
+            "WHERE product_id IN (:productIds) AND deleted = false " +
+            "ORDER BY product_id, expiry_date ASC NULLS LAST, id";
+
+    private static final String AVAILABLE_TOTALS_SQL =
+            "SELECT product_id, SUM(available_quantity) AS available FROM stocks " +
+            "WHERE deleted = false GROUP BY product_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<StockLot> findActiveLotsFefo(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(FIND_LOTS_SQL, Map.of("productIds", productIds), (rs, rowNum) -> new StockLot(
+                rs.getLong("id"),
+                rs.getLong("product_id"),
+                rs.getInt("quantity"),
+                rs.getInt("reserved_quantity"),
+                rs.getInt("available_quantity")));
+    }
+
+    @Override
+    public int[] applyLotUpdates(LotOperation operation, List<LotUpdate> updates) {
+        if (updates.isEmpty()) {
+            return new int[0];
+        }
+        int[][] results = jdbcTemplate.getJdbcTemplate().batchUpdate(operation.getSql(), updates, updates.size(),
+                (ps, update) -> {
+                    ps.setInt(1, update.quantity());
+                    ps.setInt(2, update.quantity());
+                    ps.setLong(3, update.stockId());
+                    ps.setInt(4, update.quantity());
+                });
+        return results.length > 0 ? results[0] : new int[0];
+    }
+
+    @Override
+    public void forEachAvailableTotal(AvailableTotalHandler handler) {
+        jdbcTemplate.getJdbcTemplate().query(AVAILABLE_TOTALS_SQL,
+                (RowCallbackHandler) rs -> handler.accept(rs.getLong("product_id"), rs.getInt("available")));
+    }
+}
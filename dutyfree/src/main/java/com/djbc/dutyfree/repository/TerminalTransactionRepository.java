@@ -1,12 +1,15 @@
 package com.djbc.dutyfree.repository;
 
 import com.djbc.dutyfree.domain.entity.TerminalTransaction;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -70,4 +73,15 @@ public interface TerminalTransactionRepository extends JpaRepository<TerminalTra
            "AND tt.startedAt < :timeout " +
            "ORDER BY tt.startedAt ASC")
     List<TerminalTransaction> findTimedOutTransactions(@Param("timeout") LocalDateTime timeout);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT tt FROM TerminalTransaction tt JOIN FETCH tt.terminal WHERE tt.id = :id")
+    Optional<TerminalTransaction> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT tt.id FROM TerminalTransaction tt " +
+           "WHERE tt.status IN :statuses " +
+           "AND tt.startedAt < :before " +
+           "ORDER BY tt.startedAt ASC")
+    List<Long> findStaleIds(@Param("statuses") Collection<TerminalTransaction.TransactionStatus> statuses,
+                            @Param("before") LocalDateTime before);
 }
@@ -0,0 +1,89 @@
+package com.djbc.dutyfree.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Only lets authenticated users open a WebSocket. Browsers cannot set headers on the handshake, so
+ * the JWT is taken from the {@code token} query parameter when there is no Authorization header.
+ * The user name and roles are kept in the session attributes for the handlers.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String USERNAME_ATTRIBUTE = "username";
+    public static final String ROLES_ATTRIBUTE = "roles";
+
+    private final JwtTokenProvider tokenProvider;
+    private final UserDetailsService userDetailsService;
+
+    /**
+     * Whether the user of a session holds one of the roles, given without the ROLE_ prefix.
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean hasAnyRole(WebSocketSession session, String... roles) {
+        Object granted = session.getAttributes().get(ROLES_ATTRIBUTE);
+        if (!(granted instanceof Set<?>)) {
+            return false;
+        }
+        for (String role : roles) {
+            if (((Set<String>) granted).contains("ROLE_" + role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String jwt = getJwtFromRequest(request);
+        try {
+            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+                UserDetails userDetails = userDetailsService.loadUserByUsername(tokenProvider.getUsernameFromToken(jwt));
+                if (userDetails.isEnabled()) {
+                    attributes.put(USERNAME_ATTRIBUTE, userDetails.getUsername());
+                    attributes.put(ROLES_ATTRIBUTE, userDetails.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .collect(Collectors.toUnmodifiableSet()));
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("WebSocket handshake rejected: {}", e.getMessage());
+        }
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private String getJwtFromRequest(ServerHttpRequest request) {
+        String bearerToken = request.getHeaders().getFirst("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("token");
+    }
+}
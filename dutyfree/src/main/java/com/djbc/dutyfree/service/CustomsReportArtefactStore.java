@@ -0,0 +1,216 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.service.CustomsReportService.CustomsReportType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Content-addressed store for the customs report PDFs.
+ * <p>
+ * Each artefact is named after a hash of its report type, period and
+ * {@link CustomsReportService#dataFingerprint data fingerprint}, so a request for a period whose
+ * data has not changed is served from disk without touching the PDF renderer. Concurrent requests
+ * for the same missing artefact share a single rendering.
+ * <p>
+ * An artefact superseded by a newer rendering of the same report and period may still be in the
+ * hands of a request that resolved it just before; it is deleted by the periodic purge once the
+ * newer one is older than the grace period.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CustomsReportArtefactStore {
+
+    private final CustomsReportService customsReportService;
+
+    private final ConcurrentMap<String, CompletableFuture<Path>> renders = new ConcurrentHashMap<>();
+
+    @Value("${app.reports.storage-path:./data/reports}")
+    private String reportsStoragePath;
+
+    @Value("${app.reports.artefacts.superseded-grace-seconds:600}")
+    private long supersededGraceSeconds;
+
+    public record Artefact(Path path, String fileName) {
+    }
+
+    @FunctionalInterface
+    private interface Renderer {
+        void render(Path outputPath) throws Exception;
+    }
+
+    public Artefact sommierApurement(LocalDate startDate, LocalDate endDate) throws Exception {
+        return resolve(CustomsReportType.SOMMIER_APUREMENT, startDate, endDate,
+                CustomsReportService.sommierApurementFileName(startDate, endDate),
+                path -> customsReportService.generateSommierApurementReport(startDate, endDate, path));
+    }
+
+    public Artefact monthlyRegistry(YearMonth yearMonth) throws Exception {
+        return resolve(CustomsReportType.MONTHLY_REGISTRY, yearMonth.atDay(1), yearMonth.atEndOfMonth(),
+                CustomsReportService.monthlyRegistryFileName(yearMonth),
+                path -> customsReportService.generateMonthlyCustomsRegistry(yearMonth, path));
+    }
+
+    public Artefact dailySummary(LocalDate date) throws Exception {
+        return resolve(CustomsReportType.DAILY_SUMMARY, date, date,
+                CustomsReportService.dailySummaryFileName(date),
+                path -> customsReportService.generateDailySalesSummary(date, path));
+    }
+
+    private Artefact resolve(CustomsReportType type, LocalDate startDate, LocalDate endDate,
+                             String fileName, Renderer renderer) throws Exception {
+        String fingerprint = customsReportService.dataFingerprint(type, startDate, endDate);
+        String baseName = fileName.substring(0, fileName.length() - ".pdf".length());
+        Path directory = Paths.get(reportsStoragePath, "artefacts");
+        Path target = directory.resolve(baseName + "_" + hash(fingerprint) + ".pdf");
+
+        if (Files.exists(target)) {
+            log.debug("Customs report {} served from store", target.getFileName());
+            return new Artefact(target, fileName);
+        }
+
+        String key = target.toString();
+        CompletableFuture<Path> render = new CompletableFuture<>();
+        CompletableFuture<Path> inFlight = renders.putIfAbsent(key, render);
+        if (inFlight != null) {
+            return new Artefact(await(inFlight), fileName);
+        }
+
+        try {
+            if (!Files.exists(target)) {
+                render(directory, baseName, target, renderer);
+            }
+            render.complete(target);
+        } catch (Exception e) {
+            render.completeExceptionally(e);
+            throw e;
+        } finally {
+            renders.remove(key, render);
+        }
+        return new Artefact(target, fileName);
+    }
+
+    private void render(Path directory, String baseName, Path target, Renderer renderer) throws Exception {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, baseName + "_", ".tmp");
+        try {
+            long start = System.currentTimeMillis();
+            renderer.render(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Customs report {} rendered in {} ms", target.getFileName(), System.currentTimeMillis() - start);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Delete the artefacts that a newer rendering of the same report and period has superseded for
+     * longer than the grace period. Older artefacts can never be served again once the data moved on.
+     */
+    @Scheduled(fixedDelayString = "${app.reports.artefacts.purge-interval-ms:600000}")
+    public void purgeSuperseded() {
+        purgeSuperseded(Duration.ofSeconds(supersededGraceSeconds));
+    }
+
+    void purgeSuperseded(Duration grace) {
+        Path directory = Paths.get(reportsStoragePath, "artefacts");
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        // Newest artefact of each report and period, then everything older than it
+        Map<String, List<Path>> byReport = new HashMap<>();
+        try (DirectoryStream<Path> artefacts = Files.newDirectoryStream(directory, "*_*.pdf")) {
+            for (Path artefact : artefacts) {
+                String name = artefact.getFileName().toString();
+                byReport.computeIfAbsent(name.substring(0, name.lastIndexOf('_')), key -> new ArrayList<>())
+                        .add(artefact);
+            }
+        } catch (IOException e) {
+            log.warn("Could not list customs report artefacts: {}", e.getMessage());
+            return;
+        }
+
+        FileTime graceLimit = FileTime.from(Instant.now().minus(grace));
+        int deleted = 0;
+        for (List<Path> versions : byReport.values()) {
+            if (versions.size() < 2) {
+                continue;
+            }
+            try {
+                versions.sort(Comparator.comparing(CustomsReportArtefactStore::lastModified).reversed());
+                if (lastModified(versions.get(0)).compareTo(graceLimit) > 0) {
+                    continue;
+                }
+                for (Path superseded : versions.subList(1, versions.size())) {
+                    if (Files.deleteIfExists(superseded)) {
+                        deleted++;
+                    }
+                }
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Could not purge superseded artefacts of {}: {}", versions.get(0).getFileName(),
+                        e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            log.info("Purged {} superseded customs report artefacts", deleted);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> inFlight) throws Exception {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String hash(String fingerprint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.djbc.dutyfree.service;
 
-import com.djbc.dutyfree.domain.entity.Sale;
-import com.djbc.dutyfree.domain.entity.SaleItem;
 import com.djbc.dutyfree.domain.entity.Settings;
 import com.djbc.dutyfree.domain.entity.Sommier;
-import com.djbc.dutyfree.domain.enums.SaleStatus;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.SaleItemRepository;
 import com.djbc.dutyfree.repository.SaleRepository;
+import com.djbc.dutyfree.repository.SaleRepository.CompletedSaleRow;
 import com.djbc.dutyfree.repository.SettingsRepository;
 import com.djbc.dutyfree.repository.SommierRepository;
 import com.itextpdf.kernel.colors.DeviceRgb;
@@ -25,7 +25,6 @@ import com.itextpdf.layout.properties.UnitValue;
 import com.itextpdf.io.font.constants.StandardFonts;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,17 +33,21 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for generating customs compliance reports
  * Handles sommier apurement (customs clearance tracking) and monthly customs registries
+ * <p>
+ * Totals come from aggregate queries; per-sale tables are streamed from a database cursor into
+ * iText large tables that are flushed as they grow, so memory does not depend on the period length.
  */
 @Service
 @RequiredArgsConstructor
@@ -52,41 +55,95 @@ import java.util.stream.Collectors;
 public class CustomsReportService {
 
     private final SaleRepository saleRepository;
+    private final SaleItemRepository saleItemRepository;
     private final SommierRepository sommierRepository;
     private final SettingsRepository settingsRepository;
-
-    @Value("${app.reports.storage-path:./data/reports}")
-    private String reportsStoragePath;
+    private final CategoryRepository categoryRepository;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MMMM yyyy", Locale.FRENCH);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
     private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
 
     private static final DeviceRgb HEADER_COLOR = new DeviceRgb(41, 128, 185);
     private static final DeviceRgb BORDER_COLOR = new DeviceRgb(189, 195, 199);
     private static final DeviceRgb HIGHLIGHT_COLOR = new DeviceRgb(236, 240, 241);
 
+    // Rows written to a large table before its content is laid out and released
+    private static final int TABLE_FLUSH_ROWS = 200;
+
+    public enum CustomsReportType {
+        SOMMIER_APUREMENT,
+        MONTHLY_REGISTRY,
+        DAILY_SUMMARY
+    }
+
+    /**
+     * Fingerprint of everything a report renders for the period: the sales (and, for the sommier
+     * report, the declarations) of the period through their row count and latest update, the
+     * names of the categories and of the period's cashiers, plus the company settings printed in
+     * the header. Any change to that data changes the fingerprint.
+     */
+    @Transactional(readOnly = true)
+    public String dataFingerprint(CustomsReportType type, LocalDate startDate, LocalDate endDate) {
+        LocalDateTime startDateTime = startDate.atStartOfDay();
+        LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
+
+        StringBuilder fingerprint = new StringBuilder(type.name()).append('|')
+                .append(startDate).append('|').append(endDate);
+
+        SaleRepository.ChangeMarker sales = saleRepository.getChangeMarkerBetween(startDateTime, endDateTime);
+        fingerprint.append("|sales:").append(sales.getRowCount()).append('@').append(sales.getLastUpdate());
+
+        if (type == CustomsReportType.SOMMIER_APUREMENT) {
+            SaleRepository.ChangeMarker sommiers = sommierRepository.getChangeMarkerBetween(startDateTime, endDateTime);
+            fingerprint.append("|sommiers:").append(sommiers.getRowCount()).append('@').append(sommiers.getLastUpdate());
+        }
+
+        fingerprint.append("|categories:").append(categoryRepository.findAllIdNames());
+        fingerprint.append("|cashiers:").append(new TreeSet<>(
+                saleRepository.findCashierIdNamesBetween(startDateTime, endDateTime)));
+
+        fingerprint.append("|company:").append(new TreeMap<>(fetchCompanySettings()));
+        return fingerprint.toString();
+    }
+
+    public static String sommierApurementFileName(LocalDate startDate, LocalDate endDate) {
+        return String.format("sommier_apurement_%s_%s.pdf",
+                startDate.format(FILE_DATE_FORMATTER),
+                endDate.format(FILE_DATE_FORMATTER));
+    }
+
+    public static String monthlyRegistryFileName(YearMonth yearMonth) {
+        return String.format("registre_douanier_%s.pdf",
+                yearMonth.format(DateTimeFormatter.ofPattern("yyyy_MM")));
+    }
+
+    public static String dailySummaryFileName(LocalDate date) {
+        return String.format("recapitulatif_ventes_%s.pdf",
+                date.format(FILE_DATE_FORMATTER));
+    }
+
     /**
      * Generate sommier apurement report (customs clearance tracking)
      * This report tracks all duty-free sales for customs compliance
      *
      * @param startDate Start date of the report period
      * @param endDate End date of the report period
+     * @param outputPath File the PDF is written to
      * @return Path to the generated PDF report
      */
     @Transactional(readOnly = true)
-    public String generateSommierApurementReport(LocalDate startDate, LocalDate endDate) throws Exception {
+    public String generateSommierApurementReport(LocalDate startDate, LocalDate endDate, Path outputPath)
+            throws Exception {
         log.info("Generating sommier apurement report from {} to {}", startDate, endDate);
 
         // Fetch all completed sales in the period
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
 
-        List<Sale> sales = saleRepository.findBySaleDateBetweenAndStatus(
-                startDateTime,
-                endDateTime,
-                SaleStatus.COMPLETED
-        );
+        SaleRepository.CompletedTotals totals = saleRepository.getCompletedTotalsBetween(startDateTime, endDateTime);
+        Long itemCount = saleItemRepository.countCompletedItemsBetween(startDateTime, endDateTime);
 
         // Fetch sommier records
         List<Sommier> sommierRecords = sommierRepository.findByDeclarationDateBetween(
@@ -98,16 +155,12 @@ public class CustomsReportService {
         Map<String, String> companySettings = fetchCompanySettings();
 
         // Generate PDF
-        String fileName = String.format("sommier_apurement_%s_%s.pdf",
-                startDate.format(FILE_DATE_FORMATTER),
-                endDate.format(FILE_DATE_FORMATTER));
-
-        String outputPath = Paths.get(reportsStoragePath, fileName).toString();
-
-        generateSommierPDF(sales, sommierRecords, companySettings, startDate, endDate, outputPath);
+        try (Stream<CompletedSaleRow> sales = saleRepository.streamCompletedSalesBetween(startDateTime, endDateTime)) {
+            generateSommierPDF(totals, itemCount, sales, sommierRecords, companySettings, startDate, endDate, outputPath);
+        }
 
         log.info("Sommier apurement report generated successfully at: {}", outputPath);
-        return outputPath;
+        return outputPath.toString();
     }
 
     /**
@@ -115,10 +168,11 @@ public class CustomsReportService {
      * Aggregated report of all duty-free sales for the month
      *
      * @param yearMonth Year and month for the report
+     * @param outputPath File the PDF is written to
      * @return Path to the generated PDF report
      */
     @Transactional(readOnly = true)
-    public String generateMonthlyCustomsRegistry(YearMonth yearMonth) throws Exception {
+    public String generateMonthlyCustomsRegistry(YearMonth yearMonth, Path outputPath) throws Exception {
         log.info("Generating monthly customs registry for {}", yearMonth);
 
         LocalDate startDate = yearMonth.atDay(1);
@@ -127,67 +181,57 @@ public class CustomsReportService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
 
-        List<Sale> sales = saleRepository.findBySaleDateBetweenAndStatus(
-                startDateTime,
-                endDateTime,
-                SaleStatus.COMPLETED
-        );
+        SaleRepository.CompletedTotals totals = saleRepository.getCompletedTotalsBetween(startDateTime, endDateTime);
+        List<SaleItemRepository.CategorySales> salesByCategory =
+                saleItemRepository.getCompletedSalesByCategoryBetween(startDateTime, endDateTime);
+        List<SaleRepository.CompletedDayTotals> salesByDay =
+                saleRepository.getCompletedTotalsByDayBetween(startDateTime, endDateTime);
 
         Map<String, String> companySettings = fetchCompanySettings();
 
-        String fileName = String.format("registre_douanier_%s.pdf",
-                yearMonth.format(DateTimeFormatter.ofPattern("yyyy_MM")));
-
-        String outputPath = Paths.get(reportsStoragePath, fileName).toString();
-
-        generateMonthlyRegistryPDF(sales, companySettings, yearMonth, outputPath);
+        generateMonthlyRegistryPDF(totals, salesByCategory, salesByDay, companySettings, yearMonth, outputPath);
 
         log.info("Monthly customs registry generated successfully at: {}", outputPath);
-        return outputPath;
+        return outputPath.toString();
     }
 
     /**
      * Generate daily sales summary for customs
      *
      * @param date Date for the daily report
+     * @param outputPath File the PDF is written to
      * @return Path to the generated PDF report
      */
     @Transactional(readOnly = true)
-    public String generateDailySalesSummary(LocalDate date) throws Exception {
+    public String generateDailySalesSummary(LocalDate date, Path outputPath) throws Exception {
         log.info("Generating daily sales summary for {}", date);
 
         LocalDateTime startDateTime = date.atStartOfDay();
         LocalDateTime endDateTime = date.atTime(23, 59, 59);
 
-        List<Sale> sales = saleRepository.findBySaleDateBetweenAndStatus(
-                startDateTime,
-                endDateTime,
-                SaleStatus.COMPLETED
-        );
+        SaleRepository.CompletedTotals totals = saleRepository.getCompletedTotalsBetween(startDateTime, endDateTime);
+        Long itemCount = saleItemRepository.countCompletedItemsBetween(startDateTime, endDateTime);
 
         Map<String, String> companySettings = fetchCompanySettings();
 
-        String fileName = String.format("recapitulatif_ventes_%s.pdf",
-                date.format(FILE_DATE_FORMATTER));
-
-        String outputPath = Paths.get(reportsStoragePath, fileName).toString();
-
-        generateDailySummaryPDF(sales, companySettings, date, outputPath);
+        try (Stream<CompletedSaleRow> sales = saleRepository.streamCompletedSalesBetween(startDateTime, endDateTime)) {
+            generateDailySummaryPDF(totals, itemCount, sales, companySettings, date, outputPath);
+        }
 
         log.info("Daily sales summary generated successfully at: {}", outputPath);
-        return outputPath;
+        return outputPath.toString();
     }
 
-    private void generateSommierPDF(List<Sale> sales, List<Sommier> sommierRecords,
+    private void generateSommierPDF(SaleRepository.CompletedTotals totals, Long itemCount,
+                                   Stream<CompletedSaleRow> sales, List<Sommier> sommierRecords,
                                    Map<String, String> settings, LocalDate startDate,
-                                   LocalDate endDate, String outputPath) throws Exception {
+                                   LocalDate endDate, Path outputPath) throws Exception {
 
         // Ensure output directory exists
-        Path path = Paths.get(outputPath);
-        Files.createDirectories(path.getParent());
+        Files.createDirectories(outputPath.toAbsolutePath().getParent());
 
         // Create PDF document
-        PdfWriter writer = new PdfWriter(new FileOutputStream(outputPath));
+        PdfWriter writer = new PdfWriter(new FileOutputStream(outputPath.toFile()));
         PdfDocument pdfDoc = new PdfDocument(writer);
         Document document = new Document(pdfDoc, PageSize.A4.rotate()); // Landscape for wide table
         document.setMargins(20, 20, 20, 20);
@@ -200,7 +244,7 @@ public class CustomsReportService {
                 "RAPPORT D'APUREMENT DU SOMMIER", startDate, endDate);
 
         // Summary statistics
-        addSommierStatistics(document, boldFont, regularFont, sales, sommierRecords);
+        addSommierStatistics(document, boldFont, regularFont, totals, itemCount, sommierRecords);
 
         // Detailed sales table
         addSommierDetailsTable(document, boldFont, regularFont, sales);
@@ -211,13 +255,15 @@ public class CustomsReportService {
         document.close();
     }
 
-    private void generateMonthlyRegistryPDF(List<Sale> sales, Map<String, String> settings,
-                                           YearMonth yearMonth, String outputPath) throws Exception {
+    private void generateMonthlyRegistryPDF(SaleRepository.CompletedTotals totals,
+                                           List<SaleItemRepository.CategorySales> salesByCategory,
+                                           List<SaleRepository.CompletedDayTotals> salesByDay,
+                                           Map<String, String> settings,
+                                           YearMonth yearMonth, Path outputPath) throws Exception {
 
-        Path path = Paths.get(outputPath);
-        Files.createDirectories(path.getParent());
+        Files.createDirectories(outputPath.toAbsolutePath().getParent());
 
-        PdfWriter writer = new PdfWriter(new FileOutputStream(outputPath));
+        PdfWriter writer = new PdfWriter(new FileOutputStream(outputPath.toFile()));
         PdfDocument pdfDoc = new PdfDocument(writer);
         Document document = new Document(pdfDoc, PageSize.A4);
         document.setMargins(20, 20, 20, 20);
@@ -242,13 +288,13 @@ public class CustomsReportService {
         document.add(period);
 
         // Monthly summary
-        addMonthlySummary(document, boldFont, regularFont, sales);
+        addMonthlySummary(document, boldFont, regularFont, totals);
 
         // Sales by category
-        addSalesByCategory(document, boldFont, regularFont, sales);
+        addSalesByCategory(document, boldFont, regularFont, salesByCategory);
 
         // Daily breakdown
-        addDailyBreakdown(document, boldFont, regularFont, sales, yearMonth);
+        addDailyBreakdown(document, boldFont, regularFont, salesByDay, yearMonth);
 
         // Footer
         addReportFooter(document, regularFont, settings);
@@ -256,13 +302,13 @@ public class CustomsReportService {
         document.close();
     }
 
-    private void generateDailySummaryPDF(List<Sale> sales, Map<String, String> settings,
-                                        LocalDate date, String outputPath) throws Exception {
+    private void generateDailySummaryPDF(SaleRepository.CompletedTotals totals, Long itemCount,
+                                        Stream<CompletedSaleRow> sales, Map<String, String> settings,
+                                        LocalDate date, Path outputPath) throws Exception {
 
-        Path path = Paths.get(outputPath);
-        Files.createDirectories(path.getParent());
+        Files.createDirectories(outputPath.toAbsolutePath().getParent());
 
-        PdfWriter writer = new PdfWriter(new FileOutputStream(outputPath));
+        PdfWriter writer = new PdfWriter(new FileOutputStream(outputPath.toFile()));
         PdfDocument pdfDoc = new PdfDocument(writer);
         Document document = new Document(pdfDoc, PageSize.A4);
         document.setMargins(20, 20, 20, 20);
@@ -287,7 +333,7 @@ public class CustomsReportService {
         document.add(dateP);
 
         // Daily statistics
-        addDailyStatistics(document, boldFont, regularFont, sales);
+        addDailyStatistics(document, boldFont, regularFont, totals, itemCount);
 
         // Sales list
         addDailySalesTable(document, boldFont, regularFont, sales);
@@ -346,7 +392,8 @@ public class CustomsReportService {
     }
 
     private void addSommierStatistics(Document document, PdfFont boldFont, PdfFont regularFont,
-                                     List<Sale> sales, List<Sommier> sommierRecords) {
+                                     SaleRepository.CompletedTotals totals, Long itemCount,
+                                     List<Sommier> sommierRecords) {
 
         Paragraph sectionTitle = new Paragraph("STATISTIQUES / STATISTICS")
                 .setFont(boldFont)
@@ -359,13 +406,9 @@ public class CustomsReportService {
                 .setMarginBottom(15);
 
         // Calculate statistics
-        int totalSales = sales.size();
-        BigDecimal totalAmount = sales.stream()
-                .map(Sale::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        int totalItems = sales.stream()
-                .mapToInt(s -> s.getItems().size())
-                .sum();
+        long totalSales = salesOf(totals);
+        BigDecimal totalAmount = totals != null ? totals.getTotalAmount() : null;
+        long totalItems = itemCount != null ? itemCount : 0;
         int sommierCount = sommierRecords.size();
 
         statsTable.addCell(createStatsCell("Nombre de ventes / Sales count", String.valueOf(totalSales),
@@ -381,7 +424,7 @@ public class CustomsReportService {
     }
 
     private void addSommierDetailsTable(Document document, PdfFont boldFont, PdfFont regularFont,
-                                       List<Sale> sales) {
+                                       Stream<CompletedSaleRow> sales) {
 
         Paragraph sectionTitle = new Paragraph("DÉTAIL DES VENTES / SALES DETAILS")
                 .setFont(boldFont)
@@ -390,7 +433,7 @@ public class CustomsReportService {
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        Table table = new Table(UnitValue.createPercentArray(new float[]{1.5f, 2, 2, 2, 1.5f, 1.5f}))
+        Table table = new Table(UnitValue.createPercentArray(new float[]{1.5f, 2, 2, 2, 1.5f, 1.5f}), true)
                 .setWidth(UnitValue.createPercentValue(100))
                 .setMarginBottom(15);
 
@@ -401,20 +444,18 @@ public class CustomsReportService {
         }
 
         // Data rows
-        for (Sale sale : sales) {
-            table.addCell(createDataCell(sale.getSaleDate().format(DATE_FORMATTER), regularFont));
-            table.addCell(createDataCell(sale.getSaleNumber(), regularFont));
-            table.addCell(createDataCell(sale.getPassengerName() != null ? sale.getPassengerName() : "N/A", regularFont));
-            table.addCell(createDataCell(sale.getDestination() != null ? sale.getDestination() : "N/A", regularFont));
-            table.addCell(createDataCell(String.valueOf(sale.getItems().size()), regularFont));
-            table.addCell(createDataCell(formatAmount(sale.getTotalAmount()), regularFont));
-        }
-
-        document.add(table);
+        addStreamedRows(document, table, sales, (rows, sale) -> {
+            rows.addCell(createDataCell(sale.getSaleDate().format(DATE_FORMATTER), regularFont));
+            rows.addCell(createDataCell(sale.getSaleNumber(), regularFont));
+            rows.addCell(createDataCell(sale.getPassengerName() != null ? sale.getPassengerName() : "N/A", regularFont));
+            rows.addCell(createDataCell(sale.getDestination() != null ? sale.getDestination() : "N/A", regularFont));
+            rows.addCell(createDataCell(String.valueOf(sale.getItemCount()), regularFont));
+            rows.addCell(createDataCell(formatAmount(sale.getTotalAmount()), regularFont));
+        });
     }
 
     private void addMonthlySummary(Document document, PdfFont boldFont, PdfFont regularFont,
-                                  List<Sale> sales) {
+                                  SaleRepository.CompletedTotals totals) {
 
         Paragraph sectionTitle = new Paragraph("RÉSUMÉ MENSUEL / MONTHLY SUMMARY")
                 .setFont(boldFont)
@@ -422,20 +463,15 @@ public class CustomsReportService {
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        BigDecimal totalAmount = sales.stream()
-                .map(Sale::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalTax = sales.stream()
-                .map(Sale::getTaxAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalAmount = totals != null && totals.getTotalAmount() != null ? totals.getTotalAmount() : BigDecimal.ZERO;
+        BigDecimal totalTax = totals != null && totals.getTaxAmount() != null ? totals.getTaxAmount() : BigDecimal.ZERO;
 
         Table summaryTable = new Table(UnitValue.createPercentArray(new float[]{2, 1}))
                 .setWidth(UnitValue.createPercentValue(60))
                 .setMarginBottom(20);
 
         summaryTable.addCell(createDataCell("Nombre total de ventes / Total sales", regularFont));
-        summaryTable.addCell(createDataCell(String.valueOf(sales.size()), regularFont)
+        summaryTable.addCell(createDataCell(String.valueOf(salesOf(totals)), regularFont)
                 .setTextAlignment(TextAlignment.RIGHT));
 
         summaryTable.addCell(createDataCell("Montant HT / Amount excl. tax", regularFont));
@@ -456,7 +492,7 @@ public class CustomsReportService {
     }
 
     private void addSalesByCategory(Document document, PdfFont boldFont, PdfFont regularFont,
-                                   List<Sale> sales) {
+                                   List<SaleItemRepository.CategorySales> salesByCategory) {
 
         Paragraph sectionTitle = new Paragraph("VENTES PAR CATÉGORIE / SALES BY CATEGORY")
                 .setFont(boldFont)
@@ -465,18 +501,6 @@ public class CustomsReportService {
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        // Group sales by product category
-        Map<String, BigDecimal> salesByCategory = new HashMap<>();
-        Map<String, Integer> quantityByCategory = new HashMap<>();
-
-        for (Sale sale : sales) {
-            for (SaleItem item : sale.getItems()) {
-                String categoryName = item.getProduct().getCategory().getName();
-                salesByCategory.merge(categoryName, item.getTotalPrice(), BigDecimal::add);
-                quantityByCategory.merge(categoryName, item.getQuantity(), Integer::sum);
-            }
-        }
-
         Table table = new Table(UnitValue.createPercentArray(new float[]{2, 1, 2}))
                 .setWidth(UnitValue.createPercentValue(80))
                 .setMarginBottom(20);
@@ -485,11 +509,11 @@ public class CustomsReportService {
         table.addHeaderCell(createHeaderCell("Quantité", boldFont));
         table.addHeaderCell(createHeaderCell("Montant", boldFont));
 
-        for (Map.Entry<String, BigDecimal> entry : salesByCategory.entrySet()) {
-            table.addCell(createDataCell(entry.getKey(), regularFont));
-            table.addCell(createDataCell(String.valueOf(quantityByCategory.get(entry.getKey())), regularFont)
+        for (SaleItemRepository.CategorySales category : salesByCategory) {
+            table.addCell(createDataCell(String.valueOf(category.getCategoryName()), regularFont));
+            table.addCell(createDataCell(String.valueOf(category.getQuantity()), regularFont)
                     .setTextAlignment(TextAlignment.CENTER));
-            table.addCell(createDataCell(formatAmount(entry.getValue()), regularFont)
+            table.addCell(createDataCell(formatAmount(category.getRevenue()), regularFont)
                     .setTextAlignment(TextAlignment.RIGHT));
         }
 
@@ -497,7 +521,7 @@ public class CustomsReportService {
     }
 
     private void addDailyBreakdown(Document document, PdfFont boldFont, PdfFont regularFont,
-                                  List<Sale> sales, YearMonth yearMonth) {
+                                  List<SaleRepository.CompletedDayTotals> salesByDay, YearMonth yearMonth) {
 
         Paragraph sectionTitle = new Paragraph("RÉCAPITULATIF JOURNALIER / DAILY BREAKDOWN")
                 .setFont(boldFont)
@@ -506,9 +530,8 @@ public class CustomsReportService {
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        // Group sales by day
-        Map<LocalDate, List<Sale>> salesByDay = sales.stream()
-                .collect(Collectors.groupingBy(s -> s.getSaleDate().toLocalDate()));
+        Map<LocalDate, SaleRepository.CompletedDayTotals> totalsByDay = salesByDay.stream()
+                .collect(Collectors.toMap(SaleRepository.CompletedDayTotals::getSaleDay, day -> day));
 
         Table table = new Table(UnitValue.createPercentArray(new float[]{2, 1, 2}))
                 .setWidth(UnitValue.createPercentValue(70))
@@ -520,14 +543,11 @@ public class CustomsReportService {
 
         for (int day = 1; day <= yearMonth.lengthOfMonth(); day++) {
             LocalDate date = yearMonth.atDay(day);
-            List<Sale> daySales = salesByDay.getOrDefault(date, Collections.emptyList());
-
-            BigDecimal dayAmount = daySales.stream()
-                    .map(Sale::getTotalAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            SaleRepository.CompletedDayTotals dayTotals = totalsByDay.get(date);
+            BigDecimal dayAmount = dayTotals != null ? dayTotals.getTotalAmount() : BigDecimal.ZERO;
 
             table.addCell(createDataCell(date.format(DATE_FORMATTER), regularFont));
-            table.addCell(createDataCell(String.valueOf(daySales.size()), regularFont)
+            table.addCell(createDataCell(String.valueOf(salesOf(dayTotals)), regularFont)
                     .setTextAlignment(TextAlignment.CENTER));
             table.addCell(createDataCell(formatAmount(dayAmount), regularFont)
                     .setTextAlignment(TextAlignment.RIGHT));
@@ -537,21 +557,16 @@ public class CustomsReportService {
     }
 
     private void addDailyStatistics(Document document, PdfFont boldFont, PdfFont regularFont,
-                                   List<Sale> sales) {
+                                   SaleRepository.CompletedTotals totals, Long itemCount) {
 
         Table statsTable = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1}))
                 .setWidth(UnitValue.createPercentValue(100))
                 .setMarginBottom(20);
 
-        BigDecimal totalAmount = sales.stream()
-                .map(Sale::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        int totalItems = sales.stream()
-                .mapToInt(s -> s.getItems().size())
-                .sum();
+        BigDecimal totalAmount = totals != null ? totals.getTotalAmount() : null;
+        long totalItems = itemCount != null ? itemCount : 0;
 
-        statsTable.addCell(createStatsCell("Nombre de ventes", String.valueOf(sales.size()),
+        statsTable.addCell(createStatsCell("Nombre de ventes", String.valueOf(salesOf(totals)),
                 boldFont, regularFont));
         statsTable.addCell(createStatsCell("Articles vendus", String.valueOf(totalItems),
                 boldFont, regularFont));
@@ -562,7 +577,7 @@ public class CustomsReportService {
     }
 
     private void addDailySalesTable(Document document, PdfFont boldFont, PdfFont regularFont,
-                                   List<Sale> sales) {
+                                   Stream<CompletedSaleRow> sales) {
 
         Paragraph sectionTitle = new Paragraph("LISTE DES VENTES / SALES LIST")
                 .setFont(boldFont)
@@ -571,7 +586,7 @@ public class CustomsReportService {
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        Table table = new Table(UnitValue.createPercentArray(new float[]{1, 2, 2, 1, 2}))
+        Table table = new Table(UnitValue.createPercentArray(new float[]{1, 2, 2, 1, 2}), true)
                 .setWidth(UnitValue.createPercentValue(100))
                 .setMarginBottom(20);
 
@@ -581,17 +596,34 @@ public class CustomsReportService {
         table.addHeaderCell(createHeaderCell("Articles", boldFont));
         table.addHeaderCell(createHeaderCell("Montant", boldFont));
 
-        for (Sale sale : sales) {
-            table.addCell(createDataCell(sale.getSaleDate().format(DateTimeFormatter.ofPattern("HH:mm")), regularFont));
-            table.addCell(createDataCell(sale.getSaleNumber(), regularFont));
-            table.addCell(createDataCell(sale.getCashier().getFullName(), regularFont));
-            table.addCell(createDataCell(String.valueOf(sale.getItems().size()), regularFont)
+        addStreamedRows(document, table, sales, (rows, sale) -> {
+            rows.addCell(createDataCell(sale.getSaleDate().format(TIME_FORMATTER), regularFont));
+            rows.addCell(createDataCell(sale.getSaleNumber(), regularFont));
+            rows.addCell(createDataCell(sale.getCashierName(), regularFont));
+            rows.addCell(createDataCell(String.valueOf(sale.getItemCount()), regularFont)
                     .setTextAlignment(TextAlignment.CENTER));
-            table.addCell(createDataCell(formatAmount(sale.getTotalAmount()), regularFont)
+            rows.addCell(createDataCell(formatAmount(sale.getTotalAmount()), regularFont)
                     .setTextAlignment(TextAlignment.RIGHT));
-        }
+        });
+    }
 
+    /**
+     * Add a large table to the document and fill it from the stream, flushing every
+     * {@link #TABLE_FLUSH_ROWS} rows so rendered rows can be released.
+     */
+    private void addStreamedRows(Document document, Table table, Stream<CompletedSaleRow> sales,
+                                 BiConsumer<Table, CompletedSaleRow> rowWriter) {
         document.add(table);
+
+        int count = 0;
+        for (Iterator<CompletedSaleRow> rows = sales.iterator(); rows.hasNext(); ) {
+            rowWriter.accept(table, rows.next());
+            if (++count % TABLE_FLUSH_ROWS == 0) {
+                table.flush();
+            }
+        }
+
+        table.complete();
     }
 
     private void addReportFooter(Document document, PdfFont regularFont, Map<String, String> settings) {
@@ -664,6 +696,10 @@ public class CustomsReportService {
                 .setPadding(10);
     }
 
+    private long salesOf(SaleRepository.CompletedTotals totals) {
+        return totals != null && totals.getSales() != null ? totals.getSales() : 0;
+    }
+
     private String formatAmount(BigDecimal amount) {
         if (amount == null) {
             return "0.00 FCFA";
@@ -0,0 +1,76 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.Payment;
+import com.djbc.dutyfree.domain.entity.Sale;
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import com.djbc.dutyfree.repository.DailySalesSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the daily_sales_summary rollup the sales reports read from.
+ * <p>
+ * Completing a sale adds it to its row in the same transaction, and to the {@link LiveSalesDashboard}
+ * once it commits. A nightly job rebuilds the last few days from the sales table to absorb anything
+ * written outside SaleService.
+ */
+@Service
+@Slf4j
+public class DailySalesRollupService {
+
+    private final DailySalesSummaryRepository summaryRepository;
+    private final LiveSalesDashboard liveSalesDashboard;
+    private final int reconcileDays;
+
+    public DailySalesRollupService(DailySalesSummaryRepository summaryRepository,
+                                   LiveSalesDashboard liveSalesDashboard,
+                                   @Value("${app.reports.rollup.reconcile-days:3}") int reconcileDays) {
+        this.summaryRepository = summaryRepository;
+        this.liveSalesDashboard = liveSalesDashboard;
+        this.reconcileDays = reconcileDays;
+    }
+
+    /**
+     * Add a sale that just became COMPLETED to the rollup.
+     */
+    @Transactional
+    public void recordCompleted(Sale sale, Collection<Payment> payments) {
+        summaryRepository.increment(sale.getSaleDate().toLocalDate(), sale.getCashRegister().getId(),
+                sale.getCashier().getId(), tenderOf(payments), 1, sale.getTotalAmount());
+        liveSalesDashboard.recordCompleted(sale, payments);
+    }
+
+    // Transactional itself: the call to rebuild() below does not go through the proxy
+    @Scheduled(cron = "${app.reports.rollup.reconcile-cron:0 30 1 * * *}")
+    @Transactional
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        int rows = rebuild(today.minusDays(reconcileDays), today);
+        log.info("Daily sales rollup reconciled for the last {} days: {} rows", reconcileDays, rows);
+    }
+
+    /**
+     * Recompute the rollup rows of the given days (inclusive) from the sales table.
+     */
+    @Transactional
+    public int rebuild(LocalDate fromDay, LocalDate toDay) {
+        return summaryRepository.rebuild(fromDay, toDay);
+    }
+
+    static PaymentMethod tenderOf(Collection<Payment> payments) {
+        Set<PaymentMethod> methods = payments.stream()
+                .map(Payment::getPaymentMethod)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        return methods.size() == 1 ? methods.iterator().next() : PaymentMethod.MIXED;
+    }
+}
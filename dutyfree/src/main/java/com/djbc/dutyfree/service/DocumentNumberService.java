@@ -0,0 +1,150 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.repository.DocumentSequenceRepository;
+import com.djbc.dutyfree.repository.ReceiptRepository;
+import com.djbc.dutyfree.repository.SaleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates SAL-yyyyMMdd-NNNNNN / REC-yyyyMMdd-NNNNNN numbers, NNNNNN restarting every day.
+ * Each node claims a block of numbers from the document_sequences row of the type and day
+ * (e.g. SALE-20250314) in its own short transaction, then hands them out with a CAS on an
+ * in-memory counter. The day is read once per number, so it always matches the counter used.
+ */
+@Service
+@Slf4j
+public class DocumentNumberService {
+
+    static final String SALE_SEQUENCE = "SALE";
+    static final String RECEIPT_SEQUENCE = "RECEIPT";
+
+    private static final String SALE_PREFIX = "SAL";
+    private static final String RECEIPT_PREFIX = "REC";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final DocumentSequenceRepository documentSequenceRepository;
+    private final SaleRepository saleRepository;
+    private final ReceiptRepository receiptRepository;
+    private final TransactionTemplate allocationTransaction;
+    private final long blockSize;
+
+    private final Map<String, AtomicReference<Block>> blocks = new ConcurrentHashMap<>();
+
+    public DocumentNumberService(DocumentSequenceRepository documentSequenceRepository,
+                                 SaleRepository saleRepository,
+                                 ReceiptRepository receiptRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.numbering.block-size:50}") long blockSize) {
+        this.documentSequenceRepository = documentSequenceRepository;
+        this.saleRepository = saleRepository;
+        this.receiptRepository = receiptRepository;
+        this.allocationTransaction = new TransactionTemplate(transactionManager);
+        this.allocationTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    public String nextSaleNumber() {
+        return next(SALE_SEQUENCE, SALE_PREFIX, saleRepository::findMaxSaleNumberStartingWith);
+    }
+
+    public String nextReceiptNumber() {
+        return next(RECEIPT_SEQUENCE, RECEIPT_PREFIX, receiptRepository::findMaxReceiptNumberStartingWith);
+    }
+
+    private String next(String type, String prefix, Function<String, String> maxIssued) {
+        String day = LocalDate.now().format(DATE_FORMAT);
+        String dayPrefix = prefix + "-" + day + "-";
+        long value = next(type + "-" + day, () -> seed(maxIssued.apply(dayPrefix), dayPrefix.length()));
+        return dayPrefix + String.format("%06d", value);
+    }
+
+    /**
+     * Last number already issued under the day prefix, so a counter created after a restore or
+     * on a schema without the row never hands out an existing number.
+     */
+    private static long seed(String maxIssued, int prefixLength) {
+        if (maxIssued == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(maxIssued.substring(prefixLength));
+        } catch (NumberFormatException e) {
+            log.warn("Unexpected document number {}, counter seeded at 0", maxIssued);
+            return 0;
+        }
+    }
+
+    private long next(String sequence, LongSupplier seed) {
+        AtomicReference<Block> current = blocks.get(sequence);
+        if (current == null) {
+            // New day: the blocks of the previous days are no longer used
+            String type = sequence.substring(0, sequence.lastIndexOf('-') + 1);
+            blocks.keySet().removeIf(other -> other.startsWith(type) && other.compareTo(sequence) < 0);
+            current = blocks.computeIfAbsent(sequence, key -> new AtomicReference<>(Block.EMPTY));
+        }
+        while (true) {
+            Block block = current.get();
+            long value = block.next.getAndIncrement();
+            if (value <= block.last) {
+                return value;
+            }
+            // Block exhausted: only one thread claims the next one, the others retry on it
+            synchronized (current) {
+                if (current.get() == block) {
+                    current.set(allocate(sequence, seed));
+                }
+            }
+        }
+    }
+
+    private Block allocate(String sequence, LongSupplier seed) {
+        Long last = allocationTransaction.execute(status -> {
+            if (documentSequenceRepository.advance(sequence, blockSize) == 0) {
+                return null;
+            }
+            return documentSequenceRepository.findLastValue(sequence);
+        });
+
+        if (last == null) {
+            // First number of the day: start after the documents already issued under its prefix
+            try {
+                allocationTransaction.executeWithoutResult(status ->
+                        documentSequenceRepository.insert(sequence, seed.getAsLong()));
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Sequence {} initialised concurrently by another node", sequence);
+            }
+            return allocate(sequence, seed);
+        }
+
+        log.debug("Allocated {} block ({}, {}]", sequence, last - blockSize, last);
+        return new Block(last - blockSize + 1, last);
+    }
+
+    private static final class Block {
+        static final Block EMPTY = new Block(1, 0);
+
+        final AtomicLong next;
+        final long last;
+
+        Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
@@ -4,18 +4,31 @@ import com.djbc.dutyfree.domain.entity.ExchangeRate;
 import com.djbc.dutyfree.domain.enums.Currency;
 import com.djbc.dutyfree.exception.ResourceNotFoundException;
 import com.djbc.dutyfree.repository.ExchangeRateRepository;
+import com.djbc.dutyfree.util.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
-
+import java.util.Map;
+
+/**
+ * Exchange rates to XOF. Conversions read an immutable snapshot of the rates in force, published
+ * through a volatile reference, so they never query the database.
+ * <p>
+ * The snapshot keeps every active rate not yet expired, including rates taking effect later, and
+ * the rate resolved for each currency on the day it was built. It is replaced after a rate is
+ * created or updated on this node, at day rollover and periodically for changes made elsewhere.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -23,8 +36,65 @@ public class ExchangeRateService {
 
     private final ExchangeRateRepository exchangeRateRepository;
 
+    private volatile RateSnapshot snapshot;
+
+    private record RatePeriod(LocalDate effectiveDate, LocalDate expiryDate, BigDecimal rateToXOF) {
+
+        boolean appliesOn(LocalDate day) {
+            return !day.isBefore(effectiveDate) && (expiryDate == null || !day.isAfter(expiryDate));
+        }
+    }
+
+    /**
+     * Periods per currency, latest effective date first, and the rates resolved for {@code day}.
+     */
+    private record RateSnapshot(LocalDate day, Map<Currency, List<RatePeriod>> periods,
+                                Map<Currency, BigDecimal> rates) {
+
+        RateSnapshot on(LocalDate newDay) {
+            Map<Currency, BigDecimal> resolved = new EnumMap<>(Currency.class);
+            resolved.put(Currency.XOF, BigDecimal.ONE);
+            periods.forEach((currency, list) -> {
+                for (RatePeriod period : list) {
+                    if (period.appliesOn(newDay)) {
+                        resolved.put(currency, period.rateToXOF());
+                        break;
+                    }
+                }
+            });
+            return new RateSnapshot(newDay, periods, resolved);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    @Scheduled(cron = "${app.exchange-rates.rollover-cron:0 0 0 * * *}")
+    public void rollover() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${app.exchange-rates.resync-interval-ms:300000}",
+            initialDelayString = "${app.exchange-rates.resync-interval-ms:300000}")
+    public void resync() {
+        reload();
+    }
+
+    public synchronized void reload() {
+        LocalDate today = LocalDate.now();
+        Map<Currency, List<RatePeriod>> periods = new EnumMap<>(Currency.class);
+        for (ExchangeRate rate : exchangeRateRepository.findActiveNotExpired(today)) {
+            periods.computeIfAbsent(rate.getCurrency(), currency -> new ArrayList<>())
+                    .add(new RatePeriod(rate.getEffectiveDate(), rate.getExpiryDate(), rate.getRateToXOF()));
+        }
+        periods.replaceAll((currency, list) -> List.copyOf(list));
+        snapshot = new RateSnapshot(today, periods, Map.of()).on(today);
+        log.debug("Exchange rate snapshot rebuilt: {}", snapshot.rates());
+    }
+
     @Transactional
-    @CacheEvict(value = "exchangeRates", allEntries = true)
     public ExchangeRate createExchangeRate(Currency currency, BigDecimal rateToXOF,
                                            LocalDate effectiveDate, LocalDate expiryDate, String source) {
         ExchangeRate exchangeRate = ExchangeRate.builder()
@@ -37,24 +107,17 @@ public class ExchangeRateService {
                 .build();
 
         exchangeRate = exchangeRateRepository.save(exchangeRate);
+        TransactionCallbacks.afterCommit(this::reload);
         log.info("Exchange rate created for {}: {}", currency, rateToXOF);
 
         return exchangeRate;
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = "exchangeRates", key = "#currency")
     public BigDecimal getExchangeRate(Currency currency) {
         if (currency == Currency.XOF) {
             return BigDecimal.ONE;
         }
-
-        ExchangeRate exchangeRate = exchangeRateRepository
-                .findActiveByCurrencyAndDate(currency, LocalDate.now())
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Exchange rate not found for currency: " + currency));
-
-        return exchangeRate.getRateToXOF();
+        return rate(currentSnapshot(), currency);
     }
 
     @Transactional(readOnly = true)
@@ -68,13 +131,13 @@ public class ExchangeRateService {
     }
 
     @Transactional
-    @CacheEvict(value = "exchangeRates", allEntries = true)
     public ExchangeRate updateExchangeRate(Long id, BigDecimal newRate) {
         ExchangeRate exchangeRate = exchangeRateRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("ExchangeRate", "id", id));
 
         exchangeRate.setRateToXOF(newRate);
         exchangeRate = exchangeRateRepository.save(exchangeRate);
+        TransactionCallbacks.afterCommit(this::reload);
 
         log.info("Exchange rate updated for {}: {}", exchangeRate.getCurrency(), newRate);
         return exchangeRate;
@@ -84,22 +147,46 @@ public class ExchangeRateService {
         if (fromCurrency == toCurrency) {
             return amount;
         }
+        // Both rates from the same snapshot
+        RateSnapshot current = currentSnapshot();
 
         // Convert to XOF first
-        BigDecimal amountInXOF;
-        if (fromCurrency == Currency.XOF) {
-            amountInXOF = amount;
-        } else {
-            BigDecimal fromRate = getExchangeRate(fromCurrency);
-            amountInXOF = amount.multiply(fromRate);
-        }
+        BigDecimal amountInXOF = fromCurrency == Currency.XOF
+                ? amount
+                : amount.multiply(rate(current, fromCurrency));
 
         // Convert from XOF to target currency
         if (toCurrency == Currency.XOF) {
             return amountInXOF;
-        } else {
-            BigDecimal toRate = getExchangeRate(toCurrency);
-            return amountInXOF.divide(toRate, 2, RoundingMode.HALF_UP);
         }
+        return amountInXOF.divide(rate(current, toCurrency), 2, RoundingMode.HALF_UP);
+    }
+
+    private RateSnapshot currentSnapshot() {
+        RateSnapshot current = snapshot;
+        if (current == null) {
+            reload();
+            return snapshot;
+        }
+        LocalDate today = LocalDate.now();
+        if (!current.day().equals(today)) {
+            // Rollover not run yet: the periods already loaded hold the rates for today
+            RateSnapshot rolled = current.on(today);
+            synchronized (this) {
+                if (snapshot == current) {
+                    snapshot = rolled;
+                }
+            }
+            return rolled;
+        }
+        return current;
+    }
+
+    private static BigDecimal rate(RateSnapshot snapshot, Currency currency) {
+        BigDecimal rate = snapshot.rates().get(currency);
+        if (rate == null) {
+            throw new ResourceNotFoundException("Exchange rate not found for currency: " + currency);
+        }
+        return rate;
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,62 @@
 package com.djbc.dutyfree.service;
 
 import com.djbc.dutyfree.domain.dto.response.ReportResponse;
+import com.djbc.dutyfree.exception.BadRequestException;
+import com.djbc.dutyfree.repository.SaleRepository;
 import lombok.RequiredArgsConstructor;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Report exports.
+ * <p>
+ * The transaction exports hold one row per sale item or payment and can run to millions of rows
+ * for a year. They are read through a forward-only cursor and written straight to the output
+ * stream: the CSV as it goes, the XLSX with {@link SXSSFWorkbook}, which keeps a window of rows
+ * in memory and flushes the others to a temporary file until the workbook is written out.
+ */
 @Service
 @RequiredArgsConstructor
 public class ExportService {
 
+    private static final String[] LINE_HEADERS = {"N° vente", "Date", "Statut", "Caisse", "Caissier",
+            "Passager", "Vol", "Destination", "SKU", "Produit", "Quantité", "Prix unitaire", "Remise",
+            "Taux TVA", "Montant TVA", "Total"};
+
+    private static final String[] PAYMENT_HEADERS = {"N° vente", "Date vente", "Statut", "Caisse",
+            "Date paiement", "Mode", "Devise", "Montant devise", "Taux de change", "Montant XOF", "Référence"};
+
+    private static final DateTimeFormatter CSV_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int MAX_SHEET_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
     private final ReportService reportService;
+    private final SaleRepository saleRepository;
+
+    @Value("${app.reports.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.reports.export.row-window:200}")
+    private int rowWindow;
 
     public byte[] exportToPdf(LocalDate startDate, LocalDate endDate) {
         ReportResponse.SalesReport report = reportService.generateSalesReport(startDate, endDate);
@@ -36,15 +80,245 @@ public class ExportService {
         return content.toString().getBytes();
     }
 
-    public byte[] exportToExcel(LocalDate startDate, LocalDate endDate) {
-        ReportResponse.SalesReport report = reportService.generateSalesReport(startDate, endDate);
-        
-        StringBuilder csv = new StringBuilder();
-        csv.append("Type,Valeur\n");
-        csv.append("Chiffre d'affaires total,").append(report.getTotalRevenue()).append("\n");
-        csv.append("Nombre de transactions,").append(report.getTotalTransactions()).append("\n");
-        csv.append("Ticket moyen,").append(report.getAverageTicket()).append("\n");
-        
-        return csv.toString().getBytes();
+    /**
+     * Workbook with the sale items of the period on one sheet and the payments on another. A sheet
+     * that reaches the XLSX row limit is continued on a new one.
+     */
+    @Transactional(readOnly = true)
+    public void writeTransactionsXlsx(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        checkPeriod(startDate, endDate);
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow)) {
+            try {
+                workbook.setCompressTempFiles(true);
+                CellStyle dateStyle = workbook.createCellStyle();
+                dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy hh:mm:ss"));
+                CellStyle amountStyle = workbook.createCellStyle();
+                amountStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+                CellStyle headerStyle = workbook.createCellStyle();
+                Font bold = workbook.createFont();
+                bold.setBold(true);
+                headerStyle.setFont(bold);
+
+                SheetWriter lines = new SheetWriter(workbook, "Lignes", LINE_HEADERS, headerStyle);
+                saleRepository.forEachExportLine(start, end, fetchSize, line -> {
+                    Row row = lines.nextRow();
+                    int c = 0;
+                    text(row, c++, line.saleNumber());
+                    date(row, c++, line.saleDate(), dateStyle);
+                    text(row, c++, line.status());
+                    text(row, c++, line.registerNumber());
+                    text(row, c++, line.cashier());
+                    text(row, c++, line.passengerName());
+                    text(row, c++, line.flightNumber());
+                    text(row, c++, line.destination());
+                    text(row, c++, line.sku());
+                    text(row, c++, line.productName());
+                    row.createCell(c++).setCellValue(line.quantity());
+                    amount(row, c++, line.unitPrice(), amountStyle);
+                    amount(row, c++, line.discount(), amountStyle);
+                    amount(row, c++, line.taxRate(), amountStyle);
+                    amount(row, c++, line.taxAmount(), amountStyle);
+                    amount(row, c, line.totalPrice(), amountStyle);
+                });
+
+                SheetWriter payments = new SheetWriter(workbook, "Paiements", PAYMENT_HEADERS, headerStyle);
+                saleRepository.forEachExportPayment(start, end, fetchSize, payment -> {
+                    Row row = payments.nextRow();
+                    int c = 0;
+                    text(row, c++, payment.saleNumber());
+                    date(row, c++, payment.saleDate(), dateStyle);
+                    text(row, c++, payment.status());
+                    text(row, c++, payment.registerNumber());
+                    date(row, c++, payment.paymentDate(), dateStyle);
+                    text(row, c++, payment.paymentMethod());
+                    text(row, c++, payment.currency());
+                    amount(row, c++, payment.amountInCurrency(), amountStyle);
+                    amount(row, c++, payment.exchangeRate(), null);
+                    amount(row, c++, payment.amountInXof(), amountStyle);
+                    text(row, c, payment.transactionReference());
+                });
+
+                workbook.write(out);
+            } finally {
+                // close() leaves the flushed rows behind in the temporary directory
+                workbook.dispose();
+            }
+        }
+    }
+
+    /**
+     * One CSV row per sale item of the period.
+     */
+    @Transactional(readOnly = true)
+    public void writeLinesCsv(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        checkPeriod(startDate, endDate);
+        CsvWriter csv = new CsvWriter(out);
+        csv.row(LINE_HEADERS);
+        saleRepository.forEachExportLine(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), fetchSize,
+                line -> csv.row(line.saleNumber(), format(line.saleDate()), line.status(), line.registerNumber(),
+                        line.cashier(), line.passengerName(), line.flightNumber(), line.destination(), line.sku(),
+                        line.productName(), String.valueOf(line.quantity()), format(line.unitPrice()),
+                        format(line.discount()), format(line.taxRate()), format(line.taxAmount()),
+                        format(line.totalPrice())));
+        csv.flush();
+    }
+
+    /**
+     * One CSV row per payment of the period.
+     */
+    @Transactional(readOnly = true)
+    public void writePaymentsCsv(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        checkPeriod(startDate, endDate);
+        CsvWriter csv = new CsvWriter(out);
+        csv.row(PAYMENT_HEADERS);
+        saleRepository.forEachExportPayment(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), fetchSize,
+                payment -> csv.row(payment.saleNumber(), format(payment.saleDate()), payment.status(),
+                        payment.registerNumber(), format(payment.paymentDate()), payment.paymentMethod(),
+                        payment.currency(), format(payment.amountInCurrency()), format(payment.exchangeRate()),
+                        format(payment.amountInXof()), payment.transactionReference()));
+        csv.flush();
+    }
+
+    /**
+     * Rejects an inverted period. Called by the controller too, before the response is committed.
+     */
+    public void checkPeriod(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("End date must not be before start date");
+        }
+    }
+
+    private static void text(Row row, int column, String value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value);
+        }
+    }
+
+    private static void date(Row row, int column, LocalDateTime value, CellStyle style) {
+        if (value != null) {
+            Cell cell = row.createCell(column);
+            cell.setCellValue(value);
+            cell.setCellStyle(style);
+        }
+    }
+
+    private static void amount(Row row, int column, BigDecimal value, CellStyle style) {
+        if (value != null) {
+            Cell cell = row.createCell(column);
+            cell.setCellValue(value.doubleValue());
+            if (style != null) {
+                cell.setCellStyle(style);
+            }
+        }
+    }
+
+    private static String format(LocalDateTime value) {
+        return value != null ? CSV_DATE_TIME.format(value) : null;
+    }
+
+    private static String format(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+
+    /**
+     * Rows of one dataset, continued on "name (2)", "name (3)"... past the XLSX row limit.
+     */
+    private static final class SheetWriter {
+
+        private final SXSSFWorkbook workbook;
+        private final String name;
+        private final String[] headers;
+        private final CellStyle headerStyle;
+        private SXSSFSheet sheet;
+        private int sheetCount;
+        private int nextRow;
+
+        SheetWriter(SXSSFWorkbook workbook, String name, String[] headers, CellStyle headerStyle) {
+            this.workbook = workbook;
+            this.name = name;
+            this.headers = headers;
+            this.headerStyle = headerStyle;
+            newSheet();
+        }
+
+        Row nextRow() {
+            if (nextRow == MAX_SHEET_ROWS) {
+                newSheet();
+            }
+            return sheet.createRow(nextRow++);
+        }
+
+        private void newSheet() {
+            sheetCount++;
+            sheet = workbook.createSheet(sheetCount == 1 ? name : name + " (" + sheetCount + ")");
+            sheet.createFreezePane(0, 1);
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = header.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, 18 * 256);
+            }
+            nextRow = 1;
+        }
+    }
+
+    /**
+     * RFC 4180 rows in UTF-8 with a BOM, so Excel opens the accents right. Text starting like a
+     * formula is prefixed with a quote so a spreadsheet does not evaluate it.
+     */
+    private static final class CsvWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write('\uFEFF');
+        }
+
+        void row(String... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                write(values[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void write(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '@' || (first == '-' && !isNumber(value))) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private static boolean isNumber(String value) {
+            for (int i = 1; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if ((c < '0' || c > '9') && c != '.') {
+                    return false;
+                }
+            }
+            return value.length() > 1;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,353 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.response.SalesDashboardResponse;
+import com.djbc.dutyfree.domain.entity.Payment;
+import com.djbc.dutyfree.domain.entity.Sale;
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import com.djbc.dutyfree.domain.enums.SaleStatus;
+import com.djbc.dutyfree.repository.DailySalesSummaryRepository;
+import com.djbc.dutyfree.repository.SaleRepository;
+import com.djbc.dutyfree.websocket.SaleWebSocketHandler;
+import com.djbc.dutyfree.websocket.WebSocketEvent;
+import com.djbc.dutyfree.websocket.WebSocketEventBus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Running totals of today's sales for the supervisors' dashboards, so watching them costs nothing
+ * on the database.
+ * <p>
+ * Totals are rebuilt from daily_sales_summary at startup and at midnight. In between, every
+ * completed or cancelled sale is published on the {@link WebSocketEventBus} once its transaction
+ * commits and folded in by every node. These are deltas, so a node that lost batches of another
+ * node rebuilds its totals when the bus reports the gap, on the task executor rather than the bus
+ * thread. Sales folded in during a rebuild are added again after it unless the rebuilt totals
+ * already count them. At each tick the registers and tenders that changed are pushed to the
+ * dashboard sessions of this node; a dashboard loads {@link #snapshot()} once and applies the
+ * deltas with a higher sequence.
+ * <p>
+ * Payment methods are tenders as in the rollup: a sale paid with several methods counts as MIXED.
+ */
+@Service
+@Slf4j
+public class LiveSalesDashboard {
+
+    static final String DASHBOARD_EVENT = "SALES_DASHBOARD";
+
+    private final DailySalesSummaryRepository summaryRepository;
+    private final SaleRepository saleRepository;
+    private final WebSocketEventBus eventBus;
+    private final SaleWebSocketHandler saleWebSocketHandler;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate rebuildTransaction;
+    private final Executor gapExecutor;
+    private final AtomicBoolean gapRebuildQueued = new AtomicBoolean();
+    private final Object rebuildLock = new Object();
+
+    // Guarded by this
+    private LocalDate day = LocalDate.now();
+    private Running overall = new Running();
+    private long cancelledSales;
+    private final Map<Long, Running> byCashRegister = new HashMap<>();
+    private final Map<PaymentMethod, Running> byPaymentMethod = new EnumMap<>(PaymentMethod.class);
+    private final Set<Long> changedCashRegisters = new HashSet<>();
+    private final Set<PaymentMethod> changedPaymentMethods = EnumSet.noneOf(PaymentMethod.class);
+    private boolean changed;
+    private boolean replaced;
+    private long sequence;
+    private boolean rebuilding;
+    private final List<SaleActivity> heldDuringRebuild = new ArrayList<>();
+
+    /**
+     * A completed or cancelled sale as sent between nodes.
+     */
+    record SaleActivity(Long saleId, LocalDate day, Long cashRegisterId, PaymentMethod tender,
+                        BigDecimal amount, boolean cancelled) {
+    }
+
+    private static final class Running {
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long tickets;
+
+        void add(BigDecimal amount, long count) {
+            revenue = revenue.add(amount);
+            tickets += count;
+        }
+
+        SalesDashboardResponse.Totals view() {
+            BigDecimal average = tickets == 0
+                    ? BigDecimal.ZERO
+                    : revenue.divide(BigDecimal.valueOf(tickets), 2, RoundingMode.HALF_UP);
+            return new SalesDashboardResponse.Totals(revenue, tickets, average);
+        }
+    }
+
+    public LiveSalesDashboard(DailySalesSummaryRepository summaryRepository, SaleRepository saleRepository,
+                              WebSocketEventBus eventBus, SaleWebSocketHandler saleWebSocketHandler,
+                              ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                              @Qualifier("taskExecutor") Executor gapExecutor) {
+        this.summaryRepository = summaryRepository;
+        this.saleRepository = saleRepository;
+        this.eventBus = eventBus;
+        this.saleWebSocketHandler = saleWebSocketHandler;
+        this.objectMapper = objectMapper;
+        // Repeatable read: the rollup and the sales checked after it are read from one snapshot
+        this.rebuildTransaction = new TransactionTemplate(transactionManager);
+        this.rebuildTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.rebuildTransaction.setReadOnly(true);
+        this.gapExecutor = gapExecutor;
+        eventBus.subscribe(WebSocketEvent.Channel.SALES_ACTIVITY, this::receive);
+        eventBus.onGap(this::rebuildAfterGap);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${app.reports.live.rollover-cron:0 0 0 * * *}")
+    public void rollover() {
+        rebuild();
+    }
+
+    /**
+     * Reload today's totals from the rollup. Sales folded in meanwhile are held aside; once the
+     * rollup is read, those whose sale it does not count yet are added again to the new totals.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                rebuilding = true;
+                heldDuringRebuild.clear();
+            }
+            try {
+                rebuildTransaction.executeWithoutResult(status -> reload(LocalDate.now()));
+            } finally {
+                synchronized (this) {
+                    rebuilding = false;
+                    heldDuringRebuild.clear();
+                }
+            }
+        }
+    }
+
+    private void reload(LocalDate today) {
+        Running total = new Running();
+        Map<Long, Running> registers = new HashMap<>();
+        Map<PaymentMethod, Running> tenders = new EnumMap<>(PaymentMethod.class);
+        for (DailySalesSummaryRepository.CashRegisterTenderTotals row :
+                summaryRepository.getTotalsByCashRegisterAndTender(today)) {
+            BigDecimal revenue = row.getRevenue() != null ? row.getRevenue() : BigDecimal.ZERO;
+            long tickets = row.getTransactions() != null ? row.getTransactions() : 0;
+            total.add(revenue, tickets);
+            registers.computeIfAbsent(row.getCashRegisterId(), id -> new Running()).add(revenue, tickets);
+            tenders.computeIfAbsent(row.getPaymentMethod(), method -> new Running()).add(revenue, tickets);
+        }
+        Long cancelled = saleRepository.countCancelledBetween(today.atStartOfDay(), today.plusDays(1).atStartOfDay());
+
+        // Sales keep arriving while the held ones are checked: swap only once none is left unchecked
+        Set<SaleActivity> checked = new HashSet<>();
+        Set<SaleActivity> counted = new HashSet<>();
+        while (true) {
+            List<SaleActivity> unchecked;
+            synchronized (this) {
+                unchecked = heldDuringRebuild.stream().filter(activity -> !checked.contains(activity)).toList();
+                if (unchecked.isEmpty()) {
+                    day = today;
+                    overall = total;
+                    cancelledSales = cancelled != null ? cancelled : 0;
+                    byCashRegister.clear();
+                    byCashRegister.putAll(registers);
+                    byPaymentMethod.clear();
+                    byPaymentMethod.putAll(tenders);
+                    replaced = true;
+                    changed = true;
+                    int replayed = 0;
+                    for (SaleActivity activity : heldDuringRebuild) {
+                        if (!counted.contains(activity)) {
+                            add(activity);
+                            replayed++;
+                        }
+                    }
+                    log.info("Live sales dashboard rebuilt for {}: {} tickets, {} sales added again",
+                            today, total.tickets, replayed);
+                    return;
+                }
+            }
+            counted.addAll(countedBySnapshot(unchecked));
+            checked.addAll(unchecked);
+        }
+    }
+
+    // The activities whose sale already has their status in the snapshot the rollup was read from
+    private List<SaleActivity> countedBySnapshot(List<SaleActivity> activities) {
+        Set<Long> completed = idsWithStatus(activities, false, SaleStatus.COMPLETED);
+        Set<Long> cancelled = idsWithStatus(activities, true, SaleStatus.CANCELLED);
+        return activities.stream()
+                .filter(activity -> activity.saleId() != null
+                        && (activity.cancelled() ? cancelled : completed).contains(activity.saleId()))
+                .toList();
+    }
+
+    private Set<Long> idsWithStatus(List<SaleActivity> activities, boolean cancelled, SaleStatus status) {
+        Set<Long> ids = activities.stream()
+                .filter(activity -> activity.cancelled() == cancelled && activity.saleId() != null)
+                .map(SaleActivity::saleId)
+                .collect(Collectors.toSet());
+        return ids.isEmpty() ? Set.of() : new HashSet<>(saleRepository.findIdsWithStatus(ids, status));
+    }
+
+    // Called on the bus thread: rebuild on the executor, once for the gaps reported before it starts
+    private void rebuildAfterGap() {
+        if (!gapRebuildQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            gapExecutor.execute(() -> {
+                gapRebuildQueued.set(false);
+                rebuild();
+            });
+        } catch (RuntimeException e) {
+            gapRebuildQueued.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Add a sale that just became COMPLETED, on every node once the transaction commits.
+     */
+    public void recordCompleted(Sale sale, Collection<Payment> payments) {
+        publish(new SaleActivity(sale.getId(), sale.getSaleDate().toLocalDate(), sale.getCashRegister().getId(),
+                DailySalesRollupService.tenderOf(payments), sale.getTotalAmount(), false));
+    }
+
+    /**
+     * Count a cancelled sale, on every node once the transaction commits.
+     */
+    public void recordCancelled(Sale sale) {
+        publish(new SaleActivity(sale.getId(), sale.getSaleDate().toLocalDate(), sale.getCashRegister().getId(),
+                null, BigDecimal.ZERO, true));
+    }
+
+    public synchronized SalesDashboardResponse snapshot() {
+        rollIfNeeded(LocalDate.now());
+        return view(false);
+    }
+
+    /**
+     * Push what changed since the previous tick to this node's dashboards.
+     */
+    @Scheduled(fixedDelayString = "${app.reports.live.tick-ms:2000}")
+    public void tick() {
+        SalesDashboardResponse update;
+        synchronized (this) {
+            rollIfNeeded(LocalDate.now());
+            if (!changed) {
+                return;
+            }
+            sequence++;
+            update = view(!replaced);
+            changed = false;
+            replaced = false;
+            changedCashRegisters.clear();
+            changedPaymentMethods.clear();
+        }
+        saleWebSocketHandler.sendToDashboards(DASHBOARD_EVENT, update);
+    }
+
+    private void publish(SaleActivity activity) {
+        try {
+            String payload = objectMapper.writeValueAsString(activity);
+            eventBus.publish(new WebSocketEvent(WebSocketEvent.Channel.SALES_ACTIVITY, null, null, payload));
+        } catch (Exception e) {
+            log.error("Error serializing sale activity: {}", e.getMessage());
+        }
+    }
+
+    private void receive(WebSocketEvent event) {
+        try {
+            apply(objectMapper.readValue(event.payload(), SaleActivity.class));
+        } catch (Exception e) {
+            log.error("Error reading sale activity: {}", e.getMessage());
+        }
+    }
+
+    synchronized void apply(SaleActivity activity) {
+        rollIfNeeded(LocalDate.now());
+        if (rebuilding) {
+            heldDuringRebuild.add(activity);
+        }
+        add(activity);
+    }
+
+    private void add(SaleActivity activity) {
+        if (!activity.day().equals(day)) {
+            // Sale of a previous day, completed after midnight
+            return;
+        }
+        changed = true;
+        if (activity.cancelled()) {
+            cancelledSales++;
+            return;
+        }
+        overall.add(activity.amount(), 1);
+        byCashRegister.computeIfAbsent(activity.cashRegisterId(), id -> new Running()).add(activity.amount(), 1);
+        byPaymentMethod.computeIfAbsent(activity.tender(), method -> new Running()).add(activity.amount(), 1);
+        changedCashRegisters.add(activity.cashRegisterId());
+        changedPaymentMethods.add(activity.tender());
+    }
+
+    // Midnight passed before the rollover ran: start the new day empty, the rollover reloads it
+    private void rollIfNeeded(LocalDate today) {
+        if (day.equals(today)) {
+            return;
+        }
+        day = today;
+        overall = new Running();
+        cancelledSales = 0;
+        byCashRegister.clear();
+        byPaymentMethod.clear();
+        replaced = true;
+        changed = true;
+    }
+
+    private SalesDashboardResponse view(boolean delta) {
+        Map<Long, SalesDashboardResponse.Totals> registers = new HashMap<>();
+        byCashRegister.forEach((id, running) -> {
+            if (!delta || changedCashRegisters.contains(id)) {
+                registers.put(id, running.view());
+            }
+        });
+        Map<PaymentMethod, SalesDashboardResponse.Totals> tenders = new EnumMap<>(PaymentMethod.class);
+        byPaymentMethod.forEach((method, running) -> {
+            if (!delta || changedPaymentMethods.contains(method)) {
+                tenders.put(method, running.view());
+            }
+        });
+        return new SalesDashboardResponse(day, sequence, delta, overall.view(), cancelledSales, registers, tenders);
+    }
+}
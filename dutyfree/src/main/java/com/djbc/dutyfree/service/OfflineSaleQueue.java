@@ -0,0 +1,172 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.config.NodeIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queue of sales recorded while a register was offline, kept in a Redis stream.
+ * <p>
+ * Sync workers read through a consumer group: an entry stays pending until it is acknowledged,
+ * which only happens once its sale is committed. Acknowledged entries are deleted, so the stream
+ * length is the number of sales still to synchronize. Entries left pending by a worker that died
+ * are claimed by the next one once they have been idle long enough.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.redis.enabled", havingValue = "true", matchIfMissing = false)
+@Slf4j
+public class OfflineSaleQueue {
+
+    static final String STREAM_KEY = "offline:sales";
+    static final String REJECTED_STREAM_KEY = "offline:sales:rejected";
+    static final String GROUP = "sync";
+    static final String FIELD_SALE_ID = "saleId";
+    static final String FIELD_SALE = "sale";
+    static final String FIELD_REASON = "reason";
+
+    // Layout used before the stream: one key per sale
+    private static final String LEGACY_PREFIX = "offline:sale:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration claimIdle;
+    private final String consumerName;
+
+    public OfflineSaleQueue(RedisTemplate<String, Object> redisTemplate,
+                            @Value("${app.sync.claim-idle-ms:300000}") long claimIdleMs,
+                            @Value("${app.sync.consumer-name:}") String consumerName,
+                            NodeIdentity nodeIdentity) {
+        this.redisTemplate = redisTemplate;
+        this.claimIdle = Duration.ofMillis(claimIdleMs);
+        this.consumerName = consumerName.isBlank() ? nodeIdentity.getId() : consumerName;
+    }
+
+    public record Entry(RecordId id, String saleId, Object sale) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        ensureGroup();
+        migrateLegacyKeys();
+    }
+
+    public void enqueue(String saleId, Object sale) {
+        redisTemplate.opsForStream().add(MapRecord.create(STREAM_KEY, Map.of(FIELD_SALE_ID, saleId, FIELD_SALE, sale)));
+    }
+
+    /**
+     * Number of sales not yet synchronized (XLEN).
+     */
+    public long size() {
+        Long size = redisTemplate.opsForStream().size(STREAM_KEY);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * Entries delivered earlier but never acknowledged, idle for longer than the claim delay.
+     * They are taken over by this node.
+     */
+    public List<Entry> claimAbandoned(int count) {
+        PendingMessages pending = redisTemplate.opsForStream().pending(STREAM_KEY, GROUP, Range.unbounded(), count);
+        RecordId[] idle = pending.stream()
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (idle.length == 0) {
+            return List.of();
+        }
+        return toEntries(redisTemplate.opsForStream().claim(STREAM_KEY, GROUP, consumerName, claimIdle, idle));
+    }
+
+    /**
+     * Next entries never delivered to any worker.
+     */
+    public List<Entry> readNew(int count) {
+        return toEntries(redisTemplate.opsForStream().read(
+                Consumer.from(GROUP, consumerName),
+                StreamReadOptions.empty().count(count),
+                StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed())));
+    }
+
+    /**
+     * Mark entries as synchronized and drop them from the stream.
+     */
+    public void acknowledge(Collection<RecordId> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        RecordId[] recordIds = ids.toArray(RecordId[]::new);
+        redisTemplate.opsForStream().acknowledge(STREAM_KEY, GROUP, recordIds);
+        redisTemplate.opsForStream().delete(STREAM_KEY, recordIds);
+    }
+
+    /**
+     * Keep a sale that cannot be recorded aside for review. The caller still acknowledges it.
+     */
+    public void reject(Entry entry, String reason) {
+        redisTemplate.opsForStream().add(MapRecord.create(REJECTED_STREAM_KEY, Map.of(
+                FIELD_SALE_ID, entry.saleId(),
+                FIELD_SALE, entry.sale(),
+                FIELD_REASON, reason != null ? reason : "")));
+    }
+
+    private void ensureGroup() {
+        try {
+            redisTemplate.opsForStream().createGroup(STREAM_KEY, ReadOffset.from("0"), GROUP);
+        } catch (RedisSystemException e) {
+            // BUSYGROUP: created by an earlier start or another node
+            log.debug("Offline sale consumer group already exists");
+        }
+    }
+
+    // Move sales queued by the previous version; SCAN walks the keyspace incrementally
+    private void migrateLegacyKeys() {
+        int moved = 0;
+        try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions()
+                .match(LEGACY_PREFIX + "*").count(500).build())) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object sale = redisTemplate.opsForValue().getAndDelete(key);
+                if (sale != null) {
+                    enqueue(key.substring(LEGACY_PREFIX.length()), sale);
+                    moved++;
+                }
+            }
+        }
+        if (moved > 0) {
+            log.info("Moved {} offline sales to the {} stream", moved, STREAM_KEY);
+        }
+    }
+
+    private static List<Entry> toEntries(List<MapRecord<String, Object, Object>> records) {
+        if (records == null) {
+            return List.of();
+        }
+        return records.stream()
+                .map(record -> new Entry(record.getId(),
+                        String.valueOf(record.getValue().get(FIELD_SALE_ID)),
+                        record.getValue().get(FIELD_SALE)))
+                .toList();
+    }
+}
@@ -0,0 +1,163 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
+import com.djbc.dutyfree.domain.dto.response.SaleResponse;
+import com.djbc.dutyfree.domain.entity.User;
+import com.djbc.dutyfree.domain.enums.Role;
+import com.djbc.dutyfree.exception.BadRequestException;
+import com.djbc.dutyfree.exception.BusinessException;
+import com.djbc.dutyfree.exception.ResourceNotFoundException;
+import com.djbc.dutyfree.repository.SaleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays sales recorded offline through the regular checkout (stock, payments, receipt, rollup).
+ * <p>
+ * Each sale is committed in its own transaction, so one bad sale does not hold back the others and
+ * a failure never rolls back sales already recorded. Each sale carries the client reference
+ * generated by its register: a reference already recorded is reported as a duplicate instead of
+ * being inserted again, which makes a replay safe to repeat.
+ */
+@Service
+@Slf4j
+public class OfflineSaleReplayService {
+
+    // Registers' clocks may run a little ahead of the server's
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+
+    private final SaleService saleService;
+    private final SaleRepository saleRepository;
+    private final AuthService authService;
+    private final TransactionTemplate saleTransaction;
+    private final Duration offlineWindow;
+
+    public OfflineSaleReplayService(SaleService saleService,
+                                    SaleRepository saleRepository,
+                                    AuthService authService,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.sync.offline-window-hours:72}") long offlineWindowHours) {
+        this.saleService = saleService;
+        this.saleRepository = saleRepository;
+        this.authService = authService;
+        this.saleTransaction = new TransactionTemplate(transactionManager);
+        this.saleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.offlineWindow = Duration.ofHours(offlineWindowHours);
+    }
+
+    public enum Outcome {
+        SYNCHRONIZED,   // Enregistrée
+        DUPLICATE,      // Déjà enregistrée lors d'un rejeu précédent
+        REJECTED,       // Refusée (données invalides, produit inconnu, stock insuffisant...)
+        FAILED          // Erreur technique, à rejouer
+    }
+
+    public record SaleReplayResult(String clientReference, Outcome outcome, String saleNumber, String message) {
+    }
+
+    /**
+     * Check sales sent by a register before they are replayed or queued. A cashier only sends their
+     * own sales; supervisors may name another cashier. A sale without a date is dated now, and
+     * dates outside the offline window are refused.
+     */
+    public void checkIntake(List<OfflineSaleRequest> sales) {
+        User current = authService.getCurrentUser();
+        boolean supervisor = current.getRole() == Role.ADMIN || current.getRole() == Role.SUPERVISEUR;
+        LocalDateTime now = LocalDateTime.now();
+        for (OfflineSaleRequest sale : sales) {
+            if (sale.getCashierId() == null) {
+                sale.setCashierId(current.getId());
+            } else if (!supervisor && !sale.getCashierId().equals(current.getId())) {
+                throw new BadRequestException("Offline sale " + sale.getClientReference()
+                        + " was recorded by another cashier");
+            }
+
+            if (sale.getSaleDate() == null) {
+                sale.setSaleDate(now);
+            } else if (sale.getSaleDate().isBefore(now.minus(offlineWindow))
+                    || sale.getSaleDate().isAfter(now.plus(CLOCK_SKEW))) {
+                throw new BadRequestException("Offline sale " + sale.getClientReference()
+                        + " is dated outside the offline window: " + sale.getSaleDate());
+            }
+        }
+    }
+
+    public List<SaleReplayResult> replay(List<OfflineSaleRequest> sales) {
+        long start = System.currentTimeMillis();
+        List<SaleReplayResult> results = replayBatch(sales);
+        log.info("Replayed {} offline sales in {} ms", sales.size(), System.currentTimeMillis() - start);
+        return results;
+    }
+
+    /**
+     * Replay sales one transaction each. Results are in the order of the batch.
+     */
+    public List<SaleReplayResult> replayBatch(List<OfflineSaleRequest> batch) {
+        Map<String, String> recorded = new HashMap<>();
+        List<String> references = batch.stream()
+                .map(OfflineSaleRequest::getClientReference)
+                .filter(reference -> reference != null && !reference.isBlank())
+                .toList();
+        if (!references.isEmpty()) {
+            saleRepository.findClientReferences(references)
+                    .forEach(row -> recorded.put(row.getClientReference(), row.getSaleNumber()));
+        }
+
+        List<SaleReplayResult> results = new ArrayList<>(batch.size());
+        for (OfflineSaleRequest sale : batch) {
+            String reference = sale.getClientReference();
+            if (reference == null || reference.isBlank()) {
+                results.add(new SaleReplayResult(reference, Outcome.REJECTED, null, "Client reference is required"));
+                continue;
+            }
+
+            String saleNumber = recorded.get(reference);
+            if (saleNumber != null) {
+                results.add(new SaleReplayResult(reference, Outcome.DUPLICATE, saleNumber, null));
+                continue;
+            }
+
+            SaleReplayResult result = replayOne(sale);
+            if (result.saleNumber() != null) {
+                // The same reference twice in one batch
+                recorded.put(reference, result.saleNumber());
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private SaleReplayResult replayOne(OfflineSaleRequest sale) {
+        String reference = sale.getClientReference();
+        try {
+            SaleResponse response = saleTransaction.execute(status -> saleService.recordOfflineSale(sale));
+            return new SaleReplayResult(reference, Outcome.SYNCHRONIZED, response.getSaleNumber(), null);
+        } catch (BadRequestException | ResourceNotFoundException | BusinessException e) {
+            log.warn("Offline sale {} rejected: {}", reference, e.getMessage());
+            return new SaleReplayResult(reference, Outcome.REJECTED, null, e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            // Recorded concurrently by another replay of the same sale
+            List<SaleRepository.ClientReference> recorded = saleRepository.findClientReferences(List.of(reference));
+            if (!recorded.isEmpty()) {
+                return new SaleReplayResult(reference, Outcome.DUPLICATE, recorded.get(0).getSaleNumber(), null);
+            }
+            log.error("Failed to replay offline sale: {}", reference, e);
+            return new SaleReplayResult(reference, Outcome.FAILED, null, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Failed to replay offline sale: {}", reference, e);
+            return new SaleReplayResult(reference, Outcome.FAILED, null, e.getMessage());
+        }
+    }
+}
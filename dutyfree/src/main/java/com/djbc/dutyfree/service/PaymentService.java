@@ -9,6 +9,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,16 +19,21 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final SaleRepository saleRepository;
+    private final ExchangeRateService exchangeRateService;
 
     public Payment processPayment(Long saleId, PaymentRequest request) {
         Sale sale = saleRepository.findById(saleId).orElseThrow();
-        
+
+        // Rate from the in-memory snapshot, no query per tender line
+        BigDecimal rate = exchangeRateService.getExchangeRate(request.getCurrency());
+
         Payment payment = Payment.builder()
                 .sale(sale)
                 .paymentMethod(request.getPaymentMethod())
                 .currency(request.getCurrency())
                 .amountInCurrency(request.getAmount())
-                .amountInXOF(request.getAmount()) // Simplified - no conversion
+                .amountInXOF(request.getAmount().multiply(rate).setScale(2, RoundingMode.HALF_UP))
+                .exchangeRate(rate)
                 .paymentDate(LocalDateTime.now())
                 .transactionReference(request.getTransactionReference())
                 .verified(true)
@@ -7,20 +7,28 @@ import com.djbc.dutyfree.domain.dto.response.TerminalTransactionResponse;
 import com.djbc.dutyfree.domain.entity.*;
 import com.djbc.dutyfree.exception.ResourceNotFoundException;
 import com.djbc.dutyfree.repository.*;
+import com.djbc.dutyfree.service.terminal.PaymentTerminalGateway;
+import com.djbc.dutyfree.service.terminal.TerminalCommand;
+import com.djbc.dutyfree.service.terminal.TerminalResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,7 +40,12 @@ public class PaymentTerminalService {
     private final PaymentTerminalRepository terminalRepository;
     private final TerminalTransactionRepository transactionRepository;
     private final CashRegisterRepository cashRegisterRepository;
-    private final PaymentRepository paymentRepository;
+    private final TerminalTransactionStore transactionStore;
+    private final PaymentTerminalGateway terminalGateway;
+    private final ExecutorService terminalIoExecutor;
+
+    @Value("${app.payment-terminals.response-timeout-ms:60000}")
+    private long responseTimeoutMs;
 
     /**
      * Create a new payment terminal
@@ -147,70 +160,31 @@ public class PaymentTerminalService {
     }
 
     /**
-     * Process a payment through terminal
+     * Process a payment through terminal.
+     * <p>
+     * The transaction is recorded and the terminal taken in a short transaction; the device
+     * exchange then runs on a virtual thread with no database transaction open, and the answer is
+     * persisted in a second short transaction. The returned future completes with the final state.
      */
-    @CacheEvict(value = {"paymentTerminals", "terminalTransactions"}, allEntries = true)
-    public TerminalTransactionResponse processPayment(TerminalPaymentRequest request) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<TerminalTransactionResponse> processPayment(TerminalPaymentRequest request) {
         log.info("Processing terminal payment: Terminal={}, Amount={}", request.getTerminalId(), request.getAmount());
 
-        // Validate terminal
-        PaymentTerminal terminal = terminalRepository.findById(request.getTerminalId())
-                .orElseThrow(() -> new ResourceNotFoundException("Payment terminal not found"));
-
-        if (!terminal.isReady()) {
-            throw new IllegalStateException("Terminal is not ready for transactions. Status: " + terminal.getStatus());
-        }
-
-        // Create transaction
-        TerminalTransaction transaction = TerminalTransaction.builder()
-                .transactionId(generateTransactionId())
-                .terminal(terminal)
-                .transactionType(TerminalTransaction.TransactionType.valueOf(request.getTransactionType()))
-                .amount(request.getAmount())
-                .currency(request.getCurrency())
-                .status(TerminalTransaction.TransactionStatus.PENDING)
-                .signatureRequired(request.getRequireSignature())
-                .startedAt(LocalDateTime.now())
-                .notes(request.getNotes())
-                .createdBy(getCurrentUsername())
-                .build();
-
-        // Link to payment if provided
-        if (request.getPaymentId() != null) {
-            Payment payment = paymentRepository.findById(request.getPaymentId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Payment not found"));
-            transaction.setPayment(payment);
-        }
-
-        // Update terminal status
-        terminal.setStatus(PaymentTerminal.TerminalStatus.BUSY);
-        terminalRepository.save(terminal);
+        TerminalCommand command = transactionStore.open(request, getCurrentUsername());
+        transactionStore.markProcessing(command.transactionId());
 
-        // Simulate terminal communication (in real scenario, this would call terminal API/SDK)
-        boolean success = simulateTerminalTransaction(terminal, transaction);
-
-        if (success) {
-            transaction.complete(TerminalTransaction.TransactionStatus.APPROVED);
-            transaction.setAuthorizationCode(generateAuthCode());
-            transaction.setReferenceNumber(UUID.randomUUID().toString());
-            transaction.setCardType("VISA"); // Would come from terminal
-            transaction.setCardNumberMasked("****1234"); // Would come from terminal
-            transaction.setPinVerified(true);
-        } else {
-            transaction.complete(TerminalTransaction.TransactionStatus.DECLINED);
-            transaction.setErrorCode("E001");
-            transaction.setErrorMessage("Transaction declined by issuer");
+        CompletableFuture<TerminalResult> answer;
+        try {
+            answer = terminalGateway.submit(command);
+        } catch (RuntimeException e) {
+            answer = CompletableFuture.failedFuture(e);
         }
 
-        // Update terminal status back to online
-        terminal.setStatus(PaymentTerminal.TerminalStatus.ONLINE);
-        terminal.setLastHeartbeat(LocalDateTime.now());
-        terminalRepository.save(terminal);
-
-        TerminalTransaction saved = transactionRepository.save(transaction);
-        log.info("Terminal transaction completed: {} - Status: {}", saved.getTransactionId(), saved.getStatus());
-
-        return mapTransactionToResponse(saved);
+        return answer
+                .orTimeout(responseTimeoutMs, TimeUnit.MILLISECONDS)
+                .handleAsync((result, error) -> transactionStore.complete(command.transactionId(),
+                        error == null ? result : failureOf(command, error)), terminalIoExecutor)
+                .thenApply(this::mapTransactionToResponse);
     }
 
     /**
@@ -432,31 +406,18 @@ public class PaymentTerminalService {
                 .build();
     }
 
-    private String generateTransactionId() {
-        return "TPE-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-
-    private String generateAuthCode() {
-        return "AUTH-" + (100000 + (int) (Math.random() * 900000));
-    }
-
-    /**
-     * Simulate terminal transaction
-     * In real implementation, this would communicate with actual terminal hardware/API
-     */
-    private boolean simulateTerminalTransaction(PaymentTerminal terminal, TerminalTransaction transaction) {
-        log.info("Simulating transaction on terminal: {}", terminal.getTerminalId());
-
-        try {
-            // Simulate processing time
-            Thread.sleep(1000 + (long) (Math.random() * 2000));
-
-            // 95% success rate in simulation
-            return Math.random() < 0.95;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
+    private TerminalResult failureOf(TerminalCommand command, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            log.warn("Terminal {} did not answer transaction {} within {} ms",
+                    command.terminalId(), command.transactionReference(), responseTimeoutMs);
+            return TerminalResult.failure(TerminalTransaction.TransactionStatus.TIMEOUT,
+                    "E408", "No answer from terminal");
         }
+        log.error("Terminal {} failed transaction {}: {}",
+                command.terminalId(), command.transactionReference(), cause.getMessage(), cause);
+        return TerminalResult.failure(TerminalTransaction.TransactionStatus.ERROR,
+                "E500", "Terminal communication error");
     }
 
     private String getCurrentUsername() {
@@ -0,0 +1,278 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.ProductBundle;
+import com.djbc.dutyfree.domain.entity.Promotion;
+import com.djbc.dutyfree.domain.entity.ScheduledPrice;
+import com.djbc.dutyfree.repository.ProductBundleRepository;
+import com.djbc.dutyfree.repository.PromotionRepository;
+import com.djbc.dutyfree.repository.ScheduledPriceRepository;
+import com.djbc.dutyfree.websocket.SaleWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Fires exactly when a scheduled price, promotion or time-restricted bundle starts or stops applying.
+ * <p>
+ * The windows of the active rules are compiled into boundaries: fixed instants (validity dates,
+ * promotion start and end) and daily times of day (price time windows, bundle hours, and midnight
+ * for rules restricted to some days of the week). Only the earliest upcoming boundary is scheduled,
+ * as a one-shot task; when it fires, the caches holding "currently applicable" results are cleared,
+ * registers are told over {@code /ws/sales} and the next boundary is scheduled. Boundaries are
+ * recompiled after every change to these rules and on the price resync for changes made elsewhere.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceBoundaryScheduler {
+
+    public static final String PRICE_CHANGE_EVENT = "PRICE_CHANGE";
+
+    private final ScheduledPriceRepository scheduledPriceRepository;
+    private final PromotionRepository promotionRepository;
+    private final ProductBundleRepository productBundleRepository;
+    private final CacheManager cacheManager;
+    private final SaleWebSocketHandler saleWebSocketHandler;
+    private final TaskScheduler taskScheduler;
+
+    // Guarded by this
+    private List<Boundary> boundaries = List.of();
+    private ScheduledFuture<?> pending;
+
+    /**
+     * Published by the services changing rules that are not price rules, i.e. bundles.
+     * Boundaries are recompiled once the transaction commits.
+     */
+    public record ScheduleChangedEvent(String source) {
+    }
+
+    enum Source {
+        SCHEDULED_PRICE("scheduledPrices", "products"),
+        PROMOTION("promotions", "products"),
+        BUNDLE("bundles");
+
+        private final String[] caches;
+
+        Source(String... caches) {
+            this.caches = caches;
+        }
+    }
+
+    /**
+     * One edge of a rule's window: either a single instant, or a time of day repeating between
+     * {@code from} and {@code until} (both optional).
+     */
+    record Boundary(Source source, Long ruleId, Long productId,
+                    LocalDateTime at, LocalTime daily, LocalDateTime from, LocalDateTime until) {
+
+        static Boundary once(Source source, Long ruleId, Long productId, LocalDateTime at) {
+            return new Boundary(source, ruleId, productId, at, null, null, null);
+        }
+
+        static Boundary daily(Source source, Long ruleId, Long productId, LocalTime time,
+                              LocalDateTime from, LocalDateTime until) {
+            return new Boundary(source, ruleId, productId, null, time, from, until);
+        }
+
+        /**
+         * First occurrence strictly after {@code now}, or {@code null} when there is none left.
+         */
+        LocalDateTime nextAfter(LocalDateTime now) {
+            if (at != null) {
+                return at.isAfter(now) ? at : null;
+            }
+            LocalDateTime start = from != null && from.isAfter(now) ? from.minusNanos(1) : now;
+            LocalDateTime next = start.toLocalDate().atTime(daily);
+            if (!next.isAfter(start)) {
+                next = next.plusDays(1);
+            }
+            return until == null || !next.isAfter(until) ? next : null;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRulesChanged(PriceEngine.PriceRulesChangedEvent event) {
+        reload();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${app.pricing.resync-interval-ms:300000}",
+            initialDelayString = "${app.pricing.resync-interval-ms:300000}")
+    public void resync() {
+        reload();
+    }
+
+    /**
+     * Recompile the boundaries of the active rules and schedule the next one.
+     */
+    public void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Boundary> compiled = new ArrayList<>();
+        for (ScheduledPrice price : scheduledPriceRepository.findActiveNotExpired(now.toLocalDate())) {
+            compile(price, compiled);
+        }
+        for (Promotion promotion : promotionRepository.findActiveNotEnded(now)) {
+            compile(promotion, compiled);
+        }
+        for (ProductBundle bundle : productBundleRepository.findActiveNotExpired(now)) {
+            compile(bundle, compiled);
+        }
+
+        synchronized (this) {
+            boundaries = List.copyOf(compiled);
+            scheduleNext(now);
+        }
+        log.debug("Price boundaries reloaded: {} rule edges", compiled.size());
+    }
+
+    private synchronized void scheduleNext(LocalDateTime now) {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        LocalDateTime next = null;
+        for (Boundary boundary : boundaries) {
+            LocalDateTime at = boundary.nextAfter(now);
+            if (at != null && (next == null || at.isBefore(next))) {
+                next = at;
+            }
+        }
+        if (next == null) {
+            return;
+        }
+        LocalDateTime firesAt = next;
+        pending = taskScheduler.schedule(() -> fire(firesAt), firesAt.atZone(ZoneId.systemDefault()).toInstant());
+        log.debug("Next price boundary at {}", firesAt);
+    }
+
+    private void fire(LocalDateTime firesAt) {
+        List<Boundary> due = new ArrayList<>();
+        synchronized (this) {
+            LocalDateTime justBefore = firesAt.minusNanos(1);
+            for (Boundary boundary : boundaries) {
+                if (firesAt.equals(boundary.nextAfter(justBefore))) {
+                    due.add(boundary);
+                }
+            }
+            scheduleNext(firesAt);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Set<Source> sources = EnumSet.noneOf(Source.class);
+        Set<Long> scheduledPriceIds = new TreeSet<>();
+        Set<Long> promotionIds = new TreeSet<>();
+        Set<Long> bundleIds = new TreeSet<>();
+        Set<Long> productIds = new TreeSet<>();
+        for (Boundary boundary : due) {
+            sources.add(boundary.source());
+            switch (boundary.source()) {
+                case SCHEDULED_PRICE -> scheduledPriceIds.add(boundary.ruleId());
+                case PROMOTION -> promotionIds.add(boundary.ruleId());
+                case BUNDLE -> bundleIds.add(boundary.ruleId());
+            }
+            if (boundary.productId() != null) {
+                productIds.add(boundary.productId());
+            }
+        }
+
+        for (Source source : sources) {
+            for (String cacheName : source.caches) {
+                Cache cache = cacheManager.getCache(cacheName);
+                if (cache != null) {
+                    cache.clear();
+                }
+            }
+        }
+
+        log.info("Price boundary reached at {}: {} scheduled prices, {} promotions, {} bundles",
+                firesAt, scheduledPriceIds.size(), promotionIds.size(), bundleIds.size());
+        saleWebSocketHandler.broadcastSaleEvent(PRICE_CHANGE_EVENT, Map.of(
+                "effectiveAt", firesAt.toString(),
+                "scheduledPriceIds", scheduledPriceIds,
+                "promotionIds", promotionIds,
+                "bundleIds", bundleIds,
+                "productIds", productIds));
+    }
+
+    // Windows are inclusive (see ScheduledPrice.isCurrentlyValid), so a rule stops applying just after its end
+    private static void compile(ScheduledPrice price, List<Boundary> out) {
+        Long productId = price.getProduct().getId();
+        LocalDateTime from = price.getValidFrom() != null ? price.getValidFrom().atStartOfDay() : null;
+        LocalDateTime until = price.getValidUntil() != null ? price.getValidUntil().plusDays(1).atStartOfDay() : null;
+        if (from != null) {
+            out.add(Boundary.once(Source.SCHEDULED_PRICE, price.getId(), productId, from));
+        }
+        if (until != null) {
+            out.add(Boundary.once(Source.SCHEDULED_PRICE, price.getId(), productId, until));
+        }
+        if (price.getTimeFrom() != null && price.getTimeUntil() != null) {
+            out.add(Boundary.daily(Source.SCHEDULED_PRICE, price.getId(), productId,
+                    price.getTimeFrom(), from, until));
+            out.add(Boundary.daily(Source.SCHEDULED_PRICE, price.getId(), productId,
+                    price.getTimeUntil().plusSeconds(1), from, until));
+        }
+        if (price.getDaysOfWeek() != null && !price.getDaysOfWeek().isBlank()) {
+            out.add(Boundary.daily(Source.SCHEDULED_PRICE, price.getId(), productId, LocalTime.MIDNIGHT, from, until));
+        }
+    }
+
+    private static void compile(Promotion promotion, List<Boundary> out) {
+        out.add(Boundary.once(Source.PROMOTION, promotion.getId(), null, promotion.getStartDate()));
+        out.add(Boundary.once(Source.PROMOTION, promotion.getId(), null, promotion.getEndDate().plusSeconds(1)));
+    }
+
+    private static void compile(ProductBundle bundle, List<Boundary> out) {
+        LocalDateTime from = bundle.getValidFrom();
+        LocalDateTime until = bundle.getValidUntil() != null ? bundle.getValidUntil().plusSeconds(1) : null;
+        if (from != null) {
+            out.add(Boundary.once(Source.BUNDLE, bundle.getId(), null, from));
+        }
+        if (until != null) {
+            out.add(Boundary.once(Source.BUNDLE, bundle.getId(), null, until));
+        }
+        if (Boolean.TRUE.equals(bundle.getTimeRestricted())
+                && bundle.getStartTime() != null && bundle.getEndTime() != null) {
+            try {
+                // Hours are compared as HH:mm, so the end minute is still inside the window
+                out.add(Boundary.daily(Source.BUNDLE, bundle.getId(), null,
+                        LocalTime.parse(bundle.getStartTime()), from, until));
+                out.add(Boundary.daily(Source.BUNDLE, bundle.getId(), null,
+                        LocalTime.parse(bundle.getEndTime()).plusMinutes(1), from, until));
+            } catch (DateTimeParseException e) {
+                log.warn("Bundle {} has invalid hours {}-{}", bundle.getBundleCode(),
+                        bundle.getStartTime(), bundle.getEndTime());
+            }
+        }
+    }
+}
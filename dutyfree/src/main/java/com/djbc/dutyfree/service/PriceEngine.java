@@ -0,0 +1,433 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.Promotion;
+import com.djbc.dutyfree.domain.entity.ScheduledPrice;
+import com.djbc.dutyfree.domain.enums.DiscountType;
+import com.djbc.dutyfree.repository.PromotionRepository;
+import com.djbc.dutyfree.repository.ScheduledPriceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Effective selling prices: scheduled prices and promotions compiled into an in-memory rule table.
+ * <p>
+ * Per product, scheduled prices are kept by descending priority; the first one whose date window,
+ * days of week and time window match wins, as in {@link ScheduledPriceService#calculateEffectivePrice}.
+ * Promotions are indexed by product, by category and for all products; a line gets either its
+ * best non-stackable promotion or the sum of its stackable ones, whichever is larger. Fixed amounts
+ * and maximum discounts are for the whole basket: they are spread over the lines of the promotion
+ * in proportion to their amounts.
+ * <p>
+ * The table holds the rules in force at some time of the day it was compiled for. Today's table is
+ * rebuilt after every change to scheduled prices or promotions on this node, at day rollover and
+ * periodically for changes made elsewhere. Time-of-day windows are evaluated when resolving, so
+ * the table does not change within a day. Instants of another day, such as offline sales replayed
+ * later, get a table compiled for that day; the last one is kept until the next rebuild, so a
+ * backlog of the same day is priced from one compilation.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PriceEngine {
+
+    private final ScheduledPriceRepository scheduledPriceRepository;
+    private final PromotionRepository promotionRepository;
+
+    private volatile PriceTable table;
+
+    // Most recent table of a day other than today's, dropped whenever the rules change
+    private volatile PriceTable otherDayTable;
+
+    /**
+     * Published by the services that change scheduled prices or promotions.
+     * The table is rebuilt once the transaction commits.
+     */
+    public record PriceRulesChangedEvent(String source) {
+    }
+
+    /**
+     * One basket line. {@code categoryId} may be null.
+     */
+    public record PriceLine(Long productId, Long categoryId, BigDecimal basePrice, int quantity) {
+    }
+
+    /**
+     * Unit price after scheduled prices, and the promotion discount on the whole line.
+     */
+    public record ResolvedPrice(BigDecimal unitPrice, BigDecimal promotionDiscount,
+                                Long promotionId, Long scheduledPriceId) {
+
+        public BigDecimal netUnitPrice(int quantity) {
+            if (promotionDiscount.signum() == 0 || quantity <= 0) {
+                return unitPrice;
+            }
+            return unitPrice.subtract(promotionDiscount.divide(BigDecimal.valueOf(quantity), 2, RoundingMode.HALF_UP));
+        }
+    }
+
+    private record CompiledScheduledPrice(Long id, int priority, LocalDate validFrom, LocalDate validUntil,
+                                          LocalTime timeFrom, LocalTime timeUntil, int daysMask,
+                                          String priceType, BigDecimal amount, BigDecimal percentage) {
+
+        boolean appliesAt(LocalDate day, LocalTime time, int dayBit) {
+            if (validFrom != null && day.isBefore(validFrom)) return false;
+            if (validUntil != null && day.isAfter(validUntil)) return false;
+            if (timeFrom != null && timeUntil != null && (time.isBefore(timeFrom) || time.isAfter(timeUntil))) {
+                return false;
+            }
+            return daysMask == 0 || (daysMask & dayBit) != 0;
+        }
+
+        BigDecimal price(BigDecimal basePrice) {
+            return ScheduledPrice.calculatePrice(priceType, amount, percentage, basePrice);
+        }
+    }
+
+    private record CompiledPromotion(Long id, LocalDateTime startDate, LocalDateTime endDate, boolean stackable,
+                                     String discountType, BigDecimal discountValue,
+                                     BigDecimal minimumPurchaseAmount, BigDecimal maximumDiscountAmount) {
+
+        boolean appliesAt(LocalDateTime at, BigDecimal basketSubtotal) {
+            if (at.isBefore(startDate) || at.isAfter(endDate)) return false;
+            return minimumPurchaseAmount == null || basketSubtotal.compareTo(minimumPurchaseAmount) >= 0;
+        }
+
+        /**
+         * Discount on each of the given lines. Percentages apply per line as long as their total stays
+         * under the maximum discount; otherwise the basket discount is spread over the lines.
+         */
+        Map<Integer, BigDecimal> shares(List<Integer> indexes, BigDecimal[] lineAmounts) {
+            Map<Integer, BigDecimal> shares = new HashMap<>();
+            BigDecimal eligible = BigDecimal.ZERO;
+            BigDecimal perLineTotal = BigDecimal.ZERO;
+            boolean percentage = DiscountType.PERCENTAGE.name().equals(discountType);
+            for (int i : indexes) {
+                eligible = eligible.add(lineAmounts[i]);
+                if (percentage) {
+                    BigDecimal discount = PromotionService.discount(discountType, discountValue, null, lineAmounts[i]);
+                    shares.put(i, discount);
+                    perLineTotal = perLineTotal.add(discount);
+                }
+            }
+            if (percentage && (maximumDiscountAmount == null || perLineTotal.compareTo(maximumDiscountAmount) <= 0)) {
+                return shares;
+            }
+            BigDecimal total = PromotionService.discount(discountType, discountValue, maximumDiscountAmount, eligible);
+            return spread(total, indexes, lineAmounts, eligible);
+        }
+    }
+
+    private record PriceTable(LocalDate compiledFor,
+                              Map<Long, List<CompiledScheduledPrice>> scheduledByProduct,
+                              Map<Long, List<CompiledPromotion>> promotionsByProduct,
+                              Map<Long, List<CompiledPromotion>> promotionsByCategory,
+                              List<CompiledPromotion> promotionsForAll,
+                              int promotionCount) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRulesChanged(PriceRulesChangedEvent event) {
+        log.debug("Price rules changed ({}), rebuilding price table", event.source());
+        rebuild();
+    }
+
+    @Scheduled(cron = "${app.pricing.rollover-cron:0 0 0 * * *}")
+    public void rollover() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.pricing.resync-interval-ms:300000}",
+            initialDelayString = "${app.pricing.resync-interval-ms:300000}")
+    public void resync() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        PriceTable rebuilt = compileTable(LocalDate.now());
+        table = rebuilt;
+        otherDayTable = null;
+        log.debug("Price table rebuilt: {} products with scheduled prices, {} promotions in {} ms",
+                rebuilt.scheduledByProduct().size(), rebuilt.promotionCount(), System.currentTimeMillis() - start);
+    }
+
+    private PriceTable compileTable(LocalDate day) {
+        Map<Long, List<CompiledScheduledPrice>> scheduledByProduct = new HashMap<>();
+        for (ScheduledPrice price : scheduledPriceRepository.findActiveNotExpired(day)) {
+            scheduledByProduct.computeIfAbsent(price.getProduct().getId(), id -> new ArrayList<>())
+                    .add(compile(price));
+        }
+        Comparator<CompiledScheduledPrice> byPriority = Comparator
+                .comparingInt(CompiledScheduledPrice::priority).reversed()
+                .thenComparing(CompiledScheduledPrice::id, Comparator.reverseOrder());
+        scheduledByProduct.replaceAll((productId, rules) -> {
+            rules.sort(byPriority);
+            return List.copyOf(rules);
+        });
+
+        Map<Long, CompiledPromotion> promotions = new HashMap<>();
+        List<CompiledPromotion> promotionsForAll = new ArrayList<>();
+        // Promotions ended earlier in the day still apply to the instants before their end
+        for (Promotion promotion : promotionRepository.findActiveNotEnded(day.atStartOfDay())) {
+            if (!isApplicable(promotion)) {
+                continue;
+            }
+            CompiledPromotion compiled = compile(promotion);
+            promotions.put(promotion.getId(), compiled);
+            if (Boolean.TRUE.equals(promotion.getApplyToAllProducts())) {
+                promotionsForAll.add(compiled);
+            }
+        }
+        Map<Long, List<CompiledPromotion>> promotionsByProduct = new HashMap<>();
+        Map<Long, List<CompiledPromotion>> promotionsByCategory = new HashMap<>();
+        if (!promotions.isEmpty()) {
+            index(promotionRepository.findApplicableProductIds(promotions.keySet()), promotions, promotionsByProduct);
+            index(promotionRepository.findApplicableCategoryIds(promotions.keySet()), promotions, promotionsByCategory);
+        }
+
+        return new PriceTable(day, scheduledByProduct, promotionsByProduct, promotionsByCategory,
+                List.copyOf(promotionsForAll), promotions.size());
+    }
+
+    /**
+     * Resolve a whole basket at the given instant, lines in the same order.
+     */
+    public List<ResolvedPrice> resolve(List<PriceLine> lines, LocalDateTime at) {
+        LocalDate day = at.toLocalDate();
+        PriceTable current = tableFor(day);
+        LocalTime time = at.toLocalTime();
+        int dayBit = 1 << day.getDayOfWeek().ordinal();
+
+        BigDecimal[] unitPrices = new BigDecimal[lines.size()];
+        BigDecimal[] lineAmounts = new BigDecimal[lines.size()];
+        Long[] scheduledPriceIds = new Long[lines.size()];
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < lines.size(); i++) {
+            PriceLine line = lines.get(i);
+            BigDecimal unitPrice = line.basePrice();
+            for (CompiledScheduledPrice rule : current.scheduledByProduct().getOrDefault(line.productId(), List.of())) {
+                if (rule.appliesAt(day, time, dayBit)) {
+                    unitPrice = rule.price(line.basePrice());
+                    scheduledPriceIds[i] = rule.id();
+                    break;
+                }
+            }
+            unitPrices[i] = unitPrice;
+            lineAmounts[i] = unitPrice.multiply(BigDecimal.valueOf(line.quantity()));
+            subtotal = subtotal.add(lineAmounts[i]);
+        }
+
+        List<List<CompiledPromotion>> applicable = new ArrayList<>(lines.size());
+        Map<CompiledPromotion, List<Integer>> linesByPromotion = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            List<CompiledPromotion> forLine = new ArrayList<>();
+            for (CompiledPromotion promotion : candidates(current, lines.get(i))) {
+                if (!promotion.appliesAt(at, subtotal)) {
+                    continue;
+                }
+                forLine.add(promotion);
+                linesByPromotion.computeIfAbsent(promotion, p -> new ArrayList<>()).add(i);
+            }
+            applicable.add(forLine);
+        }
+        // A line that ends up with another promotion does not get its share, so a basket never
+        // receives more than a promotion's fixed amount or maximum discount
+        Map<CompiledPromotion, Map<Integer, BigDecimal>> shares = new HashMap<>();
+        linesByPromotion.forEach((promotion, indexes) -> shares.put(promotion, promotion.shares(indexes, lineAmounts)));
+
+        List<ResolvedPrice> resolved = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            BigDecimal lineAmount = lineAmounts[i];
+            CompiledPromotion bestSingle = null;
+            BigDecimal bestSingleDiscount = BigDecimal.ZERO;
+            CompiledPromotion topStackable = null;
+            BigDecimal topStackableDiscount = BigDecimal.ZERO;
+            BigDecimal stackedDiscount = BigDecimal.ZERO;
+            for (CompiledPromotion promotion : applicable.get(i)) {
+                BigDecimal discount = shares.get(promotion).get(i);
+                if (promotion.stackable()) {
+                    stackedDiscount = stackedDiscount.add(discount);
+                    if (discount.compareTo(topStackableDiscount) > 0) {
+                        topStackable = promotion;
+                        topStackableDiscount = discount;
+                    }
+                } else if (discount.compareTo(bestSingleDiscount) > 0) {
+                    bestSingle = promotion;
+                    bestSingleDiscount = discount;
+                }
+            }
+
+            BigDecimal discount;
+            CompiledPromotion applied;
+            if (stackedDiscount.compareTo(bestSingleDiscount) > 0) {
+                discount = stackedDiscount.min(lineAmount);
+                applied = topStackable;
+            } else {
+                discount = bestSingleDiscount;
+                applied = bestSingle;
+            }
+            resolved.add(new ResolvedPrice(unitPrices[i], discount,
+                    applied != null ? applied.id() : null, scheduledPriceIds[i]));
+        }
+        return resolved;
+    }
+
+    public ResolvedPrice resolve(PriceLine line, LocalDateTime at) {
+        return resolve(List.of(line), at).get(0);
+    }
+
+    private PriceTable tableFor(LocalDate day) {
+        PriceTable current = table;
+        if (current != null && current.compiledFor().equals(day)) {
+            return current;
+        }
+        PriceTable other = otherDayTable;
+        if (other != null && other.compiledFor().equals(day)) {
+            return other;
+        }
+        return compileTableFor(day);
+    }
+
+    // Under the rebuild lock: threads that missed together compile once, and a rebuild cannot
+    // be overtaken by a table compiled from the rules it replaces
+    private synchronized PriceTable compileTableFor(LocalDate day) {
+        if (table != null && table.compiledFor().equals(day)) {
+            return table;
+        }
+        if (otherDayTable != null && otherDayTable.compiledFor().equals(day)) {
+            return otherDayTable;
+        }
+        if (day.equals(LocalDate.now())) {
+            rebuild();
+            return table;
+        }
+        PriceTable compiled = compileTable(day);
+        otherDayTable = compiled;
+        return compiled;
+    }
+
+    // Last line takes the rounding remainder
+    private static Map<Integer, BigDecimal> spread(BigDecimal total, List<Integer> indexes, BigDecimal[] lineAmounts,
+                                                   BigDecimal eligible) {
+        Map<Integer, BigDecimal> shares = new HashMap<>();
+        BigDecimal remaining = total;
+        for (int k = 0; k < indexes.size(); k++) {
+            int i = indexes.get(k);
+            BigDecimal share;
+            if (eligible.signum() == 0) {
+                share = BigDecimal.ZERO;
+            } else if (k == indexes.size() - 1) {
+                share = remaining.min(lineAmounts[i]);
+            } else {
+                share = total.multiply(lineAmounts[i]).divide(eligible, 2, RoundingMode.DOWN);
+            }
+            shares.put(i, share);
+            remaining = remaining.subtract(share);
+        }
+        return shares;
+    }
+
+    private static List<CompiledPromotion> candidates(PriceTable table, PriceLine line) {
+        List<CompiledPromotion> byProduct = table.promotionsByProduct().getOrDefault(line.productId(), List.of());
+        List<CompiledPromotion> byCategory = line.categoryId() != null
+                ? table.promotionsByCategory().getOrDefault(line.categoryId(), List.of())
+                : List.of();
+        if (byCategory.isEmpty() && table.promotionsForAll().isEmpty()) {
+            return byProduct;
+        }
+        // A promotion may target the product, its category and all products at once
+        List<CompiledPromotion> candidates = new ArrayList<>(byProduct);
+        for (CompiledPromotion promotion : byCategory) {
+            if (!candidates.contains(promotion)) {
+                candidates.add(promotion);
+            }
+        }
+        for (CompiledPromotion promotion : table.promotionsForAll()) {
+            if (!candidates.contains(promotion)) {
+                candidates.add(promotion);
+            }
+        }
+        return candidates;
+    }
+
+    private static void index(List<Object[]> pairs, Map<Long, CompiledPromotion> promotions,
+                              Map<Long, List<CompiledPromotion>> target) {
+        for (Object[] pair : pairs) {
+            CompiledPromotion promotion = promotions.get((Long) pair[0]);
+            if (promotion != null) {
+                target.computeIfAbsent((Long) pair[1], id -> new ArrayList<>()).add(promotion);
+            }
+        }
+        target.replaceAll((id, list) -> List.copyOf(list));
+    }
+
+    // Promotions that calculateDiscount would reject, or that reached their usage limit, never apply
+    private static boolean isApplicable(Promotion promotion) {
+        BigDecimal value = promotion.getDiscountValue();
+        if (value == null || value.signum() < 0) {
+            return false;
+        }
+        if (DiscountType.PERCENTAGE.name().equals(promotion.getDiscountType())
+                && value.compareTo(BigDecimal.valueOf(100)) > 0) {
+            return false;
+        }
+        return promotion.getUsageLimit() == null || promotion.getUsageCount() < promotion.getUsageLimit();
+    }
+
+    private static CompiledScheduledPrice compile(ScheduledPrice price) {
+        return new CompiledScheduledPrice(price.getId(),
+                price.getPriority() != null ? price.getPriority() : 0,
+                price.getValidFrom(), price.getValidUntil(),
+                price.getTimeFrom(), price.getTimeUntil(),
+                daysMask(price.getDaysOfWeek()),
+                price.getPriceType(), price.getAmount(), price.getPercentage());
+    }
+
+    private static CompiledPromotion compile(Promotion promotion) {
+        return new CompiledPromotion(promotion.getId(), promotion.getStartDate(), promotion.getEndDate(),
+                Boolean.TRUE.equals(promotion.getStackable()),
+                promotion.getDiscountType(), promotion.getDiscountValue(),
+                promotion.getMinimumPurchaseAmount(), promotion.getMaximumDiscountAmount());
+    }
+
+    // MONDAY,TUESDAY,... as a bit set on DayOfWeek ordinals; 0 means every day.
+    // A list without any valid day matches no day, like ScheduledPrice.isCurrentlyValid
+    private static int daysMask(String daysOfWeek) {
+        if (daysOfWeek == null || daysOfWeek.isBlank()) {
+            return 0;
+        }
+        int mask = 0;
+        for (String day : daysOfWeek.split(",")) {
+            try {
+                mask |= 1 << DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)).ordinal();
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring unknown day of week '{}' in scheduled price", day);
+            }
+        }
+        return mask != 0 ? mask : Integer.MIN_VALUE;
+    }
+}
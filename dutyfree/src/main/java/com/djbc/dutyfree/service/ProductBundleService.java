@@ -12,6 +12,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,6 +32,7 @@ public class ProductBundleService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final StockService stockService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     @CacheEvict(value = "bundles", allEntries = true)
@@ -69,6 +71,7 @@ public class ProductBundleService {
         }
 
         bundle = bundleRepository.save(bundle);
+        scheduleChanged();
         log.info("Product bundle created successfully with ID: {}", bundle.getId());
 
         return mapEntityToResponse(bundle);
@@ -113,6 +116,7 @@ public class ProductBundleService {
         }
 
         bundle = bundleRepository.save(bundle);
+        scheduleChanged();
         log.info("Product bundle updated successfully");
 
         return mapEntityToResponse(bundle);
@@ -178,6 +182,7 @@ public class ProductBundleService {
         ProductBundle bundle = bundleRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("ProductBundle", "id", id));
         bundleRepository.delete(bundle);
+        scheduleChanged();
         log.info("Product bundle deleted successfully");
     }
 
@@ -189,6 +194,7 @@ public class ProductBundleService {
                 .orElseThrow(() -> new ResourceNotFoundException("ProductBundle", "id", id));
         bundle.setActive(true);
         bundleRepository.save(bundle);
+        scheduleChanged();
     }
 
     @Transactional
@@ -199,6 +205,7 @@ public class ProductBundleService {
                 .orElseThrow(() -> new ResourceNotFoundException("ProductBundle", "id", id));
         bundle.setActive(false);
         bundleRepository.save(bundle);
+        scheduleChanged();
     }
 
     @Transactional
@@ -338,4 +345,8 @@ public class ProductBundleService {
                 .substitutionGroup(item.getSubstitutionGroup())
                 .build();
     }
+
+    private void scheduleChanged() {
+        eventPublisher.publishEvent(new PriceBoundaryScheduler.ScheduleChangedEvent("bundles"));
+    }
 }
@@ -0,0 +1,178 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.response.ProductScanResponse;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.util.TransactionCallbacks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Barcode / SKU to product snapshot for the register scan, so a scan is resolved without a query.
+ * <p>
+ * The maps are never modified once published: the periodic rebuild and the product changes made
+ * on this node (applied once their transaction commits) replace them with updated copies. Readers
+ * only follow a volatile reference. A code missing from the index is looked up in the database
+ * once, which covers products created on another node since the last rebuild.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductScanIndex {
+
+    private final ProductRepository productRepository;
+    private final StockAvailabilityIndex stockAvailabilityIndex;
+    private final PriceEngine priceEngine;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private record Snapshot(Map<String, ProductScanResponse> byBarcode,
+                            Map<String, ProductScanResponse> bySku,
+                            Map<Long, ProductScanResponse> byId) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.products.scan-index.resync-interval-ms:300000}",
+            initialDelayString = "${app.products.scan-index.resync-interval-ms:300000}")
+    public void resync() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Product> products = productRepository.findAllActiveWithCategory();
+        int capacity = products.size() * 4 / 3 + 1;
+        Map<String, ProductScanResponse> byBarcode = new HashMap<>(capacity);
+        Map<String, ProductScanResponse> bySku = new HashMap<>(capacity);
+        Map<Long, ProductScanResponse> byId = new HashMap<>(capacity);
+        for (Product product : products) {
+            add(toSnapshot(product), byBarcode, bySku, byId);
+        }
+        snapshot = new Snapshot(byBarcode, bySku, byId);
+        log.debug("Product scan index rebuilt: {} products in {} ms",
+                byId.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Product for a scanned barcode, or SKU when typed in. Stock comes from the
+     * {@link StockAvailabilityIndex}, the current price from the {@link PriceEngine}.
+     */
+    public ProductScanResponse lookup(String code) {
+        Snapshot current = snapshot;
+        ProductScanResponse product = current.byBarcode().get(code);
+        if (product == null) {
+            product = current.bySku().get(code);
+        }
+        if (product == null) {
+            product = loadMissing(code);
+            if (product == null) {
+                return null;
+            }
+        }
+        int stock = stockAvailabilityIndex.isReady()
+                ? stockAvailabilityIndex.getAvailable(product.id())
+                : 0;
+        BigDecimal effectivePrice = priceEngine.resolve(new PriceEngine.PriceLine(product.id(),
+                product.categoryId(), product.priceXOF(), 1), LocalDateTime.now()).netUnitPrice(1);
+        return product.withLiveValues(effectivePrice, stock);
+    }
+
+    /**
+     * Record a created or updated product. Must be called while its category is still loadable;
+     * the index changes once the transaction commits.
+     */
+    public void productChanged(Product product) {
+        ProductScanResponse updated = Boolean.TRUE.equals(product.getActive())
+                && !Boolean.TRUE.equals(product.getDeleted())
+                ? toSnapshot(product)
+                : null;
+        Long id = product.getId();
+        TransactionCallbacks.afterCommit(() -> replace(id, updated));
+    }
+
+    public void productRemoved(Long id) {
+        TransactionCallbacks.afterCommit(() -> replace(id, null));
+    }
+
+    private ProductScanResponse loadMissing(String code) {
+        List<Product> found = productRepository.findActiveByBarcodeOrSku(code);
+        if (found.isEmpty()) {
+            return null;
+        }
+        // A barcode match wins over a SKU match, as in the index
+        Product product = found.stream()
+                .filter(p -> code.equals(p.getBarcode()))
+                .findFirst()
+                .orElse(found.get(0));
+        ProductScanResponse loaded = toSnapshot(product);
+        replace(loaded.id(), loaded);
+        return loaded;
+    }
+
+    // Copy-on-write: readers keep the maps they started with
+    private synchronized void replace(Long id, ProductScanResponse updated) {
+        Snapshot current = snapshot;
+        Map<String, ProductScanResponse> byBarcode = new HashMap<>(current.byBarcode());
+        Map<String, ProductScanResponse> bySku = new HashMap<>(current.bySku());
+        Map<Long, ProductScanResponse> byId = new HashMap<>(current.byId());
+
+        ProductScanResponse previous = byId.remove(id);
+        if (previous != null) {
+            if (previous.barcode() != null) {
+                byBarcode.remove(previous.barcode(), previous);
+            }
+            bySku.remove(previous.sku(), previous);
+        }
+        if (updated != null) {
+            add(updated, byBarcode, bySku, byId);
+        }
+        snapshot = new Snapshot(byBarcode, bySku, byId);
+    }
+
+    private static void add(ProductScanResponse product,
+                            Map<String, ProductScanResponse> byBarcode,
+                            Map<String, ProductScanResponse> bySku,
+                            Map<Long, ProductScanResponse> byId) {
+        byId.put(product.id(), product);
+        bySku.put(product.sku(), product);
+        if (product.barcode() != null && !product.barcode().isBlank()) {
+            byBarcode.put(product.barcode(), product);
+        }
+    }
+
+    private static ProductScanResponse toSnapshot(Product product) {
+        return new ProductScanResponse(
+                product.getId(),
+                product.getSku(),
+                product.getBarcode(),
+                product.getNameFr(),
+                product.getNameEn(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null,
+                product.getSellingPriceXOF(),
+                product.getSellingPriceEUR(),
+                product.getSellingPriceUSD(),
+                null,
+                product.getTaxRate(),
+                product.getImageUrl(),
+                product.getTrackStock(),
+                product.getUnit(),
+                null);
+    }
+}
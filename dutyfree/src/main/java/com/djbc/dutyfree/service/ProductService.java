@@ -3,6 +3,8 @@ package com.djbc.dutyfree.service;
 import com.djbc.dutyfree.domain.dto.request.ProductRequest;
 import com.djbc.dutyfree.domain.dto.response.ApiResponse;
 import com.djbc.dutyfree.domain.dto.response.ProductResponse;
+import com.djbc.dutyfree.domain.dto.response.ProductScanResponse;
+import com.djbc.dutyfree.domain.dto.response.ProductSearchResponse;
 import com.djbc.dutyfree.domain.entity.Category;
 import com.djbc.dutyfree.domain.entity.Product;
 import com.djbc.dutyfree.domain.entity.Supplier;
@@ -10,18 +12,24 @@ import com.djbc.dutyfree.exception.BadRequestException;
 import com.djbc.dutyfree.exception.ResourceNotFoundException;
 import com.djbc.dutyfree.repository.CategoryRepository;
 import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.ProductRepositoryCustom;
 import com.djbc.dutyfree.repository.StockRepository;
 import com.djbc.dutyfree.repository.SupplierRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,6 +41,12 @@ public class ProductService {
     private final CategoryRepository categoryRepository;
     private final SupplierRepository supplierRepository;
     private final StockRepository stockRepository;
+    private final StockAvailabilityIndex stockAvailabilityIndex;
+    private final ProductScanIndex productScanIndex;
+    private final StockAlertEngine stockAlertEngine;
+    private final PriceEngine priceEngine;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
 
     @Transactional
     @CacheEvict(value = "products", allEntries = true)
@@ -82,6 +96,8 @@ public class ProductService {
                 .build();
 
         product = productRepository.save(product);
+        productScanIndex.productChanged(product);
+        stockAlertEngine.productChanged(product);
         log.info("Product created: {}", product.getSku());
 
         return mapToResponse(product);
@@ -135,6 +151,8 @@ public class ProductService {
         product.setUnit(request.getUnit());
 
         product = productRepository.save(product);
+        productScanIndex.productChanged(product);
+        stockAlertEngine.productChanged(product);
         log.info("Product updated: {}", product.getSku());
 
         return mapToResponse(product);
@@ -162,6 +180,18 @@ public class ProductService {
         return mapToResponse(product);
     }
 
+    /**
+     * Register scan: resolved from the in-memory {@link ProductScanIndex}, deliberately outside
+     * a transaction so no connection is taken.
+     */
+    public ProductScanResponse scanProduct(String code) {
+        ProductScanResponse product = productScanIndex.lookup(code);
+        if (product == null) {
+            throw new ResourceNotFoundException("Product", "barcode", code);
+        }
+        return product;
+    }
+
     @Transactional(readOnly = true)
     @Cacheable(value = "products")
     public List<ProductResponse> getAllProducts() {
@@ -170,10 +200,57 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Ranked search, paged by keyset: {@code cursor} is the {@code nextCursor} of the previous page,
+     * or null for the first one.
+     */
     @Transactional(readOnly = true)
-    public Page<ProductResponse> searchProducts(String search, Pageable pageable) {
-        return productRepository.searchProducts(search, pageable)
-                .map(this::mapToResponse);
+    public ProductSearchResponse searchProducts(String search, String cursor, int size) {
+        if (search == null || search.isBlank()) {
+            throw new BadRequestException("Search query must not be empty");
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE);
+
+        double afterScore = ProductRepositoryCustom.FIRST_PAGE_SCORE;
+        long afterId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+                afterScore = Double.parseDouble(position[0]);
+                afterId = Long.parseLong(position[1]);
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid search cursor");
+            }
+        }
+
+        // One row more than the page tells whether another page follows
+        List<ProductRepositoryCustom.ProductSearchHit> hits =
+                productRepository.searchRanked(search, afterScore, afterId, limit + 1);
+        boolean hasMore = hits.size() > limit;
+        if (hasMore) {
+            hits = hits.subList(0, limit);
+        }
+
+        Map<Long, Product> products = productRepository.findAllWithCategoryAndSupplierByIdIn(
+                        hits.stream().map(ProductRepositoryCustom.ProductSearchHit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<ProductResponse> items = hits.stream()
+                .map(hit -> products.get(hit.id()))
+                .filter(Objects::nonNull)
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasMore) {
+            ProductRepositoryCustom.ProductSearchHit last = hits.get(hits.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.score() + ":" + last.id()).getBytes(StandardCharsets.UTF_8));
+        }
+        return ProductSearchResponse.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -213,11 +290,19 @@ public class ProductService {
         product.setDeleted(true);
         product.setActive(false);
         productRepository.save(product);
+        productScanIndex.productRemoved(id);
+        stockAlertEngine.productRemoved(id);
         log.info("Product deleted: {}", product.getSku());
     }
 
     private ProductResponse mapToResponse(Product product) {
-        Integer currentStock = stockRepository.getTotalAvailableQuantity(product.getId());
+        Integer currentStock = stockAvailabilityIndex.isReady()
+                ? stockAvailabilityIndex.getAvailable(product.getId())
+                : stockRepository.getTotalAvailableQuantity(product.getId());
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        BigDecimal effectivePrice = priceEngine.resolve(new PriceEngine.PriceLine(product.getId(),
+                        categoryId, product.getSellingPriceXOF(), 1), LocalDateTime.now())
+                .netUnitPrice(1);
 
         return ProductResponse.builder()
                 .id(product.getId())
@@ -235,6 +320,7 @@ public class ProductService {
                 .priceXOF(product.getSellingPriceXOF())
                 .priceEUR(product.getSellingPriceEUR())
                 .priceUSD(product.getSellingPriceUSD())
+                .effectivePriceXOF(effectivePrice)
                 .taxRate(product.getTaxRate())
                 .imageUrl(product.getImageUrl())
                 .active(product.getActive())
@@ -8,10 +8,15 @@ import com.djbc.dutyfree.exception.ResourceNotFoundException;
 import com.djbc.dutyfree.repository.CategoryRepository;
 import com.djbc.dutyfree.repository.ProductRepository;
 import com.djbc.dutyfree.repository.PromotionRepository;
+import com.djbc.dutyfree.util.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,7 +24,10 @@ import com.djbc.dutyfree.domain.enums.DiscountType;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
@@ -31,9 +39,11 @@ public class PromotionService {
     private final PromotionRepository promotionRepository;
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
 
     @Transactional
-    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    @CacheEvict(value = {CACHE_NAME, "products"}, allEntries = true)
     public Promotion createPromotion(Promotion promotion) {
         // Validate code uniqueness
         if (promotionRepository.existsByCode(promotion.getCode())) {
@@ -48,13 +58,14 @@ public class PromotionService {
         promotion.setActive(true);
         promotion.setUsageCount(0);
         promotion = promotionRepository.save(promotion);
+        rulesChanged();
 
         log.info("Promotion created: {}", promotion.getCode());
         return promotion;
     }
 
     @Transactional
-    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    @CacheEvict(value = {CACHE_NAME, "products"}, allEntries = true)
     public Promotion updatePromotion(Long id, Promotion promotionData) {
         Promotion promotion = promotionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "id", id));
@@ -81,13 +92,14 @@ public class PromotionService {
         promotion.setTerms(promotionData.getTerms());
 
         promotion = promotionRepository.save(promotion);
+        rulesChanged();
         log.info("Promotion updated: {}", promotion.getCode());
 
         return promotion;
     }
 
     @Transactional
-    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    @CacheEvict(value = {CACHE_NAME, "products"}, allEntries = true)
     public void addProductToPromotion(Long promotionId, Long productId) {
         Promotion promotion = promotionRepository.findByIdWithProducts(promotionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "id", promotionId));
@@ -98,12 +110,13 @@ public class PromotionService {
         if (!promotion.getApplicableProducts().contains(product)) {
             promotion.getApplicableProducts().add(product);
             promotionRepository.save(promotion);
+            rulesChanged();
             log.info("Added product {} to promotion {}", productId, promotionId);
         }
     }
 
     @Transactional
-    @CacheEvict(value = "promotions", allEntries = true)
+    @CacheEvict(value = {CACHE_NAME, "products"}, allEntries = true)
     public void removeProductFromPromotion(Long promotionId, Long productId) {
         Promotion promotion = promotionRepository.findByIdWithProducts(promotionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "id", promotionId));
@@ -113,11 +126,12 @@ public class PromotionService {
 
         promotion.getApplicableProducts().remove(product);
         promotionRepository.save(promotion);
+        rulesChanged();
         log.info("Removed product {} from promotion {}", productId, promotionId);
     }
 
     @Transactional
-    @CacheEvict(value = "promotions", allEntries = true)
+    @CacheEvict(value = {CACHE_NAME, "products"}, allEntries = true)
     public void addCategoryToPromotion(Long promotionId, Long categoryId) {
         Promotion promotion = promotionRepository.findById(promotionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "id", promotionId));
@@ -128,6 +142,7 @@ public class PromotionService {
         if (!promotion.getApplicableCategories().contains(category)) {
             promotion.getApplicableCategories().add(category);
             promotionRepository.save(promotion);
+            rulesChanged();
             log.info("Added category {} to promotion {}", categoryId, promotionId);
         }
     }
@@ -149,43 +164,91 @@ public class PromotionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "code", code));
     }
 
+    /**
+     * Count one use of a promotion with a conditional update, so concurrent checkouts never go past
+     * its usage limit. The use that reaches the limit deactivates the promotion.
+     *
+     * @return false if the limit was already reached or the promotion is inactive; nothing is counted
+     */
     @Transactional
-    @CacheEvict(value = CACHE_NAME, allEntries = true)
-    public void incrementUsageCount(Long promotionId) {
+    public boolean incrementUsageCount(Long promotionId) {
+        return consumeUsages(List.of(promotionId)).isEmpty();
+    }
+
+    /**
+     * Count one use of each promotion applied to a sale, in id order so concurrent sales lock
+     * the promotion rows in the same order.
+     *
+     * @return the promotions that could not be used any more
+     */
+    @Transactional
+    public Set<Long> consumeUsages(Collection<Long> promotionIds) {
+        Set<Long> rejected = new TreeSet<>();
+        for (Long promotionId : new TreeSet<>(promotionIds)) {
+            if (promotionRepository.incrementUsageCount(promotionId, 1) == 0) {
+                rejected.add(promotionId);
+            } else if (promotionRepository.deactivateAtUsageLimit(promotionId) == 1) {
+                usageLimitReached(promotionId);
+            }
+        }
+        return rejected;
+    }
+
+    // Only the cached entries that can show this promotion are evicted, once the deactivation is committed
+    private void usageLimitReached(Long promotionId) {
         Promotion promotion = promotionRepository.findById(promotionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "id", promotionId));
+        log.info("Promotion {} usage limit reached, deactivated", promotion.getCode());
+        rulesChanged();
+
+        boolean productsOnly = !Boolean.TRUE.equals(promotion.getApplyToAllProducts())
+                && promotionRepository.findApplicableCategoryIds(List.of(promotionId)).isEmpty();
+        List<Long> productIds = promotionRepository.findApplicableProductIds(List.of(promotionId)).stream()
+                .map(pair -> (Long) pair[1])
+                .toList();
+        TransactionCallbacks.afterCommit(() -> {
+            evict(CACHE_NAME, SimpleKey.EMPTY);
+            Cache products = cacheManager.getCache("products");
+            if (products == null) {
+                return;
+            }
+            if (productsOnly) {
+                products.evict(SimpleKey.EMPTY);
+                productIds.forEach(products::evict);
+            } else {
+                products.clear();
+            }
+        });
+    }
 
-        promotion.setUsageCount(promotion.getUsageCount() + 1);
-
-        // Check if usage limit reached
-        if (promotion.getUsageLimit() != null &&
-                promotion.getUsageCount() >= promotion.getUsageLimit()) {
-            promotion.setActive(false);
-            log.info("Promotion {} usage limit reached, deactivated", promotion.getCode());
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
         }
-
-        promotionRepository.save(promotion);
     }
 
     @Transactional
-    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    @CacheEvict(value = {CACHE_NAME, "products"}, allEntries = true)
     public void activatePromotion(Long id) {
         Promotion promotion = promotionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "id", id));
 
         promotion.setActive(true);
         promotionRepository.save(promotion);
+        rulesChanged();
         log.info("Promotion activated: {}", promotion.getCode());
     }
 
     @Transactional
-    @CacheEvict(value = CACHE_NAME, allEntries = true)
+    @CacheEvict(value = {CACHE_NAME, "products"}, allEntries = true)
     public void deactivatePromotion(Long id) {
         Promotion promotion = promotionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion", "id", id));
 
         promotion.setActive(false);
         promotionRepository.save(promotion);
+        rulesChanged();
         log.info("Promotion deactivated: {}", promotion.getCode());
     }
 
@@ -194,24 +257,36 @@ public class PromotionService {
             throw new BadRequestException("Discount value cannot be negative");
         }
 
-        if (DiscountType.PERCENTAGE.name().equals(promotion.getDiscountType())) {
-            if (promotion.getDiscountValue().compareTo(BigDecimal.valueOf(100)) > 0) {
-                throw new BadRequestException("Percentage discount cannot be greater than 100%");
-            }
+        if (DiscountType.PERCENTAGE.name().equals(promotion.getDiscountType()) &&
+                promotion.getDiscountValue().compareTo(BigDecimal.valueOf(100)) > 0) {
+            throw new BadRequestException("Percentage discount cannot be greater than 100%");
+        }
 
-            BigDecimal discount = amount.multiply(promotion.getDiscountValue())
+        return discount(promotion.getDiscountType(), promotion.getDiscountValue(),
+                promotion.getMaximumDiscountAmount(), amount);
+    }
+
+    /**
+     * Discount on an amount, for a promotion whose values are already validated
+     */
+    static BigDecimal discount(String discountType, BigDecimal discountValue, BigDecimal maximumDiscountAmount,
+                               BigDecimal amount) {
+        if (DiscountType.PERCENTAGE.name().equals(discountType)) {
+            BigDecimal discount = amount.multiply(discountValue)
                     .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
 
             // Apply maximum discount limit if set
-            if (promotion.getMaximumDiscountAmount() != null &&
-                    discount.compareTo(promotion.getMaximumDiscountAmount()) > 0) {
-                discount = promotion.getMaximumDiscountAmount();
+            if (maximumDiscountAmount != null && discount.compareTo(maximumDiscountAmount) > 0) {
+                discount = maximumDiscountAmount;
             }
 
             return discount;
         } else { // FIXED_AMOUNT
-            return amount.compareTo(promotion.getDiscountValue()) < 0 ? 
-                   amount : promotion.getDiscountValue();
+            return amount.compareTo(discountValue) < 0 ? amount : discountValue;
         }
     }
-}
\ No newline at end of file
+
+    private void rulesChanged() {
+        eventPublisher.publishEvent(new PriceEngine.PriceRulesChangedEvent("promotions"));
+    }
+}
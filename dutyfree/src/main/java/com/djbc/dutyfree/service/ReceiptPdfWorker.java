@@ -0,0 +1,77 @@
+package com.djbc.dutyfree.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Renders receipt PDFs off the checkout path, once the sale transaction has committed.
+ * Work runs on a dedicated bounded pool; receipts that could not be queued or whose rendering
+ * failed stay PENDING and are picked up again by the periodic sweep.
+ * <p>
+ * Every node sweeps, so a receipt is claimed (PENDING → RENDERING) with a conditional update
+ * before it is rendered: the node whose update matched renders it, the others skip it.
+ */
+@Component
+@Slf4j
+public class ReceiptPdfWorker {
+
+    private final ReceiptService receiptService;
+    private final ThreadPoolTaskExecutor executor;
+
+    @Value("${app.receipts.pdf.retry-delay-seconds:60}")
+    private long retryDelaySeconds;
+
+    @Value("${app.receipts.pdf.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    public ReceiptPdfWorker(ReceiptService receiptService,
+                            @Qualifier("receiptPdfExecutor") ThreadPoolTaskExecutor executor) {
+        this.receiptService = receiptService;
+        this.executor = executor;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReceiptCreated(ReceiptService.ReceiptCreatedEvent event) {
+        submit(event.receiptId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.receipts.pdf.sweep-interval-ms:60000}")
+    public void sweepPending() {
+        List<Long> pending = receiptService.findPendingPdfReceiptIds(
+                LocalDateTime.now().minusSeconds(retryDelaySeconds), sweepBatchSize);
+        if (!pending.isEmpty()) {
+            log.info("Re-queuing {} receipts with pending PDF", pending.size());
+            pending.forEach(this::submit);
+        }
+    }
+
+    private void submit(Long receiptId) {
+        try {
+            executor.execute(() -> render(receiptId));
+        } catch (TaskRejectedException e) {
+            log.warn("Receipt PDF queue full, receipt {} left pending for the next sweep", receiptId);
+        }
+    }
+
+    private void render(Long receiptId) {
+        try {
+            if (!receiptService.claimPdfRendering(receiptId)) {
+                log.debug("Receipt {} already rendered or being rendered by another node", receiptId);
+                return;
+            }
+            receiptService.renderPdf(receiptId);
+        } catch (Exception e) {
+            log.error("Unexpected error rendering PDF for receipt {}: {}", receiptId, e.getMessage(), e);
+        }
+    }
+}
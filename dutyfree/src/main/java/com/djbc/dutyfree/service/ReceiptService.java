@@ -10,9 +10,12 @@ import com.djbc.dutyfree.util.ReceiptGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -29,10 +32,28 @@ public class ReceiptService {
     private final SaleRepository saleRepository;
     private final SettingsRepository settingsRepository;
     private final ReceiptGenerator receiptGenerator;
+    private final DocumentNumberService documentNumberService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.receipts.storage-path:./receipts}")
     private String receiptsStoragePath;
 
+    @Value("${app.receipts.pdf.max-attempts:3}")
+    private int pdfMaxAttempts;
+
+    @Value("${app.receipts.pdf.rendering-timeout-seconds:300}")
+    private long renderingTimeoutSeconds;
+
+    /**
+     * Published once a receipt row exists; the PDF is rendered after the sale transaction commits.
+     */
+    public record ReceiptCreatedEvent(Long receiptId) {
+    }
+
+    /**
+     * Create the receipt inline with its number and thermal-printer text.
+     * PDF rendering is left to {@link ReceiptPdfWorker} so the sale does not wait on iText.
+     */
     @Transactional
     public Receipt generateReceipt(Long saleId) {
         log.info("Generating receipt for sale ID: {}", saleId);
@@ -41,51 +62,85 @@ public class ReceiptService {
                 .orElseThrow(() -> new RuntimeException("Sale not found with ID: " + saleId));
 
         // Create receipt number
-        String receiptNumber = generateReceiptNumber();
+        String receiptNumber = documentNumberService.nextReceiptNumber();
 
-        // Create receipt entity
+        // Create receipt entity with the text content (for thermal printer)
         Receipt receipt = Receipt.builder()
                 .receiptNumber(receiptNumber)
                 .sale(sale)
                 .printedDate(LocalDateTime.now())
+                .receiptContent(receiptGenerator.generateReceiptText(sale, receiptNumber))
+                .pdfStatus(Receipt.PdfStatus.PENDING)
+                .pdfAttempts(0)
                 .printed(false)
                 .emailed(false)
                 .build();
 
-        // Save receipt first to get ID
         receipt = receiptRepository.save(receipt);
+        sale.setReceipt(receipt);
+
+        eventPublisher.publishEvent(new ReceiptCreatedEvent(receipt.getId()));
+        log.info("Receipt created: {} (PDF pending)", receiptNumber);
+
+        return receipt;
+    }
+
+    /**
+     * Render the PDF of a receipt if it is not already on disk.
+     * Failures are recorded on the receipt: it stays PENDING until the attempts are exhausted, then FAILED.
+     */
+    @Transactional
+    public Receipt renderPdf(Long receiptId) {
+        Receipt receipt = getReceiptById(receiptId);
+
+        if (receipt.getPdfStatus() == Receipt.PdfStatus.GENERATED && receipt.getPdfPath() != null
+                && Files.exists(Paths.get(receipt.getPdfPath()))) {
+            return receipt;
+        }
 
         try {
             // Fetch company settings
             Map<String, String> companySettings = fetchCompanySettings();
 
-            // Generate text content for receipt (for thermal printer)
-            String receiptText = receiptGenerator.generateReceiptText(sale, receiptNumber);
-            receipt.setReceiptContent(receiptText);
-
-            // Generate PDF
             String pdfFileName = generatePdfFileName(receipt);
             String pdfPath = Paths.get(receiptsStoragePath, pdfFileName).toString();
 
             String generatedPath = receiptGenerator.generatePDF(receipt, companySettings, pdfPath);
             receipt.setPdfPath(generatedPath);
+            receipt.setPdfStatus(Receipt.PdfStatus.GENERATED);
 
-            log.info("Receipt generated successfully: {} with PDF at: {}", receiptNumber, generatedPath);
+            log.info("Receipt PDF generated: {} at {}", receipt.getReceiptNumber(), generatedPath);
 
         } catch (Exception e) {
-            log.error("Error generating PDF receipt for sale {}: {}", saleId, e.getMessage(), e);
-            // Continue without PDF - text receipt is still available
-            receipt.setReceiptContent(receiptGenerator.generateReceiptText(sale, receiptNumber));
+            int attempts = receipt.getPdfAttempts() + 1;
+            receipt.setPdfAttempts(attempts);
+            receipt.setPdfStatus(attempts >= pdfMaxAttempts ? Receipt.PdfStatus.FAILED : Receipt.PdfStatus.PENDING);
+            log.error("Error generating PDF receipt {} (attempt {}/{}): {}",
+                    receipt.getReceiptNumber(), attempts, pdfMaxAttempts, e.getMessage(), e);
         }
 
         return receiptRepository.save(receipt);
     }
 
-    private String generateReceiptNumber() {
+    /**
+     * IDs of receipts still waiting for their PDF and untouched since {@code before}, and of
+     * receipts left RENDERING by a node that stopped.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findPendingPdfReceiptIds(LocalDateTime before, int limit) {
+        return receiptRepository.findPendingPdfIds(before,
+                LocalDateTime.now().minusSeconds(renderingTimeoutSeconds), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Reserve the receipt for rendering, so that only one node renders it.
+     * A reservation older than the rendering timeout is taken over.
+     */
+    @Transactional
+    public boolean claimPdfRendering(Long receiptId) {
         LocalDateTime now = LocalDateTime.now();
-        String prefix = String.format("REC-%d%02d%02d-", now.getYear(), now.getMonthValue(), now.getDayOfMonth());
-        Long count = receiptRepository.count() + 1;
-        return prefix + String.format("%06d", count);
+        return receiptRepository.claimPdfRendering(receiptId, Receipt.PdfStatus.PENDING,
+                Receipt.PdfStatus.RENDERING, now, now.minusSeconds(renderingTimeoutSeconds)) == 1;
     }
 
     private String generatePdfFileName(Receipt receipt) {
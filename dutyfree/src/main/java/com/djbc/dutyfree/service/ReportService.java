@@ -2,15 +2,16 @@ package com.djbc.dutyfree.service;
 
 import com.djbc.dutyfree.domain.dto.response.ReportResponse;
 import com.djbc.dutyfree.domain.entity.Sale;
-import com.djbc.dutyfree.domain.entity.SaleItem;
 import com.djbc.dutyfree.domain.enums.PaymentMethod;
 import com.djbc.dutyfree.repository.CashRegisterRepository;
+import com.djbc.dutyfree.repository.DailySalesSummaryRepository;
 import com.djbc.dutyfree.repository.PassengerCountRepository;
 import com.djbc.dutyfree.repository.PaymentRepository;
 import com.djbc.dutyfree.repository.SaleItemRepository;
 import com.djbc.dutyfree.repository.SaleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,6 +33,7 @@ public class ReportService {
     private final PaymentRepository paymentRepository;
     private final PassengerCountRepository passengerCountRepository;
     private final CashRegisterRepository cashRegisterRepository;
+    private final DailySalesSummaryRepository dailySalesSummaryRepository;
 
     @Transactional(readOnly = true)
     public ReportResponse.SalesReport generateSalesReport(LocalDate startDate, LocalDate endDate) {
@@ -39,23 +41,13 @@ public class ReportService {
             LocalDateTime startDateTime = startDate.atStartOfDay();
             LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
 
-            // Get total revenue
-            BigDecimal totalRevenue = saleRepository.getTotalRevenueBetween(startDateTime, endDateTime);
-            if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
-
-            // Get total transactions
-            Long totalTransactions = saleRepository.countSalesBetween(startDateTime, endDateTime);
-            if (totalTransactions == null) totalTransactions = 0L;
+            // Get total revenue and transactions
+            DailySalesSummaryRepository.Totals totals = dailySalesSummaryRepository.getTotalsBetween(startDate, endDate);
+            BigDecimal totalRevenue = revenueOf(totals);
+            Long totalTransactions = transactionsOf(totals);
 
             // Calculate average ticket
-            BigDecimal averageTicket = BigDecimal.ZERO;
-            if (totalTransactions > 0) {
-                averageTicket = totalRevenue.divide(
-                        BigDecimal.valueOf(totalTransactions),
-                        2,
-                        RoundingMode.HALF_UP
-                );
-            }
+            BigDecimal averageTicket = averageOf(totalRevenue, totalTransactions);
 
             // Revenue by payment method
             Map<String, BigDecimal> revenueByPaymentMethod = new HashMap<>();
@@ -124,19 +116,16 @@ public class ReportService {
 
     @Transactional(readOnly = true)
     public Map<String, Object> generateDailySalesReport(LocalDate date) {
-        LocalDateTime startDateTime = date.atStartOfDay();
-        LocalDateTime endDateTime = date.atTime(LocalTime.MAX);
-
         Map<String, Object> report = new HashMap<>();
 
-        BigDecimal totalRevenue = saleRepository.getTotalRevenueBetween(startDateTime, endDateTime);
-        Long totalTransactions = saleRepository.countSalesBetween(startDateTime, endDateTime);
-        BigDecimal averageTicket = saleRepository.getAverageTicketBetween(startDateTime, endDateTime);
+        DailySalesSummaryRepository.Totals totals = dailySalesSummaryRepository.getTotalsBetween(date, date);
+        BigDecimal totalRevenue = revenueOf(totals);
+        Long totalTransactions = transactionsOf(totals);
 
         report.put("date", date);
-        report.put("totalRevenue", totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
+        report.put("totalRevenue", totalRevenue);
         report.put("totalTransactions", totalTransactions);
-        report.put("averageTicket", averageTicket != null ? averageTicket : BigDecimal.ZERO);
+        report.put("averageTicket", averageOf(totalRevenue, totalTransactions));
 
         return report;
     }
@@ -150,20 +139,12 @@ public class ReportService {
 
         Map<String, Object> report = new HashMap<>();
 
-        BigDecimal totalRevenue = sales.stream()
-                .map(Sale::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        Integer totalTransactions = sales.size();
-
-        BigDecimal averageTicket = BigDecimal.ZERO;
-        if (totalTransactions > 0) {
-            averageTicket = totalRevenue.divide(
-                    BigDecimal.valueOf(totalTransactions),
-                    2,
-                    RoundingMode.HALF_UP
-            );
-        }
+        // Totals cover completed sales, from the daily rollup
+        DailySalesSummaryRepository.Totals totals =
+                dailySalesSummaryRepository.getCashierTotalsBetween(cashierId, startDate, endDate);
+        BigDecimal totalRevenue = revenueOf(totals);
+        Integer totalTransactions = transactionsOf(totals).intValue();
+        BigDecimal averageTicket = averageOf(totalRevenue, totalTransactions);
 
         report.put("cashierId", cashierId);
         report.put("startDate", startDate);
@@ -185,11 +166,11 @@ public class ReportService {
 
         Map<String, Object> report = new HashMap<>();
 
-        BigDecimal totalRevenue = sales.stream()
-                .map(Sale::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        Integer totalTransactions = sales.size();
+        // Totals cover completed sales, from the daily rollup
+        DailySalesSummaryRepository.Totals totals =
+                dailySalesSummaryRepository.getCashRegisterTotalsBetween(cashRegisterId, startDate, endDate);
+        BigDecimal totalRevenue = revenueOf(totals);
+        Integer totalTransactions = transactionsOf(totals).intValue();
 
         report.put("cashRegisterId", cashRegisterId);
         report.put("startDate", startDate);
@@ -204,74 +185,34 @@ public class ReportService {
     @Transactional(readOnly = true)
     public Map<String, BigDecimal> getRevenueByCategory(LocalDateTime startDate, LocalDateTime endDate) {
         Map<String, BigDecimal> revenueByCategory = new HashMap<>();
-        
+
         try {
-            List<Sale> sales = saleRepository.findBySaleDateBetween(startDate, endDate, null).getContent();
-            
-            if (sales != null) {
-                for (Sale sale : sales) {
-                    if (sale != null && sale.getItems() != null) {
-                        for (SaleItem item : sale.getItems()) {
-                            if (item != null && item.getProduct() != null && 
-                                item.getProduct().getCategory() != null && 
-                                item.getProduct().getCategory().getName() != null &&
-                                item.getTotalPrice() != null) {
-                                String categoryName = item.getProduct().getCategory().getName();
-                                BigDecimal revenue = revenueByCategory.getOrDefault(categoryName, BigDecimal.ZERO);
-                                revenueByCategory.put(categoryName, revenue.add(item.getTotalPrice()));
-                            }
-                        }
-                    }
+            for (SaleItemRepository.CategoryRevenue row : saleItemRepository.getRevenueByCategoryBetween(startDate, endDate)) {
+                if (row.getRevenue() != null) {
+                    revenueByCategory.put(row.getCategoryName(), row.getRevenue());
                 }
             }
         } catch (Exception e) {
             log.warn("Error calculating revenue by category: {}", e.getMessage());
         }
-        
+
         return revenueByCategory;
     }
 
     @Transactional(readOnly = true)
     public List<ReportResponse.TopProduct> getTopProducts(LocalDateTime startDate, LocalDateTime endDate, int limit) {
-        Map<String, TopProductData> productDataMap = new HashMap<>();
-        
         try {
-            List<Sale> sales = saleRepository.findBySaleDateBetween(startDate, endDate, null).getContent();
-            
-            if (sales != null) {
-                for (Sale sale : sales) {
-                    if (sale != null && sale.getStatus() != null && 
-                        "COMPLETED".equals(sale.getStatus().name()) && 
-                        sale.getItems() != null) {
-                        for (SaleItem item : sale.getItems()) {
-                            if (item != null && item.getProduct() != null && 
-                                item.getProduct().getNameFr() != null &&
-                                item.getQuantity() != null &&
-                                item.getTotalPrice() != null) {
-                                String productName = item.getProduct().getNameFr();
-                                TopProductData data = productDataMap.getOrDefault(productName, new TopProductData());
-                                data.quantitySold += item.getQuantity();
-                                data.revenue = data.revenue.add(item.getTotalPrice());
-                                productDataMap.put(productName, data);
-                            }
-                        }
-                    }
-                }
-            }
+            return saleItemRepository.findTopProductsBetween(startDate, endDate, PageRequest.of(0, limit)).stream()
+                    .map(row -> ReportResponse.TopProduct.builder()
+                            .productName(row.getProductName())
+                            .quantitySold(row.getQuantitySold() != null ? row.getQuantitySold().intValue() : 0)
+                            .revenue(row.getRevenue() != null ? row.getRevenue() : BigDecimal.ZERO)
+                            .build())
+                    .collect(Collectors.toList());
         } catch (Exception e) {
             log.warn("Error calculating top products: {}", e.getMessage());
             return new ArrayList<>();
         }
-
-        return productDataMap.entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().revenue.compareTo(e1.getValue().revenue))
-                .limit(limit)
-                .map(entry -> ReportResponse.TopProduct.builder()
-                        .productName(entry.getKey())
-                        .quantitySold(entry.getValue().quantitySold)
-                        .revenue(entry.getValue().revenue)
-                        .build())
-                .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
@@ -279,28 +220,21 @@ public class ReportService {
         List<ReportResponse.DailySales> dailySalesList = new ArrayList<>();
 
         try {
+            Map<LocalDate, DailySalesSummaryRepository.DayTotals> totalsByDay = new HashMap<>();
+            for (DailySalesSummaryRepository.DayTotals day :
+                    dailySalesSummaryRepository.getTotalsByDayBetween(startDate, endDate)) {
+                totalsByDay.put(day.getSaleDay(), day);
+            }
+
+            // One entry per day of the range, days without sales included
             LocalDate currentDate = startDate;
             while (!currentDate.isAfter(endDate)) {
-                LocalDateTime startDateTime = currentDate.atStartOfDay();
-                LocalDateTime endDateTime = currentDate.atTime(LocalTime.MAX);
-
-                BigDecimal revenue = BigDecimal.ZERO;
-                Integer transactions = 0;
-                
-                try {
-                    BigDecimal revenueResult = saleRepository.getTotalRevenueBetween(startDateTime, endDateTime);
-                    revenue = revenueResult != null ? revenueResult : BigDecimal.ZERO;
-                    
-                    Long transactionsResult = saleRepository.countSalesBetween(startDateTime, endDateTime);
-                    transactions = transactionsResult != null ? transactionsResult.intValue() : 0;
-                } catch (Exception e) {
-                    log.warn("Error getting daily sales for date {}: {}", currentDate, e.getMessage());
-                }
+                DailySalesSummaryRepository.DayTotals totals = totalsByDay.get(currentDate);
 
                 dailySalesList.add(ReportResponse.DailySales.builder()
                         .date(currentDate)
-                        .revenue(revenue)
-                        .transactions(transactions)
+                        .revenue(revenueOf(totals))
+                        .transactions(transactionsOf(totals).intValue())
                         .build());
 
                 currentDate = currentDate.plusDays(1);
@@ -323,10 +257,8 @@ public class ReportService {
 
         try {
             // Get total sales (tickets)
-            LocalDateTime startDateTime = startDate.atStartOfDay();
-            LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
-            Long totalSales = saleRepository.countSalesBetween(startDateTime, endDateTime);
-            if (totalSales == null) totalSales = 0L;
+            DailySalesSummaryRepository.Totals totals = dailySalesSummaryRepository.getTotalsBetween(startDate, endDate);
+            Long totalSales = transactionsOf(totals);
 
             // Get total passengers
             Integer totalPassengers = passengerCountRepository.getTotalPassengersBetween(startDate, endDate);
@@ -341,8 +273,7 @@ public class ReportService {
             }
 
             // Get revenue per passenger
-            BigDecimal totalRevenue = saleRepository.getTotalRevenueBetween(startDateTime, endDateTime);
-            if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
+            BigDecimal totalRevenue = revenueOf(totals);
 
             BigDecimal revenuePerPassenger = BigDecimal.ZERO;
             if (totalPassengers > 0) {
@@ -380,8 +311,11 @@ public class ReportService {
         List<Map<String, Object>> posList = new ArrayList<>();
 
         try {
-            LocalDateTime startDateTime = startDate.atStartOfDay();
-            LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
+            Map<Long, DailySalesSummaryRepository.CashRegisterTotals> totalsByRegister = new HashMap<>();
+            for (DailySalesSummaryRepository.CashRegisterTotals totals :
+                    dailySalesSummaryRepository.getTotalsByCashRegisterBetween(startDate, endDate)) {
+                totalsByRegister.put(totals.getCashRegisterId(), totals);
+            }
 
             // Get all cash registers
             var cashRegisters = cashRegisterRepository.findAll();
@@ -389,27 +323,10 @@ public class ReportService {
             for (var cashRegister : cashRegisters) {
                 Map<String, Object> posData = new HashMap<>();
 
-                // Get sales for this POS
-                List<Sale> sales = saleRepository.findByCashRegisterAndDateBetween(
-                        cashRegister.getId(),
-                        startDateTime,
-                        endDateTime
-                );
-
-                BigDecimal totalRevenue = sales.stream()
-                        .map(Sale::getTotalAmount)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                Integer totalTransactions = sales.size();
-
-                BigDecimal averageTicket = BigDecimal.ZERO;
-                if (totalTransactions > 0) {
-                    averageTicket = totalRevenue.divide(
-                            BigDecimal.valueOf(totalTransactions),
-                            2,
-                            RoundingMode.HALF_UP
-                    );
-                }
+                DailySalesSummaryRepository.Totals totals = totalsByRegister.get(cashRegister.getId());
+                BigDecimal totalRevenue = revenueOf(totals);
+                Integer totalTransactions = transactionsOf(totals).intValue();
+                BigDecimal averageTicket = averageOf(totalRevenue, totalTransactions);
 
                 posData.put("cashRegisterId", cashRegister.getId());
                 posData.put("registerNumber", cashRegister.getRegisterNumber());
@@ -450,33 +367,17 @@ public class ReportService {
             LocalDateTime startDateTime = startDate.atStartOfDay();
             LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
 
-            BigDecimal totalRevenue = saleRepository.getTotalRevenueBetween(startDateTime, endDateTime);
-            if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
-
-            Long totalTransactions = saleRepository.countSalesBetween(startDateTime, endDateTime);
-            if (totalTransactions == null) totalTransactions = 0L;
-
-            BigDecimal averageTicket = BigDecimal.ZERO;
-            if (totalTransactions > 0) {
-                averageTicket = totalRevenue.divide(
-                        BigDecimal.valueOf(totalTransactions),
-                        2,
-                        RoundingMode.HALF_UP
-                );
-            }
+            DailySalesSummaryRepository.Totals totals = dailySalesSummaryRepository.getTotalsBetween(startDate, endDate);
+            BigDecimal totalRevenue = revenueOf(totals);
+            Long totalTransactions = transactionsOf(totals);
+            BigDecimal averageTicket = averageOf(totalRevenue, totalTransactions);
 
             // Get min and max tickets
-            List<Sale> sales = saleRepository.findBySaleDateBetween(startDateTime, endDateTime, null).getContent();
-
-            BigDecimal minTicket = sales.stream()
-                    .map(Sale::getTotalAmount)
-                    .min(BigDecimal::compareTo)
-                    .orElse(BigDecimal.ZERO);
-
-            BigDecimal maxTicket = sales.stream()
-                    .map(Sale::getTotalAmount)
-                    .max(BigDecimal::compareTo)
-                    .orElse(BigDecimal.ZERO);
+            SaleRepository.TicketRange ticketRange = saleRepository.getTicketRangeBetween(startDateTime, endDateTime);
+            BigDecimal minTicket = ticketRange != null && ticketRange.getMinTicket() != null
+                    ? ticketRange.getMinTicket() : BigDecimal.ZERO;
+            BigDecimal maxTicket = ticketRange != null && ticketRange.getMaxTicket() != null
+                    ? ticketRange.getMaxTicket() : BigDecimal.ZERO;
 
             report.put("startDate", startDate);
             report.put("endDate", endDate);
@@ -494,9 +395,18 @@ public class ReportService {
         return report;
     }
 
-    // Helper class
-    private static class TopProductData {
-        Integer quantitySold = 0;
-        BigDecimal revenue = BigDecimal.ZERO;
+    private static BigDecimal revenueOf(DailySalesSummaryRepository.Totals totals) {
+        return totals != null && totals.getRevenue() != null ? totals.getRevenue() : BigDecimal.ZERO;
+    }
+
+    private static Long transactionsOf(DailySalesSummaryRepository.Totals totals) {
+        return totals != null && totals.getTransactions() != null ? totals.getTransactions() : 0L;
+    }
+
+    private static BigDecimal averageOf(BigDecimal revenue, long transactions) {
+        if (transactions == 0) {
+            return BigDecimal.ZERO;
+        }
+        return revenue.divide(BigDecimal.valueOf(transactions), 2, RoundingMode.HALF_UP);
     }
-}
\ No newline at end of file
+}
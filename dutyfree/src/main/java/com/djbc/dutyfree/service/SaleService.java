@@ -1,14 +1,18 @@
 package com.djbc.dutyfree.service;
 
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
 import com.djbc.dutyfree.domain.dto.request.SaleRequest;
 import com.djbc.dutyfree.domain.dto.response.SaleResponse;
 import com.djbc.dutyfree.domain.entity.*;
 import com.djbc.dutyfree.domain.enums.SaleStatus;
 import com.djbc.dutyfree.exception.BadRequestException;
+import com.djbc.dutyfree.exception.InsufficientStockException;
 import com.djbc.dutyfree.exception.ResourceNotFoundException;
 import com.djbc.dutyfree.repository.*;
+import com.djbc.dutyfree.websocket.SaleWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -18,7 +22,12 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,14 +36,26 @@ import java.util.stream.Collectors;
 public class SaleService {
 
     private final SaleRepository saleRepository;
+    private final SaleItemRepository saleItemRepository;
     private final ProductRepository productRepository;
     private final CustomerRepository customerRepository;
     private final CashRegisterRepository cashRegisterRepository;
     private final UserRepository userRepository;
-    private final StockService stockService;
+    private final StockReservationService stockReservationService;
     private final PaymentService paymentService;
     private final ReceiptService receiptService;
     private final AuthService authService;
+    private final DocumentNumberService documentNumberService;
+    private final DailySalesRollupService dailySalesRollupService;
+    private final PriceEngine priceEngine;
+    private final PromotionRepository promotionRepository;
+    private final PromotionService promotionService;
+    private final SaleWebSocketHandler saleWebSocketHandler;
+    private final LiveSalesDashboard liveSalesDashboard;
+
+    // Rounding difference allowed between the unit price captured offline and the resolved one
+    @Value("${app.sync.price-tolerance:1}")
+    private BigDecimal offlinePriceTolerance;
 
     @Transactional
     public SaleResponse createSale(SaleRequest request) {
@@ -49,6 +70,39 @@ public class SaleService {
         // Get current user (cashier)
         User cashier = authService.getCurrentUser();
 
+        return checkout(request, cashRegister, cashier, LocalDateTime.now(), null);
+    }
+
+    /**
+     * Record a sale made while the register was offline, through the same checkout as a live sale.
+     * The sale keeps its original date and cashier, bound when the register sent it; the register
+     * may have been closed since but must still be in service, and be the cashier's own if they
+     * have one assigned.
+     */
+    @Transactional
+    public SaleResponse recordOfflineSale(OfflineSaleRequest request) {
+        SaleRequest sale = request.getSale();
+        CashRegister cashRegister = cashRegisterRepository.findById(sale.getCashRegisterId())
+                .orElseThrow(() -> new ResourceNotFoundException("CashRegister", "id", sale.getCashRegisterId()));
+        if (!Boolean.TRUE.equals(cashRegister.getActive())) {
+            throw new BadRequestException("Cash register is not active");
+        }
+
+        if (request.getCashierId() == null || request.getSaleDate() == null) {
+            throw new BadRequestException("Offline sale has no cashier or sale date");
+        }
+        User cashier = userRepository.findById(request.getCashierId())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", request.getCashierId()));
+        if (cashier.getAssignedCashRegister() != null
+                && !cashier.getAssignedCashRegister().getId().equals(cashRegister.getId())) {
+            throw new BadRequestException("Cashier " + cashier.getUsername() + " is not assigned to this cash register");
+        }
+
+        return checkout(sale, cashRegister, cashier, request.getSaleDate(), request.getClientReference());
+    }
+
+    private SaleResponse checkout(SaleRequest request, CashRegister cashRegister, User cashier,
+                                  LocalDateTime saleDate, String clientReference) {
         // Get customer if provided
         Customer customer = null;
         if (request.getCustomerId() != null) {
@@ -58,8 +112,9 @@ public class SaleService {
 
         // Create sale
         Sale sale = Sale.builder()
-                .saleNumber(generateSaleNumber())
-                .saleDate(LocalDateTime.now())
+                .saleNumber(documentNumberService.nextSaleNumber())
+                .saleDate(saleDate)
+                .clientReference(clientReference)
                 .cashier(cashier)
                 .customer(customer)
                 .cashRegister(cashRegister)
@@ -77,26 +132,60 @@ public class SaleService {
                 .payments(new ArrayList<>())
                 .build();
 
-        // Process sale items
-        BigDecimal subtotal = BigDecimal.ZERO;
-        BigDecimal totalTax = BigDecimal.ZERO;
+        // Resolve the whole basket up front with one query for all products
+        Map<Long, Integer> requestedQuantities = new LinkedHashMap<>();
+        for (SaleRequest.SaleItemRequest itemRequest : request.getItems()) {
+            requestedQuantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(requestedQuantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Long productId : requestedQuantities.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
+        }
+
+        Map<Long, Integer> trackedQuantities = new LinkedHashMap<>();
+        requestedQuantities.forEach((productId, quantity) -> {
+            if (products.get(productId).getTrackStock()) {
+                trackedQuantities.put(productId, quantity);
+            }
+        });
+
+        // Reserve stock for the whole basket with conditional updates on the lots
+        try {
+            stockReservationService.reserve(trackedQuantities);
+        } catch (InsufficientStockException e) {
+            throw new BadRequestException("Insufficient stock for product: " + products.get(e.getProductId()).getNameFr());
+        }
 
+        // Effective prices of the whole basket: scheduled prices and promotions at the sale date
+        List<PriceEngine.PriceLine> priceLines = new ArrayList<>(request.getItems().size());
         for (SaleRequest.SaleItemRequest itemRequest : request.getItems()) {
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", itemRequest.getProductId()));
-
-            // Check stock availability
-            if (product.getTrackStock()) {
-                Integer available = stockService.getAvailableStock(product.getId());
-                if (available < itemRequest.getQuantity()) {
-                    throw new BadRequestException("Insufficient stock for product: " + product.getNameFr());
-                }
-                // Reserve stock
-                stockService.reserveStock(product.getId(), itemRequest.getQuantity());
+            Product product = products.get(itemRequest.getProductId());
+            Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+            priceLines.add(new PriceEngine.PriceLine(product.getId(), categoryId,
+                    product.getSellingPriceXOF(), itemRequest.getQuantity()));
+        }
+        List<PriceEngine.ResolvedPrice> prices = priceEngine.resolve(priceLines, saleDate);
+
+        // Compute sale items and totals
+        BigDecimal subtotal = BigDecimal.ZERO;
+        BigDecimal totalTax = BigDecimal.ZERO;
+        List<SaleItem> saleItems = new ArrayList<>();
+
+        for (int i = 0; i < request.getItems().size(); i++) {
+            SaleRequest.SaleItemRequest itemRequest = request.getItems().get(i);
+            Product product = products.get(itemRequest.getProductId());
+            PriceEngine.ResolvedPrice price = prices.get(i);
+            if (clientReference != null && itemRequest.getUnitPrice() != null) {
+                price = capturedPrice(price, itemRequest, product);
             }
 
-            BigDecimal unitPrice = product.getSellingPriceXOF();
+            BigDecimal unitPrice = price.unitPrice();
             BigDecimal itemDiscount = itemRequest.getDiscount() != null ? itemRequest.getDiscount() : BigDecimal.ZERO;
+            itemDiscount = itemDiscount.add(price.promotionDiscount());
             BigDecimal taxRate = product.getTaxRate();
 
             BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
@@ -114,9 +203,12 @@ public class SaleService {
                     .taxRate(taxRate)
                     .taxAmount(taxAmount)
                     .totalPrice(totalPrice)
+                    .appliedPromotion(price.promotionId() != null
+                            ? promotionRepository.getReferenceById(price.promotionId())
+                            : null)
                     .build();
 
-            sale.getItems().add(saleItem);
+            saleItems.add(saleItem);
             subtotal = subtotal.add(lineTotal);
             totalTax = totalTax.add(taxAmount);
         }
@@ -128,26 +220,29 @@ public class SaleService {
         sale.setTaxAmount(totalTax);
         sale.setTotalAmount(subtotal.add(totalTax));
 
-        // Save sale
+        // Save sale, then its items as a single JDBC batch
         sale = saleRepository.save(sale);
+        saleItemRepository.batchInsert(saleItems);
+        sale.getItems().addAll(saleItemRepository.findBySaleIdOrderById(sale.getId()));
 
         // Process payments if provided
         if (request.getPayments() != null && !request.getPayments().isEmpty()) {
+            BigDecimal totalPaid = BigDecimal.ZERO;
+            List<Payment> payments = new ArrayList<>();
             for (var paymentRequest : request.getPayments()) {
-                paymentService.processPayment(sale.getId(), paymentRequest);
+                Payment payment = paymentService.processPayment(sale.getId(), paymentRequest);
+                totalPaid = totalPaid.add(payment.getAmountInXOF());
+                payments.add(payment);
             }
 
             // Complete sale if fully paid
-            BigDecimal totalPaid = paymentService.getTotalPaidAmount(sale.getId());
             if (totalPaid.compareTo(sale.getTotalAmount()) >= 0) {
+                consumePromotionUsages(saleItems);
                 sale.setStatus(SaleStatus.COMPLETED);
+                dailySalesRollupService.recordCompleted(sale, payments);
 
                 // Reduce stock for completed sale
-                for (SaleItem item : sale.getItems()) {
-                    if (item.getProduct().getTrackStock()) {
-                        stockService.reduceStock(item.getProduct().getId(), item.getQuantity());
-                    }
-                }
+                stockReservationService.reduce(trackedQuantities);
 
                 // Generate receipt
                 receiptService.generateReceipt(sale.getId());
@@ -157,10 +252,54 @@ public class SaleService {
         }
 
         log.info("Sale created: {}", sale.getSaleNumber());
+        publishSaleEvent(sale);
 
         return mapToResponse(sale);
     }
 
+    /**
+     * Count one use of each promotion applied to a sale, as it completes. A promotion that reached
+     * its usage limit since the sale was priced fails the completion: the basket must be priced
+     * again, and the price table is rebuilt so it no longer offers that promotion.
+     */
+    private void consumePromotionUsages(List<SaleItem> items) {
+        Set<Long> promotionIds = new HashSet<>();
+        for (SaleItem item : items) {
+            if (item.getAppliedPromotion() != null) {
+                promotionIds.add(item.getAppliedPromotion().getId());
+            }
+        }
+        if (promotionIds.isEmpty()) {
+            return;
+        }
+        Set<Long> rejected = promotionService.consumeUsages(promotionIds);
+        if (!rejected.isEmpty()) {
+            priceEngine.rebuild();
+            throw new BadRequestException("Promotion usage limit reached since the sale was priced: " + rejected);
+        }
+    }
+
+    /**
+     * Price an offline line at the net unit price the register showed, once checked against the
+     * rules in force at the sale date.
+     */
+    private PriceEngine.ResolvedPrice capturedPrice(PriceEngine.ResolvedPrice resolved,
+                                                    SaleRequest.SaleItemRequest itemRequest, Product product) {
+        BigDecimal captured = itemRequest.getUnitPrice();
+        BigDecimal expected = resolved.netUnitPrice(itemRequest.getQuantity());
+        if (captured.subtract(expected).abs().compareTo(offlinePriceTolerance) > 0) {
+            throw new BadRequestException("Offline price " + captured + " of " + product.getNameFr()
+                    + " does not match the price in force at the sale date: " + expected);
+        }
+        BigDecimal quantity = BigDecimal.valueOf(itemRequest.getQuantity());
+        BigDecimal discount = resolved.unitPrice().subtract(captured).multiply(quantity);
+        if (discount.signum() < 0) {
+            return new PriceEngine.ResolvedPrice(captured, BigDecimal.ZERO, null, resolved.scheduledPriceId());
+        }
+        return new PriceEngine.ResolvedPrice(resolved.unitPrice(), discount,
+                resolved.promotionId(), resolved.scheduledPriceId());
+    }
+
     @Transactional
     public SaleResponse completeSale(Long saleId) {
         Sale sale = saleRepository.findByIdWithDetails(saleId)
@@ -170,19 +309,20 @@ public class SaleService {
             throw new BadRequestException("Sale is already completed");
         }
 
-        BigDecimal totalPaid = paymentService.getTotalPaidAmount(saleId);
+        List<Payment> payments = paymentService.getPaymentsBySale(saleId);
+        BigDecimal totalPaid = payments.stream()
+                .map(Payment::getAmountInXOF)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
         if (totalPaid.compareTo(sale.getTotalAmount()) < 0) {
             throw new BadRequestException("Sale is not fully paid");
         }
 
+        consumePromotionUsages(sale.getItems());
         sale.setStatus(SaleStatus.COMPLETED);
+        dailySalesRollupService.recordCompleted(sale, payments);
 
         // Reduce stock
-        for (SaleItem item : sale.getItems()) {
-            if (item.getProduct().getTrackStock()) {
-                stockService.reduceStock(item.getProduct().getId(), item.getQuantity());
-            }
-        }
+        stockReservationService.reduce(trackedQuantities(sale.getItems()));
 
         // Generate receipt if not already generated
         if (sale.getReceipt() == null) {
@@ -191,6 +331,7 @@ public class SaleService {
 
         sale = saleRepository.save(sale);
         log.info("Sale completed: {}", sale.getSaleNumber());
+        publishSaleEvent(sale);
 
         return mapToResponse(sale);
     }
@@ -204,18 +345,35 @@ public class SaleService {
             throw new BadRequestException("Cannot cancel completed sale");
         }
 
-        // Release reserved stock
-        for (SaleItem item : sale.getItems()) {
-            if (item.getProduct().getTrackStock()) {
-                stockService.releaseReservedStock(item.getProduct().getId(), item.getQuantity());
-            }
-        }
+        // Release reserved stock; promotion uses are only counted once a sale completes
+        stockReservationService.release(trackedQuantities(sale.getItems()));
 
+        // Completed sales cannot be cancelled, so the daily sales rollup never holds this one
         sale.setStatus(SaleStatus.CANCELLED);
         sale.setNotes(sale.getNotes() != null ? sale.getNotes() + "\nCancellation reason: " + reason : "Cancellation reason: " + reason);
         saleRepository.save(sale);
+        liveSalesDashboard.recordCancelled(sale);
 
         log.info("Sale cancelled: {}", sale.getSaleNumber());
+        publishSaleEvent(sale);
+    }
+
+    // Reaches the register's sessions on every node once the transaction commits
+    private void publishSaleEvent(Sale sale) {
+        if (sale.getCashRegister() == null) {
+            return;
+        }
+        Long cashRegisterId = sale.getCashRegister().getId();
+        Map<String, Object> data = Map.of(
+                "saleId", sale.getId(),
+                "saleNumber", sale.getSaleNumber(),
+                "status", sale.getStatus().name(),
+                "totalAmount", sale.getTotalAmount());
+        switch (sale.getStatus()) {
+            case COMPLETED -> saleWebSocketHandler.notifyCompletedSale(cashRegisterId, data);
+            case CANCELLED -> saleWebSocketHandler.notifyCancelledSale(cashRegisterId, data);
+            default -> saleWebSocketHandler.notifyNewSale(cashRegisterId, data);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -252,11 +410,14 @@ public class SaleService {
                 .collect(Collectors.toList());
     }
 
-    private String generateSaleNumber() {
-        LocalDateTime now = LocalDateTime.now();
-        String prefix = String.format("SAL-%d%02d%02d-", now.getYear(), now.getMonthValue(), now.getDayOfMonth());
-        Long count = saleRepository.count() + 1;
-        return prefix + String.format("%06d", count);
+    private Map<Long, Integer> trackedQuantities(List<SaleItem> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (SaleItem item : items) {
+            if (item.getProduct().getTrackStock()) {
+                quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        return quantities;
     }
 
     private SaleResponse mapToResponse(Sale sale) {
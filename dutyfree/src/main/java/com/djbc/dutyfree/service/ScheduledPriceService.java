@@ -11,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -29,6 +30,7 @@ public class ScheduledPriceService {
 
     private final ScheduledPriceRepository scheduledPriceRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Create a new scheduled price
@@ -46,6 +48,7 @@ public class ScheduledPriceService {
         scheduledPrice.setUpdatedBy(getCurrentUsername());
 
         ScheduledPrice saved = scheduledPriceRepository.save(scheduledPrice);
+        rulesChanged();
 
         log.info("Scheduled price created: {} for product {}", saved.getId(), saved.getProduct().getName());
         return mapToResponse(saved);
@@ -72,6 +75,7 @@ public class ScheduledPriceService {
         scheduledPrice.setUpdatedBy(getCurrentUsername());
 
         ScheduledPrice updated = scheduledPriceRepository.save(scheduledPrice);
+        rulesChanged();
 
         log.info("Scheduled price updated: {}", id);
         return mapToResponse(updated);
@@ -228,6 +232,7 @@ public class ScheduledPriceService {
         scheduledPrice.setUpdatedBy(getCurrentUsername());
 
         ScheduledPrice updated = scheduledPriceRepository.save(scheduledPrice);
+        rulesChanged();
 
         log.info("Scheduled price activated: {}", id);
         return mapToResponse(updated);
@@ -247,6 +252,7 @@ public class ScheduledPriceService {
         scheduledPrice.setUpdatedBy(getCurrentUsername());
 
         ScheduledPrice updated = scheduledPriceRepository.save(scheduledPrice);
+        rulesChanged();
 
         log.info("Scheduled price deactivated: {}", id);
         return mapToResponse(updated);
@@ -265,6 +271,7 @@ public class ScheduledPriceService {
         scheduledPrice.setDeleted(true);
         scheduledPrice.setActive(false);
         scheduledPriceRepository.save(scheduledPrice);
+        rulesChanged();
 
         log.info("Scheduled price deleted: {}", id);
     }
@@ -360,4 +367,8 @@ public class ScheduledPriceService {
         }
         return "system";
     }
+
+    private void rulesChanged() {
+        eventPublisher.publishEvent(new PriceEngine.PriceRulesChangedEvent("scheduledPrices"));
+    }
 }
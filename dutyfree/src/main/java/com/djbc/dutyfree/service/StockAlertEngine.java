@@ -0,0 +1,344 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.Sommier;
+import com.djbc.dutyfree.domain.entity.Stock;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.SommierRepository;
+import com.djbc.dutyfree.repository.StockRepository;
+import com.djbc.dutyfree.util.LongIntHashMap;
+import com.djbc.dutyfree.util.TransactionCallbacks;
+import com.djbc.dutyfree.websocket.NotificationWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Current stock alerts, kept in memory and updated as stock changes instead of scanning on every
+ * request: low stock and reorder levels per product, lots expiring within the expiry window, and
+ * sommiers past their alert date.
+ * <p>
+ * Stock levels come from the {@link StockAvailabilityIndex}, which reports every level it applies;
+ * lots added or adjusted by {@link StockService} are checked once their transaction commits. Dates
+ * only move at midnight, so expiry and sommier alerts are re-evaluated by a daily job.
+ * <p>
+ * Only a transition into an alert, or to a more severe one, is notified, and the same alert is not
+ * notified again within the renotify interval. Notifications are sent by a periodic dispatch, at
+ * most a fixed number per run with the remainder summarized. The alerts found at startup and by the
+ * periodic resync are recorded without notification: they were notified by the node that made the
+ * change, or are already listed by {@link #getActiveAlerts()}.
+ */
+@Service
+@Slf4j
+public class StockAlertEngine {
+
+    public enum AlertType {
+        REORDER("Reorder Alert", "INFO"),
+        LOW_STOCK("Low Stock Alert", "WARNING"),
+        OUT_OF_STOCK("Out of Stock Alert", "ERROR"),
+        EXPIRING_STOCK("Expiring Stock Alert", "WARNING"),
+        EXPIRED_STOCK("Expired Stock Alert", "ERROR"),
+        SOMMIER_ALERT("Sommier Clearing Alert", "ERROR");
+
+        private final String title;
+        private final String severity;
+
+        AlertType(String title, String severity) {
+            this.title = title;
+            this.severity = severity;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getSeverity() {
+            return severity;
+        }
+    }
+
+    /**
+     * @param key one alert at a time per key: a product, a stock lot or a sommier
+     */
+    public record StockAlert(String key, AlertType type, String message, LocalDateTime raisedAt) {
+    }
+
+    private record Thresholds(String name, int minStockLevel, int reorderLevel) {
+    }
+
+    private final ProductRepository productRepository;
+    private final StockRepository stockRepository;
+    private final SommierRepository sommierRepository;
+    private final NotificationWebSocketHandler notificationHandler;
+    private final TransactionTemplate transactionTemplate;
+    private final int expiryDays;
+    private final long renotifyIntervalMs;
+    private final int maxPerDispatch;
+
+    // Guarded by this
+    private final Map<Long, Thresholds> thresholds = new HashMap<>();
+    private LongIntHashMap levels = new LongIntHashMap();
+    private final Map<String, StockAlert> alerts = new LinkedHashMap<>();
+    private final Map<String, Long> lastNotified = new HashMap<>();
+    private final Map<String, StockAlert> pending = new LinkedHashMap<>();
+
+    public StockAlertEngine(ProductRepository productRepository, StockRepository stockRepository,
+                            SommierRepository sommierRepository, NotificationWebSocketHandler notificationHandler,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${app.stock.alerts.expiry-days:30}") int expiryDays,
+                            @Value("${app.stock.alerts.renotify-interval-ms:3600000}") long renotifyIntervalMs,
+                            @Value("${app.stock.alerts.max-per-dispatch:20}") int maxPerDispatch) {
+        this.productRepository = productRepository;
+        this.stockRepository = stockRepository;
+        this.sommierRepository = sommierRepository;
+        this.notificationHandler = notificationHandler;
+        this.transactionTemplate = transactionTemplate;
+        this.expiryDays = expiryDays;
+        this.renotifyIntervalMs = renotifyIntervalMs;
+        this.maxPerDispatch = maxPerDispatch;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reloadStockLevels();
+        evaluateDates(false);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.alerts.resync-interval-ms:300000}",
+            initialDelayString = "${app.stock.alerts.resync-interval-ms:300000}")
+    public void resync() {
+        reloadStockLevels();
+    }
+
+    @Scheduled(cron = "${app.stock.alerts.daily-cron:0 5 0 * * *}")
+    public void daily() {
+        evaluateDates(true);
+    }
+
+    /**
+     * Reload thresholds and stock levels of every tracked product, recording the resulting alerts
+     * without notifying them.
+     */
+    public void reloadStockLevels() {
+        Map<Long, Thresholds> loaded = new HashMap<>();
+        for (ProductRepository.StockThresholds row : productRepository.findStockThresholds()) {
+            loaded.put(row.getId(), new Thresholds(row.getName(), valueOf(row.getMinStockLevel()),
+                    valueOf(row.getReorderLevel())));
+        }
+        LongIntHashMap totals = new LongIntHashMap(Math.max(1024, loaded.size()));
+        stockRepository.forEachAvailableTotal(totals::put);
+
+        synchronized (this) {
+            thresholds.clear();
+            thresholds.putAll(loaded);
+            levels = totals;
+            alerts.keySet().removeIf(key -> key.startsWith("product:")
+                    && !thresholds.containsKey(Long.valueOf(key.substring("product:".length()))));
+            for (Long productId : thresholds.keySet()) {
+                evaluateLevel(productId, false);
+            }
+        }
+        log.debug("Stock alert levels reloaded: {} tracked products", loaded.size());
+    }
+
+    /**
+     * Re-evaluate lot expiry and sommier alert dates against today. Sommier alerts not sent yet
+     * are always notified; lot alerts only when {@code notify} is set.
+     */
+    public void evaluateDates(boolean notify) {
+        LocalDate today = LocalDate.now();
+        List<StockRepository.ExpiringLot> lots = stockRepository.findLotsExpiringBy(today.plusDays(expiryDays));
+        List<Sommier> sommiers = sommierRepository.findActiveWithAlertDue(today);
+
+        // Sent once across nodes, startup included: the node that flips alert_sent notifies
+        Set<Long> claimed = new HashSet<>();
+        for (Sommier sommier : sommiers) {
+            if (!Boolean.TRUE.equals(sommier.getAlertSent())
+                    && Boolean.TRUE.equals(transactionTemplate.execute(
+                            status -> sommierRepository.claimAlert(sommier.getId()) == 1))) {
+                claimed.add(sommier.getId());
+            }
+        }
+
+        synchronized (this) {
+            Set<String> current = new HashSet<>();
+            for (StockRepository.ExpiringLot lot : lots) {
+                String key = "lot:" + lot.getStockId();
+                current.add(key);
+                raise(key, expiryAlert(key, lot.getProductName(), lot.getExpiryDate(), today), notify);
+            }
+            for (Sommier sommier : sommiers) {
+                String key = "sommier:" + sommier.getId();
+                current.add(key);
+                long daysOpen = sommier.getOpeningDate() != null
+                        ? ChronoUnit.DAYS.between(sommier.getOpeningDate(), today) : 0;
+                String message = String.format("Sommier '%s' has been open for %d days and needs clearing",
+                        sommier.getSommierNumber(), daysOpen);
+                raise(key, new StockAlert(key, AlertType.SOMMIER_ALERT, message, LocalDateTime.now()),
+                        claimed.contains(sommier.getId()));
+            }
+            alerts.keySet().removeIf(key -> (key.startsWith("lot:") || key.startsWith("sommier:"))
+                    && !current.contains(key));
+        }
+        log.debug("Stock alert dates evaluated: {} lots, {} sommiers", lots.size(), sommiers.size());
+    }
+
+    /**
+     * New available quantity of a product, as applied by the {@link StockAvailabilityIndex}.
+     */
+    public synchronized void onStockLevel(long productId, int level) {
+        levels.put(productId, level);
+        evaluateLevel(productId, true);
+    }
+
+    /**
+     * A stock lot was added or adjusted. Checked against the expiry window once the transaction commits.
+     */
+    public void lotChanged(Stock stock) {
+        if (stock.getExpiryDate() == null) {
+            return;
+        }
+        String key = "lot:" + stock.getId();
+        String productName = stock.getProduct().getNameFr();
+        LocalDate expiryDate = stock.getExpiryDate();
+        boolean empty = stock.getQuantity() == null || stock.getQuantity() <= 0;
+        TransactionCallbacks.afterCommit(() -> {
+            LocalDate today = LocalDate.now();
+            synchronized (this) {
+                if (empty || expiryDate.isAfter(today.plusDays(expiryDays))) {
+                    alerts.remove(key);
+                } else {
+                    raise(key, expiryAlert(key, productName, expiryDate, today), true);
+                }
+            }
+        });
+    }
+
+    /**
+     * A product was created or updated: its name or thresholds may have changed.
+     */
+    public void productChanged(Product product) {
+        Long productId = product.getId();
+        Thresholds updated = Boolean.FALSE.equals(product.getTrackStock()) ? null
+                : new Thresholds(product.getNameFr(), valueOf(product.getMinStockLevel()),
+                valueOf(product.getReorderLevel()));
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                if (updated == null) {
+                    thresholds.remove(productId);
+                } else {
+                    thresholds.put(productId, updated);
+                }
+                evaluateLevel(productId, true);
+            }
+        });
+    }
+
+    public void productRemoved(Long productId) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                thresholds.remove(productId);
+                evaluateLevel(productId, false);
+            }
+        });
+    }
+
+    public synchronized List<StockAlert> getActiveAlerts() {
+        return List.copyOf(alerts.values());
+    }
+
+    /**
+     * Send the notifications raised since the previous run.
+     */
+    @Scheduled(fixedDelayString = "${app.stock.alerts.dispatch-interval-ms:5000}")
+    public void dispatch() {
+        List<StockAlert> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+            long now = System.currentTimeMillis();
+            lastNotified.values().removeIf(at -> now - at >= renotifyIntervalMs);
+        }
+        int sent = Math.min(batch.size(), maxPerDispatch);
+        for (StockAlert alert : batch.subList(0, sent)) {
+            notificationHandler.broadcastNotification(alert.type().name(), alert.type().getTitle(),
+                    alert.message(), alert.type().getSeverity());
+        }
+        if (batch.size() > sent) {
+            notificationHandler.broadcastNotification("STOCK_ALERTS", "Stock Alerts",
+                    String.format("%d more stock alerts raised", batch.size() - sent), "WARNING");
+        }
+    }
+
+    // Caller holds the lock
+    private void evaluateLevel(long productId, boolean notify) {
+        String key = "product:" + productId;
+        Thresholds limits = thresholds.get(productId);
+        int level = levels.get(productId, 0);
+        AlertType type = limits == null ? null
+                : level <= 0 ? AlertType.OUT_OF_STOCK
+                : level <= limits.minStockLevel() ? AlertType.LOW_STOCK
+                : level <= limits.reorderLevel() ? AlertType.REORDER
+                : null;
+        if (type == null) {
+            alerts.remove(key);
+            pending.remove(key);
+            return;
+        }
+        String message = String.format("Product '%s' is low on stock. Current stock: %d units", limits.name(), level);
+        raise(key, new StockAlert(key, type, message, LocalDateTime.now()), notify);
+    }
+
+    // Caller holds the lock. Keeps the time of an alert already raised with the same type
+    private void raise(String key, StockAlert alert, boolean notify) {
+        StockAlert previous = alerts.get(key);
+        if (previous != null && previous.type() == alert.type()) {
+            alerts.put(key, new StockAlert(key, alert.type(), alert.message(), previous.raisedAt()));
+            return;
+        }
+        alerts.put(key, alert);
+        boolean escalated = previous == null || alert.type().compareTo(previous.type()) > 0;
+        if (!notify || !escalated) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String notifiedKey = key + ":" + alert.type();
+        Long notifiedAt = lastNotified.get(notifiedKey);
+        if (notifiedAt != null && now - notifiedAt < renotifyIntervalMs) {
+            return;
+        }
+        lastNotified.put(notifiedKey, now);
+        pending.put(key, alert);
+    }
+
+    private static StockAlert expiryAlert(String key, String productName, LocalDate expiryDate, LocalDate today) {
+        if (expiryDate.isBefore(today)) {
+            return new StockAlert(key, AlertType.EXPIRED_STOCK,
+                    String.format("Product '%s' expired on %s", productName, expiryDate), LocalDateTime.now());
+        }
+        return new StockAlert(key, AlertType.EXPIRING_STOCK,
+                String.format("Product '%s' is expiring soon on %s", productName, expiryDate), LocalDateTime.now());
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,139 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.repository.StockRepository;
+import com.djbc.dutyfree.util.LongIntHashMap;
+import com.djbc.dutyfree.util.TransactionCallbacks;
+import com.djbc.dutyfree.websocket.SaleWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory total of available stock per product, so catalogue and stock checks avoid a SUM query
+ * per product.
+ * <p>
+ * Built with one GROUP BY at startup and kept current by the stock mutations on this node, which
+ * report their deltas once their transaction commits. Changes made by other nodes or directly in
+ * the database are picked up by the periodic rebuild. Each applied change is pushed to the
+ * clients as a stock level event and checked by the {@link StockAlertEngine}.
+ * <p>
+ * Changes applied while a rebuild reads the totals are also journaled and replayed onto the new
+ * totals before they replace the live ones, since the read may not have seen them. Only a change
+ * committed in the instant between the journal opening and the read starting can be counted
+ * twice; the next rebuild corrects it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockAvailabilityIndex {
+
+    private final StockRepository stockRepository;
+    private final SaleWebSocketHandler saleWebSocketHandler;
+    private final StockAlertEngine stockAlertEngine;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongIntHashMap available = new LongIntHashMap();
+    // Guarded by lock; set while a rebuild reads the totals
+    private LongIntHashMap journal;
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.index.resync-interval-ms:300000}",
+            initialDelayString = "${app.stock.index.resync-interval-ms:300000}")
+    public void resync() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        LongIntHashMap totals = new LongIntHashMap(Math.max(1024, size()));
+
+        lock.writeLock().lock();
+        try {
+            journal = new LongIntHashMap();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        boolean read = false;
+        try {
+            stockRepository.forEachAvailableTotal(totals::put);
+            read = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (read) {
+                    journal.forEach(totals::addTo);
+                    available = totals;
+                }
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+        log.debug("Stock availability index rebuilt: {} products in {} ms",
+                totals.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Whether the index has been loaded. Until then callers should read the database.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getAvailable(long productId) {
+        lock.readLock().lock();
+        try {
+            return available.get(productId, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Record a change of available quantity. Inside a transaction the change is applied after
+     * commit, so rolled-back reservations never reach the index.
+     */
+    public void adjust(long productId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> apply(productId, delta));
+    }
+
+    private void apply(long productId, int delta) {
+        int level;
+        lock.writeLock().lock();
+        try {
+            level = available.addTo(productId, delta);
+            if (journal != null) {
+                journal.addTo(productId, delta);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        saleWebSocketHandler.notifyStockLevel(productId, level);
+        stockAlertEngine.onStockLevel(productId, level);
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return available.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
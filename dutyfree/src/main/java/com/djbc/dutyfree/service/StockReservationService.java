@@ -0,0 +1,157 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.exception.BusinessException;
+import com.djbc.dutyfree.exception.InsufficientStockException;
+import com.djbc.dutyfree.repository.StockRepository;
+import com.djbc.dutyfree.repository.StockRepositoryCustom.LotOperation;
+import com.djbc.dutyfree.repository.StockRepositoryCustom.LotUpdate;
+import com.djbc.dutyfree.repository.StockRepositoryCustom.StockLot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reserves, releases and reduces stock for whole baskets with conditional UPDATE statements.
+ * <p>
+ * Lots are walked FEFO. Each lot update only applies if the lot still holds the quantity planned
+ * from the snapshot; updates that lost a race are re-planned from a fresh snapshot, a bounded
+ * number of times. Row updates are issued in stock id order so concurrent baskets lock lots in
+ * the same order.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private final StockRepository stockRepository;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final int maxAttempts;
+
+    public StockReservationService(StockRepository stockRepository,
+                                   StockAvailabilityIndex availabilityIndex,
+                                   @Value("${app.stock.reservation.max-attempts:5}") int maxAttempts) {
+        this.stockRepository = stockRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @throws InsufficientStockException if a product does not have enough available stock
+     */
+    @Transactional
+    public void reserve(Map<Long, Integer> quantitiesByProduct) {
+        apply(LotOperation.RESERVE, quantitiesByProduct);
+    }
+
+    /**
+     * Release reserved stock back to available. Releasing more than is reserved releases what is there.
+     */
+    @Transactional
+    public void release(Map<Long, Integer> quantitiesByProduct) {
+        apply(LotOperation.RELEASE, quantitiesByProduct);
+    }
+
+    /**
+     * Remove sold units from reserved stock.
+     *
+     * @throws InsufficientStockException if a product does not have enough reserved stock
+     */
+    @Transactional
+    public void reduce(Map<Long, Integer> quantitiesByProduct) {
+        apply(LotOperation.REDUCE, quantitiesByProduct);
+    }
+
+    private void apply(LotOperation operation, Map<Long, Integer> quantitiesByProduct) {
+        Map<Long, Integer> remaining = new LinkedHashMap<>();
+        quantitiesByProduct.forEach((productId, quantity) -> {
+            if (quantity != null && quantity > 0) {
+                remaining.merge(productId, quantity, Integer::sum);
+            }
+        });
+        Map<Long, Integer> applied = new LinkedHashMap<>();
+
+        for (int attempt = 1; attempt <= maxAttempts && !remaining.isEmpty(); attempt++) {
+            Map<Long, List<StockLot>> lots = stockRepository.findActiveLotsFefo(remaining.keySet()).stream()
+                    .collect(Collectors.groupingBy(StockLot::productId));
+
+            List<LotUpdate> plan = plan(operation, remaining, lots);
+            int[] results = stockRepository.applyLotUpdates(operation, plan);
+
+            for (int i = 0; i < plan.size(); i++) {
+                // Any non-zero count (including SUCCESS_NO_INFO) means the conditional update matched
+                if (results[i] != 0) {
+                    LotUpdate update = plan.get(i);
+                    remaining.computeIfPresent(update.productId(), (id, quantity) -> quantity - update.quantity());
+                    applied.merge(update.productId(), update.quantity(), Integer::sum);
+                }
+            }
+            remaining.values().removeIf(quantity -> quantity <= 0);
+
+            if (!remaining.isEmpty()) {
+                log.debug("Stock {} conflict on products {} (attempt {}/{})",
+                        operation, remaining.keySet(), attempt, maxAttempts);
+            }
+        }
+
+        if (!remaining.isEmpty()) {
+            throw new BusinessException("Stock was modified concurrently, please retry", "STOCK_CONFLICT");
+        }
+
+        // A reduction only consumes reserved units, available stock is unchanged
+        if (operation != LotOperation.REDUCE) {
+            int sign = operation == LotOperation.RESERVE ? -1 : 1;
+            applied.forEach((productId, quantity) -> availabilityIndex.adjust(productId, sign * quantity));
+        }
+    }
+
+    private List<LotUpdate> plan(LotOperation operation, Map<Long, Integer> remaining,
+                                 Map<Long, List<StockLot>> lots) {
+        List<LotUpdate> plan = new ArrayList<>();
+        List<Long> satisfiedWithShortfall = new ArrayList<>();
+
+        for (Map.Entry<Long, Integer> entry : remaining.entrySet()) {
+            Long productId = entry.getKey();
+            int needed = entry.getValue();
+
+            for (StockLot lot : lots.getOrDefault(productId, List.of())) {
+                if (needed <= 0) break;
+
+                int take = Math.min(needed, operation.capacity(lot));
+                if (take > 0) {
+                    plan.add(new LotUpdate(lot.id(), productId, take));
+                    needed -= take;
+                }
+            }
+
+            if (needed > 0) {
+                if (operation == LotOperation.RELEASE) {
+                    log.warn("Only {} of {} reserved units of product {} could be released",
+                            entry.getValue() - needed, entry.getValue(), productId);
+                    satisfiedWithShortfall.add(productId);
+                } else if (operation == LotOperation.RESERVE) {
+                    throw new InsufficientStockException("Insufficient stock available", productId);
+                } else {
+                    throw new InsufficientStockException("Insufficient reserved stock", productId);
+                }
+            }
+        }
+
+        // A release shortfall is not retried: only the planned part must still apply
+        for (Long productId : satisfiedWithShortfall) {
+            remaining.put(productId, plan.stream()
+                    .filter(update -> update.productId().equals(productId))
+                    .mapToInt(LotUpdate::quantity)
+                    .sum());
+        }
+
+        plan.sort(Comparator.comparing(LotUpdate::stockId));
+        return plan;
+    }
+}
@@ -20,6 +20,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +32,9 @@ public class StockService {
     private final ProductRepository productRepository;
     private final SommierRepository sommierRepository;
     private final StockMovementRepository stockMovementRepository;
+    private final StockReservationService stockReservationService;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final StockAlertEngine stockAlertEngine;
 
     @Transactional
     public Stock addStock(Long productId, Long sommierId, Integer quantity,
@@ -61,6 +65,8 @@ public class StockService {
                 .build();
 
         stock = stockRepository.save(stock);
+        availabilityIndex.adjust(productId, quantity);
+        stockAlertEngine.lotChanged(stock);
         log.info("Stock added for product {}: {} units", product.getSku(), quantity);
 
         return stock;
@@ -79,9 +85,12 @@ public class StockService {
             throw new BadRequestException("Quantity cannot be less than reserved quantity");
         }
 
+        int previousAvailable = stock.getAvailableQuantity();
         stock.setQuantity(newQuantity);
         stock.setAvailableQuantity(newQuantity - stock.getReservedQuantity());
         stockRepository.save(stock);
+        availabilityIndex.adjust(stock.getProduct().getId(), stock.getAvailableQuantity() - previousAvailable);
+        stockAlertEngine.lotChanged(stock);
 
         log.info("Stock adjusted for product {}: {} units", stock.getProduct().getSku(), newQuantity);
     }
@@ -92,47 +101,13 @@ public class StockService {
             throw new BadRequestException("Quantity must be greater than 0");
         }
 
-        List<Stock> stocks = stockRepository.findActiveStocksByProductId(productId);
-
-        Integer totalAvailable = stocks.stream()
-                .mapToInt(Stock::getAvailableQuantity)
-                .sum();
-
-        if (totalAvailable < quantity) {
-            throw new BadRequestException("Insufficient stock available");
-        }
-
-        Integer remaining = quantity;
-        for (Stock stock : stocks) {
-            if (remaining <= 0) break;
-
-            Integer toReserve = Math.min(remaining, stock.getAvailableQuantity());
-            stock.setReservedQuantity(stock.getReservedQuantity() + toReserve);
-            stock.setAvailableQuantity(stock.getAvailableQuantity() - toReserve);
-            stockRepository.save(stock);
-
-            remaining -= toReserve;
-        }
-
+        stockReservationService.reserve(Map.of(productId, quantity));
         log.info("Reserved {} units of product {}", quantity, productId);
     }
 
     @Transactional
     public void releaseReservedStock(Long productId, Integer quantity) {
-        List<Stock> stocks = stockRepository.findActiveStocksByProductId(productId);
-
-        Integer remaining = quantity;
-        for (Stock stock : stocks) {
-            if (remaining <= 0) break;
-
-            Integer toRelease = Math.min(remaining, stock.getReservedQuantity());
-            stock.setReservedQuantity(stock.getReservedQuantity() - toRelease);
-            stock.setAvailableQuantity(stock.getAvailableQuantity() + toRelease);
-            stockRepository.save(stock);
-
-            remaining -= toRelease;
-        }
-
+        stockReservationService.release(Map.of(productId, quantity));
         log.info("Released {} units of product {}", quantity, productId);
     }
 
@@ -142,28 +117,7 @@ public class StockService {
             throw new BadRequestException("Quantity must be greater than 0");
         }
 
-        List<Stock> stocks = stockRepository.findActiveStocksByProductId(productId);
-
-        Integer totalReserved = stocks.stream()
-                .mapToInt(Stock::getReservedQuantity)
-                .sum();
-
-        if (totalReserved < quantity) {
-            throw new BadRequestException("Insufficient reserved stock");
-        }
-
-        Integer remaining = quantity;
-        for (Stock stock : stocks) {
-            if (remaining <= 0) break;
-
-            Integer toReduce = Math.min(remaining, stock.getReservedQuantity());
-            stock.setReservedQuantity(stock.getReservedQuantity() - toReduce);
-            stock.setQuantity(stock.getQuantity() - toReduce);
-            stockRepository.save(stock);
-
-            remaining -= toReduce;
-        }
-
+        stockReservationService.reduce(Map.of(productId, quantity));
         log.info("Reduced {} units of product {}", quantity, productId);
     }
 
@@ -279,6 +233,9 @@ public class StockService {
 
     @Transactional(readOnly = true)
     public Integer getAvailableStock(Long productId) {
+        if (availabilityIndex.isReady()) {
+            return availabilityIndex.getAvailable(productId);
+        }
         Integer available = stockRepository.getTotalAvailableQuantity(productId);
         return available != null ? available : 0;
     }
@@ -1,18 +1,20 @@
 package com.djbc.dutyfree.service;
 
-import com.djbc.dutyfree.domain.entity.Sale;
-import com.djbc.dutyfree.repository.SaleRepository;
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
+import com.djbc.dutyfree.service.OfflineSaleReplayService.Outcome;
+import com.djbc.dutyfree.service.OfflineSaleReplayService.SaleReplayResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 @Service
 @ConditionalOnProperty(name = "spring.redis.enabled", havingValue = "true", matchIfMissing = false)
@@ -21,67 +23,63 @@ import java.util.Set;
 public class SyncService {
 
     private final RedisTemplate<String, Object> redisTemplate;
-    private final SaleRepository saleRepository;
+    private final OfflineSaleQueue offlineSaleQueue;
+    private final OfflineSaleReplayService offlineSaleReplayService;
+
+    @Value("${app.sync.batch-size:200}")
+    private int batchSize;
 
-    private static final String OFFLINE_SALE_PREFIX = "offline:sale:";
     private static final String SYNC_STATUS_KEY = "sync:status";
 
     /**
-     * Store sale data when offline
+     * Store sale data when offline, bound to the sending cashier
      */
-    public void storeOfflineSale(String saleId, Sale sale) {
-        String key = OFFLINE_SALE_PREFIX + saleId;
-        redisTemplate.opsForValue().set(key, sale, Duration.ofDays(7));
-        log.info("Stored offline sale: {}", saleId);
+    public void storeOfflineSales(List<OfflineSaleRequest> sales) {
+        offlineSaleReplayService.checkIntake(sales);
+        for (OfflineSaleRequest sale : sales) {
+            offlineSaleQueue.enqueue(sale.getClientReference(), sale);
+            log.info("Stored offline sale: {}", sale.getClientReference());
+        }
     }
 
     /**
-     * Synchronize offline sales when connection is restored
+     * Synchronize offline sales when connection is restored.
+     * <p>
+     * Sales are drained from the queue in batches and replayed through the checkout, each in its own
+     * transaction; a batch is acknowledged once all its sales are processed. A crash mid-sync leaves
+     * the current batch pending in the queue, and its sales already recorded are reported as
+     * duplicates when it is replayed.
      */
-    @Transactional
-    public void synchronizeOfflineSales() {
-        Set<String> keys = redisTemplate.keys(OFFLINE_SALE_PREFIX + "*");
+    public List<SaleReplayResult> synchronizeOfflineSales() {
+        List<SaleReplayResult> results = new ArrayList<>();
 
-        if (keys == null || keys.isEmpty()) {
+        List<OfflineSaleQueue.Entry> batch = nextBatch();
+        if (batch.isEmpty()) {
             log.info("No offline sales to synchronize");
-            return;
+            return results;
         }
 
-        int successCount = 0;
-        int failureCount = 0;
-
-        for (String key : keys) {
-            try {
-                Sale sale = (Sale) redisTemplate.opsForValue().get(key);
-
-                if (sale != null) {
-                    // Save to database
-                    saleRepository.save(sale);
-
-                    // Remove from Redis
-                    redisTemplate.delete(key);
-
-                    successCount++;
-                    log.info("Synchronized offline sale: {}", sale.getSaleNumber());
-                }
-            } catch (Exception e) {
-                failureCount++;
-                log.error("Failed to synchronize sale from key: {}", key, e);
-            }
+        while (!batch.isEmpty()) {
+            results.addAll(synchronizeBatch(batch));
+            batch = nextBatch();
         }
 
+        long successCount = results.stream().filter(result -> result.outcome() == Outcome.SYNCHRONIZED).count();
+        long failureCount = results.stream()
+                .filter(result -> result.outcome() == Outcome.REJECTED || result.outcome() == Outcome.FAILED)
+                .count();
         log.info("Synchronization completed. Success: {}, Failures: {}", successCount, failureCount);
 
         // Update sync status
-        updateSyncStatus(successCount, failureCount);
+        updateSyncStatus((int) successCount, (int) failureCount);
+        return results;
     }
 
     /**
      * Get count of pending offline sales
      */
     public long getPendingSalesCount() {
-        Set<String> keys = redisTemplate.keys(OFFLINE_SALE_PREFIX + "*");
-        return keys != null ? keys.size() : 0;
+        return offlineSaleQueue.size();
     }
 
     /**
@@ -98,6 +96,54 @@ public class SyncService {
         return redisTemplate.opsForValue().get(SYNC_STATUS_KEY);
     }
 
+    // Sales abandoned by an interrupted sync first, then new ones
+    private List<OfflineSaleQueue.Entry> nextBatch() {
+        List<OfflineSaleQueue.Entry> abandoned = offlineSaleQueue.claimAbandoned(batchSize);
+        return abandoned.isEmpty() ? offlineSaleQueue.readNew(batchSize) : abandoned;
+    }
+
+    /**
+     * Replay a batch of queue entries and acknowledge those that reached a final outcome.
+     * Rejected sales are moved to the rejected stream for review; failed ones stay pending.
+     */
+    private List<SaleReplayResult> synchronizeBatch(List<OfflineSaleQueue.Entry> batch) {
+        List<SaleReplayResult> results = new ArrayList<>(batch.size());
+        List<OfflineSaleQueue.Entry> replayable = new ArrayList<>(batch.size());
+        List<RecordId> done = new ArrayList<>(batch.size());
+
+        for (OfflineSaleQueue.Entry entry : batch) {
+            if (entry.sale() instanceof OfflineSaleRequest) {
+                replayable.add(entry);
+            } else {
+                // Whole Sale entities queued by the previous version cannot go through checkout
+                SaleReplayResult rejected = new SaleReplayResult(entry.saleId(), Outcome.REJECTED, null,
+                        "Unsupported offline sale payload");
+                offlineSaleQueue.reject(entry, rejected.message());
+                done.add(entry.id());
+                results.add(rejected);
+            }
+        }
+
+        List<SaleReplayResult> replayed = offlineSaleReplayService.replayBatch(replayable.stream()
+                .map(entry -> (OfflineSaleRequest) entry.sale())
+                .toList());
+
+        for (int i = 0; i < replayable.size(); i++) {
+            OfflineSaleQueue.Entry entry = replayable.get(i);
+            SaleReplayResult result = replayed.get(i);
+            if (result.outcome() == Outcome.REJECTED) {
+                offlineSaleQueue.reject(entry, result.message());
+            }
+            if (result.outcome() != Outcome.FAILED) {
+                done.add(entry.id());
+            }
+            results.add(result);
+        }
+
+        offlineSaleQueue.acknowledge(done);
+        return results;
+    }
+
     private void updateSyncStatus(int successCount, int failureCount) {
         var status = new SyncStatus(
                 LocalDateTime.now(),
@@ -0,0 +1,171 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.request.TerminalPaymentRequest;
+import com.djbc.dutyfree.domain.entity.Payment;
+import com.djbc.dutyfree.domain.entity.PaymentTerminal;
+import com.djbc.dutyfree.domain.entity.TerminalTransaction;
+import com.djbc.dutyfree.domain.entity.TerminalTransaction.TransactionStatus;
+import com.djbc.dutyfree.exception.BusinessException;
+import com.djbc.dutyfree.exception.ResourceNotFoundException;
+import com.djbc.dutyfree.repository.PaymentRepository;
+import com.djbc.dutyfree.repository.PaymentTerminalRepository;
+import com.djbc.dutyfree.repository.TerminalTransactionRepository;
+import com.djbc.dutyfree.service.terminal.TerminalCommand;
+import com.djbc.dutyfree.service.terminal.TerminalResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Persists the terminal transaction state machine, one short transaction per step:
+ * <pre>
+ * PENDING -> PROCESSING -> APPROVED | DECLINED | ERROR | TIMEOUT
+ * </pre>
+ * Opening a transaction takes the terminal (ONLINE -> BUSY) and finishing it gives the terminal
+ * back, so the terminal is only BUSY while a transaction is actually in flight.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TerminalTransactionStore {
+
+    private static final Set<TransactionStatus> IN_FLIGHT =
+            EnumSet.of(TransactionStatus.PENDING, TransactionStatus.PROCESSING);
+
+    private final PaymentTerminalRepository terminalRepository;
+    private final TerminalTransactionRepository transactionRepository;
+    private final PaymentRepository paymentRepository;
+
+    @Value("${app.payment-terminals.stale-after-ms:180000}")
+    private long staleAfterMs;
+
+    /**
+     * Take the terminal and record the transaction as PENDING.
+     */
+    @Transactional
+    @CacheEvict(value = {"paymentTerminals", "terminalTransactions"}, allEntries = true)
+    public TerminalCommand open(TerminalPaymentRequest request, String username) {
+        if (terminalRepository.claim(request.getTerminalId(), LocalDateTime.now()) == 0) {
+            PaymentTerminal terminal = terminalRepository.findById(request.getTerminalId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Payment terminal not found"));
+            throw new BusinessException("Terminal is not ready for transactions. Status: " + terminal.getStatus(),
+                    "TERMINAL_NOT_READY");
+        }
+        PaymentTerminal terminal = terminalRepository.findById(request.getTerminalId()).orElseThrow();
+
+        TerminalTransaction transaction = TerminalTransaction.builder()
+                .transactionId(generateTransactionId())
+                .terminal(terminal)
+                .transactionType(TerminalTransaction.TransactionType.valueOf(request.getTransactionType()))
+                .amount(request.getAmount())
+                .currency(request.getCurrency())
+                .status(TransactionStatus.PENDING)
+                .signatureRequired(request.getRequireSignature())
+                .startedAt(LocalDateTime.now())
+                .notes(request.getNotes())
+                .createdBy(username)
+                .build();
+
+        // Link to payment if provided
+        if (request.getPaymentId() != null) {
+            Payment payment = paymentRepository.findById(request.getPaymentId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Payment not found"));
+            transaction.setPayment(payment);
+        }
+
+        TerminalTransaction saved = transactionRepository.save(transaction);
+        log.info("Terminal transaction opened: {} on terminal {}", saved.getTransactionId(), terminal.getTerminalId());
+
+        return new TerminalCommand(
+                saved.getId(),
+                saved.getTransactionId(),
+                terminal.getTerminalId(),
+                terminal.getConnectionType(),
+                terminal.getIpAddress(),
+                terminal.getPort(),
+                terminal.getComPort(),
+                saved.getTransactionType(),
+                saved.getAmount(),
+                saved.getCurrency());
+    }
+
+    /**
+     * The transaction has been handed to the terminal.
+     */
+    @Transactional
+    public void markProcessing(Long transactionId) {
+        transactionRepository.findByIdForUpdate(transactionId)
+                .filter(transaction -> transaction.getStatus() == TransactionStatus.PENDING)
+                .ifPresent(transaction -> transaction.setStatus(TransactionStatus.PROCESSING));
+    }
+
+    /**
+     * Record the terminal's answer and give the terminal back. A transaction that was already
+     * closed, e.g. expired by {@link #expireStale()}, is left as it is.
+     */
+    @Transactional
+    @CacheEvict(value = {"paymentTerminals", "terminalTransactions"}, allEntries = true)
+    public TerminalTransaction complete(Long transactionId, TerminalResult result) {
+        TerminalTransaction transaction = transactionRepository.findByIdForUpdate(transactionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Terminal transaction not found"));
+
+        if (!IN_FLIGHT.contains(transaction.getStatus())) {
+            log.warn("Terminal answer for {} ignored, transaction already {}",
+                    transaction.getTransactionId(), transaction.getStatus());
+            return transaction;
+        }
+
+        finish(transaction, result);
+        log.info("Terminal transaction completed: {} - Status: {}", transaction.getTransactionId(), transaction.getStatus());
+        return transaction;
+    }
+
+    /**
+     * Close transactions whose terminal never answered, e.g. after a restart while they were in
+     * flight, so their terminals do not stay BUSY.
+     */
+    @Scheduled(fixedDelayString = "${app.payment-terminals.sweep-interval-ms:60000}")
+    @Transactional
+    @CacheEvict(value = {"paymentTerminals", "terminalTransactions"}, allEntries = true)
+    public void expireStale() {
+        List<Long> staleIds = transactionRepository.findStaleIds(IN_FLIGHT,
+                LocalDateTime.now().minusNanos(staleAfterMs * 1_000_000));
+
+        for (Long id : staleIds) {
+            transactionRepository.findByIdForUpdate(id)
+                    .filter(transaction -> IN_FLIGHT.contains(transaction.getStatus()))
+                    .ifPresent(transaction -> {
+                        finish(transaction, TerminalResult.failure(TransactionStatus.TIMEOUT,
+                                "E408", "No answer from terminal"));
+                        log.warn("Terminal transaction expired: {}", transaction.getTransactionId());
+                    });
+        }
+    }
+
+    private void finish(TerminalTransaction transaction, TerminalResult result) {
+        transaction.setAuthorizationCode(result.authorizationCode());
+        transaction.setReferenceNumber(result.referenceNumber());
+        transaction.setCardType(result.cardType());
+        transaction.setCardNumberMasked(result.cardNumberMasked());
+        transaction.setPinVerified(result.pinVerified());
+        transaction.setErrorCode(result.errorCode());
+        transaction.setErrorMessage(result.errorMessage());
+        transaction.complete(result.status());
+
+        terminalRepository.release(transaction.getTerminal().getId(), LocalDateTime.now());
+    }
+
+    private String generateTransactionId() {
+        return "TPE-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
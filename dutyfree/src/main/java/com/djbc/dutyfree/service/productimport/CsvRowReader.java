@@ -0,0 +1,107 @@
+package com.djbc.dutyfree.service.productimport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV reader: quoted fields with doubled quotes and line breaks, UTF-8 with or without
+ * BOM. The separator is the one of comma, semicolon or tab that the header line uses most, so
+ * files saved by a French Excel (semicolons) read as well.
+ */
+final class CsvRowReader {
+
+    private static final int HEADER_PEEK = 64 * 1024;
+
+    private CsvRowReader() {
+    }
+
+    static void read(InputStream in, RowHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        char separator = detectSeparator(reader);
+
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        boolean pending = false;
+        int rowNumber = 0;
+        int c;
+        while ((c = reader.read()) != -1) {
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    cell.append(ch);
+                }
+            } else if (ch == '"' && cell.isEmpty()) {
+                quoted = true;
+                pending = true;
+            } else if (ch == separator) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+                pending = true;
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                cells.add(cell.toString());
+                handler.row(++rowNumber, cells);
+                cells = new ArrayList<>(cells.size());
+                cell.setLength(0);
+                pending = false;
+            } else {
+                cell.append(ch);
+                pending = true;
+            }
+        }
+        if (pending) {
+            cells.add(cell.toString());
+            handler.row(++rowNumber, cells);
+        }
+    }
+
+    private static char detectSeparator(BufferedReader reader) throws IOException {
+        reader.mark(HEADER_PEEK);
+        int commas = 0;
+        int semicolons = 0;
+        int tabs = 0;
+        boolean quoted = false;
+        int c;
+        for (int read = 0; read < HEADER_PEEK && (c = reader.read()) != -1; read++) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '\n' || c == '\r')) {
+                break;
+            } else if (!quoted && c == ',') {
+                commas++;
+            } else if (!quoted && c == ';') {
+                semicolons++;
+            } else if (!quoted && c == '\t') {
+                tabs++;
+            }
+        }
+        reader.reset();
+        if (semicolons > commas && semicolons >= tabs) {
+            return ';';
+        }
+        return tabs > commas ? '\t' : ',';
+    }
+}
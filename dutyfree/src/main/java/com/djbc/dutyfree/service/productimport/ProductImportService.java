@@ -0,0 +1,543 @@
+package com.djbc.dutyfree.service.productimport;
+
+import com.djbc.dutyfree.domain.dto.response.ProductImportResponse;
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.Supplier;
+import com.djbc.dutyfree.exception.BadRequestException;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.ProductRepositoryCustom.CatalogueColumn;
+import com.djbc.dutyfree.repository.SupplierRepository;
+import com.djbc.dutyfree.service.ProductScanIndex;
+import com.djbc.dutyfree.service.StockAlertEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk catalogue import from an XLSX or CSV file with a header row. A row whose SKU exists updates
+ * the columns of that product present in the file, any other row creates one. Deleted products
+ * are not updated, their rows are rejected.
+ * <p>
+ * The file is streamed and handled in batches, so memory depends on the batch size rather than
+ * the file. SKUs, barcodes, categories and suppliers are loaded once up front; the rows of a batch
+ * are then validated in parallel against them, checked for duplicates in file order, and written
+ * as JDBC batches in one transaction per batch. Rejected rows are reported with their row number
+ * and do not stop the import; a batch the database refuses (a concurrent change of the same
+ * product) is reported row by row as well.
+ * <p>
+ * Categories and suppliers are given by code, name or id.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    private static final String SKU = "sku";
+    private static final String BARCODE = "barcode";
+    private static final String NAME_FR = "namefr";
+    private static final String NAME_EN = "nameen";
+    private static final String DESCRIPTION_FR = "descriptionfr";
+    private static final String DESCRIPTION_EN = "descriptionen";
+    private static final String CATEGORY = "category";
+    private static final String SUPPLIER = "supplier";
+    private static final String PURCHASE_PRICE = "purchaseprice";
+    private static final String SELLING_PRICE_XOF = "sellingpricexof";
+    private static final String SELLING_PRICE_EUR = "sellingpriceeur";
+    private static final String SELLING_PRICE_USD = "sellingpriceusd";
+    private static final String TAX_RATE = "taxrate";
+    private static final String IMAGE_URL = "imageurl";
+    private static final String ACTIVE = "active";
+    private static final String TRACK_STOCK = "trackstock";
+    private static final String MIN_STOCK_LEVEL = "minstocklevel";
+    private static final String REORDER_LEVEL = "reorderlevel";
+    private static final String UNIT = "unit";
+
+    private static final List<String> REQUIRED_COLUMNS =
+            List.of(SKU, NAME_FR, NAME_EN, CATEGORY, PURCHASE_PRICE, SELLING_PRICE_XOF);
+
+    private static final Map<String, CatalogueColumn> CATALOGUE_COLUMNS = Map.ofEntries(
+            Map.entry(NAME_FR, CatalogueColumn.NAME_FR),
+            Map.entry(NAME_EN, CatalogueColumn.NAME_EN),
+            Map.entry(DESCRIPTION_FR, CatalogueColumn.DESCRIPTION_FR),
+            Map.entry(DESCRIPTION_EN, CatalogueColumn.DESCRIPTION_EN),
+            Map.entry(BARCODE, CatalogueColumn.BARCODE),
+            Map.entry(CATEGORY, CatalogueColumn.CATEGORY),
+            Map.entry(SUPPLIER, CatalogueColumn.SUPPLIER),
+            Map.entry(PURCHASE_PRICE, CatalogueColumn.PURCHASE_PRICE),
+            Map.entry(SELLING_PRICE_XOF, CatalogueColumn.SELLING_PRICE_XOF),
+            Map.entry(SELLING_PRICE_EUR, CatalogueColumn.SELLING_PRICE_EUR),
+            Map.entry(SELLING_PRICE_USD, CatalogueColumn.SELLING_PRICE_USD),
+            Map.entry(TAX_RATE, CatalogueColumn.TAX_RATE),
+            Map.entry(IMAGE_URL, CatalogueColumn.IMAGE_URL),
+            Map.entry(ACTIVE, CatalogueColumn.ACTIVE),
+            Map.entry(TRACK_STOCK, CatalogueColumn.TRACK_STOCK),
+            Map.entry(MIN_STOCK_LEVEL, CatalogueColumn.MIN_STOCK_LEVEL),
+            Map.entry(REORDER_LEVEL, CatalogueColumn.REORDER_LEVEL),
+            Map.entry(UNIT, CatalogueColumn.UNIT));
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final SupplierRepository supplierRepository;
+    private final ProductScanIndex productScanIndex;
+    private final StockAlertEngine stockAlertEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public ProductImportService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                                SupplierRepository supplierRepository, ProductScanIndex productScanIndex,
+                                StockAlertEngine stockAlertEngine, TransactionTemplate transactionTemplate,
+                                @Value("${app.products.import.batch-size:500}") int batchSize) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.supplierRepository = supplierRepository;
+        this.productScanIndex = productScanIndex;
+        this.stockAlertEngine = stockAlertEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @CacheEvict(value = "products", allEntries = true)
+    public ProductImportResponse importProducts(MultipartFile file) {
+        String filename = file.getOriginalFilename() != null
+                ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        boolean xlsx = filename.endsWith(".xlsx");
+        if (!xlsx && !filename.endsWith(".csv")) {
+            throw new BadRequestException("Unsupported file type, expected .xlsx or .csv");
+        }
+
+        long start = System.currentTimeMillis();
+        ImportRun run = new ImportRun();
+        try {
+            if (xlsx) {
+                // The OOXML package is opened from a file so its parts are not held in memory
+                Path temp = Files.createTempFile("product-import-", ".xlsx");
+                try {
+                    file.transferTo(temp);
+                    XlsxRowReader.read(temp.toFile(), run);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            } else {
+                try (InputStream in = file.getInputStream()) {
+                    CsvRowReader.read(in, run);
+                }
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Could not read import file: " + e.getMessage());
+        }
+        run.flush();
+        if (run.columns == null) {
+            throw new BadRequestException("Import file is empty");
+        }
+
+        if (run.created + run.updated > 0) {
+            productScanIndex.rebuild();
+            stockAlertEngine.reloadStockLevels();
+        }
+        log.info("Product import of {}: {} rows, {} created, {} updated, {} rejected in {} ms", filename,
+                run.totalRows, run.created, run.updated, run.errors.size(), System.currentTimeMillis() - start);
+
+        return ProductImportResponse.builder()
+                .totalRows(run.totalRows)
+                .created(run.created)
+                .updated(run.updated)
+                .failed(run.errors.size())
+                .errors(run.errors)
+                .build();
+    }
+
+    private record Row(int rowNumber, List<String> cells) {
+    }
+
+    private record ParsedRow(int rowNumber, String sku, Product product, String error) {
+    }
+
+    /**
+     * Keys taken by an accepted row, with what they replaced so they can be given back.
+     */
+    private record KeyClaim(String sku, String barcode, String barcodeOwner, String previousBarcode,
+                            boolean previousReleased) {
+    }
+
+    /**
+     * State of one import. Rows arrive on the reader's thread; the key maps are only read during
+     * the parallel validation and only written in the sequential steps. The keys claimed by a batch
+     * are given back if the database refuses it, so later rows of the file may still use them.
+     */
+    private final class ImportRun implements RowHandler {
+
+        private final Map<String, Long> idBySku = new HashMap<>();
+        private final Set<String> deletedSkus = new HashSet<>();
+        private final Map<String, String> skuByBarcode = new HashMap<>();
+        private final Map<String, String> barcodeBySku = new HashMap<>();
+        private final Map<String, Category> categories = new HashMap<>();
+        private final Map<String, Supplier> suppliers = new HashMap<>();
+        private final Set<String> seenSkus = new HashSet<>();
+        private final List<KeyClaim> claims = new ArrayList<>();
+        private final List<Row> batch = new ArrayList<>();
+        private final List<ProductImportResponse.RowError> errors = new ArrayList<>();
+
+        private Map<String, Integer> columns;
+        private Set<CatalogueColumn> updatedColumns;
+        private int totalRows;
+        private int created;
+        private int updated;
+
+        ImportRun() {
+            for (ProductRepository.ProductKeys keys : productRepository.findAllKeys()) {
+                idBySku.put(keys.getSku(), keys.getId());
+                if (Boolean.TRUE.equals(keys.getDeleted())) {
+                    deletedSkus.add(keys.getSku());
+                }
+                if (keys.getBarcode() != null) {
+                    skuByBarcode.put(keys.getBarcode(), keys.getSku());
+                    barcodeBySku.put(keys.getSku(), keys.getBarcode());
+                }
+            }
+            for (Category category : categoryRepository.findAll()) {
+                if (Boolean.TRUE.equals(category.getDeleted())) {
+                    continue;
+                }
+                register(categories, category.getId(), category.getCode(), category.getName(), category);
+            }
+            for (Supplier supplier : supplierRepository.findAll()) {
+                if (Boolean.TRUE.equals(supplier.getDeleted())) {
+                    continue;
+                }
+                register(suppliers, supplier.getId(), supplier.getCode(), supplier.getName(), supplier);
+            }
+        }
+
+        @Override
+        public void row(int rowNumber, List<String> cells) {
+            if (columns == null) {
+                readHeader(cells);
+                return;
+            }
+            if (cells.stream().allMatch(String::isBlank)) {
+                return;
+            }
+            totalRows++;
+            batch.add(new Row(rowNumber, cells));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<ParsedRow> parsed = batch.parallelStream().map(this::parse).toList();
+            batch.clear();
+
+            List<Product> inserts = new ArrayList<>();
+            List<Product> updates = new ArrayList<>();
+            List<ParsedRow> accepted = new ArrayList<>();
+            for (ParsedRow row : parsed) {
+                String error = row.error() != null ? row.error() : checkUnique(row);
+                if (error != null) {
+                    reject(row.rowNumber(), row.sku(), error);
+                    continue;
+                }
+                Long existingId = idBySku.get(row.sku());
+                if (existingId != null) {
+                    row.product().setId(existingId);
+                    updates.add(row.product());
+                } else {
+                    inserts.add(row.product());
+                }
+                accepted.add(row);
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    productRepository.batchInsert(inserts);
+                    productRepository.batchUpdate(updates, updatedColumns);
+                });
+                created += inserts.size();
+                updated += updates.size();
+            } catch (DataAccessException e) {
+                String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                log.warn("Product import batch of {} rows rejected: {}", accepted.size(), cause);
+                for (ParsedRow row : accepted) {
+                    reject(row.rowNumber(), row.sku(), "Batch rejected by the database: " + cause);
+                }
+                for (int i = claims.size() - 1; i >= 0; i--) {
+                    release(claims.get(i));
+                }
+            }
+            claims.clear();
+        }
+
+        private void readHeader(List<String> cells) {
+            columns = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                columns.putIfAbsent(normalize(cells.get(i)), i);
+            }
+            List<String> missing = REQUIRED_COLUMNS.stream()
+                    .filter(column -> !columns.containsKey(column))
+                    .toList();
+            if (!missing.isEmpty()) {
+                throw new BadRequestException("Missing columns in import file: " + String.join(", ", missing));
+            }
+            updatedColumns = EnumSet.noneOf(CatalogueColumn.class);
+            CATALOGUE_COLUMNS.forEach((column, catalogueColumn) -> {
+                if (columns.containsKey(column)) {
+                    updatedColumns.add(catalogueColumn);
+                }
+            });
+        }
+
+        // Runs in parallel: only reads the key maps
+        private ParsedRow parse(Row row) {
+            List<String> problems = new ArrayList<>();
+            String sku = text(row, SKU);
+
+            if (sku == null) {
+                problems.add("SKU is required");
+            } else if (sku.length() > 100) {
+                problems.add("SKU is longer than 100 characters");
+            }
+            String nameFr = required(row, NAME_FR, "French name", 200, problems);
+            String nameEn = required(row, NAME_EN, "English name", 200, problems);
+            String barcode = text(row, BARCODE);
+            if (barcode != null && barcode.length() > 50) {
+                problems.add("Barcode is longer than 50 characters");
+            }
+
+            String categoryKey = text(row, CATEGORY);
+            Category category = categoryKey != null ? categories.get(key(categoryKey)) : null;
+            if (categoryKey == null) {
+                problems.add("Category is required");
+            } else if (category == null) {
+                problems.add("Unknown category: " + categoryKey);
+            }
+            String supplierKey = text(row, SUPPLIER);
+            Supplier supplier = supplierKey != null ? suppliers.get(key(supplierKey)) : null;
+            if (supplierKey != null && supplier == null) {
+                problems.add("Unknown supplier: " + supplierKey);
+            }
+
+            BigDecimal purchasePrice = decimal(row, PURCHASE_PRICE, "Purchase price", problems);
+            if (purchasePrice == null) {
+                problems.add("Purchase price is required");
+            } else if (purchasePrice.signum() <= 0) {
+                problems.add("Purchase price must be greater than 0");
+            }
+            BigDecimal sellingPriceXOF = decimal(row, SELLING_PRICE_XOF, "Selling price in XOF", problems);
+            if (sellingPriceXOF == null) {
+                problems.add("Selling price in XOF is required");
+            } else if (sellingPriceXOF.signum() <= 0) {
+                problems.add("Selling price in XOF must be greater than 0");
+            }
+            BigDecimal taxRate = decimal(row, TAX_RATE, "Tax rate", problems);
+            if (taxRate != null && (taxRate.signum() < 0 || taxRate.compareTo(BigDecimal.valueOf(100)) > 0)) {
+                problems.add("Tax rate must be between 0 and 100");
+            }
+            Integer minStockLevel = count(row, MIN_STOCK_LEVEL, "Minimum stock level", problems);
+            Integer reorderLevel = count(row, REORDER_LEVEL, "Reorder level", problems);
+            BigDecimal sellingPriceEUR = decimal(row, SELLING_PRICE_EUR, "Selling price in EUR", problems);
+            BigDecimal sellingPriceUSD = decimal(row, SELLING_PRICE_USD, "Selling price in USD", problems);
+            Boolean active = flag(row, ACTIVE, "Active", problems);
+            Boolean trackStock = flag(row, TRACK_STOCK, "Track stock", problems);
+            String unit = text(row, UNIT);
+
+            if (!problems.isEmpty()) {
+                return new ParsedRow(row.rowNumber(), sku, null, String.join("; ", problems));
+            }
+
+            Product product = Product.builder()
+                    .productCode(sku)
+                    .sku(sku)
+                    .nameFr(nameFr)
+                    .nameEn(nameEn)
+                    .descriptionFr(text(row, DESCRIPTION_FR))
+                    .descriptionEn(text(row, DESCRIPTION_EN))
+                    .barcode(barcode)
+                    .category(category)
+                    .supplier(supplier)
+                    .purchasePrice(purchasePrice)
+                    .sellingPriceXOF(sellingPriceXOF)
+                    .sellingPriceEUR(sellingPriceEUR)
+                    .sellingPriceUSD(sellingPriceUSD)
+                    .taxRate(taxRate != null ? taxRate : BigDecimal.ZERO)
+                    .imageUrl(text(row, IMAGE_URL))
+                    .active(active)
+                    .trackStock(trackStock)
+                    .minStockLevel(minStockLevel != null ? minStockLevel : 0)
+                    .reorderLevel(reorderLevel != null ? reorderLevel : 0)
+                    .unit(unit != null ? unit : "PIECE")
+                    .build();
+            return new ParsedRow(row.rowNumber(), sku, product, null);
+        }
+
+        // Sequential, in file order: the first row with a SKU or barcode wins
+        private String checkUnique(ParsedRow row) {
+            String sku = row.sku();
+            if (deletedSkus.contains(sku)) {
+                return "Product " + sku + " is deleted";
+            }
+            if (!seenSkus.add(sku)) {
+                return "SKU " + sku + " appears more than once in the file";
+            }
+            String barcode = row.product().getBarcode();
+            String owner = null;
+            if (barcode != null) {
+                owner = skuByBarcode.get(barcode);
+                if (owner != null && !owner.equals(sku)) {
+                    return "Barcode " + barcode + " is already used by product " + owner;
+                }
+                skuByBarcode.put(barcode, sku);
+            }
+            String previous = barcode != null ? barcodeBySku.put(sku, barcode) : barcodeBySku.remove(sku);
+            boolean released = previous != null && !previous.equals(barcode) && skuByBarcode.remove(previous, sku);
+            claims.add(new KeyClaim(sku, barcode, owner, previous, released));
+            return null;
+        }
+
+        // Undoes checkUnique, claims are given back in reverse order
+        private void release(KeyClaim claim) {
+            if (claim.previousReleased()) {
+                skuByBarcode.put(claim.previousBarcode(), claim.sku());
+            }
+            if (claim.previousBarcode() != null) {
+                barcodeBySku.put(claim.sku(), claim.previousBarcode());
+            } else {
+                barcodeBySku.remove(claim.sku());
+            }
+            if (claim.barcode() != null) {
+                if (claim.barcodeOwner() != null) {
+                    skuByBarcode.put(claim.barcode(), claim.barcodeOwner());
+                } else {
+                    skuByBarcode.remove(claim.barcode());
+                }
+            }
+            seenSkus.remove(claim.sku());
+        }
+
+        private void reject(int rowNumber, String sku, String message) {
+            errors.add(ProductImportResponse.RowError.builder()
+                    .row(rowNumber)
+                    .sku(sku)
+                    .message(message)
+                    .build());
+        }
+
+        private String text(Row row, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= row.cells().size()) {
+                return null;
+            }
+            String value = row.cells().get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private String required(Row row, String column, String label, int maxLength, List<String> problems) {
+            String value = text(row, column);
+            if (value == null) {
+                problems.add(label + " is required");
+            } else if (value.length() > maxLength) {
+                problems.add(label + " is longer than " + maxLength + " characters");
+            }
+            return value;
+        }
+
+        private BigDecimal decimal(Row row, String column, String label, List<String> problems) {
+            String value = text(row, column);
+            if (value == null) {
+                return null;
+            }
+            // Spaces as thousands separators, comma as decimal separator when there is no dot
+            String normalized = value.replace(" ", "").replace("\u00A0", "");
+            if (normalized.indexOf('.') < 0) {
+                normalized = normalized.replace(',', '.');
+            } else {
+                normalized = normalized.replace(",", "");
+            }
+            try {
+                return new BigDecimal(normalized);
+            } catch (NumberFormatException e) {
+                problems.add(label + " is not a number: " + value);
+                return null;
+            }
+        }
+
+        private Integer count(Row row, String column, String label, List<String> problems) {
+            BigDecimal value = decimal(row, column, label, problems);
+            if (value == null) {
+                return null;
+            }
+            try {
+                int count = value.intValueExact();
+                if (count < 0) {
+                    problems.add(label + " cannot be negative");
+                }
+                return count;
+            } catch (ArithmeticException e) {
+                problems.add(label + " is not a whole number: " + value);
+                return null;
+            }
+        }
+
+        // Missing means true, as for a product created through the API
+        private Boolean flag(Row row, String column, String label, List<String> problems) {
+            String value = text(row, column);
+            if (value == null) {
+                return true;
+            }
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "true", "yes", "oui", "y", "o", "1" -> true;
+                case "false", "no", "non", "n", "0" -> false;
+                default -> {
+                    problems.add(label + " is not yes or no: " + value);
+                    yield true;
+                }
+            };
+        }
+    }
+
+    private static <T> void register(Map<String, T> index, Long id, String code, String name, T value) {
+        index.put(String.valueOf(id), value);
+        if (name != null) {
+            index.putIfAbsent(key(name), value);
+        }
+        // Codes take precedence over names
+        if (code != null) {
+            index.put(key(code), value);
+        }
+    }
+
+    private static String key(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // "Selling price (XOF)", "selling_price_xof" and "sellingPriceXOF" all name the same column
+    private static String normalize(String header) {
+        return header.toLowerCase(Locale.ROOT).chars()
+                .filter(Character::isLetterOrDigit)
+                .mapToObj(c -> String.valueOf((char) c))
+                .collect(Collectors.joining());
+    }
+}
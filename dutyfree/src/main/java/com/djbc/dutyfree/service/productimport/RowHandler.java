@@ -0,0 +1,16 @@
+package com.djbc.dutyfree.service.productimport;
+
+import java.util.List;
+
+/**
+ * Receives the rows of an import file one at a time, the header first.
+ */
+@FunctionalInterface
+interface RowHandler {
+
+    /**
+     * @param rowNumber 1-based row of the file, as a spreadsheet shows it
+     * @param cells     cell texts, empty for blank cells
+     */
+    void row(int rowNumber, List<String> cells);
+}
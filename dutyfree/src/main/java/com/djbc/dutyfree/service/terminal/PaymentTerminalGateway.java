@@ -0,0 +1,15 @@
+package com.djbc.dutyfree.service.terminal;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Link to the payment terminals (TPE).
+ * <p>
+ * Implementations talk to the device or its cloud API and must not block the caller: the returned
+ * future completes once the terminal answers. No database transaction is open while the device is
+ * being waited on; the caller persists the outcome afterwards.
+ */
+public interface PaymentTerminalGateway {
+
+    CompletableFuture<TerminalResult> submit(TerminalCommand command);
+}
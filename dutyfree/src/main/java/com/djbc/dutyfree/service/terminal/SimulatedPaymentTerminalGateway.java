@@ -0,0 +1,69 @@
+package com.djbc.dutyfree.service.terminal;
+
+import com.djbc.dutyfree.domain.entity.TerminalTransaction.TransactionStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local terminal simulator, used until a manufacturer SDK is wired in and in tests.
+ * Each transaction waits on its own virtual thread, so slow answers cost no platform thread.
+ */
+@Component
+@ConditionalOnProperty(name = "app.payment-terminals.gateway", havingValue = "simulator", matchIfMissing = true)
+@Slf4j
+public class SimulatedPaymentTerminalGateway implements PaymentTerminalGateway {
+
+    private final ExecutorService terminalIoExecutor;
+    private final long minLatencyMs;
+    private final long maxLatencyMs;
+    private final double approvalRate;
+
+    public SimulatedPaymentTerminalGateway(
+            @Qualifier("terminalIoExecutor") ExecutorService terminalIoExecutor,
+            @Value("${app.payment-terminals.simulator.min-latency-ms:1000}") long minLatencyMs,
+            @Value("${app.payment-terminals.simulator.max-latency-ms:3000}") long maxLatencyMs,
+            @Value("${app.payment-terminals.simulator.approval-rate:0.95}") double approvalRate) {
+        this.terminalIoExecutor = terminalIoExecutor;
+        this.minLatencyMs = minLatencyMs;
+        this.maxLatencyMs = Math.max(minLatencyMs, maxLatencyMs);
+        this.approvalRate = approvalRate;
+    }
+
+    @Override
+    public CompletableFuture<TerminalResult> submit(TerminalCommand command) {
+        return CompletableFuture.supplyAsync(() -> simulate(command), terminalIoExecutor);
+    }
+
+    private TerminalResult simulate(TerminalCommand command) {
+        log.info("Simulating transaction {} on terminal: {}", command.transactionReference(), command.terminalId());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try {
+            Thread.sleep(minLatencyMs + random.nextLong(maxLatencyMs - minLatencyMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TerminalResult.failure(TransactionStatus.ERROR, "E999", "Terminal communication interrupted");
+        }
+
+        if (random.nextDouble() >= approvalRate) {
+            return TerminalResult.failure(TransactionStatus.DECLINED, "E001", "Transaction declined by issuer");
+        }
+
+        return TerminalResult.builder()
+                .status(TransactionStatus.APPROVED)
+                .authorizationCode("AUTH-" + (100000 + random.nextInt(900000)))
+                .referenceNumber(UUID.randomUUID().toString())
+                .cardType("VISA")
+                .cardNumberMasked("****1234")
+                .pinVerified(true)
+                .build();
+    }
+}
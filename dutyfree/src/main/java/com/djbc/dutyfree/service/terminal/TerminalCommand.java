@@ -0,0 +1,22 @@
+package com.djbc.dutyfree.service.terminal;
+
+import com.djbc.dutyfree.domain.entity.PaymentTerminal;
+import com.djbc.dutyfree.domain.entity.TerminalTransaction;
+
+import java.math.BigDecimal;
+
+/**
+ * Detached description of a terminal transaction, safe to hand to another thread.
+ */
+public record TerminalCommand(
+        Long transactionId,
+        String transactionReference,
+        String terminalId,
+        PaymentTerminal.ConnectionType connectionType,
+        String ipAddress,
+        Integer port,
+        String comPort,
+        TerminalTransaction.TransactionType transactionType,
+        BigDecimal amount,
+        String currency) {
+}
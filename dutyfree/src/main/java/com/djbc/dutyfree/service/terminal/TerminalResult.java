@@ -0,0 +1,27 @@
+package com.djbc.dutyfree.service.terminal;
+
+import com.djbc.dutyfree.domain.entity.TerminalTransaction.TransactionStatus;
+import lombok.Builder;
+
+/**
+ * Answer of a terminal to a {@link TerminalCommand}.
+ */
+@Builder
+public record TerminalResult(
+        TransactionStatus status,
+        String authorizationCode,
+        String referenceNumber,
+        String cardType,
+        String cardNumberMasked,
+        Boolean pinVerified,
+        String errorCode,
+        String errorMessage) {
+
+    public static TerminalResult failure(TransactionStatus status, String errorCode, String errorMessage) {
+        return TerminalResult.builder()
+                .status(status)
+                .errorCode(errorCode)
+                .errorMessage(errorMessage)
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.djbc.dutyfree.websocket;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Event bus of a single node: batches are only delivered locally. Used without Redis and in tests.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.redis.enabled", havingValue = "false", matchIfMissing = true)
+public class LoopbackWebSocketEventBus extends WebSocketEventBus {
+
+    @Override
+    protected void transmit(List<WebSocketEvent> batch) {
+        // No other node
+    }
+}
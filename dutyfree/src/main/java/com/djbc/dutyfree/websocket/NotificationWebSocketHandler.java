@@ -1,7 +1,6 @@
 package com.djbc.dutyfree.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
@@ -11,19 +10,30 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Notifications for all users or one user. Events go through the {@link WebSocketEventBus} and
+ * reach the sessions of every node.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class NotificationWebSocketHandler extends TextWebSocketHandler {
 
     private final ObjectMapper objectMapper;
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final SessionFanout fanout;
+    private final WebSocketEventBus eventBus;
+
+    public NotificationWebSocketHandler(ObjectMapper objectMapper, SessionOutboxSettings outboxSettings,
+                                        WebSocketEventBus eventBus) {
+        this.objectMapper = objectMapper;
+        this.fanout = new SessionFanout(outboxSettings);
+        this.eventBus = eventBus;
+        eventBus.subscribe(WebSocketEvent.Channel.NOTIFICATIONS, this::deliver);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
+        fanout.register(session);
         log.info("Notification WebSocket connection established: {}", session.getId());
 
         Map<String, Object> message = Map.of(
@@ -31,7 +41,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                 "message", "Connected to Notifications WebSocket",
                 "sessionId", session.getId()
         );
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+        fanout.send(session, new TextMessage(objectMapper.writeValueAsString(message)));
     }
 
     @Override
@@ -59,7 +69,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session.getId());
+        fanout.unregister(session);
         log.info("Notification WebSocket connection closed: {} with status: {}", session.getId(), status);
     }
 
@@ -67,7 +77,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("Notification WebSocket transport error for session {}: {}",
                 session.getId(), exception.getMessage());
-        sessions.remove(session.getId());
+        fanout.unregister(session);
     }
 
     /**
@@ -83,7 +93,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                 "timestamp", System.currentTimeMillis()
         );
 
-        broadcastMessage(notification);
+        publish(null, notification);
     }
 
     /**
@@ -99,16 +109,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                 "timestamp", System.currentTimeMillis()
         );
 
-        sessions.values().forEach(session -> {
-            try {
-                Object userIdAttr = session.getAttributes().get("userId");
-                if (userIdAttr != null && userIdAttr.equals(userId)) {
-                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(notification)));
-                }
-            } catch (IOException e) {
-                log.error("Error sending notification to session {}: {}", session.getId(), e.getMessage());
-            }
-        });
+        publish(String.valueOf(userId), notification);
     }
 
     /**
@@ -157,13 +158,14 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                 "type", "PONG",
                 "timestamp", System.currentTimeMillis()
         );
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(pong)));
+        fanout.send(session, new TextMessage(objectMapper.writeValueAsString(pong)));
     }
 
     private void handleSubscribeUser(WebSocketSession session, Map<String, Object> messageData) {
         Object userId = messageData.get("userId");
         if (userId != null) {
             session.getAttributes().put("userId", userId);
+            fanout.subscribe(session, userId);
             log.info("Session {} subscribed to user notifications {}", session.getId(), userId);
         }
     }
@@ -174,23 +176,21 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         // TODO: Implement mark as read logic if you have a notification persistence layer
     }
 
-    private void broadcastMessage(Map<String, Object> message) {
-        String jsonMessage;
+    private void publish(String topic, Map<String, Object> message) {
         try {
-            jsonMessage = objectMapper.writeValueAsString(message);
+            String payload = objectMapper.writeValueAsString(message);
+            eventBus.publish(new WebSocketEvent(WebSocketEvent.Channel.NOTIFICATIONS, topic, null, payload));
         } catch (Exception e) {
             log.error("Error serializing notification message: {}", e.getMessage());
-            return;
         }
+    }
 
-        sessions.values().forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(jsonMessage));
-                }
-            } catch (IOException e) {
-                log.error("Error broadcasting notification to session {}: {}", session.getId(), e.getMessage());
-            }
-        });
-    }
-}
\ No newline at end of file
+    private void deliver(WebSocketEvent event) {
+        TextMessage message = new TextMessage(event.payload());
+        if (event.topic() == null) {
+            fanout.broadcast(message);
+        } else {
+            fanout.publish(event.topic(), message);
+        }
+    }
+}
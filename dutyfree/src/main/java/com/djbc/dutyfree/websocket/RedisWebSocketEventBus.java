@@ -0,0 +1,79 @@
+package com.djbc.dutyfree.websocket;
+
+import com.djbc.dutyfree.config.NodeIdentity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event bus across nodes over Redis pub/sub. A batch is published as one message
+ * {@code {"node": ..., "sequence": n, "events": [...]}}; nodes ignore their own batches, already
+ * delivered locally.
+ * <p>
+ * Pub/sub drops messages while a subscriber is disconnected, and a failed publish is not retried.
+ * Each node numbers its batches, so a receiver that sees a number other than the next one from
+ * that node reports a gap. A restarted node starts again from 1, which costs one resync.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.redis.enabled", havingValue = "true", matchIfMissing = false)
+@Slf4j
+public class RedisWebSocketEventBus extends WebSocketEventBus implements MessageListener {
+
+    public static final String CHANNEL = "ws:events";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String nodeId;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> lastSequenceByNode = new ConcurrentHashMap<>();
+
+    public RedisWebSocketEventBus(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                  NodeIdentity nodeIdentity) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.nodeId = nodeIdentity.getId();
+    }
+
+    record Batch(String node, long sequence, List<WebSocketEvent> events) {
+    }
+
+    @Override
+    protected void transmit(List<WebSocketEvent> batch) {
+        try {
+            // Numbered before sending, so a batch that fails to go out still leaves a gap
+            Batch numbered = new Batch(nodeId, sequence.incrementAndGet(), batch);
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(numbered));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Batch batch;
+        try {
+            batch = objectMapper.readValue(message.getBody(), Batch.class);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed WebSocket event batch: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(batch.node()) || batch.events() == null) {
+            return;
+        }
+        Long last = lastSequenceByNode.put(batch.node(), batch.sequence());
+        deliver(batch.events());
+        if (last != null && batch.sequence() != last + 1) {
+            gapDetected(batch.node());
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.djbc.dutyfree.websocket;
 
+import com.djbc.dutyfree.security.JwtHandshakeInterceptor;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
@@ -11,19 +11,36 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Sales events for the registers and dashboards. Sessions subscribe to a cash register or to the
+ * live dashboard; every session has its own outbound queue, so publishing never waits on a client.
+ * <p>
+ * Events go through the {@link WebSocketEventBus} and reach the sessions of every node. Dashboard
+ * updates are the exception: every node keeps its own running totals and pushes them to its own
+ * sessions.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class SaleWebSocketHandler extends TextWebSocketHandler {
 
+    private static final String DASHBOARD_TOPIC = "dashboard";
+
     private final ObjectMapper objectMapper;
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final SessionFanout fanout;
+    private final WebSocketEventBus eventBus;
+
+    public SaleWebSocketHandler(ObjectMapper objectMapper, SessionOutboxSettings outboxSettings,
+                                WebSocketEventBus eventBus) {
+        this.objectMapper = objectMapper;
+        this.fanout = new SessionFanout(outboxSettings);
+        this.eventBus = eventBus;
+        eventBus.subscribe(WebSocketEvent.Channel.SALES, this::deliver);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
+        fanout.register(session);
         log.info("WebSocket connection established: {}", session.getId());
 
         // Send welcome message
@@ -32,7 +49,7 @@ public class SaleWebSocketHandler extends TextWebSocketHandler {
                 "message", "Connected to Sales WebSocket",
                 "sessionId", session.getId()
         );
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+        fanout.send(session, new TextMessage(objectMapper.writeValueAsString(message)));
     }
 
     @Override
@@ -52,6 +69,9 @@ public class SaleWebSocketHandler extends TextWebSocketHandler {
             case "SUBSCRIBE_REGISTER":
                 handleSubscribeRegister(session, messageData);
                 break;
+            case "SUBSCRIBE_DASHBOARD":
+                handleSubscribeDashboard(session);
+                break;
             default:
                 log.warn("Unknown message type: {}", type);
         }
@@ -59,14 +79,14 @@ public class SaleWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session.getId());
+        fanout.unregister(session);
         log.info("WebSocket connection closed: {} with status: {}", session.getId(), status);
     }
 
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("WebSocket transport error for session {}: {}", session.getId(), exception.getMessage());
-        sessions.remove(session.getId());
+        fanout.unregister(session);
     }
 
     /**
@@ -79,7 +99,7 @@ public class SaleWebSocketHandler extends TextWebSocketHandler {
                 "timestamp", System.currentTimeMillis()
         );
 
-        broadcastMessage(message);
+        publish(null, null, message);
     }
 
     /**
@@ -93,18 +113,37 @@ public class SaleWebSocketHandler extends TextWebSocketHandler {
                 "timestamp", System.currentTimeMillis()
         );
 
-        // Find sessions subscribed to this register
-        sessions.values().forEach(session -> {
-            try {
-                // Check if session is subscribed to this register
-                Object registerIdAttr = session.getAttributes().get("cashRegisterId");
-                if (registerIdAttr != null && registerIdAttr.equals(cashRegisterId)) {
-                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
-                }
-            } catch (IOException e) {
-                log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
-            }
-        });
+        publish(String.valueOf(cashRegisterId), null, message);
+    }
+
+    /**
+     * Available stock of a product. Successive levels within a bus batch are coalesced.
+     */
+    public void notifyStockLevel(Long productId, int available) {
+        Map<String, Object> message = Map.of(
+                "type", "STOCK_LEVEL",
+                "data", Map.of("productId", productId, "available", available),
+                "timestamp", System.currentTimeMillis()
+        );
+
+        publish(null, "stock:" + productId, message);
+    }
+
+    /**
+     * Send to the dashboard sessions of this node only.
+     */
+    public void sendToDashboards(String eventType, Object data) {
+        Map<String, Object> message = Map.of(
+                "type", eventType,
+                "data", data,
+                "timestamp", System.currentTimeMillis()
+        );
+
+        try {
+            fanout.publish(DASHBOARD_TOPIC, new TextMessage(objectMapper.writeValueAsString(message)));
+        } catch (Exception e) {
+            log.error("Error serializing message: {}", e.getMessage());
+        }
     }
 
     private void sendPong(WebSocketSession session) throws IOException {
@@ -112,35 +151,54 @@ public class SaleWebSocketHandler extends TextWebSocketHandler {
                 "type", "PONG",
                 "timestamp", System.currentTimeMillis()
         );
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(pong)));
+        fanout.send(session, new TextMessage(objectMapper.writeValueAsString(pong)));
+    }
+
+    /**
+     * The dashboard carries the revenue figures, only supervisors get it.
+     */
+    private void handleSubscribeDashboard(WebSocketSession session) throws IOException {
+        if (!JwtHandshakeInterceptor.hasAnyRole(session, "ADMIN", "SUPERVISEUR")) {
+            log.warn("Session {} of {} refused the sales dashboard", session.getId(),
+                    session.getAttributes().get(JwtHandshakeInterceptor.USERNAME_ATTRIBUTE));
+            Map<String, Object> error = Map.of(
+                    "type", "ERROR",
+                    "message", "Access denied to the sales dashboard",
+                    "timestamp", System.currentTimeMillis()
+            );
+            fanout.send(session, new TextMessage(objectMapper.writeValueAsString(error)));
+            return;
+        }
+        fanout.subscribe(session, DASHBOARD_TOPIC);
+        log.info("Session {} subscribed to the sales dashboard", session.getId());
     }
 
     private void handleSubscribeRegister(WebSocketSession session, Map<String, Object> messageData) {
         Object cashRegisterId = messageData.get("cashRegisterId");
         if (cashRegisterId != null) {
             session.getAttributes().put("cashRegisterId", cashRegisterId);
+            fanout.subscribe(session, cashRegisterId);
             log.info("Session {} subscribed to cash register {}", session.getId(), cashRegisterId);
         }
     }
 
-    private void broadcastMessage(Map<String, Object> message) {
-        String jsonMessage;
+    private void publish(String topic, String coalesceKey, Map<String, Object> message) {
         try {
-            jsonMessage = objectMapper.writeValueAsString(message);
+            // Serialized once, the same text goes to every recipient on every node
+            String payload = objectMapper.writeValueAsString(message);
+            eventBus.publish(new WebSocketEvent(WebSocketEvent.Channel.SALES, topic, coalesceKey, payload));
         } catch (Exception e) {
             log.error("Error serializing message: {}", e.getMessage());
-            return;
         }
+    }
 
-        sessions.values().forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(jsonMessage));
-                }
-            } catch (IOException e) {
-                log.error("Error broadcasting message to session {}: {}", session.getId(), e.getMessage());
-            }
-        });
+    private void deliver(WebSocketEvent event) {
+        TextMessage message = new TextMessage(event.payload());
+        if (event.topic() == null) {
+            fanout.broadcast(message);
+        } else {
+            fanout.publish(event.topic(), message);
+        }
     }
 
     /**
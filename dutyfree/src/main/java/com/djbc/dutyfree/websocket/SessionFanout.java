@@ -0,0 +1,87 @@
+package com.djbc.dutyfree.websocket;
+
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions of one WebSocket endpoint, each with its {@link SessionOutbox}, and the topics they
+ * subscribed to (a cash register, a user). A message is serialized once by the caller and the
+ * same {@link TextMessage} is queued for every recipient; publishing only enqueues.
+ * <p>
+ * Topic keys are compared as strings, so an id received as JSON number matches a {@code Long}.
+ */
+class SessionFanout {
+
+    private final SessionOutboxSettings settings;
+    private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final Map<String, Set<SessionOutbox>> topics = new ConcurrentHashMap<>();
+    private final Map<String, String> topicBySession = new ConcurrentHashMap<>();
+
+    SessionFanout(SessionOutboxSettings settings) {
+        this.settings = settings;
+    }
+
+    void register(WebSocketSession session) {
+        outboxes.put(session.getId(), new SessionOutbox(session, settings));
+    }
+
+    /**
+     * Subscribe a session to a topic, replacing its previous one.
+     */
+    void subscribe(WebSocketSession session, Object topic) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox == null) {
+            return;
+        }
+        String key = String.valueOf(topic);
+        String previous = topicBySession.put(session.getId(), key);
+        if (previous != null) {
+            leave(previous, outbox);
+        }
+        topics.compute(key, (k, subscribers) -> {
+            Set<SessionOutbox> updated = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            updated.add(outbox);
+            return updated;
+        });
+    }
+
+    void unregister(WebSocketSession session) {
+        SessionOutbox outbox = outboxes.remove(session.getId());
+        String topic = topicBySession.remove(session.getId());
+        if (outbox != null) {
+            if (topic != null) {
+                leave(topic, outbox);
+            }
+            outbox.discard();
+        }
+    }
+
+    void send(WebSocketSession session, TextMessage message) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            outbox.offer(message);
+        }
+    }
+
+    void publish(Object topic, TextMessage message) {
+        Set<SessionOutbox> subscribers = topics.get(String.valueOf(topic));
+        if (subscribers != null) {
+            subscribers.forEach(outbox -> outbox.offer(message));
+        }
+    }
+
+    void broadcast(TextMessage message) {
+        outboxes.values().forEach(outbox -> outbox.offer(message));
+    }
+
+    private void leave(String topic, SessionOutbox outbox) {
+        topics.computeIfPresent(topic, (key, subscribers) -> {
+            subscribers.remove(outbox);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+}
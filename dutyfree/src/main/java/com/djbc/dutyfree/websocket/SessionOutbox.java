@@ -0,0 +1,148 @@
+package com.djbc.dutyfree.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound queue of one WebSocket session, drained by its own virtual thread so publishers never
+ * wait on the network.
+ * <p>
+ * Limits follow {@link org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator}:
+ * a session whose current send has been running longer than the send-time limit is closed at the
+ * next enqueue; when the queued messages exceed the buffer size or count, the oldest ones are
+ * dropped ({@link OverflowStrategy#DROP}) or the session is closed ({@link OverflowStrategy#TERMINATE}).
+ */
+@Slf4j
+class SessionOutbox {
+
+    private final WebSocketSession session;
+    private final SessionOutboxSettings settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Deque<TextMessage> queue = new ArrayDeque<>();
+
+    // Guarded by lock
+    private int bufferSize;
+    private long dropped;
+    private boolean closed;
+
+    private volatile long sendStartedAt;
+
+    SessionOutbox(WebSocketSession session, SessionOutboxSettings settings) {
+        this.session = session;
+        this.settings = settings;
+        Thread.ofVirtual().name("ws-out-" + session.getId()).start(this::drain);
+    }
+
+    WebSocketSession session() {
+        return session;
+    }
+
+    /**
+     * Queue a message. Never blocks; may drop old messages or close a lagging session.
+     */
+    void offer(TextMessage message) {
+        long startedAt = sendStartedAt;
+        if (startedAt != 0 && System.currentTimeMillis() - startedAt > settings.sendTimeLimitMs()) {
+            close(CloseStatus.SESSION_NOT_RELIABLE, "send time limit exceeded");
+            return;
+        }
+
+        boolean overflowed = false;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            queue.addLast(message);
+            bufferSize += message.getPayloadLength();
+            while (bufferSize > settings.bufferSizeLimit() || queue.size() > settings.queueCapacity()) {
+                if (settings.overflowStrategy() == OverflowStrategy.TERMINATE) {
+                    overflowed = true;
+                    break;
+                }
+                TextMessage oldest = queue.pollFirst();
+                bufferSize -= oldest.getPayloadLength();
+                if (dropped++ % 100 == 0) {
+                    log.warn("WebSocket session {} is lagging, {} messages dropped so far", session.getId(), dropped);
+                }
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (overflowed) {
+            close(CloseStatus.SESSION_NOT_RELIABLE, "buffer limit exceeded");
+        }
+    }
+
+    void close(CloseStatus status, String reason) {
+        discard();
+        if (session.isOpen()) {
+            log.warn("Closing WebSocket session {}: {}", session.getId(), reason);
+            try {
+                session.close(status);
+            } catch (IOException e) {
+                log.debug("Error closing WebSocket session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop the drainer once the session is gone.
+     */
+    void discard() {
+        lock.lock();
+        try {
+            closed = true;
+            queue.clear();
+            bufferSize = 0;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            TextMessage message;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                message = queue.pollFirst();
+                bufferSize -= message.getPayloadLength();
+            } finally {
+                lock.unlock();
+            }
+
+            if (!session.isOpen()) {
+                discard();
+                return;
+            }
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                session.sendMessage(message);
+            } catch (IOException | IllegalStateException e) {
+                log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
+                close(CloseStatus.SESSION_NOT_RELIABLE, "send failed");
+                return;
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+    }
+}
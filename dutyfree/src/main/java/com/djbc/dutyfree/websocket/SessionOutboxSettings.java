@@ -0,0 +1,16 @@
+package com.djbc.dutyfree.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+/**
+ * Limits applied to the outbound queue of every WebSocket session.
+ */
+@Component
+public record SessionOutboxSettings(
+        @Value("${app.websocket.outbound.queue-capacity:256}") int queueCapacity,
+        @Value("${app.websocket.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+        @Value("${app.websocket.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs,
+        @Value("${app.websocket.outbound.overflow:DROP}") OverflowStrategy overflowStrategy) {
+}
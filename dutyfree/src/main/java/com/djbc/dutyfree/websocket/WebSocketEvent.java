@@ -0,0 +1,20 @@
+package com.djbc.dutyfree.websocket;
+
+/**
+ * A message for the WebSocket clients of every node, already serialized.
+ *
+ * @param channel     endpoint the message goes out on, or {@link Channel#SALES_ACTIVITY} for the
+ *                    sale totals every node folds into its live dashboard
+ * @param topic       cash register or user subscribed to, {@code null} for every session
+ * @param coalesceKey events with the same key within one batch replace each other (e.g. the stock
+ *                    level of a product); {@code null} when every event must be delivered
+ * @param payload     JSON text sent to the clients
+ */
+public record WebSocketEvent(Channel channel, String topic, String coalesceKey, String payload) {
+
+    public enum Channel {
+        SALES,
+        NOTIFICATIONS,
+        SALES_ACTIVITY
+    }
+}
@@ -0,0 +1,113 @@
+package com.djbc.dutyfree.websocket;
+
+import com.djbc.dutyfree.util.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Carries WebSocket events to the handlers of every node, so a client receives events produced on
+ * any instance.
+ * <p>
+ * Published events are buffered and sent as one batch per flush interval. Within a batch, events
+ * sharing a coalesce key keep only the latest one, in the position of the first. Events published
+ * inside a transaction are buffered once it commits. Each batch is delivered to the handlers of this
+ * node and {@link #transmit handed} to the other nodes, which deliver it through {@link #deliver}.
+ * <p>
+ * Delivery between nodes is not guaranteed. Implementations that can tell a batch from another node
+ * was lost report it through {@link #gapDetected}, so state built by adding events up can be
+ * reloaded from the database.
+ */
+@Slf4j
+public abstract class WebSocketEventBus {
+
+    private final Map<WebSocketEvent.Channel, Consumer<WebSocketEvent>> listeners = new ConcurrentHashMap<>();
+    private final List<Runnable> gapListeners = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+
+    // Guarded by lock. Keyed by coalesce key, or by a sequence number for the others
+    private Map<Object, WebSocketEvent> pending = new LinkedHashMap<>();
+    private long sequence;
+
+    public void subscribe(WebSocketEvent.Channel channel, Consumer<WebSocketEvent> listener) {
+        listeners.put(channel, listener);
+    }
+
+    /**
+     * Run the listener whenever batches of another node were lost.
+     */
+    public void onGap(Runnable listener) {
+        gapListeners.add(listener);
+    }
+
+    public void publish(WebSocketEvent event) {
+        TransactionCallbacks.afterCommit(() -> buffer(event));
+    }
+
+    @Scheduled(fixedDelayString = "${app.websocket.bus.flush-interval-ms:100}")
+    public void flush() {
+        List<WebSocketEvent> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+        }
+        deliver(batch);
+        try {
+            transmit(batch);
+        } catch (Exception e) {
+            // The other nodes miss this batch: state events are replaced by the next change, and
+            // the next batch shows them the gap so they reload the totals built from deltas
+            log.warn("Could not forward {} WebSocket events to the other nodes: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Send a batch to the other nodes.
+     */
+    protected abstract void transmit(List<WebSocketEvent> batch);
+
+    /**
+     * Hand a batch to the handlers of this node.
+     */
+    protected void deliver(List<WebSocketEvent> batch) {
+        for (WebSocketEvent event : batch) {
+            Consumer<WebSocketEvent> listener = listeners.get(event.channel());
+            if (listener == null) {
+                continue;
+            }
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                log.error("Error delivering WebSocket event on {}: {}", event.channel(), e.getMessage());
+            }
+        }
+    }
+
+    protected void gapDetected(String node) {
+        log.warn("WebSocket event batches from {} were lost, resynchronizing", node);
+        for (Runnable listener : gapListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.error("Error resynchronizing after lost WebSocket events: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void buffer(WebSocketEvent event) {
+        synchronized (lock) {
+            Object key = event.coalesceKey() != null ? event.coalesceKey() : sequence++;
+            pending.put(key, event);
+        }
+    }
+}
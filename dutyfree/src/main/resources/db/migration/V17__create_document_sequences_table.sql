@@ -0,0 +1,23 @@
+-- Migration V17: Block-allocated counters for sale and receipt numbers
+-- Replaces the COUNT(*) + 1 numbering, which scanned the table and produced duplicates under concurrency
+
+CREATE TABLE IF NOT EXISTS document_sequences (
+    name VARCHAR(50) PRIMARY KEY,
+    last_value BIGINT NOT NULL DEFAULT 0
+);
+
+-- Start after the highest number already issued
+INSERT INTO document_sequences (name, last_value)
+SELECT 'SALE', COALESCE(MAX(CAST(SUBSTRING(sale_number FROM 14) AS BIGINT)), 0)
+FROM sales
+WHERE sale_number ~ '^SAL-[0-9]{8}-[0-9]+$'
+ON CONFLICT (name) DO NOTHING;
+
+INSERT INTO document_sequences (name, last_value)
+SELECT 'RECEIPT', COALESCE(MAX(CAST(SUBSTRING(receipt_number FROM 14) AS BIGINT)), 0)
+FROM receipts
+WHERE receipt_number ~ '^REC-[0-9]{8}-[0-9]+$'
+ON CONFLICT (name) DO NOTHING;
+
+COMMENT ON TABLE document_sequences IS 'Compteurs de numérotation (ventes, reçus) alloués par blocs à chaque instance';
+COMMENT ON COLUMN document_sequences.last_value IS 'Dernier numéro attribué à un bloc';
@@ -0,0 +1,15 @@
+-- Migration V18: Track asynchronous receipt PDF rendering
+
+ALTER TABLE receipts ADD COLUMN IF NOT EXISTS pdf_status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+ALTER TABLE receipts ADD COLUMN IF NOT EXISTS pdf_attempts INTEGER NOT NULL DEFAULT 0;
+
+-- Receipts rendered synchronously before this migration already have their PDF;
+-- older ones whose rendering failed are not backfilled (the PDF endpoint still renders on demand)
+UPDATE receipts SET pdf_status = 'GENERATED' WHERE pdf_path IS NOT NULL;
+UPDATE receipts SET pdf_status = 'FAILED' WHERE pdf_path IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_receipts_pdf_pending ON receipts(updated_at)
+    WHERE pdf_status = 'PENDING' AND deleted = FALSE;
+
+COMMENT ON COLUMN receipts.pdf_status IS 'Statut du PDF: PENDING, GENERATED, FAILED';
+COMMENT ON COLUMN receipts.pdf_attempts IS 'Nombre de tentatives de génération du PDF';
@@ -0,0 +1,8 @@
+-- Migration V19: Optimistic versioning and FEFO access path for stock reservations
+
+ALTER TABLE stocks ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Lots are walked per product, earliest expiry first
+CREATE INDEX IF NOT EXISTS idx_stocks_product_fefo ON stocks(product_id, expiry_date, id) WHERE deleted = FALSE;
+
+COMMENT ON COLUMN stocks.version IS 'Version optimiste, incrémentée à chaque réservation / mouvement';
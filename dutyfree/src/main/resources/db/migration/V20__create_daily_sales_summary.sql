@@ -0,0 +1,36 @@
+-- Migration V20: Daily sales rollup read by the sales reports
+-- One row per day, cash register, cashier and tender; maintained on sale completion and rebuilt nightly
+
+CREATE TABLE IF NOT EXISTS daily_sales_summary (
+    id BIGSERIAL PRIMARY KEY,
+    sale_day DATE NOT NULL,
+    cash_register_id BIGINT NOT NULL REFERENCES cash_registers(id),
+    cashier_id BIGINT NOT NULL REFERENCES users(id),
+    payment_method VARCHAR(20) NOT NULL,
+    transaction_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(19, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_daily_sales_summary_key UNIQUE (sale_day, cash_register_id, cashier_id, payment_method)
+);
+
+CREATE INDEX IF NOT EXISTS idx_daily_sales_summary_cashier ON daily_sales_summary(cashier_id, sale_day);
+CREATE INDEX IF NOT EXISTS idx_daily_sales_summary_register ON daily_sales_summary(cash_register_id, sale_day);
+
+-- Backfill from the completed sales already recorded
+INSERT INTO daily_sales_summary (sale_day, cash_register_id, cashier_id, payment_method, transaction_count, revenue)
+SELECT CAST(s.sale_date AS DATE), s.cash_register_id, s.cashier_id, COALESCE(m.method, 'MIXED'),
+       COUNT(*), SUM(s.total_amount)
+FROM sales s
+LEFT JOIN (
+    SELECT sale_id,
+           CASE WHEN COUNT(DISTINCT payment_method) = 1 THEN MIN(payment_method) ELSE 'MIXED' END AS method
+    FROM payments
+    WHERE deleted = FALSE
+    GROUP BY sale_id
+) m ON m.sale_id = s.id
+WHERE s.status = 'COMPLETED' AND s.deleted = FALSE
+GROUP BY CAST(s.sale_date AS DATE), s.cash_register_id, s.cashier_id, COALESCE(m.method, 'MIXED')
+ON CONFLICT (sale_day, cash_register_id, cashier_id, payment_method) DO NOTHING;
+
+COMMENT ON TABLE daily_sales_summary IS 'Cumuls journaliers des ventes terminées par caisse, caissier et moyen de paiement';
+COMMENT ON COLUMN daily_sales_summary.payment_method IS 'Moyen de paiement unique de la vente, MIXED si plusieurs';
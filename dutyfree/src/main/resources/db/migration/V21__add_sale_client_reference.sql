@@ -0,0 +1,7 @@
+-- Migration V21: Idempotency key of sales recorded offline
+
+ALTER TABLE sales ADD COLUMN IF NOT EXISTS client_reference VARCHAR(64);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sales_client_reference ON sales(client_reference);
+
+COMMENT ON COLUMN sales.client_reference IS 'Référence générée par la caisse pour une vente hors ligne, garantit un seul enregistrement par vente rejouée';
@@ -0,0 +1,11 @@
+-- Migration V22: Prefix indexes for the product search
+-- Names are matched through the pg_trgm GIN indexes of V3; SKU and barcode prefixes need
+-- text_pattern_ops btrees, since LIKE 'abc%' cannot use a collation-aware btree
+
+CREATE INDEX IF NOT EXISTS idx_products_sku_upper_prefix ON products (upper(sku) text_pattern_ops) WHERE deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_products_barcode_prefix ON products (barcode text_pattern_ops) WHERE deleted = FALSE;
+
+ANALYZE products;
+
+COMMENT ON INDEX idx_products_sku_upper_prefix IS 'Recherche produit : préfixe de SKU, insensible à la casse';
+COMMENT ON INDEX idx_products_barcode_prefix IS 'Recherche produit : préfixe de code-barres';
@@ -0,0 +1,7 @@
+-- Migration V23: Sale and receipt counters restart every day
+-- Rows are now named after the type and the day (SALE-20250314); the first allocation of a day
+-- seeds its row from the highest number already issued under that day's prefix.
+
+DELETE FROM document_sequences WHERE name IN ('SALE', 'RECEIPT');
+
+COMMENT ON TABLE document_sequences IS 'Compteurs de numérotation (ventes, reçus) par type et par jour, alloués par blocs à chaque instance';
@@ -0,0 +1,8 @@
+-- Migration V24: Receipts are claimed before their PDF is rendered, so that the sweeps of
+-- several instances do not render the same receipt
+
+DROP INDEX IF EXISTS idx_receipts_pdf_pending;
+CREATE INDEX IF NOT EXISTS idx_receipts_pdf_pending ON receipts(updated_at)
+    WHERE pdf_status IN ('PENDING', 'RENDERING') AND deleted = FALSE;
+
+COMMENT ON COLUMN receipts.pdf_status IS 'Statut du PDF: PENDING, RENDERING, GENERATED, FAILED';
@@ -0,0 +1,105 @@
+package com.djbc.dutyfree.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TwoLevelCacheManagerTest {
+
+    private static final String SPEC = "maximumSize=100";
+
+    @Test
+    void readsThroughL1ThenL2ThenLoader() {
+        ConcurrentMapCacheManager redis = new ConcurrentMapCacheManager();
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(Map.of(), SPEC, redis, null, new SimpleMeterRegistry());
+        Cache cache = manager.getCache("products");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("loaded", cache.get(1L, () -> {
+            loads.incrementAndGet();
+            return "loaded";
+        }));
+        assertEquals(1, loads.get());
+        // Written through to L2
+        assertEquals("loaded", redis.getCache("products").get(1L).get());
+
+        // Served by L1, the loader is not called again
+        assertEquals("loaded", cache.get(1L, () -> "again " + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+
+        // An L1 miss is filled from L2
+        redis.getCache("products").put(2L, "shared");
+        assertEquals("shared", cache.get(2L).get());
+        redis.getCache("products").evict(2L);
+        assertEquals("shared", cache.get(2L).get());
+    }
+
+    @Test
+    void evictionIsAnnouncedAndDropsL1OnOtherNodes() {
+        ConcurrentMapCacheManager redis = new ConcurrentMapCacheManager();
+        List<TwoLevelCacheManager> nodes = new ArrayList<>();
+        StringRedisTemplate pubSub = new StringRedisTemplate() {
+            @Override
+            public Long convertAndSend(String channel, Object message) {
+                nodes.forEach(node -> node.onRemoteInvalidation((String) message));
+                return (long) nodes.size();
+            }
+        };
+        TwoLevelCacheManager nodeA = new TwoLevelCacheManager(Map.of(), SPEC, redis,
+                new CacheInvalidationBus(pubSub, "node-a"), new SimpleMeterRegistry());
+        TwoLevelCacheManager nodeB = new TwoLevelCacheManager(Map.of(), SPEC, redis,
+                new CacheInvalidationBus(pubSub, "node-b"), new SimpleMeterRegistry());
+        nodes.add(nodeA);
+        nodes.add(nodeB);
+
+        nodeA.getCache("products").put(1L, "v1");
+        nodeA.getCache("products").put(2L, "other");
+        assertEquals("v1", nodeB.getCache("products").get(1L).get());
+        assertEquals("other", nodeB.getCache("products").get(2L).get());
+
+        nodeA.getCache("products").evict(1L);
+        assertNull(nodeA.getCache("products").get(1L));
+        assertNull(nodeB.getCache("products").get(1L));
+        // Only the evicted key goes
+        assertNotNull(local(nodeB, "products").getIfPresent(2L));
+
+        nodeB.getCache("products").clear();
+        assertEquals(0, local(nodeA, "products").estimatedSize());
+    }
+
+    @Test
+    void worksOnL1AloneWithoutRedis() {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(Map.of("rates", "maximumSize=10"), SPEC, null, null,
+                new SimpleMeterRegistry());
+        assertEquals(List.of("rates"), List.copyOf(manager.getCacheNames()));
+
+        Cache cache = manager.getCache("rates");
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(1, cache.get("EUR", loads::incrementAndGet));
+        assertEquals(1, cache.get("EUR", loads::incrementAndGet));
+
+        cache.evict("EUR");
+        assertNull(cache.get("EUR"));
+        assertEquals(2, cache.get("EUR", loads::incrementAndGet));
+
+        // Announcements are ignored when there is no bus
+        manager.onRemoteInvalidation("other\trates");
+        assertNotNull(cache.get("EUR"));
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> local(TwoLevelCacheManager manager,
+                                                                                 String name) {
+        return ((TwoLevelCache) manager.getCache(name)).getNativeCache();
+    }
+}
@@ -0,0 +1,82 @@
+package com.djbc.dutyfree.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtHandshakeInterceptorTest {
+
+    private JwtTokenProvider tokenProvider;
+    private JwtHandshakeInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationMs", 60_000L);
+        tokenProvider.init();
+        interceptor = new JwtHandshakeInterceptor(tokenProvider, username -> switch (username) {
+            case "supervisor" -> User.withUsername(username).password("x").roles("SUPERVISEUR").build();
+            case "cashier" -> User.withUsername(username).password("x").roles("CAISSIER").build();
+            case "gone" -> User.withUsername(username).password("x").roles("ADMIN").disabled(true).build();
+            default -> throw new UsernameNotFoundException(username);
+        });
+    }
+
+    @Test
+    void tokenFromQueryOrHeaderOpensTheSessionWithItsRoles() throws Exception {
+        Map<String, Object> attributes = new HashMap<>();
+        MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.GET.name(), "/ws/sales");
+        request.setQueryString("token=" + tokenProvider.generateTokenFromUsername("supervisor"));
+        assertTrue(handshake(request, new MockHttpServletResponse(), attributes));
+        assertEquals("supervisor", attributes.get(JwtHandshakeInterceptor.USERNAME_ATTRIBUTE));
+        assertEquals(Set.of("ROLE_SUPERVISEUR"), attributes.get(JwtHandshakeInterceptor.ROLES_ATTRIBUTE));
+
+        attributes.clear();
+        request = new MockHttpServletRequest(HttpMethod.GET.name(), "/ws/sales");
+        request.addHeader("Authorization", "Bearer " + tokenProvider.generateTokenFromUsername("cashier"));
+        assertTrue(handshake(request, new MockHttpServletResponse(), attributes));
+        assertEquals(Set.of("ROLE_CAISSIER"), attributes.get(JwtHandshakeInterceptor.ROLES_ATTRIBUTE));
+    }
+
+    @Test
+    void missingInvalidOrDisabledTokensAreRefused() throws Exception {
+        for (String query : new String[]{null, "token=garbage",
+                "token=" + tokenProvider.generateTokenFromUsername("gone"),
+                "token=" + tokenProvider.generateTokenFromUsername("unknown")}) {
+            MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.GET.name(), "/ws/sales");
+            request.setQueryString(query);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            Map<String, Object> attributes = new HashMap<>();
+
+            assertFalse(handshake(request, response, attributes), String.valueOf(query));
+            assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+            assertTrue(attributes.isEmpty());
+        }
+    }
+
+    private boolean handshake(MockHttpServletRequest request, MockHttpServletResponse response,
+                              Map<String, Object> attributes) throws Exception {
+        ServletServerHttpResponse serverResponse = new ServletServerHttpResponse(response);
+        boolean accepted = interceptor.beforeHandshake(new ServletServerHttpRequest(request), serverResponse,
+                null, attributes);
+        serverResponse.flush();
+        return accepted;
+    }
+}
@@ -0,0 +1,91 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.CashRegister;
+import com.djbc.dutyfree.domain.entity.Sale;
+import com.djbc.dutyfree.domain.entity.User;
+import com.djbc.dutyfree.domain.enums.Role;
+import com.djbc.dutyfree.domain.enums.SaleStatus;
+import com.djbc.dutyfree.repository.CashRegisterRepository;
+import com.djbc.dutyfree.repository.SaleRepository;
+import com.djbc.dutyfree.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml",
+        properties = "app.reports.storage-path=target/test-reports")
+class CustomsReportArtefactStoreTest {
+
+    @Autowired
+    private CustomsReportArtefactStore customsReportArtefactStore;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CashRegisterRepository cashRegisterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void reportIsRenderedAgainOnlyWhenItsDataChanges() throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        // A day of its own, so artefacts left in target by an earlier run are not reused
+        LocalDate day = LocalDate.of(1990, 1, 1).plusDays(Math.floorMod(run.hashCode(), 9000));
+
+        CustomsReportArtefactStore.Artefact first = customsReportArtefactStore.dailySummary(day);
+        long renderedAt = Files.getLastModifiedTime(first.path()).toMillis();
+        CustomsReportArtefactStore.Artefact again = customsReportArtefactStore.dailySummary(day);
+        assertEquals(first.path(), again.path());
+        assertEquals(renderedAt, Files.getLastModifiedTime(again.path()).toMillis());
+
+        User cashier = new User();
+        cashier.setUsername("artefact-" + run);
+        cashier.setPassword("x");
+        cashier.setFullName("Artefact Cashier");
+        cashier.setRole(Role.CAISSIER);
+        cashier.setActive(true);
+        cashier = userRepository.save(cashier);
+        CashRegister register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("ART-" + run).name("Artefact").active(true).isOpen(false).build());
+        saleRepository.save(Sale.builder()
+                .saleNumber("ARTEFACT-" + run)
+                .saleDate(day.atTime(11, 0))
+                .cashier(cashier)
+                .cashRegister(register)
+                .status(SaleStatus.COMPLETED)
+                .subtotal(BigDecimal.TEN).discount(BigDecimal.ZERO).taxAmount(BigDecimal.ZERO).totalAmount(BigDecimal.TEN)
+                .items(new ArrayList<>()).payments(new ArrayList<>())
+                .build());
+
+        CustomsReportArtefactStore.Artefact changed = customsReportArtefactStore.dailySummary(day);
+        assertNotEquals(first.path(), changed.path());
+        assertEquals(first.fileName(), changed.fileName());
+        assertTrue(Files.exists(changed.path()));
+
+        // A download that resolved the first rendering can still read it during the grace period
+        customsReportArtefactStore.purgeSuperseded();
+        assertTrue(Files.exists(first.path()));
+
+        customsReportArtefactStore.purgeSuperseded(Duration.ZERO);
+        assertFalse(Files.exists(first.path()));
+        assertTrue(Files.exists(changed.path()));
+    }
+}
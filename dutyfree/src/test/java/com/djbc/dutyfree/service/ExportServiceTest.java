@@ -0,0 +1,171 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
+import com.djbc.dutyfree.domain.dto.request.PaymentRequest;
+import com.djbc.dutyfree.domain.dto.request.SaleRequest;
+import com.djbc.dutyfree.domain.entity.CashRegister;
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.User;
+import com.djbc.dutyfree.domain.enums.Currency;
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import com.djbc.dutyfree.domain.enums.Role;
+import com.djbc.dutyfree.repository.CashRegisterRepository;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.UserRepository;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml",
+        properties = {"app.reports.export.fetch-size=2", "app.reports.export.row-window=2"})
+class ExportServiceTest {
+
+    private static final int SALES = 5;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private OfflineSaleReplayService offlineSaleReplayService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CashRegisterRepository cashRegisterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private LocalDate day;
+
+    @BeforeEach
+    void recordSales() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        // A day of its own so other tests' sales stay out of the export
+        day = LocalDate.of(2001, 1, 1).plusDays(Math.floorMod(run.hashCode(), 9000));
+
+        Product product = createProduct(run);
+        stockService.addStock(product.getId(), null, SALES, "A", "LOT-" + run, LocalDate.now().plusYears(1));
+
+        User cashier = new User();
+        cashier.setUsername("export-" + run);
+        cashier.setPassword("x");
+        cashier.setFullName("Export Cashier");
+        cashier.setRole(Role.CAISSIER);
+        cashier.setActive(true);
+        cashier = userRepository.save(cashier);
+
+        CashRegister register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("EXP-" + run).name("Export").active(true).isOpen(false).build());
+
+        List<OfflineSaleRequest> sales = new ArrayList<>();
+        for (int i = 0; i < SALES; i++) {
+            sales.add(OfflineSaleRequest.builder()
+                    .clientReference("export-" + run + "-" + i)
+                    .saleDate(day.atTime(10, 0).plusMinutes(i))
+                    .cashierId(cashier.getId())
+                    .sale(SaleRequest.builder()
+                            .cashRegisterId(register.getId())
+                            .items(List.of(SaleRequest.SaleItemRequest.builder()
+                                    .productId(product.getId()).quantity(1).build()))
+                            .payments(List.of(PaymentRequest.builder()
+                                    .paymentMethod(PaymentMethod.CASH)
+                                    .currency(Currency.XOF)
+                                    .amount(BigDecimal.TEN)
+                                    .build()))
+                            .build())
+                    .build());
+        }
+        offlineSaleReplayService.replay(sales);
+    }
+
+    @Test
+    void csvHasOneEscapedRowPerItem() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeLinesCsv(day, day, out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("\uFEFFN° vente,Date,"));
+        String[] rows = csv.split("\r\n");
+        assertEquals(SALES + 1, rows.length);
+        assertTrue(rows[1].contains(",\"'=Parfum, \"\"Nuit\"\"\","), rows[1]);
+        assertTrue(rows[1].contains(day + " 10:00:00"), rows[1]);
+
+        ByteArrayOutputStream payments = new ByteArrayOutputStream();
+        exportService.writePaymentsCsv(day, day, payments);
+        assertEquals(SALES + 1, payments.toString(StandardCharsets.UTF_8).split("\r\n").length);
+    }
+
+    @Test
+    void xlsxHasLinesAndPaymentsSheets() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeTransactionsXlsx(day, day, out);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            XSSFSheet lines = workbook.getSheet("Lignes");
+            assertEquals(SALES, lines.getLastRowNum());
+            assertEquals("=Parfum, \"Nuit\"", lines.getRow(1).getCell(9).getStringCellValue());
+            assertEquals(LocalDateTime.of(day, LocalTime.of(10, 4)),
+                    lines.getRow(SALES).getCell(1).getLocalDateTimeCellValue());
+            assertEquals(10, lines.getRow(1).getCell(15).getNumericCellValue());
+
+            XSSFSheet payments = workbook.getSheet("Paiements");
+            assertEquals(SALES, payments.getLastRowNum());
+            assertEquals("CASH", payments.getRow(1).getCell(5).getStringCellValue());
+        }
+    }
+
+    private Product createProduct(String code) {
+        Category category = new Category();
+        category.setName("Export " + code);
+        category.setCode("EXP-" + code);
+        category.setActive(true);
+        category = categoryRepository.save(category);
+
+        return productRepository.save(Product.builder()
+                .productCode("EXP-" + code)
+                .sku("EXP-" + code)
+                .nameFr("=Parfum, \"Nuit\"")
+                .nameEn("Perfume " + code)
+                .category(category)
+                .purchasePrice(BigDecimal.ONE)
+                .sellingPriceXOF(BigDecimal.TEN)
+                .taxRate(BigDecimal.ZERO)
+                .active(true)
+                .trackStock(true)
+                .minStockLevel(0)
+                .reorderLevel(0)
+                .unit("PIECE")
+                .build());
+    }
+}
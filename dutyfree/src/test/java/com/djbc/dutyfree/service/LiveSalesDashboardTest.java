@@ -0,0 +1,199 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.response.SalesDashboardResponse;
+import com.djbc.dutyfree.domain.entity.CashRegister;
+import com.djbc.dutyfree.domain.entity.Payment;
+import com.djbc.dutyfree.domain.entity.Sale;
+import com.djbc.dutyfree.domain.entity.User;
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import com.djbc.dutyfree.domain.enums.Role;
+import com.djbc.dutyfree.domain.enums.SaleStatus;
+import com.djbc.dutyfree.repository.CashRegisterRepository;
+import com.djbc.dutyfree.repository.DailySalesSummaryRepository;
+import com.djbc.dutyfree.repository.SaleRepository;
+import com.djbc.dutyfree.repository.UserRepository;
+import com.djbc.dutyfree.websocket.WebSocketEventBus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+class LiveSalesDashboardTest {
+
+    @Autowired
+    private LiveSalesDashboard liveSalesDashboard;
+
+    @Autowired
+    private WebSocketEventBus eventBus;
+
+    @Autowired
+    private DailySalesSummaryRepository summaryRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private CashRegisterRepository cashRegisterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size}")
+    private int poolSize;
+
+    @Test
+    void completedSalesUpdateTheirRegisterAndTender() {
+        CashRegister register = register(910001L);
+        liveSalesDashboard.recordCompleted(sale(register, LocalDateTime.now(), 1000),
+                List.of(payment(PaymentMethod.CASH)));
+        liveSalesDashboard.recordCompleted(sale(register, LocalDateTime.now(), 2000),
+                List.of(payment(PaymentMethod.CASH), payment(PaymentMethod.CARD)));
+        liveSalesDashboard.recordCompleted(sale(register, LocalDateTime.now().minusDays(1), 5000),
+                List.of(payment(PaymentMethod.CASH)));
+        eventBus.flush();
+
+        SalesDashboardResponse.Totals totals = liveSalesDashboard.snapshot().byCashRegister().get(register.getId());
+        assertEquals(2, totals.tickets());
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo(totals.revenue()));
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(totals.averageTicket()));
+    }
+
+    @Test
+    void cancelledSalesAreCountedWithoutRevenue() {
+        CashRegister register = register(910002L);
+        long cancelledBefore = liveSalesDashboard.snapshot().cancelledSales();
+
+        liveSalesDashboard.recordCancelled(sale(register, LocalDateTime.now(), 4000));
+        eventBus.flush();
+
+        SalesDashboardResponse snapshot = liveSalesDashboard.snapshot();
+        assertEquals(cancelledBefore + 1, snapshot.cancelledSales());
+        assertNull(snapshot.byCashRegister().get(register.getId()));
+    }
+
+    @Test
+    void rebuildReadsTodaysRollup() {
+        LocalDate today = LocalDate.now();
+        transactionTemplate.executeWithoutResult(status -> summaryRepository.increment(
+                today, 910003L, 1L, PaymentMethod.MOBILE_MONEY, 3, BigDecimal.valueOf(4500)));
+
+        liveSalesDashboard.rebuild();
+
+        SalesDashboardResponse snapshot = liveSalesDashboard.snapshot();
+        assertEquals(today, snapshot.day());
+        assertEquals(3, snapshot.byCashRegister().get(910003L).tickets());
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(snapshot.byCashRegister().get(910003L).averageTicket()));
+    }
+
+    @Test
+    void salesFoldedInDuringARebuildAreAddedAgainUnlessTheRollupCountsThem() throws Exception {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        LocalDate today = LocalDate.now();
+        User cashier = new User();
+        cashier.setUsername("live-" + run);
+        cashier.setPassword("x");
+        cashier.setFullName("Live Cashier");
+        cashier.setRole(Role.CAISSIER);
+        cashier.setActive(true);
+        User savedCashier = userRepository.save(cashier);
+        CashRegister register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("LIVE-" + run).name("Live").active(true).isOpen(false).build());
+
+        // Completed, and in the rollup, before the rebuild reads it
+        Sale counted = saleRepository.save(storedSale("LIVE-A-" + run, savedCashier, register, SaleStatus.COMPLETED, 1000));
+        transactionTemplate.executeWithoutResult(status -> summaryRepository.increment(
+                today, register.getId(), savedCashier.getId(), PaymentMethod.CASH, 1, BigDecimal.valueOf(1000)));
+        // Completed after the rollup was read
+        Sale late = saleRepository.save(storedSale("LIVE-B-" + run, savedCashier, register, SaleStatus.PENDING, 2000));
+
+        // With every pooled connection held here, the rebuild waits for one before reading the rollup
+        List<Connection> held = new ArrayList<>();
+        Thread rebuild;
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                held.add(dataSource.getConnection());
+            }
+            rebuild = new Thread(liveSalesDashboard::rebuild);
+            rebuild.start();
+            while (!Boolean.TRUE.equals(rebuilding())) {
+                Thread.sleep(5);
+            }
+            for (Sale sale : List.of(counted, late)) {
+                liveSalesDashboard.apply(new LiveSalesDashboard.SaleActivity(sale.getId(), today,
+                        register.getId(), PaymentMethod.CASH, sale.getTotalAmount(), false));
+            }
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+        rebuild.join();
+
+        SalesDashboardResponse.Totals totals = liveSalesDashboard.snapshot().byCashRegister().get(register.getId());
+        assertEquals(2, totals.tickets());
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo(totals.revenue()));
+    }
+
+    private Object rebuilding() {
+        synchronized (liveSalesDashboard) {
+            return ReflectionTestUtils.getField(liveSalesDashboard, "rebuilding");
+        }
+    }
+
+    private static Sale storedSale(String saleNumber, User cashier, CashRegister register, SaleStatus status,
+                                   long amount) {
+        return Sale.builder()
+                .saleNumber(saleNumber)
+                .saleDate(LocalDateTime.now())
+                .cashier(cashier)
+                .cashRegister(register)
+                .status(status)
+                .subtotal(BigDecimal.valueOf(amount)).discount(BigDecimal.ZERO).taxAmount(BigDecimal.ZERO)
+                .totalAmount(BigDecimal.valueOf(amount))
+                .items(new ArrayList<>()).payments(new ArrayList<>())
+                .build();
+    }
+
+    private static CashRegister register(Long id) {
+        CashRegister register = new CashRegister();
+        register.setId(id);
+        return register;
+    }
+
+    private static Sale sale(CashRegister register, LocalDateTime saleDate, long amount) {
+        return Sale.builder()
+                .saleDate(saleDate)
+                .cashRegister(register)
+                .totalAmount(BigDecimal.valueOf(amount))
+                .build();
+    }
+
+    private static Payment payment(PaymentMethod method) {
+        return Payment.builder().paymentMethod(method).build();
+    }
+}
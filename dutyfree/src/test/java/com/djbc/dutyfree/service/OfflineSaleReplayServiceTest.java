@@ -0,0 +1,196 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
+import com.djbc.dutyfree.domain.dto.request.PaymentRequest;
+import com.djbc.dutyfree.domain.dto.request.SaleRequest;
+import com.djbc.dutyfree.domain.entity.CashRegister;
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.User;
+import com.djbc.dutyfree.domain.enums.Currency;
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import com.djbc.dutyfree.domain.enums.Role;
+import com.djbc.dutyfree.repository.CashRegisterRepository;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.SaleRepository;
+import com.djbc.dutyfree.repository.UserRepository;
+import com.djbc.dutyfree.service.OfflineSaleReplayService.Outcome;
+import com.djbc.dutyfree.service.OfflineSaleReplayService.SaleReplayResult;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+@Slf4j
+class OfflineSaleReplayServiceTest {
+
+    private static final int SALES = 300;
+
+    @Autowired
+    private OfflineSaleReplayService offlineSaleReplayService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CashRegisterRepository cashRegisterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void replayRecordsEachSaleOnceAndIsolatesRejectedOnes() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        Product product = createProduct(run);
+        stockService.addStock(product.getId(), null, SALES * 2, "A", "LOT-" + run, LocalDate.now().plusYears(1));
+
+        User cashier = new User();
+        cashier.setUsername("offline-" + run);
+        cashier.setPassword("x");
+        cashier.setFullName("Offline Cashier");
+        cashier.setRole(Role.CAISSIER);
+        cashier.setActive(true);
+        cashier = userRepository.save(cashier);
+
+        // Closed since the register went offline
+        CashRegister register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("OFF-" + run).name("Offline").active(true).isOpen(false).build());
+
+        LocalDateTime offlineSince = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        List<OfflineSaleRequest> sales = new ArrayList<>();
+        for (int i = 0; i < SALES; i++) {
+            sales.add(offlineSale(run + "-" + i, register, cashier, product.getId(), offlineSince.plusSeconds(i)));
+        }
+        // Unknown product among the others
+        sales.set(150, offlineSale(run + "-150", register, cashier, -1L, offlineSince));
+
+        long start = System.currentTimeMillis();
+        List<SaleReplayResult> first = offlineSaleReplayService.replay(sales);
+        log.info("Replayed {} offline sales in {} ms", SALES, System.currentTimeMillis() - start);
+
+        Map<String, SaleReplayResult> byReference = first.stream()
+                .collect(Collectors.toMap(SaleReplayResult::clientReference, Function.identity()));
+        assertEquals(SALES, first.size());
+        assertEquals(Outcome.REJECTED, byReference.get(run + "-150").outcome());
+        assertEquals(SALES - 1, first.stream().filter(r -> r.outcome() == Outcome.SYNCHRONIZED).count());
+        assertEquals(SALES * 2 - (SALES - 1), stockService.getTotalStock(product.getId()));
+
+        // The register sends everything again after a lost response
+        List<SaleReplayResult> second = offlineSaleReplayService.replay(sales);
+        assertEquals(SALES - 1, second.stream().filter(r -> r.outcome() == Outcome.DUPLICATE).count());
+        second.stream()
+                .filter(r -> r.outcome() == Outcome.DUPLICATE)
+                .forEach(r -> assertEquals(byReference.get(r.clientReference()).saleNumber(), r.saleNumber()));
+        assertEquals(SALES - 1, saleRepository.findClientReferences(
+                sales.stream().map(OfflineSaleRequest::getClientReference).toList()).size());
+        assertEquals(SALES * 2 - (SALES - 1), stockService.getTotalStock(product.getId()));
+
+        assertEquals(offlineSince, saleRepository.findBySaleNumber(byReference.get(run + "-0").saleNumber())
+                .orElseThrow().getSaleDate());
+    }
+
+    @Test
+    void capturedPricesAndRegistersAreChecked() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        Product product = createProduct(run);
+        stockService.addStock(product.getId(), null, 10, "A", "LOT-" + run, LocalDate.now().plusYears(1));
+
+        CashRegister register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("OFF-" + run).name("Offline").active(true).isOpen(false).build());
+        CashRegister otherRegister = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("OFF2-" + run).name("Other").active(true).isOpen(false).build());
+
+        User cashier = new User();
+        cashier.setUsername("offline-" + run);
+        cashier.setPassword("x");
+        cashier.setFullName("Offline Cashier");
+        cashier.setRole(Role.CAISSIER);
+        cashier.setActive(true);
+        cashier.setAssignedCashRegister(register);
+        cashier = userRepository.save(cashier);
+
+        LocalDateTime saleDate = LocalDateTime.now().minusHours(1);
+        OfflineSaleRequest matching = offlineSale(run + "-ok", register, cashier, product.getId(), saleDate);
+        matching.getSale().getItems().get(0).setUnitPrice(BigDecimal.TEN);
+        OfflineSaleRequest underpriced = offlineSale(run + "-low", register, cashier, product.getId(), saleDate);
+        underpriced.getSale().getItems().get(0).setUnitPrice(new BigDecimal("5"));
+        OfflineSaleRequest elsewhere = offlineSale(run + "-other", otherRegister, cashier, product.getId(), saleDate);
+
+        List<SaleReplayResult> results = offlineSaleReplayService.replay(List.of(matching, underpriced, elsewhere));
+        assertEquals(Outcome.SYNCHRONIZED, results.get(0).outcome());
+        assertEquals(Outcome.REJECTED, results.get(1).outcome());
+        assertEquals(Outcome.REJECTED, results.get(2).outcome());
+        assertEquals(9, stockService.getTotalStock(product.getId()));
+    }
+
+    private OfflineSaleRequest offlineSale(String reference, CashRegister register, User cashier,
+                                           Long productId, LocalDateTime saleDate) {
+        return OfflineSaleRequest.builder()
+                .clientReference(reference)
+                .saleDate(saleDate)
+                .cashierId(cashier.getId())
+                .sale(SaleRequest.builder()
+                        .cashRegisterId(register.getId())
+                        .items(List.of(SaleRequest.SaleItemRequest.builder()
+                                .productId(productId).quantity(1).build()))
+                        .payments(List.of(PaymentRequest.builder()
+                                .paymentMethod(PaymentMethod.CASH)
+                                .currency(Currency.XOF)
+                                .amount(BigDecimal.TEN)
+                                .build()))
+                        .build())
+                .build();
+    }
+
+    private Product createProduct(String code) {
+        Category category = new Category();
+        category.setName("Offline " + code);
+        category.setCode("OFF-" + code);
+        category.setActive(true);
+        category = categoryRepository.save(category);
+
+        return productRepository.save(Product.builder()
+                .productCode("OFF-" + code)
+                .sku("OFF-" + code)
+                .nameFr("Parfum " + code)
+                .nameEn("Perfume " + code)
+                .category(category)
+                .purchasePrice(BigDecimal.ONE)
+                .sellingPriceXOF(BigDecimal.TEN)
+                .taxRate(BigDecimal.ZERO)
+                .active(true)
+                .trackStock(true)
+                .minStockLevel(0)
+                .reorderLevel(0)
+                .unit("PIECE")
+                .build());
+    }
+}
@@ -0,0 +1,97 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.request.TerminalPaymentRequest;
+import com.djbc.dutyfree.domain.dto.response.TerminalTransactionResponse;
+import com.djbc.dutyfree.domain.entity.PaymentTerminal;
+import com.djbc.dutyfree.exception.BusinessException;
+import com.djbc.dutyfree.repository.PaymentTerminalRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml", properties = {
+        "app.payment-terminals.simulator.min-latency-ms=300",
+        "app.payment-terminals.simulator.max-latency-ms=300",
+        "app.payment-terminals.simulator.approval-rate=1.0"
+})
+class PaymentTerminalServiceTest {
+
+    @Autowired
+    private PaymentTerminalService paymentTerminalService;
+
+    @Autowired
+    private PaymentTerminalRepository terminalRepository;
+
+    @Test
+    void terminalIsBusyOnlyWhileTheDeviceWorks() {
+        PaymentTerminal terminal = createTerminal();
+
+        CompletableFuture<TerminalTransactionResponse> pending = paymentTerminalService.processPayment(request(terminal));
+
+        assertFalse(pending.isDone());
+        assertEquals(PaymentTerminal.TerminalStatus.BUSY, statusOf(terminal));
+        assertThrows(BusinessException.class, () -> paymentTerminalService.processPayment(request(terminal)));
+
+        TerminalTransactionResponse response = pending.orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals("APPROVED", response.getStatus());
+        assertTrue(response.getResponseTimeMs() >= 300);
+        assertEquals(PaymentTerminal.TerminalStatus.ONLINE, statusOf(terminal));
+    }
+
+    @Test
+    void registersPayConcurrentlyWithoutHoldingThreads() {
+        List<CompletableFuture<TerminalTransactionResponse>> payments = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) {
+            payments.add(paymentTerminalService.processPayment(request(createTerminal())));
+        }
+        CompletableFuture.allOf(payments.toArray(CompletableFuture[]::new)).orTimeout(10, TimeUnit.SECONDS).join();
+        long elapsed = System.currentTimeMillis() - start;
+
+        payments.forEach(payment -> assertEquals("APPROVED", payment.join().getStatus()));
+        // Twenty 300 ms exchanges one after the other would take 6 s
+        assertTrue(elapsed < 3000, "took " + elapsed + " ms");
+    }
+
+    private PaymentTerminal.TerminalStatus statusOf(PaymentTerminal terminal) {
+        return terminalRepository.findById(terminal.getId()).orElseThrow().getStatus();
+    }
+
+    private TerminalPaymentRequest request(PaymentTerminal terminal) {
+        return TerminalPaymentRequest.builder()
+                .terminalId(terminal.getId())
+                .amount(BigDecimal.valueOf(2500))
+                .currency("XOF")
+                .transactionType("SALE")
+                .requireSignature(false)
+                .build();
+    }
+
+    private PaymentTerminal createTerminal() {
+        return terminalRepository.save(PaymentTerminal.builder()
+                .terminalId("SIM-" + UUID.randomUUID().toString().substring(0, 8))
+                .name("Simulated terminal")
+                .terminalType(PaymentTerminal.TerminalType.VIRTUAL)
+                .connectionType(PaymentTerminal.ConnectionType.CLOUD_API)
+                .status(PaymentTerminal.TerminalStatus.ONLINE)
+                .active(true)
+                .deleted(false)
+                .build());
+    }
+}
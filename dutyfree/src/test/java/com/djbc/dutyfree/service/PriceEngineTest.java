@@ -0,0 +1,218 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.Promotion;
+import com.djbc.dutyfree.domain.entity.ScheduledPrice;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.PromotionRepository;
+import com.djbc.dutyfree.repository.ScheduledPriceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+class PriceEngineTest {
+
+    // A Wednesday
+    private static final LocalDateTime NOON = LocalDateTime.of(2030, 1, 2, 12, 0);
+
+    @Autowired
+    private PriceEngine priceEngine;
+
+    @Autowired
+    private ScheduledPriceRepository scheduledPriceRepository;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void highestPriorityScheduledPriceMatchingWindowWins() {
+        Product product = createProduct("PRIO", null);
+        scheduledPrice(product, "FIXED", "9000", null, 1, null, null, null);
+        scheduledPrice(product, "DISCOUNT", "0", "20", 5, LocalTime.of(11, 0), LocalTime.of(13, 0), "WEDNESDAY");
+        scheduledPrice(product, "FIXED", "5000", null, 9, null, null, "SUNDAY");
+        priceEngine.rebuild();
+
+        PriceEngine.ResolvedPrice atNoon = priceEngine.resolve(line(product, 1), NOON);
+        assertEquals(0, new BigDecimal("8000.00").compareTo(atNoon.unitPrice()));
+
+        PriceEngine.ResolvedPrice evening = priceEngine.resolve(line(product, 1), NOON.withHour(18));
+        assertEquals(0, new BigDecimal("9000").compareTo(evening.unitPrice()));
+    }
+
+    @Test
+    void appliesBestPromotionAcrossProductAndCategoryOnce() {
+        Category category = createCategory("PROMO");
+        Product product = createProduct("PROMO", category);
+
+        Promotion byCategory = promotion("CAT", "PERCENTAGE", "10", false, null);
+        byCategory.getApplicableCategories().add(category);
+        promotionRepository.save(byCategory);
+
+        Promotion byProduct = promotion("PROD", "FIXED_AMOUNT", "3000", false, new BigDecimal("25000"));
+        byProduct.getApplicableProducts().add(product);
+        promotionRepository.save(byProduct);
+        priceEngine.rebuild();
+
+        // Basket of 20 000: the minimum purchase of PROD is not reached, CAT gives 10%
+        List<PriceEngine.ResolvedPrice> small = priceEngine.resolve(List.of(line(product, 2)), NOON);
+        assertEquals(0, new BigDecimal("2000.00").compareTo(small.get(0).promotionDiscount()));
+        assertEquals(byCategory.getId(), small.get(0).promotionId());
+
+        // Basket of 30 000: PROD gives 3 000, CAT 3 000; neither stacks, so one of them only
+        List<PriceEngine.ResolvedPrice> large = priceEngine.resolve(List.of(line(product, 3)), NOON);
+        assertEquals(0, new BigDecimal("3000").compareTo(large.get(0).promotionDiscount()));
+    }
+
+    @Test
+    void fixedAmountAndMaximumDiscountApplyOncePerBasket() {
+        Category fixedCategory = createCategory("FIXED");
+        Product fixedA = createProduct("FIXED-A", fixedCategory);
+        Product fixedB = createProduct("FIXED-B", fixedCategory);
+        Promotion fixed = promotion("FIXED", "FIXED_AMOUNT", "3000", false, null);
+        fixed.getApplicableCategories().add(fixedCategory);
+        promotionRepository.save(fixed);
+
+        Category cappedCategory = createCategory("CAPPED");
+        Product cappedA = createProduct("CAPPED-A", cappedCategory);
+        Product cappedB = createProduct("CAPPED-B", cappedCategory);
+        Promotion capped = promotion("CAPPED", "PERCENTAGE", "10", false, null);
+        capped.setMaximumDiscountAmount(new BigDecimal("1500"));
+        capped.getApplicableCategories().add(cappedCategory);
+        promotionRepository.save(capped);
+        priceEngine.rebuild();
+
+        // 3 000 off the basket, spread over 10 000 and 20 000
+        List<PriceEngine.ResolvedPrice> fixedBasket = priceEngine.resolve(
+                List.of(line(fixedA, 1), line(fixedB, 2)), NOON);
+        assertEquals(0, new BigDecimal("1000").compareTo(fixedBasket.get(0).promotionDiscount()));
+        assertEquals(0, new BigDecimal("2000").compareTo(fixedBasket.get(1).promotionDiscount()));
+
+        // 10% of 30 000 is capped at 1 500 for the basket
+        List<PriceEngine.ResolvedPrice> cappedBasket = priceEngine.resolve(
+                List.of(line(cappedA, 1), line(cappedB, 2)), NOON);
+        assertEquals(0, new BigDecimal("500").compareTo(cappedBasket.get(0).promotionDiscount()));
+        assertEquals(0, new BigDecimal("1000").compareTo(cappedBasket.get(1).promotionDiscount()));
+    }
+
+    @Test
+    void pastInstantsUseTheRulesOfTheirDay() {
+        Product product = createProduct("PAST", null);
+        Promotion ended = promotion("PAST", "PERCENTAGE", "10", false, null);
+        ended.setStartDate(LocalDateTime.now().minusDays(3));
+        ended.setEndDate(LocalDateTime.now().minusDays(2));
+        ended.getApplicableProducts().add(product);
+        promotionRepository.save(ended);
+        priceEngine.rebuild();
+
+        PriceEngine.ResolvedPrice then = priceEngine.resolve(line(product, 1), ended.getEndDate().minusHours(1));
+        assertEquals(ended.getId(), then.promotionId());
+        assertEquals(ended.getId(), priceEngine.resolve(line(product, 1), ended.getEndDate().minusHours(1)).promotionId());
+
+        PriceEngine.ResolvedPrice now = priceEngine.resolve(line(product, 1), LocalDateTime.now());
+        assertNull(now.promotionId());
+
+        // The kept table of that day goes with the next rebuild
+        ended.setActive(false);
+        promotionRepository.save(ended);
+        priceEngine.rebuild();
+        assertNull(priceEngine.resolve(line(product, 1), ended.getEndDate().minusHours(1)).promotionId());
+    }
+
+    @Test
+    void productWithoutRulesKeepsItsListPrice() {
+        Product product = createProduct("PLAIN", null);
+        priceEngine.rebuild();
+
+        PriceEngine.ResolvedPrice price = priceEngine.resolve(line(product, 4), NOON);
+        assertEquals(0, new BigDecimal("10000").compareTo(price.unitPrice()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(price.promotionDiscount()));
+        assertNull(price.promotionId());
+        assertNull(price.scheduledPriceId());
+    }
+
+    private PriceEngine.PriceLine line(Product product, int quantity) {
+        return new PriceEngine.PriceLine(product.getId(), product.getCategory().getId(),
+                product.getSellingPriceXOF(), quantity);
+    }
+
+    private void scheduledPrice(Product product, String type, String amount, String percentage, int priority,
+                                LocalTime from, LocalTime until, String days) {
+        scheduledPriceRepository.save(ScheduledPrice.builder()
+                .name(type + " " + priority)
+                .product(product)
+                .priceType(type)
+                .amount(new BigDecimal(amount))
+                .percentage(percentage != null ? new BigDecimal(percentage) : null)
+                .currency("XOF")
+                .validFrom(LocalDate.of(2029, 1, 1))
+                .validUntil(LocalDate.of(2031, 1, 1))
+                .timeFrom(from)
+                .timeUntil(until)
+                .daysOfWeek(days)
+                .priority(priority)
+                .periodType("PROMOTIONAL")
+                .active(true)
+                .build());
+    }
+
+    private Promotion promotion(String code, String type, String value, boolean stackable, BigDecimal minimum) {
+        return promotionRepository.save(Promotion.builder()
+                .code("ENGINE-" + code)
+                .name("Engine " + code)
+                .startDate(NOON.minusDays(1))
+                .endDate(NOON.plusDays(1))
+                .discountType(type)
+                .discountValue(new BigDecimal(value))
+                .minimumPurchaseAmount(minimum)
+                .stackable(stackable)
+                .build());
+    }
+
+    private Category createCategory(String code) {
+        Category category = new Category();
+        category.setName("Engine " + code);
+        category.setCode("ENG-" + code);
+        category.setActive(true);
+        return categoryRepository.save(category);
+    }
+
+    private Product createProduct(String code, Category category) {
+        return productRepository.save(Product.builder()
+                .productCode("ENG-" + code)
+                .sku("ENG-" + code)
+                .nameFr("Montre " + code)
+                .nameEn("Watch " + code)
+                .category(category != null ? category : createCategory(code + "-DEFAULT"))
+                .purchasePrice(BigDecimal.ONE)
+                .sellingPriceXOF(new BigDecimal("10000"))
+                .taxRate(BigDecimal.ZERO)
+                .active(true)
+                .trackStock(true)
+                .minStockLevel(0)
+                .reorderLevel(0)
+                .unit("PIECE")
+                .build());
+    }
+}
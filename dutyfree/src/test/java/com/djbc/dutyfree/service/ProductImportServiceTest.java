@@ -0,0 +1,144 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.response.ProductImportResponse;
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.service.productimport.ProductImportService;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml", properties = "app.products.import.batch-size=2")
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void csvRowsAreCreatedUpdatedOrReported() {
+        createCategory("IMP-CSV");
+        String csv = """
+                SKU;Barcode;Name FR;Name EN;Category;Purchase price;Selling price XOF;Tax rate;Min stock level
+                CSV-1;990000000001;Parfum 1;Perfume 1;IMP-CSV;1000;2500,50;18;5
+                CSV-2;990000000002;"Parfum; ""deux\""";Perfume 2;imp-csv;1000;3000;0;
+                CSV-3;;Parfum 3;Perfume 3;IMP-CSV;-1;3000;;
+                CSV-1;;Parfum 1 bis;Perfume 1 bis;IMP-CSV;1000;2500;;
+                CSV-4;990000000001;Parfum 4;Perfume 4;IMP-CSV;1000;2500;;
+                CSV-5;;Parfum 5;Perfume 5;UNKNOWN;1000;2500;;
+                """;
+
+        ProductImportResponse report = productImportService.importProducts(csvFile(csv));
+
+        assertEquals(6, report.getTotalRows());
+        assertEquals(2, report.getCreated());
+        assertEquals(4, report.getFailed());
+        assertEquals(4, report.getErrors().get(0).getRow());
+        assertEquals(5, report.getErrors().get(1).getRow());
+        assertEquals(6, report.getErrors().get(2).getRow());
+        assertEquals(7, report.getErrors().get(3).getRow());
+
+        Product first = productRepository.findBySku("CSV-1").orElseThrow();
+        assertEquals(0, new BigDecimal("2500.50").compareTo(first.getSellingPriceXOF()));
+        assertEquals(5, first.getMinStockLevel());
+        assertEquals("Parfum; \"deux\"", productRepository.findBySku("CSV-2").orElseThrow().getNameFr());
+        assertFalse(productRepository.findBySku("CSV-3").isPresent());
+
+        first.setDescriptionFr("Eau de parfum");
+        first.setTrackStock(false);
+        productRepository.save(first);
+        Product second = productRepository.findBySku("CSV-2").orElseThrow();
+        second.setDeleted(true);
+        productRepository.save(second);
+
+        ProductImportResponse update = productImportService.importProducts(csvFile("""
+                sku,name_fr,name_en,category,purchase_price,selling_price_xof
+                CSV-1,Parfum 1 v2,Perfume 1 v2,IMP-CSV,1000,2600
+                CSV-2,Parfum 2 v2,Perfume 2 v2,IMP-CSV,1000,2600
+                """));
+
+        assertEquals(1, update.getUpdated());
+        assertEquals(0, update.getCreated());
+        assertEquals("Product CSV-2 is deleted", update.getErrors().get(0).getMessage());
+        Product updated = productRepository.findBySku("CSV-1").orElseThrow();
+        assertEquals("Parfum 1 v2", updated.getNameFr());
+        // Columns missing from the file are left alone
+        assertEquals("Eau de parfum", updated.getDescriptionFr());
+        assertEquals("990000000001", updated.getBarcode());
+        assertEquals(5, updated.getMinStockLevel());
+        assertFalse(updated.getTrackStock());
+        assertEquals("Parfum; \"deux\"", productRepository.findBySku("CSV-2").orElseThrow().getNameFr());
+    }
+
+    @Test
+    void xlsxRowsAreStreamed() throws Exception {
+        createCategory("IMP-XLSX");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            XSSFSheet sheet = workbook.createSheet("Products");
+            XSSFRow header = sheet.createRow(0);
+            String[] columns = {"SKU", "Barcode", "Name FR", "Name EN", "Category", "Purchase price",
+                    "Selling price XOF", "Track stock"};
+            for (int i = 0; i < columns.length; i++) {
+                header.createCell(i).setCellValue(columns[i]);
+            }
+            for (int i = 1; i <= 3; i++) {
+                XSSFRow row = sheet.createRow(i);
+                row.createCell(0).setCellValue("XLSX-" + i);
+                row.createCell(1).setCellValue(991000000000d + i);
+                row.createCell(2).setCellValue("Parfum " + i);
+                row.createCell(3).setCellValue("Perfume " + i);
+                row.createCell(4).setCellValue("IMP-XLSX");
+                row.createCell(5).setCellValue(1000);
+                row.createCell(6).setCellValue(2000.5);
+                row.createCell(7).setCellValue(i == 3 ? "non" : "oui");
+            }
+            workbook.write(out);
+        }
+
+        ProductImportResponse report = productImportService.importProducts(new MockMultipartFile("file",
+                "catalogue.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                out.toByteArray()));
+
+        assertEquals(3, report.getCreated());
+        assertEquals(0, report.getFailed());
+        Product third = productRepository.findBySku("XLSX-3").orElseThrow();
+        assertEquals("991000000003", third.getBarcode());
+        assertEquals(0, new BigDecimal("2000.5").compareTo(third.getSellingPriceXOF()));
+        assertFalse(third.getTrackStock());
+    }
+
+    private void createCategory(String code) {
+        Category category = new Category();
+        category.setName("Import " + code);
+        category.setCode(code);
+        category.setActive(true);
+        categoryRepository.save(category);
+    }
+
+    private static MockMultipartFile csvFile(String content) {
+        return new MockMultipartFile("file", "catalogue.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.ProductRepositoryCustom;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks with EXPLAIN that every branch of the product search is served by an index.
+ * Needs a PostgreSQL database with pg_trgm available: TEST_POSTGRES_URL (jdbc URL),
+ * TEST_POSTGRES_USER and TEST_POSTGRES_PASSWORD. The schema is created by the Flyway migrations.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = ".+")
+@Slf4j
+class ProductSearchIndexUsageTest {
+
+    private static final int PRODUCTS = 20_000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_POSTGRES_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("TEST_POSTGRES_USER", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("TEST_POSTGRES_PASSWORD", ""));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("INSERT INTO categories (name, code) VALUES ('Explain', 'EXPLAIN') ON CONFLICT DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO products (product_code, sku, barcode, name_fr, name_en, category_id, " +
+                "purchase_price, selling_price_xof) " +
+                "SELECT 'EXP-' || g, 'EXP-' || g, '77' || lpad(g::text, 10, '0'), " +
+                "'Produit ' || md5(g::text), 'Item ' || md5((g + 1)::text), " +
+                "(SELECT id FROM categories WHERE code = 'EXPLAIN'), 1, 10 " +
+                "FROM generate_series(1, " + PRODUCTS + ") g ON CONFLICT DO NOTHING");
+        jdbcTemplate.execute("ANALYZE products");
+    }
+
+    @Test
+    void searchUsesTrigramAndPrefixIndexes() {
+        List<String> plan = productRepository.explainSearch("c4ca4238", 20);
+        String text = String.join("\n", plan);
+        log.info("Product search plan:\n{}", text);
+
+        assertFalse(text.contains("Seq Scan on products"), text);
+        assertTrue(text.contains("idx_products_name_fr_trgm"), text);
+        assertTrue(text.contains("idx_products_name_en_trgm"), text);
+        assertTrue(text.contains("idx_products_sku_upper_prefix"), text);
+        assertTrue(text.contains("idx_products_barcode_prefix"), text);
+    }
+
+    @Test
+    void findsProductsFromTypoAndCodePrefix() {
+        // md5('1') = c4ca4238a0b923820dcc509a6f75849b
+        List<ProductRepositoryCustom.ProductSearchHit> byName =
+                productRepository.searchRanked("Produit c4ca4238a0b923820dcc509a6f75849c",
+                        ProductRepositoryCustom.FIRST_PAGE_SCORE, 0, 5);
+        assertFalse(byName.isEmpty());
+
+        List<ProductRepositoryCustom.ProductSearchHit> bySku =
+                productRepository.searchRanked("exp-1999", ProductRepositoryCustom.FIRST_PAGE_SCORE, 0, 20);
+        assertEquals(2.0, bySku.get(0).score());
+        assertEquals(11, bySku.size());
+    }
+}
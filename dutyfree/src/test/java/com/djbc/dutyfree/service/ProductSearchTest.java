@@ -0,0 +1,118 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.response.ProductResponse;
+import com.djbc.dutyfree.domain.dto.response.ProductSearchResponse;
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.exception.BadRequestException;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset paging of the product search on the database used by the tests (LIKE fallback).
+ * Index use on PostgreSQL is checked by ProductSearchIndexUsageTest.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductSearchTest {
+
+    private static final int PRODUCTS = 25;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @BeforeAll
+    void seed() {
+        Category category = new Category();
+        category.setName("Search");
+        category.setCode("SEARCH");
+        category.setActive(true);
+        category = categoryRepository.save(category);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(Product.builder()
+                    .productCode("SRCH-" + i)
+                    .sku("SRCH-" + i)
+                    .barcode("990000" + i)
+                    .nameFr("Eau de toilette boisée " + i)
+                    .nameEn("Woody eau de toilette " + i)
+                    .category(category)
+                    .purchasePrice(BigDecimal.ONE)
+                    .sellingPriceXOF(BigDecimal.TEN)
+                    .taxRate(BigDecimal.ZERO)
+                    .active(true)
+                    .trackStock(true)
+                    .minStockLevel(0)
+                    .reorderLevel(0)
+                    .unit("PIECE")
+                    .build());
+        }
+        productRepository.saveAll(products);
+    }
+
+    @Test
+    void pagesThroughEveryMatchOnce() {
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ProductSearchResponse page = productService.searchProducts("toilette bois", cursor, 10);
+            page.getItems().forEach(product -> assertTrue(seen.add(product.getSku()), product.getSku()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(PRODUCTS, seen.size());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void ranksExactCodeBeforePrefixMatches() {
+        ProductSearchResponse page = productService.searchProducts("srch-1", null, 5);
+
+        List<ProductResponse> items = page.getItems();
+        assertEquals("SRCH-1", items.get(0).getSku());
+        assertTrue(items.stream().skip(1).allMatch(product -> product.getSku().startsWith("SRCH-1")));
+        assertEquals(5, items.size());
+    }
+
+    @Test
+    void treatsLikeWildcardsLiterally() {
+        ProductSearchResponse page = productService.searchProducts("%", null, 10);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThrows(BadRequestException.class, () -> productService.searchProducts("toilette", "not-a-cursor", 10));
+    }
+}
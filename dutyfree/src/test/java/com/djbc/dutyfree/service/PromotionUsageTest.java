@@ -0,0 +1,224 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.request.OfflineSaleRequest;
+import com.djbc.dutyfree.domain.dto.request.PaymentRequest;
+import com.djbc.dutyfree.domain.dto.request.SaleRequest;
+import com.djbc.dutyfree.domain.entity.CashRegister;
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.Promotion;
+import com.djbc.dutyfree.domain.entity.User;
+import com.djbc.dutyfree.domain.enums.Currency;
+import com.djbc.dutyfree.domain.enums.PaymentMethod;
+import com.djbc.dutyfree.domain.enums.Role;
+import com.djbc.dutyfree.repository.CashRegisterRepository;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.PromotionRepository;
+import com.djbc.dutyfree.repository.UserRepository;
+import com.djbc.dutyfree.service.OfflineSaleReplayService.Outcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+class PromotionUsageTest {
+
+    @Autowired
+    private PromotionService promotionService;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private OfflineSaleReplayService offlineSaleReplayService;
+
+    @Autowired
+    private PriceEngine priceEngine;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CashRegisterRepository cashRegisterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Promotion> created = new ArrayList<>();
+
+    // Kept for the sales that reference them, but never offered again
+    @AfterEach
+    void deactivatePromotions() {
+        for (Promotion promotion : promotionRepository.findAllById(created.stream().map(Promotion::getId).toList())) {
+            promotion.setActive(false);
+            promotionRepository.save(promotion);
+        }
+        created.clear();
+        priceEngine.rebuild();
+    }
+
+    @Test
+    void concurrentUsesStopExactlyAtTheLimit() throws Exception {
+        int limit = 25;
+        Promotion promotion = createPromotion("RACE", limit);
+
+        int threads = 16;
+        int attemptsPerThread = 5;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (promotionService.incrementUsageCount(promotion.getId())) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        Promotion counted = promotionRepository.findById(promotion.getId()).orElseThrow();
+        assertEquals(limit, accepted.get());
+        assertEquals(limit, counted.getUsageCount());
+        assertFalse(counted.getActive());
+    }
+
+    @Test
+    void rejectsOnlyExhaustedPromotions() {
+        Promotion exhausted = createPromotion("ONCE", 1);
+        Promotion unlimited = createPromotion("OPEN", null);
+        assertTrue(promotionService.incrementUsageCount(exhausted.getId()));
+
+        Set<Long> rejected = promotionService.consumeUsages(List.of(exhausted.getId(), unlimited.getId()));
+
+        assertEquals(Set.of(exhausted.getId()), rejected);
+        assertEquals(1, promotionRepository.findById(exhausted.getId()).orElseThrow().getUsageCount());
+        assertEquals(1, promotionRepository.findById(unlimited.getId()).orElseThrow().getUsageCount());
+        assertTrue(promotionRepository.findById(unlimited.getId()).orElseThrow().getActive());
+    }
+
+    @Test
+    void onlyCompletedSalesCountAUse() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        Product product = createProduct(run);
+        Promotion promotion = createPromotion("SALE-" + run, null);
+        promotion.getApplicableProducts().add(product);
+        promotionRepository.save(promotion);
+        priceEngine.rebuild();
+
+        User cashier = new User();
+        cashier.setUsername("usage-" + run);
+        cashier.setPassword("x");
+        cashier.setFullName("Usage Cashier");
+        cashier.setRole(Role.CAISSIER);
+        cashier.setActive(true);
+        cashier = userRepository.save(cashier);
+        CashRegister register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("USE-" + run).name("Usage").active(true).isOpen(false).build());
+
+        // Left pending: no payment
+        OfflineSaleRequest pending = sale(run + "-pending", register, cashier, product, List.of());
+        OfflineSaleRequest paid = sale(run + "-paid", register, cashier, product, List.of(PaymentRequest.builder()
+                .paymentMethod(PaymentMethod.CASH)
+                .currency(Currency.XOF)
+                .amount(BigDecimal.TEN)
+                .build()));
+
+        assertEquals(Outcome.SYNCHRONIZED, offlineSaleReplayService.replay(List.of(pending)).get(0).outcome());
+        assertEquals(0, promotionRepository.findById(promotion.getId()).orElseThrow().getUsageCount());
+
+        assertEquals(Outcome.SYNCHRONIZED, offlineSaleReplayService.replay(List.of(paid)).get(0).outcome());
+        assertEquals(1, promotionRepository.findById(promotion.getId()).orElseThrow().getUsageCount());
+    }
+
+    // Scoped to no product: these promotions must not reach the baskets of the other tests
+    private Promotion createPromotion(String code, Integer usageLimit) {
+        Promotion promotion = promotionRepository.save(Promotion.builder()
+                .code("USAGE-" + code)
+                .name("Usage " + code)
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(1))
+                .discountType("PERCENTAGE")
+                .discountValue(BigDecimal.TEN)
+                .applyToAllProducts(false)
+                .usageLimit(usageLimit)
+                .build());
+        created.add(promotion);
+        return promotion;
+    }
+
+    private OfflineSaleRequest sale(String reference, CashRegister register, User cashier, Product product,
+                                    List<PaymentRequest> payments) {
+        return OfflineSaleRequest.builder()
+                .clientReference(reference)
+                .saleDate(LocalDateTime.now())
+                .cashierId(cashier.getId())
+                .sale(SaleRequest.builder()
+                        .cashRegisterId(register.getId())
+                        .items(List.of(SaleRequest.SaleItemRequest.builder()
+                                .productId(product.getId()).quantity(1).build()))
+                        .payments(payments)
+                        .build())
+                .build();
+    }
+
+    private Product createProduct(String code) {
+        Category category = new Category();
+        category.setName("Usage " + code);
+        category.setCode("USE-" + code);
+        category.setActive(true);
+        category = categoryRepository.save(category);
+
+        return productRepository.save(Product.builder()
+                .productCode("USE-" + code)
+                .sku("USE-" + code)
+                .nameFr("Parfum " + code)
+                .nameEn("Perfume " + code)
+                .category(category)
+                .purchasePrice(BigDecimal.ONE)
+                .sellingPriceXOF(BigDecimal.TEN)
+                .taxRate(BigDecimal.ZERO)
+                .active(true)
+                .trackStock(false)
+                .minStockLevel(0)
+                .reorderLevel(0)
+                .unit("PIECE")
+                .build());
+    }
+}
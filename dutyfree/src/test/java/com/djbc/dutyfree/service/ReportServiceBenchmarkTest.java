@@ -0,0 +1,334 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.dto.response.ReportResponse;
+import com.djbc.dutyfree.domain.entity.CashRegister;
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.Sale;
+import com.djbc.dutyfree.domain.entity.SaleItem;
+import com.djbc.dutyfree.domain.entity.User;
+import com.djbc.dutyfree.domain.enums.Role;
+import com.djbc.dutyfree.domain.enums.SaleStatus;
+import com.djbc.dutyfree.repository.CashRegisterRepository;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.DailySalesSummaryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.SaleItemRepository;
+import com.djbc.dutyfree.repository.SaleRepository;
+import com.djbc.dutyfree.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares the projection and rollup based reports with the former implementations on a seeded
+ * month of sales. Both must agree; timings are logged for comparison.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+class ReportServiceBenchmarkTest {
+
+    private static final LocalDate MONTH = LocalDate.of(2020, 3, 1);
+    private static final int SALES = 600;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CashRegisterRepository cashRegisterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DailySalesRollupService dailySalesRollupService;
+
+    @Autowired
+    private DailySalesSummaryRepository summaryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private User cashier;
+    private CashRegister register;
+
+    @BeforeAll
+    void seed() {
+        start = MONTH.atStartOfDay();
+        end = MONTH.plusMonths(1).minusDays(1).atTime(LocalTime.MAX);
+
+        User user = new User();
+        user.setUsername("bench-cashier");
+        user.setPassword("x");
+        user.setFullName("Bench Cashier");
+        user.setRole(Role.CAISSIER);
+        user.setActive(true);
+        cashier = userRepository.save(user);
+
+        register = cashRegisterRepository.save(CashRegister.builder()
+                .registerNumber("BENCH-1").name("Bench").active(true).isOpen(true).build());
+
+        List<Product> products = new ArrayList<>();
+        for (int c = 0; c < 6; c++) {
+            Category category = new Category();
+            category.setName("Bench category " + c);
+            category.setCode("BENCH-" + c);
+            category.setActive(true);
+            category = categoryRepository.save(category);
+
+            for (int p = 0; p < 8; p++) {
+                String code = "BENCH-" + c + "-" + p;
+                products.add(productRepository.save(Product.builder()
+                        .productCode(code).sku(code)
+                        .nameFr("Article " + code).nameEn("Item " + code)
+                        .category(category)
+                        .purchasePrice(BigDecimal.ONE)
+                        .sellingPriceXOF(BigDecimal.valueOf(500L + 250L * p))
+                        .taxRate(BigDecimal.ZERO)
+                        .active(true).trackStock(true)
+                        .minStockLevel(0).reorderLevel(0).unit("PIECE")
+                        .build()));
+            }
+        }
+
+        Random random = new Random(42);
+        SaleStatus[] statuses = {SaleStatus.COMPLETED, SaleStatus.COMPLETED, SaleStatus.COMPLETED,
+                SaleStatus.PENDING, SaleStatus.CANCELLED};
+        List<Sale> sales = new ArrayList<>();
+        Map<Integer, List<SaleItem>> itemsBySale = new HashMap<>();
+
+        for (int s = 0; s < SALES; s++) {
+            List<SaleItem> items = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int i = 0; i < 1 + random.nextInt(4); i++) {
+                Product product = products.get(random.nextInt(products.size()));
+                int quantity = 1 + random.nextInt(3);
+                BigDecimal lineTotal = product.getSellingPriceXOF().multiply(BigDecimal.valueOf(quantity));
+                items.add(SaleItem.builder()
+                        .product(product).quantity(quantity)
+                        .unitPrice(product.getSellingPriceXOF())
+                        .discount(BigDecimal.ZERO).taxRate(BigDecimal.ZERO).taxAmount(BigDecimal.ZERO)
+                        .totalPrice(lineTotal)
+                        .build());
+                total = total.add(lineTotal);
+            }
+            sales.add(Sale.builder()
+                    .saleNumber("BENCH-" + s)
+                    .saleDate(start.plusMinutes(random.nextInt(30 * 24 * 60)))
+                    .cashier(cashier)
+                    .cashRegister(register)
+                    .status(statuses[s % statuses.length])
+                    .subtotal(total).discount(BigDecimal.ZERO).taxAmount(BigDecimal.ZERO).totalAmount(total)
+                    .items(new ArrayList<>()).payments(new ArrayList<>())
+                    .build());
+            itemsBySale.put(s, items);
+        }
+
+        List<Sale> saved = saleRepository.saveAll(sales);
+        List<SaleItem> allItems = new ArrayList<>();
+        for (int s = 0; s < saved.size(); s++) {
+            Sale sale = saved.get(s);
+            itemsBySale.get(s).forEach(item -> item.setSale(sale));
+            allItems.addAll(itemsBySale.get(s));
+        }
+        saleItemRepository.batchInsert(allItems);
+        dailySalesRollupService.rebuild(MONTH, MONTH.plusMonths(1).minusDays(1));
+    }
+
+    @Test
+    void projectionReportsMatchEntityWalk() {
+        Map<String, BigDecimal> legacyCategories = time("legacy revenueByCategory", () -> legacyRevenueByCategory());
+        Map<String, BigDecimal> categories = time("projection revenueByCategory",
+                () -> reportService.getRevenueByCategory(start, end));
+        assertFalse(categories.isEmpty());
+        assertEquals(normalize(legacyCategories), normalize(categories));
+
+        List<ReportResponse.TopProduct> legacyTop = time("legacy topProducts", () -> legacyTopProducts(10));
+        List<ReportResponse.TopProduct> top = time("projection topProducts",
+                () -> reportService.getTopProducts(start, end, 10));
+        assertEquals(10, top.size());
+        assertEquals(revenues(legacyTop), revenues(top));
+        assertEquals(legacyTop.get(0).getProductName(), top.get(0).getProductName());
+        assertEquals(legacyTop.get(0).getQuantitySold(), top.get(0).getQuantitySold());
+
+        BigDecimal[] legacyRange = time("legacy ticket range", () -> legacyTicketRange());
+        Map<String, Object> averageTicket = time("projection ticket range",
+                () -> reportService.generateAverageTicketReport(MONTH, MONTH.plusMonths(1).minusDays(1)));
+        assertEquals(0, legacyRange[0].compareTo((BigDecimal) averageTicket.get("minTicket")));
+        assertEquals(0, legacyRange[1].compareTo((BigDecimal) averageTicket.get("maxTicket")));
+    }
+
+    @Test
+    void dailySalesFromRollupMatchSalesTable() {
+        LocalDate lastDay = MONTH.plusMonths(1).minusDays(1);
+
+        List<ReportResponse.DailySales> legacyDays = time("legacy dailySales", () -> legacyDailySales(MONTH, lastDay));
+        List<ReportResponse.DailySales> days = time("rollup dailySales", () -> reportService.getDailySales(MONTH, lastDay));
+
+        assertEquals(legacyDays.size(), days.size());
+        for (int i = 0; i < days.size(); i++) {
+            assertEquals(legacyDays.get(i).getTransactions(), days.get(i).getTransactions());
+            assertEquals(0, legacyDays.get(i).getRevenue().compareTo(days.get(i).getRevenue()));
+        }
+
+        Map<String, Object> cashierReport = reportService.generateCashierReport(cashier.getId(), MONTH, lastDay);
+        assertEquals(saleRepository.countSalesBetween(start, end).intValue(), cashierReport.get("totalTransactions"));
+    }
+
+    @Test
+    void completedSaleIncrementsItsRollupRow() {
+        LocalDate day = LocalDate.of(2019, 6, 15);
+        Sale sale = Sale.builder()
+                .saleDate(day.atTime(10, 0))
+                .cashier(cashier)
+                .cashRegister(register)
+                .totalAmount(BigDecimal.valueOf(1500))
+                .build();
+
+        dailySalesRollupService.recordCompleted(sale, List.of());
+        dailySalesRollupService.recordCompleted(sale, List.of());
+
+        Map<String, Object> report = reportService.generateDailySalesReport(day);
+        assertEquals(2L, report.get("totalTransactions"));
+        assertEquals(0, BigDecimal.valueOf(3000).compareTo((BigDecimal) report.get("totalRevenue")));
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo((BigDecimal) report.get("averageTicket")));
+    }
+
+    @Test
+    void reconcileRebuildsRecentDaysInOneTransaction() {
+        LocalDate today = LocalDate.now();
+        // Written behind SaleService's back, so only the reconcile job adds it to the rollup
+        saleRepository.save(Sale.builder()
+                .saleNumber("RECONCILE-" + System.nanoTime())
+                .saleDate(LocalDateTime.now())
+                .cashier(cashier)
+                .cashRegister(register)
+                .status(SaleStatus.COMPLETED)
+                .subtotal(BigDecimal.TEN).discount(BigDecimal.ZERO).taxAmount(BigDecimal.ZERO).totalAmount(BigDecimal.TEN)
+                .items(new ArrayList<>()).payments(new ArrayList<>())
+                .build());
+
+        // The DELETE and INSERT ... SELECT refuse to run in autocommit
+        assertThrows(InvalidDataAccessApiUsageException.class, () -> summaryRepository.rebuild(today, today));
+
+        dailySalesRollupService.reconcile();
+
+        Map<String, Object> report = reportService.generateDailySalesReport(today);
+        assertEquals(saleRepository.countSalesBetween(today.atStartOfDay(), today.atTime(LocalTime.MAX)),
+                report.get("totalTransactions"));
+    }
+
+    // Former implementation: load every sale of the range and walk items → product → category
+
+    private Map<String, BigDecimal> legacyRevenueByCategory() {
+        return transactionTemplate.execute(status -> {
+            Map<String, BigDecimal> revenueByCategory = new HashMap<>();
+            for (Sale sale : saleRepository.findBySaleDateBetween(start, end, null).getContent()) {
+                for (SaleItem item : sale.getItems()) {
+                    revenueByCategory.merge(item.getProduct().getCategory().getName(), item.getTotalPrice(), BigDecimal::add);
+                }
+            }
+            return revenueByCategory;
+        });
+    }
+
+    private List<ReportResponse.TopProduct> legacyTopProducts(int limit) {
+        return transactionTemplate.execute(status -> {
+            Map<String, ReportResponse.TopProduct> byName = new HashMap<>();
+            for (Sale sale : saleRepository.findBySaleDateBetween(start, end, null).getContent()) {
+                if (sale.getStatus() != SaleStatus.COMPLETED) continue;
+                for (SaleItem item : sale.getItems()) {
+                    ReportResponse.TopProduct data = byName.computeIfAbsent(item.getProduct().getNameFr(),
+                            name -> new ReportResponse.TopProduct(name, 0, BigDecimal.ZERO));
+                    data.setQuantitySold(data.getQuantitySold() + item.getQuantity());
+                    data.setRevenue(data.getRevenue().add(item.getTotalPrice()));
+                }
+            }
+            return byName.values().stream()
+                    .sorted((a, b) -> b.getRevenue().compareTo(a.getRevenue()))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private BigDecimal[] legacyTicketRange() {
+        return transactionTemplate.execute(status -> {
+            List<Sale> sales = saleRepository.findBySaleDateBetween(start, end, null).getContent();
+            return new BigDecimal[]{
+                    sales.stream().map(Sale::getTotalAmount).min(BigDecimal::compareTo).orElse(BigDecimal.ZERO),
+                    sales.stream().map(Sale::getTotalAmount).max(BigDecimal::compareTo).orElse(BigDecimal.ZERO)};
+        });
+    }
+
+    private List<ReportResponse.DailySales> legacyDailySales(LocalDate from, LocalDate to) {
+        List<ReportResponse.DailySales> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            BigDecimal revenue = saleRepository.getTotalRevenueBetween(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+            Long transactions = saleRepository.countSalesBetween(day.atStartOfDay(), day.atTime(LocalTime.MAX));
+            days.add(new ReportResponse.DailySales(day, revenue != null ? revenue : BigDecimal.ZERO, transactions.intValue()));
+        }
+        return days;
+    }
+
+    private <T> T time(String label, Supplier<T> report) {
+        T result = null;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long started = System.nanoTime();
+            result = report.get();
+            best = Math.min(best, System.nanoTime() - started);
+        }
+        log.info("{}: best of {} = {} ms ({} sales)", label, ROUNDS, best / 1_000_000, SALES);
+        return result;
+    }
+
+    private static Map<String, BigDecimal> normalize(Map<String, BigDecimal> revenues) {
+        return revenues.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stripTrailingZeros()));
+    }
+
+    private static List<BigDecimal> revenues(List<ReportResponse.TopProduct> products) {
+        return products.stream().map(product -> product.getRevenue().stripTrailingZeros()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,99 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.Stock;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+class StockAlertEngineTest {
+
+    @Autowired
+    private StockAlertEngine stockAlertEngine;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void alertsFollowStockMutations() {
+        Product product = createProduct("LEVELS", 5, 10);
+        stockAlertEngine.productChanged(product);
+
+        Stock lot = stockService.addStock(product.getId(), null, 8, "A", "LOT-SOON", LocalDate.now().plusDays(3));
+        assertEquals(StockAlertEngine.AlertType.REORDER, alertType("product:" + product.getId()));
+        assertEquals(StockAlertEngine.AlertType.EXPIRING_STOCK, alertType("lot:" + lot.getId()));
+
+        stockService.adjustStock(lot.getId(), 3);
+        assertEquals(StockAlertEngine.AlertType.LOW_STOCK, alertType("product:" + product.getId()));
+
+        stockService.adjustStock(lot.getId(), 0);
+        assertEquals(StockAlertEngine.AlertType.OUT_OF_STOCK, alertType("product:" + product.getId()));
+        assertNull(alertType("lot:" + lot.getId()));
+
+        stockService.addStock(product.getId(), null, 50, "A", "LOT-LATE", LocalDate.now().plusYears(1));
+        assertNull(alertType("product:" + product.getId()));
+    }
+
+    @Test
+    void untrackedProductsRaiseNoLevelAlert() {
+        Product product = createProduct("UNTRACKED", 5, 10);
+        product.setTrackStock(false);
+        stockAlertEngine.productChanged(product);
+
+        stockAlertEngine.onStockLevel(product.getId(), 0);
+
+        assertNull(alertType("product:" + product.getId()));
+    }
+
+    private StockAlertEngine.AlertType alertType(String key) {
+        return stockAlertEngine.getActiveAlerts().stream()
+                .filter(alert -> alert.key().equals(key))
+                .map(StockAlertEngine.StockAlert::type)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Product createProduct(String code, int minStockLevel, int reorderLevel) {
+        Category category = new Category();
+        category.setName("Alerts " + code);
+        category.setCode("ALERT-" + code);
+        category.setActive(true);
+        category = categoryRepository.save(category);
+
+        return productRepository.save(Product.builder()
+                .productCode("ALERT-" + code)
+                .sku("ALERT-" + code)
+                .nameFr("Parfum " + code)
+                .nameEn("Perfume " + code)
+                .category(category)
+                .purchasePrice(BigDecimal.ONE)
+                .sellingPriceXOF(BigDecimal.TEN)
+                .taxRate(BigDecimal.ZERO)
+                .active(true)
+                .trackStock(true)
+                .minStockLevel(minStockLevel)
+                .reorderLevel(reorderLevel)
+                .unit("PIECE")
+                .build());
+    }
+}
@@ -0,0 +1,147 @@
+package com.djbc.dutyfree.service;
+
+import com.djbc.dutyfree.domain.entity.Category;
+import com.djbc.dutyfree.domain.entity.Product;
+import com.djbc.dutyfree.domain.entity.Stock;
+import com.djbc.dutyfree.exception.BusinessException;
+import com.djbc.dutyfree.exception.InsufficientStockException;
+import com.djbc.dutyfree.repository.CategoryRepository;
+import com.djbc.dutyfree.repository.ProductRepository;
+import com.djbc.dutyfree.repository.StockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application.yml")
+class StockReservationServiceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockAvailabilityIndex stockAvailabilityIndex;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    void reservesFefoAndRejectsOverReservation() {
+        Product product = createProduct("FEFO");
+        Stock later = stockService.addStock(product.getId(), null, 5, "A", "LOT-LATE", LocalDate.now().plusDays(60));
+        Stock noExpiry = stockService.addStock(product.getId(), null, 5, "A", "LOT-NONE", null);
+        Stock sooner = stockService.addStock(product.getId(), null, 5, "A", "LOT-SOON", LocalDate.now().plusDays(10));
+
+        stockReservationService.reserve(Map.of(product.getId(), 7));
+
+        assertEquals(0, stockRepository.findById(sooner.getId()).orElseThrow().getAvailableQuantity());
+        assertEquals(3, stockRepository.findById(later.getId()).orElseThrow().getAvailableQuantity());
+        assertEquals(5, stockRepository.findById(noExpiry.getId()).orElseThrow().getAvailableQuantity());
+
+        assertThrows(InsufficientStockException.class,
+                () -> stockReservationService.reserve(Map.of(product.getId(), 9)));
+        assertEquals(8, stockService.getAvailableStock(product.getId()));
+
+        stockReservationService.reduce(Map.of(product.getId(), 7));
+        assertEquals(8, stockService.getTotalStock(product.getId()));
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Product product = createProduct("RACE");
+        stockService.addStock(product.getId(), null, 30, "A", "LOT-1", LocalDate.now().plusDays(30));
+        stockService.addStock(product.getId(), null, 20, "A", "LOT-2", null);
+        int supply = 50;
+
+        int threads = 16;
+        int attemptsPerThread = 10;
+        AtomicInteger reservedUnits = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int quantity = 1 + t % 3;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        stockReservationService.reserve(Map.of(product.getId(), quantity));
+                        reservedUnits.addAndGet(quantity);
+                    } catch (InsufficientStockException | BusinessException e) {
+                        // Sold out or lost the race too many times: nothing was reserved
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        List<Stock> lots = stockRepository.findActiveStocksByProductId(product.getId());
+        int reserved = lots.stream().mapToInt(Stock::getReservedQuantity).sum();
+        int available = lots.stream().mapToInt(Stock::getAvailableQuantity).sum();
+
+        assertEquals(reservedUnits.get(), reserved);
+        assertEquals(supply, reserved + available);
+        assertTrue(reserved <= supply);
+        assertEquals(available, stockAvailabilityIndex.getAvailable(product.getId()));
+        lots.forEach(lot -> assertTrue(lot.getAvailableQuantity() >= 0));
+    }
+
+    private Product createProduct(String code) {
+        Category category = new Category();
+        category.setName("Reservation " + code);
+        category.setCode("RES-" + code);
+        category.setActive(true);
+        category = categoryRepository.save(category);
+
+        return productRepository.save(Product.builder()
+                .productCode("RES-" + code)
+                .sku("RES-" + code)
+                .nameFr("Parfum " + code)
+                .nameEn("Perfume " + code)
+                .category(category)
+                .purchasePrice(BigDecimal.ONE)
+                .sellingPriceXOF(BigDecimal.TEN)
+                .taxRate(BigDecimal.ZERO)
+                .active(true)
+                .trackStock(true)
+                .minStockLevel(0)
+                .reorderLevel(0)
+                .unit("PIECE")
+                .build());
+    }
+}
@@ -0,0 +1,95 @@
+package com.djbc.dutyfree.websocket;
+
+import com.djbc.dutyfree.config.NodeIdentity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSocketEventBusTest {
+
+    @Test
+    void batchesPerFlushAndCoalescesByKey() {
+        List<List<WebSocketEvent>> transmitted = new ArrayList<>();
+        WebSocketEventBus bus = new WebSocketEventBus() {
+            @Override
+            protected void transmit(List<WebSocketEvent> batch) {
+                transmitted.add(batch);
+            }
+        };
+        List<String> sales = new ArrayList<>();
+        List<String> notifications = new ArrayList<>();
+        bus.subscribe(WebSocketEvent.Channel.SALES, event -> sales.add(event.payload()));
+        bus.subscribe(WebSocketEvent.Channel.NOTIFICATIONS, event -> notifications.add(event.payload()));
+
+        bus.publish(sales("stock:1", "stock 1 = 10"));
+        bus.publish(sales(null, "sale 1"));
+        bus.publish(sales("stock:2", "stock 2 = 5"));
+        bus.publish(sales("stock:1", "stock 1 = 9"));
+        bus.publish(sales(null, "sale 2"));
+        bus.publish(new WebSocketEvent(WebSocketEvent.Channel.NOTIFICATIONS, "7", null, "low stock"));
+        bus.publish(sales("stock:1", "stock 1 = 8"));
+
+        assertTrue(sales.isEmpty());
+        bus.flush();
+
+        // Latest stock level of product 1, in the position of its first event
+        assertEquals(List.of("stock 1 = 8", "sale 1", "stock 2 = 5", "sale 2"), sales);
+        assertEquals(List.of("low stock"), notifications);
+        assertEquals(1, transmitted.size());
+        assertEquals(5, transmitted.get(0).size());
+
+        bus.flush();
+        assertEquals(1, transmitted.size());
+    }
+
+    @Test
+    void missingBatchNumberFromAnotherNodeReportsAGap() {
+        List<String> sent = new ArrayList<>();
+        StringRedisTemplate redis = new StringRedisTemplate() {
+            @Override
+            public Long convertAndSend(String channel, Object message) {
+                sent.add((String) message);
+                return 1L;
+            }
+        };
+        ObjectMapper objectMapper = new ObjectMapper();
+        RedisWebSocketEventBus nodeA = new RedisWebSocketEventBus(redis, objectMapper, new NodeIdentity("node-a"));
+        RedisWebSocketEventBus nodeB = new RedisWebSocketEventBus(redis, objectMapper, new NodeIdentity("node-b"));
+        List<String> received = new ArrayList<>();
+        int[] gaps = {0};
+        nodeB.subscribe(WebSocketEvent.Channel.SALES, event -> received.add(event.payload()));
+        nodeB.onGap(() -> gaps[0]++);
+
+        for (int i = 1; i <= 3; i++) {
+            nodeA.publish(sales(null, "sale " + i));
+            nodeA.flush();
+        }
+        assertEquals(3, sent.size());
+
+        nodeB.onMessage(message(sent.get(0)), null);
+        assertEquals(0, gaps[0]);
+
+        // Second batch lost on the way to node B: the third one is still delivered, then reported
+        nodeB.onMessage(message(sent.get(2)), null);
+        assertEquals(1, gaps[0]);
+        assertEquals(List.of("sale 1", "sale 3"), received);
+    }
+
+    private static Message message(String body) {
+        return new DefaultMessage(RedisWebSocketEventBus.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static WebSocketEvent sales(String coalesceKey, String payload) {
+        return new WebSocketEvent(WebSocketEvent.Channel.SALES, null, coalesceKey, payload);
+    }
+}